@@ -0,0 +1,30 @@
+package bench;
+
+import java.io.IOException;
+
+import java.util.Arrays;
+
+import org.openjdk.jmh.runner.RunnerException;
+
+/** Entry point for the benchmark suite.
+ *  @author Warner Tsang
+ */
+public final class Main {
+
+    /** Run the JMH benchmarks selected by RAWARGS, which may contain any
+     *  of the options accepted by org.openjdk.jmh.Main (use -h for a
+     *  list).  Unless RAWARGS specify a profiler with -prof, the GC
+     *  profiler is added, so that allocation rates are reported alongside
+     *  throughput. */
+    public static void main(String... rawArgs)
+        throws RunnerException, IOException {
+        String[] args = rawArgs;
+        if (!Arrays.asList(rawArgs).contains("-prof")) {
+            args = Arrays.copyOf(rawArgs, rawArgs.length + 2);
+            args[rawArgs.length] = "-prof";
+            args[rawArgs.length + 1] = "gc";
+        }
+        org.openjdk.jmh.Main.main(args);
+    }
+
+}
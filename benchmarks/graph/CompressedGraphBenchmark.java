@@ -0,0 +1,154 @@
+package graph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks comparing traversal speed of the compressed adjacency
+ *  layout (CompressedGraph) with the uncompressed read-only layouts: a
+ *  heap snapshot and an OffHeapGraph.  The size of each layout, in bytes
+ *  per edge, is printed during setup.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CompressedGraphBenchmark {
+
+    /** Shape of the graph. */
+    @Param({ "GRID", "DAG", "RANDOM" })
+    public SyntheticGraphs.Shape shape;
+
+    /** Approximate number of vertices. */
+    @Param({ "100000" })
+    public int size;
+
+    /** Layout: "snapshot" (heap arrays), "offheap" (OffHeapGraph), or
+     *  "compressed" (CompressedGraph). */
+    @Param({ "snapshot", "offheap", "compressed" })
+    public String layout;
+
+    /** Build the graph in the selected layout, and the random probes. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Graph g = SyntheticGraphs.generate(new ConcurrentDirectedGraph(),
+                                           shape, size);
+        long bytes;
+        switch (layout) {
+        case "snapshot":
+            _graph = g.snapshot();
+            bytes = 0;
+            break;
+        case "offheap":
+            OffHeapGraph offHeap = OffHeapGraph.copyOf(g);
+            bytes = offHeap.offHeapBytes();
+            _graph = offHeap;
+            break;
+        case "compressed":
+            CompressedGraph compressed = CompressedGraph.copyOf(g);
+            bytes = compressed.byteSize();
+            _graph = compressed;
+            break;
+        default:
+            throw new IllegalArgumentException("unknown layout: " + layout);
+        }
+        if (bytes > 0) {
+            System.out.printf("%n%s %s: %.2f bytes per edge%n", layout,
+                              shape, (double) bytes / g.edgeSize());
+        }
+        Random rand = new Random(1);
+        int n = _graph.maxVertex();
+        _probes = new int[2 * PROBES];
+        for (int k = 0; k < _probes.length; k += 2) {
+            _probes[k] = rand.nextInt(n) + 1;
+            _probes[k + 1] = Math.max(1, Math.min(n, _probes[k]
+                                                  + rand.nextInt(5) - 2));
+        }
+    }
+
+    /** Release the off-heap layout's memory. */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        if (_graph instanceof OffHeapGraph) {
+            ((OffHeapGraph) _graph).close();
+        }
+    }
+
+    /** Measures reading every successor list once, in vertex order. */
+    @Benchmark
+    public long scan() {
+        IntIteration cursor = new IntIteration();
+        long sum;
+        sum = 0;
+        for (int v = 1; v <= _graph.maxVertex(); v += 1) {
+            IntIteration succ = _graph.successors(v, cursor);
+            while (succ.hasNext()) {
+                sum += succ.nextInt();
+            }
+        }
+        return sum;
+    }
+
+    /** Measures a complete breadth-first search from vertex 1.  The
+     *  search uses plain arrays rather than a BreadthFirstTraversal, whose
+     *  own bookkeeping would dominate the time spent reading successors. */
+    @Benchmark
+    public int breadthFirst() {
+        int n = _graph.maxVertex();
+        int[] queue = new int[n];
+        boolean[] marked = new boolean[n + 1];
+        IntIteration cursor = new IntIteration();
+        int head, tail;
+        head = tail = 0;
+        queue[tail++] = 1;
+        marked[1] = true;
+        while (head < tail) {
+            IntIteration succ = _graph.successors(queue[head++], cursor);
+            while (succ.hasNext()) {
+                int v = succ.nextInt();
+                if (!marked[v]) {
+                    marked[v] = true;
+                    queue[tail++] = v;
+                }
+            }
+        }
+        return tail;
+    }
+
+    /** Measures PROBES calls of contains(u, v) on nearby vertex pairs. */
+    @Benchmark
+    public int contains() {
+        int found;
+        found = 0;
+        for (int k = 0; k < _probes.length; k += 2) {
+            if (_graph.contains(_probes[k], _probes[k + 1])) {
+                found += 1;
+            }
+        }
+        return found;
+    }
+
+    /** Number of contains probes per invocation. */
+    private static final int PROBES = 10000;
+
+    /** The graph under test. */
+    private Graph _graph;
+    /** Pairs of vertices for contains. */
+    private int[] _probes;
+}
@@ -0,0 +1,109 @@
+package graph;
+
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+/** Measures the throughput of mixed successor queries and edge updates
+ *  against a ConcurrentDirectedGraph, and against a DirectedGraph guarded
+ *  by a single global lock, for 1 to 32 threads.  Each operation is an
+ *  edge removal or re-insertion with probability WRITE_RATIO and otherwise
+ *  a scan of the successors of a random vertex.
+ *  @author Warner Tsang
+ */
+public class ConcurrentGraphBenchmark {
+
+    /** Fraction of operations that modify the graph. */
+    static final double WRITE_RATIO = 0.01;
+    /** Number of vertices in the test graph. */
+    static final int VERTICES = 2000;
+    /** Out-degree of each vertex in the test graph. */
+    static final int DEGREE = 4;
+    /** Length of each measurement, in milliseconds. */
+    static final int MILLIS = 2000;
+
+    /** Run the benchmark, printing operations per second for each thread
+     *  count.  ARGS is ignored. */
+    public static void main(String... args) throws InterruptedException {
+        System.out.printf("%8s %16s %16s%n", "threads", "global-lock",
+                          "concurrent");
+        for (int threads = 1; threads <= 32; threads *= 2) {
+            DirectedGraph plain = new DirectedGraph();
+            fill(plain);
+            double locked = run(plain, new ReentrantLock(), threads);
+            ConcurrentDirectedGraph conc = new ConcurrentDirectedGraph();
+            fill(conc);
+            double striped = run(conc, null, threads);
+            System.out.printf("%8d %16.0f %16.0f%n", threads, locked, striped);
+        }
+    }
+
+    /** Add VERTICES vertices to G, each with DEGREE random successors. */
+    static void fill(Graph g) {
+        Random rand = new Random(42);
+        for (int i = 0; i < VERTICES; i += 1) {
+            g.add();
+        }
+        for (int u = 1; u <= VERTICES; u += 1) {
+            for (int k = 0; k < DEGREE; k += 1) {
+                g.add(u, rand.nextInt(VERTICES) + 1);
+            }
+        }
+    }
+
+    /** Returns the operations per second achieved by THREADS threads
+     *  working on G, holding LOCK around every operation if it is
+     *  non-null. */
+    static double run(final Graph g, final ReentrantLock lock, int threads)
+        throws InterruptedException {
+        final AtomicBoolean stop = new AtomicBoolean();
+        final LongAdder ops = new LongAdder();
+        final CountDownLatch done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t += 1) {
+            final long seed = t;
+            new Thread(() -> {
+                Random rand = new Random(seed);
+                long n = 0;
+                long sink = 0;
+                while (!stop.get()) {
+                    int u = rand.nextInt(VERTICES) + 1,
+                        v = rand.nextInt(VERTICES) + 1;
+                    boolean write = rand.nextDouble() < WRITE_RATIO;
+                    if (lock != null) {
+                        lock.lock();
+                    }
+                    try {
+                        if (!write) {
+                            for (int w : g.successors(u)) {
+                                sink += w;
+                            }
+                        } else if (g.contains(u, v)) {
+                            g.remove(u, v);
+                        } else {
+                            g.add(u, v);
+                        }
+                    } finally {
+                        if (lock != null) {
+                            lock.unlock();
+                        }
+                    }
+                    n += 1;
+                }
+                ops.add(n);
+                _sink += sink;
+                done.countDown();
+            }).start();
+        }
+        Thread.sleep(MILLIS);
+        stop.set(true);
+        done.await();
+        return ops.sum() * 1000.0 / MILLIS;
+    }
+
+    /** Accumulates results of reads so that they cannot be optimized
+     *  away. */
+    private static volatile long _sink;
+
+}
@@ -0,0 +1,95 @@
+package graph;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of one-to-all shortest paths by DeltaStepping on pools
+ *  of increasing size, to measure how it scales, and by
+ *  SimpleShortestPaths for comparison.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class DeltaSteppingBenchmark {
+
+    /** Shape of the graph. */
+    @Param({ "GRID", "RANDOM" })
+    public SyntheticGraphs.Shape shape;
+
+    /** Approximate number of vertices. */
+    @Param({ "250000" })
+    public int size;
+
+    /** Number of threads in the pool. */
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    /** Bucket width, or 0 to let DeltaStepping choose one. */
+    @Param({ "0" })
+    public double delta;
+
+    /** Build the graph and the pool. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        _graph = SyntheticGraphs.generate(new ConcurrentDirectedGraph(),
+                                          shape, size).snapshot();
+        _pool = new ForkJoinPool(threads);
+    }
+
+    /** Shut down the pool. */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        _pool.shutdown();
+    }
+
+    /** Measures delta-stepping from vertex 1 to all vertices. */
+    @Benchmark
+    public double deltaStepping() {
+        DeltaStepping paths = new DeltaStepping(_graph, 1) {
+            @Override
+            protected double getWeight(int u, int v) {
+                return SyntheticGraphs.weight(u, v);
+            }
+        };
+        paths.setDelta(delta);
+        paths.setPaths(_pool);
+        return paths.getWeight(_graph.maxVertex());
+    }
+
+    /** Measures the sequential search from vertex 1 to all vertices.  It
+     *  does not use the pool, and so does not depend on threads. */
+    @Benchmark
+    public double sequential() {
+        SimpleShortestPaths paths = new SimpleShortestPaths(_graph, 1) {
+            @Override
+            protected double getWeight(int u, int v) {
+                return SyntheticGraphs.weight(u, v);
+            }
+        };
+        paths.setPaths();
+        return paths.getWeight(_graph.maxVertex());
+    }
+
+    /** The graph searched. */
+    private Graph _graph;
+    /** The pool on which to search. */
+    private ForkJoinPool _pool;
+}
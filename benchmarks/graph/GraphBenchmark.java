@@ -0,0 +1,166 @@
+package graph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+/** JMH benchmarks of the basic Graph operations, traversals, and shortest
+ *  paths over synthetic graphs of several shapes and implementations.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class GraphBenchmark {
+
+    /** Shape of the graph. */
+    @Param({ "RANDOM", "GRID", "POWERLAW", "DAG" })
+    public SyntheticGraphs.Shape shape;
+
+    /** Approximate number of vertices. */
+    @Param({ "1000" })
+    public int size;
+
+    /** Graph implementation: "directed" (DirectedGraph) or "concurrent"
+     *  (ConcurrentDirectedGraph). */
+    @Param({ "directed", "concurrent" })
+    public String impl;
+
+    /** Build the graph and the random probes used by the benchmarks. */
+    @Setup
+    public void setUp() {
+        _graph = SyntheticGraphs.generate(newGraph(), shape, size);
+        Random rand = new Random(1);
+        int n = _graph.maxVertex();
+        _probes = new int[2 * PROBES];
+        for (int k = 0; k < _probes.length; k += 1) {
+            _probes[k] = rand.nextInt(n) + 1;
+        }
+        _edges = new int[2 * PROBES];
+        int k;
+        k = 0;
+        for (int[] e : _graph.edges()) {
+            if (k == _edges.length) {
+                break;
+            }
+            _edges[k] = e[0];
+            _edges[k + 1] = e[1];
+            k += 2;
+        }
+        _edgeCount = k;
+    }
+
+    /** Measures building the graph from scratch with add(). */
+    @Benchmark
+    public Graph build() {
+        return SyntheticGraphs.generate(newGraph(), shape, size);
+    }
+
+    /** Measures PROBES calls of contains(u, v) on random vertex pairs. */
+    @Benchmark
+    public int contains() {
+        int found;
+        found = 0;
+        for (int k = 0; k < _probes.length; k += 2) {
+            if (_graph.contains(_probes[k], _probes[k + 1])) {
+                found += 1;
+            }
+        }
+        return found;
+    }
+
+    /** Measures removing and re-adding up to PROBES existing edges. */
+    @Benchmark
+    public int removeAndAdd() {
+        int sum;
+        sum = 0;
+        for (int k = 0; k < _edgeCount; k += 2) {
+            _graph.remove(_edges[k], _edges[k + 1]);
+            sum += _graph.add(_edges[k], _edges[k + 1]);
+        }
+        return sum;
+    }
+
+    /** Measures a complete breadth-first traversal from vertex 1. */
+    @Benchmark
+    public void breadthFirst(final Blackhole hole) {
+        new BreadthFirstTraversal(_graph) {
+            @Override
+            protected boolean visit(int v) {
+                hole.consume(v);
+                return true;
+            }
+        }.traverse(1);
+    }
+
+    /** Measures a complete depth-first traversal from vertex 1, with
+     *  post-visits. */
+    @Benchmark
+    public void depthFirst(final Blackhole hole) {
+        new DepthFirstTraversal(_graph) {
+            @Override
+            protected boolean visit(int v) {
+                hole.consume(v);
+                return true;
+            }
+
+            @Override
+            protected boolean shouldPostVisit(int v) {
+                return true;
+            }
+        }.traverse(1);
+    }
+
+    /** Measures single-source shortest paths from vertex 1 to all
+     *  vertices. */
+    @Benchmark
+    public double shortestPaths() {
+        SimpleShortestPaths paths = new SimpleShortestPaths(_graph, 1) {
+            @Override
+            protected double getWeight(int u, int v) {
+                return SyntheticGraphs.weight(u, v);
+            }
+        };
+        paths.setPaths();
+        return paths.getWeight(_graph.maxVertex());
+    }
+
+    /** Returns a new, empty graph of the implementation named by impl. */
+    private Graph newGraph() {
+        switch (impl) {
+        case "directed":
+            return new DirectedGraph();
+        case "concurrent":
+            return new ConcurrentDirectedGraph();
+        default:
+            throw new IllegalArgumentException("unknown graph type: " + impl);
+        }
+    }
+
+    /** Number of probes per contains or removeAndAdd invocation. */
+    static final int PROBES = 256;
+
+    /** The graph under test. */
+    private Graph _graph;
+    /** Vertex pairs probed by contains. */
+    private int[] _probes;
+    /** Existing edges removed and re-added by removeAndAdd. */
+    private int[] _edges;
+    /** Number of elements of _edges in use. */
+    private int _edgeCount;
+}
@@ -0,0 +1,106 @@
+package graph;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of finding the vertex nearest to a point, among vertices
+ *  at random points of a square, with a KdTree and by a linear scan of
+ *  all of them, and of building the tree.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class KdTreeBenchmark {
+
+    /** Number of vertices. */
+    @Param({ "1000", "100000" })
+    public int size;
+
+    /** Place the vertices, build the tree, and choose the query points. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        Random rand = new Random(49);
+        _graph = new ConcurrentDirectedGraph();
+        _x = new double[size + 1];
+        _y = new double[size + 1];
+        for (int v = 1; v <= size; v += 1) {
+            _graph.add();
+            _x[v] = rand.nextDouble();
+            _y[v] = rand.nextDouble();
+        }
+        _tree = build();
+        _queries = new double[2 * QUERIES];
+        for (int i = 0; i < _queries.length; i += 1) {
+            _queries[i] = rand.nextDouble();
+        }
+    }
+
+    /** Measures QUERIES nearest-vertex queries with the tree. */
+    @Benchmark
+    public int nearest() {
+        int sum;
+        sum = 0;
+        for (int i = 0; i < _queries.length; i += 2) {
+            sum += _tree.nearest(_queries[i], _queries[i + 1]);
+        }
+        return sum;
+    }
+
+    /** Measures QUERIES nearest-vertex queries by linear scan. */
+    @Benchmark
+    public int scan() {
+        int sum;
+        sum = 0;
+        for (int i = 0; i < _queries.length; i += 2) {
+            double qx = _queries[i], qy = _queries[i + 1];
+            double best = Double.POSITIVE_INFINITY;
+            int nearest;
+            nearest = 0;
+            for (int v = 1; v < _x.length; v += 1) {
+                double dx = _x[v] - qx, dy = _y[v] - qy;
+                double d = dx * dx + dy * dy;
+                if (d < best) {
+                    best = d;
+                    nearest = v;
+                }
+            }
+            sum += nearest;
+        }
+        return sum;
+    }
+
+    /** Measures building the tree. */
+    @Benchmark
+    public KdTree build() {
+        return KdTree.of(_graph, v -> _x[v], v -> _y[v]);
+    }
+
+    /** Number of queries per benchmark invocation. */
+    static final int QUERIES = 100;
+
+    /** The graph whose vertices are indexed. */
+    private Graph _graph;
+    /** Vertex v is at (_x[v], _y[v]). */
+    private double[] _x, _y;
+    /** The tree over the vertices. */
+    private KdTree _tree;
+    /** Query point i is (_queries[2i], _queries[2i+1]). */
+    private double[] _queries;
+}
@@ -0,0 +1,108 @@
+package graph;
+
+import java.util.Random;
+
+/** Generators for the synthetic graphs used by the benchmarks.  Each
+ *  generator adds vertices 1..N to an empty graph and then adds edges,
+ *  using a fixed seed so that every run measures the same graph.
+ *  @author Warner Tsang
+ */
+public class SyntheticGraphs {
+
+    /** The shapes of graph that may be generated. */
+    public enum Shape {
+        /** Uniformly random edges, average out-degree DEGREE. */
+        RANDOM,
+        /** A square grid with edges in both directions between horizontal
+         *  and vertical neighbors, resembling a road map. */
+        GRID,
+        /** Preferential attachment: each new vertex links to DEGREE
+         *  earlier vertices chosen in proportion to their degree, giving a
+         *  power-law degree distribution. */
+        POWERLAW,
+        /** A deep DAG: a chain 1 -> 2 -> ... -> N plus up to DEGREE - 1
+         *  edges from each vertex to nearby later vertices, resembling
+         *  a long dependency chain. */
+        DAG
+    }
+
+    /** Average out-degree of the RANDOM, POWERLAW, and DAG shapes. */
+    public static final int DEGREE = 4;
+
+    /** Fill G, which must be empty, with a graph of the given SHAPE having
+     *  about N vertices.  Returns G. */
+    public static <G extends Graph> G generate(G g, Shape shape, int n) {
+        Random rand = new Random(SEED);
+        switch (shape) {
+        case RANDOM:
+            addVertices(g, n);
+            for (int i = 0; i < n * DEGREE; i += 1) {
+                g.add(rand.nextInt(n) + 1, rand.nextInt(n) + 1);
+            }
+            break;
+        case GRID:
+            int side = (int) Math.ceil(Math.sqrt(n));
+            addVertices(g, side * side);
+            for (int r = 0; r < side; r += 1) {
+                for (int c = 0; c < side; c += 1) {
+                    int v = r * side + c + 1;
+                    if (c + 1 < side) {
+                        g.add(v, v + 1);
+                        g.add(v + 1, v);
+                    }
+                    if (r + 1 < side) {
+                        g.add(v, v + side);
+                        g.add(v + side, v);
+                    }
+                }
+            }
+            break;
+        case POWERLAW:
+            addVertices(g, n);
+            int[] ends = new int[2 * n * DEGREE];
+            int m;
+            m = 0;
+            for (int v = 2; v <= n; v += 1) {
+                for (int k = 0; k < DEGREE; k += 1) {
+                    int w = m == 0 ? 1 : ends[rand.nextInt(m)];
+                    g.add(v, w);
+                    ends[m] = v;
+                    ends[m + 1] = w;
+                    m += 2;
+                }
+            }
+            break;
+        case DAG:
+            addVertices(g, n);
+            for (int v = 1; v < n; v += 1) {
+                g.add(v, v + 1);
+                for (int k = 1; k < DEGREE; k += 1) {
+                    int w = v + 1 + rand.nextInt(2 * DEGREE);
+                    if (w <= n) {
+                        g.add(v, w);
+                    }
+                }
+            }
+            break;
+        default:
+            throw new IllegalArgumentException("unknown shape");
+        }
+        return g;
+    }
+
+    /** Returns a pseudo-random weight in [1, 10] for the edge (U, V),
+     *  the same on every call. */
+    public static double weight(int u, int v) {
+        return 1 + ((u * 31 + v * 17) & 0x7fffffff) % 10;
+    }
+
+    /** Add N vertices to G. */
+    private static void addVertices(Graph g, int n) {
+        for (int i = 0; i < n; i += 1) {
+            g.add();
+        }
+    }
+
+    /** Random-number seed for all generators. */
+    private static final long SEED = 61;
+}
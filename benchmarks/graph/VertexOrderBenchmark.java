@@ -0,0 +1,114 @@
+package graph;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of shortest-path searches on a grid whose vertices are
+ *  numbered at random, before and after renumbering them by each of the
+ *  orders of VertexOrder.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class VertexOrderBenchmark {
+
+    /** Approximate number of vertices. */
+    @Param({ "250000" })
+    public int size;
+
+    /** Vertex numbering: "random", or the name of a VertexOrder method:
+     *  "breadthFirst", "reverseCuthillMcKee", or "hilbert". */
+    @Param({ "random", "breadthFirst", "reverseCuthillMcKee", "hilbert" })
+    public String order;
+
+    /** Build the randomly numbered grid and renumber it. */
+    @Setup(Level.Trial)
+    public void setUp() {
+        int side = (int) Math.ceil(Math.sqrt(size)), n = side * side;
+        List<Integer> ids = new ArrayList<>();
+        for (int v = 1; v <= n; v += 1) {
+            ids.add(v);
+        }
+        Collections.shuffle(ids, new Random(42));
+        int[] id = new int[n + 1], cell = new int[n + 1];
+        for (int c = 0; c < n; c += 1) {
+            id[c + 1] = ids.get(c);
+            cell[ids.get(c)] = c;
+        }
+        Graph grid = SyntheticGraphs.generate(new ConcurrentDirectedGraph(),
+                                              SyntheticGraphs.Shape.GRID, n);
+        Graph g = new ConcurrentDirectedGraph();
+        for (int v = 1; v <= n; v += 1) {
+            g.add();
+        }
+        for (int[] e : grid.edges()) {
+            g.add(id[e[0]], id[e[1]]);
+        }
+        VertexOrder perm;
+        switch (order) {
+        case "random":
+            perm = null;
+            break;
+        case "breadthFirst":
+            perm = VertexOrder.breadthFirst(g);
+            break;
+        case "reverseCuthillMcKee":
+            perm = VertexOrder.reverseCuthillMcKee(g);
+            break;
+        case "hilbert":
+            perm = VertexOrder.hilbert(g, v -> cell[v] % side,
+                                       v -> cell[v] / side);
+            break;
+        default:
+            throw new IllegalArgumentException("unknown order: " + order);
+        }
+        _source = id[1];
+        _dest = id[n];
+        if (perm != null) {
+            g = perm.apply(g, new ConcurrentDirectedGraph());
+            _source = perm.newId(_source);
+            _dest = perm.newId(_dest);
+        }
+        _graph = g.snapshot();
+    }
+
+    /** Measures a search for the shortest path between opposite corners of
+     *  the grid, which settles nearly every vertex. */
+    @Benchmark
+    public double setPaths() {
+        SimpleShortestPaths paths =
+            new SimpleShortestPaths(_graph, _source, _dest) {
+                @Override
+                protected double getWeight(int u, int v) {
+                    return 1.0;
+                }
+            };
+        paths.setPaths();
+        return paths.getWeight(_dest);
+    }
+
+    /** The graph under test. */
+    private Graph _graph;
+    /** The corners of the grid. */
+    private int _source, _dest;
+}
@@ -0,0 +1,121 @@
+package make;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of reading a generated Makefile and building its root
+ *  target.  Commands are written to a discarding stream.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class MakerBenchmark {
+
+    /** Number of targets in the generated Makefile. */
+    @Param({ "200", "1000" })
+    public int targets;
+
+    /** Write the Makefile and file-information files, and silence
+     *  standard output. */
+    @Setup(Level.Trial)
+    public void setUpTrial() throws IOException {
+        _makefile = File.createTempFile("bench", ".mk");
+        _fileInfo = File.createTempFile("bench", ".info");
+        writeMakefile(_makefile, _fileInfo, targets);
+        _stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /** Read the files into a fresh Maker before each build. */
+    @Setup(Level.Invocation)
+    public void setUpInvocation() {
+        _maker = new Maker();
+        _maker.readFileAges(_fileInfo.getPath());
+        _maker.readMakefile(_makefile.getPath());
+    }
+
+    /** Restore standard output and remove the generated files. */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        System.setOut(_stdout);
+        _makefile.delete();
+        _fileInfo.delete();
+    }
+
+    /** Measures reading the Makefile and file information. */
+    @Benchmark
+    public Maker read() {
+        Maker maker = new Maker();
+        maker.readFileAges(_fileInfo.getPath());
+        maker.readMakefile(_makefile.getPath());
+        return maker;
+    }
+
+    /** Measures building the root target, on which all others depend. */
+    @Benchmark
+    public Maker build() {
+        _maker.build("t1");
+        return _maker;
+    }
+
+    /** Write to MAKEFILE a layered dependency DAG of N targets t1..tN, in
+     *  which each target depends on the next and on up to two other
+     *  distinct, nearby later targets, and write to FILEINFO ages that
+     *  make about half of the targets out of date. */
+    static void writeMakefile(File makefile, File fileInfo, int n)
+        throws IOException {
+        Random rand = new Random(61);
+        try (PrintWriter out = new PrintWriter(makefile);
+             PrintWriter info = new PrintWriter(fileInfo)) {
+            info.println(n + 1);
+            for (int i = 1; i <= n; i += 1) {
+                StringBuilder deps = new StringBuilder();
+                if (i < n) {
+                    deps.append(" t").append(i + 1);
+                    for (int k = 0; k < 2; k += 1) {
+                        int j = i + 2 + 3 * k + rand.nextInt(3);
+                        if (j <= n) {
+                            deps.append(" t").append(j);
+                        }
+                    }
+                }
+                out.printf("t%d:%s%n", i, deps);
+                out.printf("    build t%d%n", i);
+                if (rand.nextBoolean()) {
+                    info.printf("t%d %d%n", i, rand.nextInt(n));
+                }
+            }
+        }
+    }
+
+    /** The generated Makefile and file-information file. */
+    private File _makefile, _fileInfo;
+    /** A Maker with the files read, ready to build. */
+    private Maker _maker;
+    /** The original standard output. */
+    private PrintStream _stdout;
+}
@@ -0,0 +1,137 @@
+package trip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of trip planning, with and without chain contraction,
+ *  on a generated map of a grid of junctions in which each road between
+ *  neighboring junctions passes through several intermediate locations,
+ *  so that most locations lie on chains.  The route cache is disabled,
+ *  so that every leg is searched for.  Directions are written to a
+ *  discarding stream.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ContractionBenchmark {
+
+    /** Number of junctions along each side of the square map. */
+    @Param({ "10" })
+    public int side;
+
+    /** Number of locations between neighboring junctions. */
+    @Param({ "9" })
+    public int between;
+
+    /** Whether to contract the map. */
+    @Param({ "false", "true" })
+    public boolean contract;
+
+    /** Write the map file, load it, and contract it if requested. */
+    @Setup
+    public void setUp() throws IOException {
+        File mapFile = writeChainMap(side, between);
+        _trip = new Trip();
+        try {
+            _trip.readMap(mapFile.getPath());
+        } finally {
+            mapFile.delete();
+        }
+        _trip.setRouteCache(null);
+        if (contract) {
+            _trip.contract();
+        }
+        int last = side - 1;
+        _stops = Arrays.asList(TripBenchmark.name(0, 0),
+                               TripBenchmark.name(last, last),
+                               TripBenchmark.name(0, last),
+                               TripBenchmark.name(last / 2, last / 2));
+        _out = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    /** Measures planning and reporting a three-leg trip between
+     *  junctions. */
+    @Benchmark
+    public void makeTrip() {
+        _trip.makeTrip(_stops, _out);
+    }
+
+    /** Write a temporary map file describing a SIDE x SIDE grid of
+     *  junctions, named as by TripBenchmark.name, joined by east-west and
+     *  north-south roads each passing through BETWEEN other locations, and
+     *  return it.  Every stretch of road is a mile long. */
+    static File writeChainMap(int side, int between) throws IOException {
+        File file = File.createTempFile("chains", ".map");
+        int step = between + 1;
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (int r = 0; r < side; r += 1) {
+                for (int c = 0; c < side; c += 1) {
+                    out.printf("L %s %d %d%n", TripBenchmark.name(r, c),
+                               c * step, -r * step);
+                }
+            }
+            for (int r = 0; r < side; r += 1) {
+                for (int c = 0; c < side; c += 1) {
+                    if (c + 1 < side) {
+                        chain(out, r, c, r, c + 1, "Row_" + r, "WE",
+                              between);
+                    }
+                    if (r + 1 < side) {
+                        chain(out, r, c, r + 1, c, "Col_" + c, "NS",
+                              between);
+                    }
+                }
+            }
+        }
+        return file;
+    }
+
+    /** Write to OUT the locations and roads of a road named NAME running
+     *  in direction DIR from the junction in row R0 and column C0 to the
+     *  one in row R1 and column C1 through BETWEEN other locations. */
+    private static void chain(PrintWriter out, int r0, int c0, int r1,
+                              int c1, String name, String dir,
+                              int between) {
+        int step = between + 1;
+        String prev = TripBenchmark.name(r0, c0);
+        for (int i = 1; i <= between; i += 1) {
+            String next = TripBenchmark.name(r0, c0) + "_" + dir + "_" + i;
+            out.printf("L %s %d %d%n", next, c0 * step + (c1 - c0) * i,
+                       -(r0 * step + (r1 - r0) * i));
+            out.printf("R %s %s 1.0 %s %s%n", prev, name, dir, next);
+            prev = next;
+        }
+        out.printf("R %s %s 1.0 %s %s%n", prev, name, dir,
+                   TripBenchmark.name(r1, c1));
+    }
+
+    /** A Trip with the map loaded. */
+    private Trip _trip;
+    /** The stops of the planned trip. */
+    private List<String> _stops;
+    /** Where directions go. */
+    private PrintStream _out;
+}
@@ -0,0 +1,87 @@
+package trip;
+
+import java.io.File;
+import java.io.IOException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmark of building the all-pairs distance matrix among randomly
+ *  chosen stops of a generated grid road map, as a function of the
+ *  number of worker threads.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class DistanceMatrixBenchmark {
+
+    /** Number of locations along each side of the square map. */
+    @Param({ "40" })
+    public int side;
+
+    /** Number of stops in the matrix. */
+    @Param({ "500" })
+    public int stops;
+
+    /** Number of worker threads. */
+    @Param({ "1", "2", "4", "8" })
+    public int threads;
+
+    /** Load the map, choose the stops, and start the pool. */
+    @Setup
+    public void setUp() throws IOException {
+        File mapFile = TripBenchmark.writeGridMap(side);
+        _trip = new Trip();
+        _trip.readMap(mapFile.getPath());
+        mapFile.delete();
+        Random rand = new Random(SEED);
+        _stops = new ArrayList<>();
+        for (int i = 0; i < stops; i += 1) {
+            _stops.add(TripBenchmark.name(rand.nextInt(side),
+                                          rand.nextInt(side)));
+        }
+        _pool = new ForkJoinPool(threads);
+    }
+
+    /** Stop the pool. */
+    @TearDown
+    public void tearDown() {
+        _pool.shutdown();
+    }
+
+    /** Measures building the matrix. */
+    @Benchmark
+    public double[] matrix() {
+        return _trip.distanceMatrix(_stops, _pool);
+    }
+
+    /** Random-number seed for choosing stops. */
+    private static final long SEED = 61;
+
+    /** A Trip with the map loaded. */
+    private Trip _trip;
+    /** The stops. */
+    private List<String> _stops;
+    /** The worker threads. */
+    private ForkJoinPool _pool;
+}
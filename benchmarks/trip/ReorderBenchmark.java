@@ -0,0 +1,122 @@
+package trip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import java.nio.file.Files;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of trip planning on a grid road map whose locations are
+ *  listed in random order, so that their vertex numbers are scattered,
+ *  after renumbering them by each of the orders of Trip.reorder.
+ *  Directions are written to a discarding stream.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReorderBenchmark {
+
+    /** Number of locations along each side of the square map. */
+    @Param({ "40" })
+    public int side;
+
+    /** Order of the locations: "file" (as listed), or an order accepted
+     *  by Trip.reorder. */
+    @Param({ "file", "bfs", "rcm", "hilbert" })
+    public String order;
+
+    /** Write the shuffled map file, load and reorder it, and silence
+     *  standard output. */
+    @Setup
+    public void setUp() throws IOException {
+        File mapFile = writeShuffledMap(side, new Random(42));
+        try {
+            _trip = new Trip();
+            _trip.readMap(mapFile.getPath());
+        } finally {
+            mapFile.delete();
+        }
+        if (!order.equals("file")) {
+            _trip.reorder(order);
+        }
+        int last = side - 1;
+        _stops = Arrays.asList(TripBenchmark.name(0, 0),
+                               TripBenchmark.name(last, last),
+                               TripBenchmark.name(0, last),
+                               TripBenchmark.name(last / 2, last / 2));
+        _stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /** Restore standard output. */
+    @TearDown
+    public void tearDown() {
+        System.setOut(_stdout);
+    }
+
+    /** Measures planning and reporting a three-leg trip between distant
+     *  points. */
+    @Benchmark
+    public void makeTrip() {
+        _trip.makeTrip(_stops);
+    }
+
+    /** Write a temporary map file describing the same grid as
+     *  TripBenchmark.writeGridMap(SIDE), but listing the locations in an
+     *  order shuffled by RAND, and return it. */
+    static File writeShuffledMap(int side, Random rand) throws IOException {
+        File grid = TripBenchmark.writeGridMap(side);
+        List<String> locations = new ArrayList<>(), roads = new ArrayList<>();
+        try {
+            for (String line : Files.readAllLines(grid.toPath())) {
+                (line.startsWith("L ") ? locations : roads).add(line);
+            }
+        } finally {
+            grid.delete();
+        }
+        Collections.shuffle(locations, rand);
+        File file = File.createTempFile("shuffled", ".map");
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (String line : locations) {
+                out.println(line);
+            }
+            for (String line : roads) {
+                out.println(line);
+            }
+        }
+        return file;
+    }
+
+    /** A Trip with the map loaded and reordered. */
+    private Trip _trip;
+    /** The stops of the planned trip. */
+    private List<String> _stops;
+    /** The original standard output. */
+    private PrintStream _stdout;
+}
@@ -0,0 +1,103 @@
+package trip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of writing the report of a long trip, whose routes are
+ *  found beforehand, on a generated grid map (as for TripBenchmark): in
+ *  each ReportFormat through one large ReportBuffer, and in text to an
+ *  autoflushing PrintStream, through a small buffer per report.  All
+ *  output is discarded.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ReportFormatBenchmark {
+
+    /** Number of locations along each side of the square map. */
+    @Param({ "40" })
+    public int side;
+
+    /** Name of the format. */
+    @Param({ "text", "json", "binary" })
+    public String format;
+
+    /** Load the map and find the routes of a trip zigzagging across it. */
+    @Setup
+    public void setUp() throws IOException {
+        File mapFile = TripBenchmark.writeGridMap(side);
+        _trip = new Trip();
+        try {
+            _trip.readMap(mapFile.getPath());
+        } finally {
+            mapFile.delete();
+        }
+        int last = side - 1;
+        _dests = Arrays.asList(TripBenchmark.name(0, 0),
+                               TripBenchmark.name(last, last),
+                               TripBenchmark.name(0, last),
+                               TripBenchmark.name(last, 0),
+                               TripBenchmark.name(0, 0));
+        int[] stops = _trip.stops(_dests);
+        _segments = new ArrayList<>();
+        for (int i = 1; i < stops.length; i += 1) {
+            _segments.add(_trip.routes(stops[i - 1], stops[i]).get(0));
+        }
+        _format = ReportFormat.forName(format);
+        OutputStream nowhere = OutputStream.nullOutputStream();
+        _buffer = new ReportBuffer(Channels.newChannel(nowhere),
+                                   Main.OUTPUT_BUFFER_SIZE);
+        _printer = new PrintStream(nowhere, true);
+    }
+
+    /** Measures formatting the report into the buffer, which is written
+     *  out whenever it fills. */
+    @Benchmark
+    public void buffered() {
+        _trip.report(_dests, _segments, _format, _buffer);
+    }
+
+    /** Measures writing the text report to an autoflushing PrintStream, as
+     *  the server does.  It does not depend on format. */
+    @Benchmark
+    public void printStream() {
+        _trip.report(_dests, _segments, _printer);
+    }
+
+    /** A Trip with the map loaded. */
+    private Trip _trip;
+    /** The stops of the trip. */
+    private List<String> _dests;
+    /** The routes of its legs. */
+    private List<List<Integer>> _segments;
+    /** The format measured. */
+    private ReportFormat _format;
+    /** A large buffer writing to nowhere. */
+    private ReportBuffer _buffer;
+    /** An autoflushing stream writing to nowhere. */
+    private PrintStream _printer;
+}
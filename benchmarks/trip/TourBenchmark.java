@@ -0,0 +1,73 @@
+package trip;
+
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmark of stop-order optimization over randomly placed stops
+ *  with straight-line distances.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class TourBenchmark {
+
+    /** Number of stops. */
+    @Param({ "1000" })
+    public int stops;
+
+    /** Generate the stops and their distances, and start the pool. */
+    @Setup
+    public void setUp() {
+        Random rand = new Random(SEED);
+        double[] x = new double[stops], y = new double[stops];
+        for (int i = 0; i < stops; i += 1) {
+            x[i] = rand.nextDouble();
+            y[i] = rand.nextDouble();
+        }
+        _dist = new double[stops * stops];
+        for (int i = 0; i < stops; i += 1) {
+            for (int j = 0; j < stops; j += 1) {
+                _dist[i * stops + j] = Math.hypot(x[i] - x[j], y[i] - y[j]);
+            }
+        }
+        _pool = new ForkJoinPool();
+    }
+
+    /** Stop the pool. */
+    @TearDown
+    public void tearDown() {
+        _pool.shutdown();
+    }
+
+    /** Measures finding neighbor lists and optimizing the tour. */
+    @Benchmark
+    public int[] optimize() {
+        return new TourOptimizer(_dist, stops, false).optimize(_pool);
+    }
+
+    /** Random-number seed for placing stops. */
+    private static final long SEED = 61;
+
+    /** Distances between stops, by rows. */
+    private double[] _dist;
+    /** The worker threads. */
+    private ForkJoinPool _pool;
+}
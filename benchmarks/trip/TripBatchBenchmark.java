@@ -0,0 +1,117 @@
+package trip;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.StringReader;
+import java.nio.channels.Channels;
+
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of TripBatch answering a stream of two-stop trip
+ *  requests between random locations of a generated grid map (as for
+ *  TripBenchmark), with varying numbers of workers, and of answering the
+ *  same requests one after another with makeTrip.  Reports are written
+ *  to a discarding stream.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TripBatchBenchmark {
+
+    /** Number of locations along each side of the square map. */
+    @Param({ "40" })
+    public int side;
+
+    /** Number of requests in the stream. */
+    @Param({ "200" })
+    public int requests;
+
+    /** Number of worker threads. */
+    @Param({ "1", "2", "4" })
+    public int workers;
+
+    /** Load the map and generate the requests. */
+    @Setup
+    public void setUp() throws IOException {
+        File mapFile = TripBenchmark.writeGridMap(side);
+        _trip = new Trip();
+        try {
+            _trip.readMap(mapFile.getPath());
+        } finally {
+            mapFile.delete();
+        }
+        _trip.setRouteCache(null);
+        Random rand = new Random(42);
+        StringBuilder text = new StringBuilder();
+        for (int i = 0; i < requests; i += 1) {
+            text.append(TripBenchmark.name(rand.nextInt(side),
+                                           rand.nextInt(side)))
+                .append(',')
+                .append(TripBenchmark.name(rand.nextInt(side),
+                                           rand.nextInt(side)))
+                .append('\n');
+        }
+        _requests = text.toString();
+        _out = new PrintStream(OutputStream.nullOutputStream());
+    }
+
+    /** Close the discarding stream. */
+    @TearDown
+    public void tearDown() {
+        _out.close();
+    }
+
+    /** Measures answering all requests with a TripBatch. */
+    @Benchmark
+    public long batch() throws Exception {
+        return new TripBatch(_trip, ReportFormat.TEXT, workers)
+            .run(new BufferedReader(new StringReader(_requests)),
+                 new ReportBuffer(Channels.newChannel(_out),
+                                  Main.OUTPUT_BUFFER_SIZE));
+    }
+
+    /** Measures answering all requests one at a time on this thread.  It
+     *  does not depend on workers. */
+    @Benchmark
+    public long sequential() throws IOException {
+        BufferedReader in = new BufferedReader(new StringReader(_requests));
+        long n;
+        n = 0;
+        for (String line = in.readLine(); line != null;
+             line = in.readLine()) {
+            _trip.makeTrip(Arrays.asList(Main.LISTSEP.split(line)),
+                           _out);
+            n += 1;
+        }
+        return n;
+    }
+
+    /** A Trip with the map loaded. */
+    private Trip _trip;
+    /** The requests, one per line. */
+    private String _requests;
+    /** Where reports go. */
+    private PrintStream _out;
+}
@@ -0,0 +1,118 @@
+package trip;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/** JMH benchmarks of map loading and trip planning on a generated grid
+ *  road map.  Directions are written to a discarding stream.
+ *  @author Warner Tsang
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class TripBenchmark {
+
+    /** Number of locations along each side of the square map. */
+    @Param({ "20", "40" })
+    public int side;
+
+    /** Write the map file, load it, and silence standard output. */
+    @Setup
+    public void setUp() throws IOException {
+        _mapFile = writeGridMap(side);
+        _trip = new Trip();
+        _trip.readMap(_mapFile.getPath());
+        int last = side - 1;
+        _stops = Arrays.asList(name(0, 0), name(last, last),
+                               name(0, last), name(last / 2, last / 2));
+        _stdout = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+    }
+
+    /** Restore standard output and remove the map file. */
+    @TearDown
+    public void tearDown() {
+        System.setOut(_stdout);
+        _mapFile.delete();
+    }
+
+    /** Measures reading the map file into a new Trip. */
+    @Benchmark
+    public Trip readMap() {
+        Trip trip = new Trip();
+        trip.readMap(_mapFile.getPath());
+        return trip;
+    }
+
+    /** Measures planning and reporting a three-leg trip between distant
+     *  points. */
+    @Benchmark
+    public void makeTrip() {
+        _trip.makeTrip(_stops);
+    }
+
+    /** Returns the name of the location in row R and column C of the
+     *  grid. */
+    static String name(int r, int c) {
+        return "L" + r + "_" + c;
+    }
+
+    /** Write a temporary map file describing a SIDE x SIDE grid of
+     *  locations one mile apart, joined by named east-west and
+     *  north-south roads, and return it. */
+    static File writeGridMap(int side) throws IOException {
+        File file = File.createTempFile("grid", ".map");
+        try (PrintWriter out = new PrintWriter(file)) {
+            for (int r = 0; r < side; r += 1) {
+                for (int c = 0; c < side; c += 1) {
+                    out.printf("L %s %d %d%n", name(r, c), c, -r);
+                }
+            }
+            for (int r = 0; r < side; r += 1) {
+                for (int c = 0; c < side; c += 1) {
+                    if (c + 1 < side) {
+                        out.printf("R %s Row_%d 1.0 WE %s%n", name(r, c), r,
+                                   name(r, c + 1));
+                    }
+                    if (r + 1 < side) {
+                        out.printf("R %s Col_%d 1.0 NS %s%n", name(r, c), c,
+                                   name(r + 1, c));
+                    }
+                }
+            }
+        }
+        return file;
+    }
+
+    /** The generated map file. */
+    private File _mapFile;
+    /** A Trip with the map loaded. */
+    private Trip _trip;
+    /** The stops of the planned trip. */
+    private List<String> _stops;
+    /** The original standard output. */
+    private PrintStream _stdout;
+}
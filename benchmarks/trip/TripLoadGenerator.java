@@ -0,0 +1,142 @@
+package trip;
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/** Measures the latency of a TripServer on localhost under load.  A
+ *  server is started on a generated grid map (as for TripBenchmark), and
+ *  then, for each of several numbers of concurrent connections, every
+ *  connection sends requests for two-stop trips between random locations
+ *  one after another for a fixed time.  For each number of connections,
+ *  prints the throughput and the median and 99th-percentile latency.
+ *  @author Warner Tsang
+ */
+public class TripLoadGenerator {
+
+    /** Number of locations along each side of the default map. */
+    static final int SIDE = 40;
+    /** Length of each measurement, in milliseconds. */
+    static final int MILLIS = 3000;
+    /** Largest number of concurrent connections. */
+    static final int MAX_CONNECTIONS = 64;
+
+    /** Run the load test.  ARGS may contain the side of the square map
+     *  (default SIDE). */
+    public static void main(String... args) throws Exception {
+        int side = args.length > 0 ? Integer.parseInt(args[0]) : SIDE;
+        File mapFile = TripBenchmark.writeGridMap(side);
+        Trip trip = new Trip();
+        try {
+            trip.readMap(mapFile.getPath());
+        } finally {
+            mapFile.delete();
+        }
+        ExecutorService clients = TripServer.newConnectionExecutor();
+        try (TripServer server =
+                 new TripServer(trip, 0, ForkJoinPool.commonPool())) {
+            server.start();
+            System.out.printf("%12s %12s %12s %12s%n", "connections",
+                              "requests/s", "p50 (us)", "p99 (us)");
+            for (int n = 1; n <= MAX_CONNECTIONS; n *= 4) {
+                run(server.port(), side, n, clients);
+            }
+        } finally {
+            clients.shutdownNow();
+        }
+    }
+
+    /** Send requests for trips on a SIDE x SIDE grid to PORT over
+     *  CONNECTIONS concurrent connections, each served by a thread of
+     *  CLIENTS, for MILLIS milliseconds, and print the results. */
+    static void run(int port, int side, int connections,
+                    ExecutorService clients) throws Exception {
+        long stop = System.nanoTime() + MILLIS * 1_000_000L;
+        List<Future<long[]>> results = new ArrayList<>();
+        for (int c = 0; c < connections; c += 1) {
+            long seed = c;
+            results.add(clients.submit(() -> client(port, side, seed,
+                                                    stop)));
+        }
+        long[] all = new long[0];
+        for (Future<long[]> result : results) {
+            long[] latencies = result.get();
+            int n = all.length;
+            all = Arrays.copyOf(all, n + latencies.length);
+            System.arraycopy(latencies, 0, all, n, latencies.length);
+        }
+        Arrays.sort(all);
+        System.out.printf("%12d %12.0f %12.1f %12.1f%n", connections,
+                          all.length * 1000.0 / MILLIS,
+                          percentile(all, 0.50) / 1e3,
+                          percentile(all, 0.99) / 1e3);
+    }
+
+    /** Send requests for trips between random locations of a SIDE x SIDE
+     *  grid, chosen by a generator seeded with SEED, one at a time over
+     *  one connection to PORT, until System.nanoTime() reaches STOP.
+     *  Returns the latency of each request, in nanoseconds. */
+    static long[] client(int port, int side, long seed, long stop) {
+        Random rand = new Random(seed);
+        long[] latencies = new long[1024];
+        int n;
+        n = 0;
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                                        port);
+             PrintWriter out =
+                 new PrintWriter(socket.getOutputStream(), false,
+                                 StandardCharsets.UTF_8);
+             BufferedReader in =
+                 new BufferedReader(new InputStreamReader(
+                     socket.getInputStream(), StandardCharsets.UTF_8))) {
+            socket.setTcpNoDelay(true);
+            while (System.nanoTime() < stop) {
+                String request =
+                    TripBenchmark.name(rand.nextInt(side), rand.nextInt(side))
+                    + "," + TripBenchmark.name(rand.nextInt(side),
+                                               rand.nextInt(side));
+                long start = System.nanoTime();
+                out.println(request);
+                out.flush();
+                String line;
+                while ((line = in.readLine()) != null
+                       && !line.equals(TripServer.END)) {
+                    if (line.startsWith("trip: ")) {
+                        throw new IllegalStateException(line);
+                    }
+                }
+                if (n == latencies.length) {
+                    latencies = Arrays.copyOf(latencies, 2 * n);
+                }
+                latencies[n] = System.nanoTime() - start;
+                n += 1;
+            }
+        } catch (IOException excp) {
+            throw new UncheckedIOException(excp);
+        }
+        return Arrays.copyOf(latencies, n);
+    }
+
+    /** Returns the value at fraction P of the sorted array SORTED, or 0 if
+     *  it is empty. */
+    static long percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return 0;
+        }
+        return sorted[(int) Math.min(sorted.length - 1,
+                                     Math.floor(p * sorted.length))];
+    }
+}
@@ -0,0 +1,322 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+
+/** A smaller graph equivalent, for shortest paths, to a given weighted
+ *  graph, made by collapsing chains of vertices that merely lie along the
+ *  way from one neighbor to the other.  A vertex V is such an interior
+ *  vertex if it has exactly two neighbors, U and W, other than itself,
+ *  and every path through V continues straight on: there is an edge
+ *  (U, V) exactly when there is an edge (V, W), and (W, V) exactly when
+ *  (V, U), and the client agrees that each such pair may be merged.
+ *  Every other vertex is kept, and each maximal chain of edges from one
+ *  kept vertex through interior vertices to another becomes a single
+ *  edge of the contracted graph, whose weight is the sum of the weights
+ *  along the chain and which remembers the interior vertices, so that a
+ *  path through the contracted graph can be unpacked into the original
+ *  one.  (Where there are several chains, or a chain and an edge, from
+ *  one kept vertex to another, only the lightest is kept; a cycle of
+ *  interior vertices keeps one of them.)
+ *
+ *  The client supplies the two-argument getWeight method and may
+ *  override mergeable; contract then builds the contracted graph, whose
+ *  vertices are numbered 1 to the number of kept vertices, in the order
+ *  of their original numbers.  It is always directed: each undirected
+ *  chain becomes an edge in each direction.  Shortest paths between kept
+ *  vertices in the contracted graph, unpacked, are shortest paths in the
+ *  original; paths to or from interior vertices must be found in the
+ *  original graph.  Later changes to the original graph are not
+ *  reflected.
+ *  @author Warner Tsang
+ */
+public abstract class ChainContraction {
+
+    /** A contraction of G. */
+    public ChainContraction(Graph G) {
+        _G = G;
+    }
+
+    /** Returns the weight of edge (U, V) of the original graph. */
+    protected abstract double getWeight(int u, int v);
+
+    /** Returns true iff a path that follows edge (U, V) and then (V, W) of
+     *  the original graph may pass through V without stopping, so that V
+     *  may be an interior vertex.  By default, always true. */
+    protected boolean mergeable(int u, int v, int w) {
+        return true;
+    }
+
+    /** Compute the contracted graph. */
+    public void contract() {
+        int n = _G.maxVertex();
+        boolean[] kept = new boolean[n + 1];
+        boolean[] passed = new boolean[n + 1];
+        for (int v : _G.vertices()) {
+            kept[v] = !isInterior(v);
+        }
+        for (int v : _G.vertices()) {
+            if (kept[v]) {
+                for (int w : _G.successors(v)) {
+                    follow(v, w, kept, passed);
+                }
+            }
+        }
+        for (int v : _G.vertices()) {
+            if (!kept[v] && !passed[v]) {
+                kept[v] = true;
+                for (int w : _G.successors(v)) {
+                    follow(v, w, kept, passed);
+                }
+            }
+        }
+
+        _contractedId = new int[n + 1];
+        int k;
+        k = 0;
+        for (int v = 1; v <= n; v += 1) {
+            if (kept[v]) {
+                k += 1;
+                _contractedId[v] = k;
+            }
+        }
+        _originalId = new int[k + 1];
+        for (int v = 1; v <= n; v += 1) {
+            if (kept[v]) {
+                _originalId[_contractedId[v]] = v;
+            }
+        }
+
+        _first = new int[k + 2];
+        _targets = new int[Math.max(1, k)];
+        _weights = new double[_targets.length];
+        _interiorStart = new int[_targets.length + 1];
+        _interior = new int[INITIAL_INTERIOR];
+        _edges = 0;
+        _interiorSize = 0;
+        for (int c = 1; c <= k; c += 1) {
+            _first[c] = _edges;
+            int u = _originalId[c];
+            for (int w : _G.successors(u)) {
+                addChain(c, u, w, kept);
+            }
+        }
+        _first[k + 1] = _edges;
+
+        _contracted = new DirectedGraph();
+        for (int c = 1; c <= k; c += 1) {
+            _contracted.add();
+        }
+        for (int c = 1; c <= k; c += 1) {
+            for (int e = _first[c]; e < _first[c + 1]; e += 1) {
+                _contracted.add(c, _targets[e]);
+            }
+        }
+    }
+
+    /** Returns the contracted graph. */
+    public Graph contracted() {
+        return _contracted;
+    }
+
+    /** Returns the vertex of the contracted graph for vertex V of the
+     *  original graph, or 0 if V is an interior vertex or not a vertex. */
+    public int contractedId(int v) {
+        return v > 0 && v < _contractedId.length ? _contractedId[v] : 0;
+    }
+
+    /** Returns the vertex of the original graph for vertex C of the
+     *  contracted graph. */
+    public int originalId(int c) {
+        return _originalId[c];
+    }
+
+    /** Returns the weight of edge (CU, CV) of the contracted graph: the
+     *  total weight of the chain it replaces. */
+    public double chainWeight(int cu, int cv) {
+        return _weights[edge(cu, cv)];
+    }
+
+    /** Returns the vertices of the original graph along the path whose
+     *  vertices in the contracted graph are PATH, in order. */
+    public int[] unpack(int[] path) {
+        int n;
+        n = path.length;
+        for (int i = 1; i < path.length; i += 1) {
+            int e = edge(path[i - 1], path[i]);
+            n += _interiorStart[e + 1] - _interiorStart[e];
+        }
+        int[] result = new int[n];
+        n = 0;
+        for (int i = 0; i < path.length; i += 1) {
+            if (i > 0) {
+                int e = edge(path[i - 1], path[i]);
+                int len = _interiorStart[e + 1] - _interiorStart[e];
+                System.arraycopy(_interior, _interiorStart[e], result, n,
+                                 len);
+                n += len;
+            }
+            result[n] = _originalId[path[i]];
+            n += 1;
+        }
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d of %d vertices and %d of %d edges kept",
+                             _contracted.vertexSize(), _G.vertexSize(),
+                             _contracted.edgeSize(), _G.edgeSize());
+    }
+
+    /** Returns true iff V may be an interior vertex. */
+    private boolean isInterior(int v) {
+        int a, b;
+        a = b = 0;
+        for (int pass = 0; pass < 2; pass += 1) {
+            for (int x : pass == 0 ? _G.successors(v) : _G.predecessors(v)) {
+                if (x == v) {
+                    return false;
+                } else if (a == 0 || x == a) {
+                    a = x;
+                } else if (b == 0 || x == b) {
+                    b = x;
+                } else {
+                    return false;
+                }
+            }
+        }
+        if (b == 0) {
+            return false;
+        }
+        boolean inA = _G.contains(a, v), inB = _G.contains(b, v);
+        return (inA || inB)
+            && inA == _G.contains(v, b) && inB == _G.contains(v, a)
+            && (!inA || mergeable(a, v, b)) && (!inB || mergeable(b, v, a));
+    }
+
+    /** Returns the successor of interior vertex V other than PREV. */
+    private int next(int prev, int v) {
+        for (int x : _G.successors(v)) {
+            if (x != prev) {
+                return x;
+            }
+        }
+        throw new IllegalStateException("chain ends at interior vertex");
+    }
+
+    /** Mark in PASSED the interior vertices of the chain that starts with
+     *  edge (U, W), given the kept vertices KEPT. */
+    private void follow(int u, int w, boolean[] kept, boolean[] passed) {
+        int prev = u;
+        while (!kept[w]) {
+            passed[w] = true;
+            int x = next(prev, w);
+            prev = w;
+            w = x;
+        }
+    }
+
+    /** Add the edge of the contracted graph leaving C, the contracted
+     *  vertex of U, for the chain that starts with edge (U, W), unless it
+     *  ends at U or a lighter one from C to the same vertex has already
+     *  been added. */
+    private void addChain(int c, int u, int w, boolean[] kept) {
+        int start = _interiorSize;
+        double weight = getWeight(u, w);
+        int prev = u;
+        while (!kept[w]) {
+            if (_interiorSize == _interior.length) {
+                _interior = Arrays.copyOf(_interior, 2 * _interiorSize);
+            }
+            _interior[_interiorSize] = w;
+            _interiorSize += 1;
+            int x = next(prev, w);
+            weight += getWeight(w, x);
+            prev = w;
+            w = x;
+        }
+        int target = _contractedId[w];
+        if (target == c) {
+            _interiorSize = start;
+            return;
+        }
+        for (int e = _first[c]; e < _edges; e += 1) {
+            if (_targets[e] == target) {
+                if (weight < _weights[e]) {
+                    replace(e, weight, start);
+                } else {
+                    _interiorSize = start;
+                }
+                return;
+            }
+        }
+        if (_edges == _targets.length) {
+            int size = 2 * _edges;
+            _targets = Arrays.copyOf(_targets, size);
+            _weights = Arrays.copyOf(_weights, size);
+            _interiorStart = Arrays.copyOf(_interiorStart, size + 1);
+        }
+        _targets[_edges] = target;
+        _weights[_edges] = weight;
+        _interiorStart[_edges] = start;
+        _edges += 1;
+        _interiorStart[_edges] = _interiorSize;
+    }
+
+    /** Replace the interior vertices of edge E by those at
+     *  _interior[START .. _interiorSize-1], which follow those of the last
+     *  edge added, and set its weight to WEIGHT.  The interior vertices of
+     *  the edges after E shift to make room. */
+    private void replace(int e, double weight, int start) {
+        int len = _interiorSize - start;
+        int[] chain = Arrays.copyOfRange(_interior, start, _interiorSize);
+        _interiorSize = start;
+        int oldStart = _interiorStart[e], oldEnd = _interiorStart[e + 1];
+        int shift = len - (oldEnd - oldStart);
+        if (_interiorSize + shift > _interior.length) {
+            _interior = Arrays.copyOf(_interior,
+                                      2 * (_interiorSize + shift));
+        }
+        System.arraycopy(_interior, oldEnd, _interior, oldEnd + shift,
+                         _interiorSize - oldEnd);
+        System.arraycopy(chain, 0, _interior, oldStart, len);
+        _interiorSize += shift;
+        for (int f = e + 1; f <= _edges; f += 1) {
+            _interiorStart[f] += shift;
+        }
+        _weights[e] = weight;
+    }
+
+    /** Returns the index of edge (CU, CV) of the contracted graph. */
+    private int edge(int cu, int cv) {
+        for (int e = _first[cu]; e < _first[cu + 1]; e += 1) {
+            if (_targets[e] == cv) {
+                return e;
+            }
+        }
+        throw new IllegalArgumentException(String.format("no edge (%d, %d)",
+                                                         cu, cv));
+    }
+
+    /** Initial capacity of _interior. */
+    private static final int INITIAL_INTERIOR = 16;
+
+    /** The original graph. */
+    private final Graph _G;
+    /** The contracted graph. */
+    private DirectedGraph _contracted;
+    /** Maps original vertices to contracted ones (0 for interior ones),
+     *  and back. */
+    private int[] _contractedId, _originalId;
+    /** The edges of the contracted graph leaving vertex c are those with
+     *  indices _first[c] .. _first[c + 1] - 1.  Edge e enters
+     *  _targets[e], has weight _weights[e], and replaces a chain whose
+     *  interior vertices are _interior[_interiorStart[e] ..
+     *  _interiorStart[e + 1] - 1]. */
+    private int[] _first, _targets, _interiorStart, _interior;
+    private double[] _weights;
+    /** Numbers of edges and interior vertices stored so far. */
+    private int _edges, _interiorSize;
+}
@@ -0,0 +1,590 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** A read-only Graph that keeps its adjacency lists compressed, for
+ *  graphs too large to hold at four or more bytes per edge.  Its vertices
+ *  are always 1 .. N.  Each vertex's successors are sorted and stored as
+ *  the gaps between successive targets, in a variable-length encoding of
+ *  seven bits per byte, so that the nearby targets typical of road maps
+ *  and dependency graphs take one or two bytes each.  Lists are decoded
+ *  as they are read.  Long lists also have a skip table giving every
+ *  SKIP-th target and where its gaps resume, so that contains(u, v) need
+ *  only decode one block after a binary search.  A directed graph also
+ *  keeps its predecessor lists in the same form, unless every edge is
+ *  matched by one in the opposite direction (as in a road map), when the
+ *  successor lists serve for both.
+ *
+ *  Edges are identified by their positions in the lists: the edges of
+ *  vertex 1 are 1, 2, ..., followed by those of vertex 2, and so on (for
+ *  an undirected graph, the edge (u, v) has the identifier of (min(u, v),
+ *  max(u, v))).  These are not the identifiers of the graph copied, so
+ *  labels must be copied explicitly.
+ *
+ *  The lists of vertices 0, 1, ... are consecutive, and only the offset
+ *  of every GROUP-th list is recorded; the others are found by skipping
+ *  over their predecessors in the group.  Each list starts with a header:
+ *  twice the number of bytes that follow it, plus 1 if the list has more
+ *  than SKIP targets t0, t1, ...  Such a list continues with its length
+ *  and (length - 1) / SKIP skip entries, each of two little-endian ints:
+ *  t(k * SKIP) and the offset, from the end of the skip table, of the
+ *  encoding of t(k * SKIP + 1).  The gaps follow: t0 - v in zigzag form
+ *  (so that small negative gaps are small), and then each t(i) - t(i -
+ *  1) - 1.  I may be read by any number of threads at once.
+ *  @author Warner Tsang
+ */
+public final class CompressedGraph extends Graph {
+
+    /** Returns a compressed copy of G, whose vertices must be 1 ..
+     *  G.maxVertex(). */
+    public static CompressedGraph copyOf(Graph G) {
+        int n = G.vertexSize() == 0 ? 0 : G.maxVertex();
+        if (n != G.vertexSize()) {
+            throw new IllegalArgumentException("vertices are not "
+                                               + "consecutive");
+        }
+        return new CompressedGraph(G, n);
+    }
+
+    /** A compressed copy of G, whose vertices are 1 .. N. */
+    private CompressedGraph(Graph G, int n) {
+        _n = n;
+        _directed = G.isDirected();
+        _edgeSize = G.edgeSize();
+        IntIteration cursor = new IntIteration();
+        Encoder succ = new Encoder(), pred = new Encoder(),
+            body = new Encoder();
+        int groups = n / GROUP + 1;
+        _start = new int[groups];
+        _edgeBase = new int[groups];
+        int[] predStart = new int[groups];
+        int[] list = new int[INITIAL_SIZE], predList = new int[INITIAL_SIZE];
+        boolean symmetric = _directed;
+        int edges;
+        edges = 0;
+        for (int v = 0; v <= n; v += 1) {
+            if (v % GROUP == 0) {
+                _start[v / GROUP] = succ.size();
+                predStart[v / GROUP] = pred.size();
+                _edgeBase[v / GROUP] = edges;
+            }
+            list = sortedList(G, v, G.successors(v, cursor), list);
+            edges += list[0];
+            writeList(succ, body, v, list);
+            if (_directed) {
+                predList =
+                    sortedList(G, v, G.predecessors(v, cursor), predList);
+                writeList(pred, body, v, predList);
+                symmetric = symmetric
+                    && Arrays.equals(list, 0, list[0] + 1,
+                                     predList, 0, predList[0] + 1);
+            }
+        }
+        _data = succ.bytes();
+        if (!_directed || symmetric) {
+            _predData = _data;
+            _predStart = _start;
+        } else {
+            _predData = pred.bytes();
+            _predStart = predStart;
+        }
+    }
+
+    /** Returns the number of bytes occupied by my adjacency lists and
+     *  their offsets. */
+    public long byteSize() {
+        long total = (long) _data.length
+            + (long) Integer.BYTES * (_start.length + _edgeBase.length);
+        if (_predData != _data) {
+            total += _predData.length
+                + (long) Integer.BYTES * _predStart.length;
+        }
+        return total;
+    }
+
+    @Override
+    public int vertexSize() {
+        return _n;
+    }
+
+    @Override
+    public int maxVertex() {
+        return _n;
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeSize;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    public int outDegree(int v) {
+        return contains(v) ? degree(_data, locate(_data, _start, v)) : 0;
+    }
+
+    @Override
+    public int inDegree(int v) {
+        if (!contains(v)) {
+            return 0;
+        }
+        return degree(_predData, locate(_predData, _predStart, v));
+    }
+
+    @Override
+    public boolean contains(int u) {
+        return u > 0 && u <= _n;
+    }
+
+    @Override
+    public boolean contains(int u, int v) {
+        return contains(u) && find(u, v) >= 0;
+    }
+
+    @Override
+    public int add() {
+        throw readOnly();
+    }
+
+    @Override
+    public int add(int u, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public Iteration<Integer> vertices() {
+        return new VertexIteration();
+    }
+
+    @Override
+    public Iteration<Integer> successors(int v) {
+        return successors(v, new IntIteration());
+    }
+
+    @Override
+    public Iteration<Integer> predecessors(int v) {
+        return predecessors(v, new IntIteration());
+    }
+
+    @Override
+    public IntIteration successors(int v, IntIteration cursor) {
+        return decode(cursor, v, _data, _start);
+    }
+
+    @Override
+    public IntIteration predecessors(int v, IntIteration cursor) {
+        return decode(cursor, v, _predData, _predStart);
+    }
+
+    @Override
+    public Iteration<int[]> edges() {
+        return new EdgeIteration();
+    }
+
+    @Override
+    public Graph snapshot() {
+        return this;
+    }
+
+    @Override
+    protected int edgeId(int u, int v) {
+        if (!_directed && u > v) {
+            int t = u;
+            u = v;
+            v = t;
+        }
+        if (!contains(u)) {
+            return 0;
+        }
+        int k = find(u, v);
+        if (k < 0) {
+            return 0;
+        }
+        int id = _edgeBase[u / GROUP] + k + 1;
+        int p = _start[u / GROUP];
+        for (int w = u - u % GROUP; w < u; w += 1) {
+            id += degree(_data, p);
+            p = next(_data, p);
+        }
+        return id;
+    }
+
+    /** Returns the index in DATA of the list of vertex V, where START
+     *  gives the index of the first list of each group. */
+    private static int locate(byte[] data, int[] start, int v) {
+        int p = start[v / GROUP];
+        for (int k = v % GROUP; k > 0; k -= 1) {
+            p = next(data, p);
+        }
+        return p;
+    }
+
+    /** Returns the index in DATA of the list following the one at P. */
+    private static int next(byte[] data, int p) {
+        long r = varint(data, p);
+        return position(r) + (value(r) >>> 1);
+    }
+
+    /** Returns the length of the list in DATA at P. */
+    private static int degree(byte[] data, int p) {
+        long r = varint(data, p);
+        int header = value(r);
+        p = position(r);
+        if ((header & 1) != 0) {
+            return value(varint(data, p));
+        }
+        int d;
+        d = 0;
+        for (int end = p + (header >>> 1); p < end; p += 1) {
+            if (data[p] >= 0) {
+                d += 1;
+            }
+        }
+        return d;
+    }
+
+    /** Fill CURSOR with the list of vertex V in DATA, where START gives
+     *  the index of the first list of each group, and return it. */
+    private IntIteration decode(IntIteration cursor, int v, byte[] data,
+                                int[] start) {
+        cursor.clear();
+        if (!contains(v)) {
+            return cursor;
+        }
+        long r = varint(data, locate(data, start, v));
+        int header = value(r), p = position(r);
+        int end = p + (header >>> 1);
+        if (p == end) {
+            return cursor;
+        }
+        if ((header & 1) != 0) {
+            r = varint(data, p);
+            p = position(r) + SKIP_ENTRY * ((value(r) - 1) / SKIP);
+        }
+        r = varint(data, p);
+        int t = v + unzigzag(value(r));
+        p = position(r);
+        cursor.add(t);
+        while (p < end) {
+            r = varint(data, p);
+            t += value(r) + 1;
+            p = position(r);
+            cursor.add(t);
+        }
+        return cursor;
+    }
+
+    /** Returns the index of V in the successor list of vertex U, or -1 if
+     *  it is absent. */
+    private int find(int u, int v) {
+        long r = varint(_data, locate(_data, _start, u));
+        int header = value(r), p = position(r);
+        int end = p + (header >>> 1);
+        if (p == end) {
+            return -1;
+        }
+        if ((header & 1) != 0) {
+            r = varint(_data, p);
+            int d = value(r), table = position(r);
+            int skips = (d - 1) / SKIP;
+            int gaps = table + SKIP_ENTRY * skips;
+            int lo = 1, hi = skips;
+            while (lo <= hi) {
+                int mid = (lo + hi) >>> 1;
+                if (fixed(_data, table + SKIP_ENTRY * (mid - 1)) <= v) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid - 1;
+                }
+            }
+            if (hi > 0) {
+                int entry = table + SKIP_ENTRY * (hi - 1);
+                return scan(fixed(_data, entry), v,
+                            gaps + fixed(_data, entry + Integer.BYTES), end,
+                            hi * SKIP);
+            }
+            p = gaps;
+        }
+        r = varint(_data, p);
+        return scan(u + unzigzag(value(r)), v, position(r), end, 0);
+    }
+
+    /** Returns the index of V in the list of which T is target #I, and
+     *  whose subsequent gaps are in _data[P .. END - 1], or -1 if V is
+     *  not in the list. */
+    private int scan(int t, int v, int p, int end, int i) {
+        while (t < v && p < end) {
+            long r = varint(_data, p);
+            t += value(r) + 1;
+            p = position(r);
+            i += 1;
+        }
+        return t == v ? i : -1;
+    }
+
+    /** Returns the list in VALUES, sorted, as an array whose first element
+     *  is its length, reusing BUFFER if it is large enough.  The list is
+     *  empty if V is not a vertex of G. */
+    private static int[] sortedList(Graph G, int v, IntIteration values,
+                                    int[] buffer) {
+        int n = G.contains(v) ? values.remaining() : 0;
+        if (n + 1 > buffer.length) {
+            buffer = new int[Math.max(n + 1, 2 * buffer.length)];
+        }
+        buffer[0] = n;
+        for (int i = 1; i <= n; i += 1) {
+            buffer[i] = values.nextInt();
+        }
+        Arrays.sort(buffer, 1, n + 1);
+        return buffer;
+    }
+
+    /** Returns the variable-length int in DATA at index P, packed with the
+     *  index following it (see value and position). */
+    private static long varint(byte[] data, int p) {
+        int x, shift, b;
+        x = shift = 0;
+        do {
+            b = data[p];
+            p += 1;
+            x |= (b & 0x7f) << shift;
+            shift += 7;
+        } while (b < 0);
+        return ((long) x << 32) | p;
+    }
+
+    /** Returns the value of the result R of varint. */
+    private static int value(long r) {
+        return (int) (r >>> 32);
+    }
+
+    /** Returns the following index of the result R of varint. */
+    private static int position(long r) {
+        return (int) r;
+    }
+
+    /** Returns the little-endian int in DATA at index P. */
+    private static int fixed(byte[] data, int p) {
+        return (data[p] & 0xff) | (data[p + 1] & 0xff) << 8
+            | (data[p + 2] & 0xff) << 16 | (data[p + 3] & 0xff) << 24;
+    }
+
+    /** Returns the int encoded by zigzag(X). */
+    private static int unzigzag(int x) {
+        return (x >>> 1) ^ -(x & 1);
+    }
+
+    /** Returns X encoded so that small negative values are small. */
+    private static int zigzag(int x) {
+        return (x << 1) ^ (x >> 31);
+    }
+
+    /** Returns the exception thrown by attempts to modify me. */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("compressed graph is "
+                                                 + "read-only");
+    }
+
+    /** Append to OUT the list of vertex V held in LIST[1 .. LIST[0]],
+     *  which is sorted and has no duplicates, using BODY as scratch
+     *  space. */
+    private static void writeList(Encoder out, Encoder body, int v,
+                                  int[] list) {
+        int d = list[0];
+        body.clear();
+        if (d > SKIP) {
+            body.writeVarint(d);
+        }
+        int skips = d > SKIP ? (d - 1) / SKIP : 0;
+        int table = body.size();
+        for (int k = 0; k < SKIP_ENTRY * skips; k += 1) {
+            body.writeByte(0);
+        }
+        int gaps = body.size();
+        if (d > 0) {
+            body.writeVarint(zigzag(list[1] - v));
+        }
+        for (int i = 1; i < d; i += 1) {
+            body.writeVarint(list[i + 1] - list[i] - 1);
+            if (i % SKIP == 0) {
+                int entry = table + SKIP_ENTRY * (i / SKIP - 1);
+                body.setFixed(entry, list[i + 1]);
+                body.setFixed(entry + Integer.BYTES, body.size() - gaps);
+            }
+        }
+        out.writeVarint((body.size() << 1) | (d > SKIP ? 1 : 0));
+        out.append(body);
+    }
+
+    /** A growing array of bytes. */
+    private static class Encoder {
+
+        /** Returns the number of bytes written so far. */
+        int size() {
+            return _size;
+        }
+
+        /** Returns the bytes written, trimmed to size. */
+        byte[] bytes() {
+            return Arrays.copyOf(_bytes, _size);
+        }
+
+        /** Discard the bytes written. */
+        void clear() {
+            _size = 0;
+        }
+
+        /** Append the bytes written to OTHER. */
+        void append(Encoder other) {
+            for (int k = 0; k < other._size; k += 1) {
+                writeByte(other._bytes[k]);
+            }
+        }
+
+        /** Append the variable-length encoding of X. */
+        void writeVarint(int x) {
+            while ((x & ~0x7f) != 0) {
+                writeByte((x & 0x7f) | 0x80);
+                x >>>= 7;
+            }
+            writeByte(x);
+        }
+
+        /** Append the byte B. */
+        void writeByte(int b) {
+            if (_size == _bytes.length) {
+                _bytes = Arrays.copyOf(_bytes, 2 * _size);
+            }
+            _bytes[_size] = (byte) b;
+            _size += 1;
+        }
+
+        /** Store X as a little-endian int at index P. */
+        void setFixed(int p, int x) {
+            for (int k = 0; k < Integer.BYTES; k += 1) {
+                _bytes[p + k] = (byte) (x >>> (8 * k));
+            }
+        }
+
+        /** The bytes written. */
+        private byte[] _bytes = new byte[INITIAL_SIZE];
+        /** The number of bytes written. */
+        private int _size;
+    }
+
+    /** An Iteration over my vertices, in increasing order. */
+    private class VertexIteration extends Iteration<Integer> {
+        @Override
+        public boolean hasNext() {
+            return _v <= _n;
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _v += 1;
+            return _v - 1;
+        }
+
+        /** The next vertex. */
+        private int _v = 1;
+    }
+
+    /** An Iteration over my edges, returning each undirected edge once.
+     *  Returns the same array from each call of next. */
+    private class EdgeIteration extends Iteration<int[]> {
+        /** An iteration over all edges. */
+        EdgeIteration() {
+            _u = 0;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _u <= _n;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _edge[0] = _u;
+            _edge[1] = _v;
+            advance();
+            return _edge;
+        }
+
+        /** Move to the next edge to be returned. */
+        private void advance() {
+            while (true) {
+                while (_succ.hasNext()) {
+                    _v = _succ.nextInt();
+                    if (_directed || _v >= _u) {
+                        return;
+                    }
+                }
+                _u += 1;
+                if (_u > _n) {
+                    return;
+                }
+                successors(_u, _succ);
+            }
+        }
+
+        /** The next edge to be returned, if _u <= _n. */
+        private int _u, _v;
+        /** The remaining successors of _u. */
+        private final IntIteration _succ = new IntIteration();
+        /** The array returned by next. */
+        private final int[] _edge = new int[2];
+    }
+
+    /** Maximum number of targets between skip entries. */
+    static final int SKIP = 16;
+    /** Size in bytes of a skip entry. */
+    private static final int SKIP_ENTRY = 2 * Integer.BYTES;
+    /** Number of consecutive lists whose offsets are not recorded
+     *  separately. */
+    private static final int GROUP = 16;
+    /** Initial size of my work arrays. */
+    private static final int INITIAL_SIZE = 16;
+
+    /** My vertices are 1 .. _n. */
+    private final int _n;
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** Number of edges. */
+    private final int _edgeSize;
+    /** The encoded successor lists of vertices 0 .. _n. */
+    private final byte[] _data;
+    /** Offset in _data of the list of each vertex k * GROUP, at index
+     *  k. */
+    private final int[] _start;
+    /** The encoded predecessor lists, which may be _data. */
+    private final byte[] _predData;
+    /** Offsets in _predData, as for _start. */
+    private final int[] _predStart;
+    /** Number of successors of all vertices before vertex k * GROUP, at
+     *  index k. */
+    private final int[] _edgeBase;
+}
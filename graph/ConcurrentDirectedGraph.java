@@ -0,0 +1,515 @@
+package graph;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/** A directed graph that may be queried and modified by any number of
+ *  threads at once.  The successors and predecessors of each vertex are
+ *  kept in copy-on-write arrays: a modification replaces the array, and
+ *  never changes one that a reader may hold.  Consequently, contains,
+ *  outDegree, inDegree, successors, and predecessors take no locks and
+ *  always see a complete adjacency list for a vertex as of some recent
+ *  moment.  Adding or removing an edge (U, V) locks only the stripes
+ *  belonging to U and V, so that modifications of unrelated parts of the
+ *  graph proceed in parallel.  Adding or removing a vertex locks the whole
+ *  graph against other modifications (but not against readers).
+ *
+ *  Edge identifiers are issued from a counter, and so remain small even
+ *  for graphs with many vertices.  The identifiers of removed edges are
+ *  kept on a free list for the stripe of their source vertex, guarded by
+ *  its stripe lock, and reused by edges later added from that stripe, so
+ *  that removing and re-adding edges (closing and reopening roads, say)
+ *  does not make them grow.
+ *  @author Warner Tsang
+ */
+public class ConcurrentDirectedGraph extends Graph {
+
+    /** An empty graph. */
+    public ConcurrentDirectedGraph() {
+        _succ = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+        _pred = new AtomicReferenceArray<>(INITIAL_CAPACITY);
+        _stripes = new ReentrantLock[STRIPES];
+        _freeIds = new int[STRIPES][];
+        _freeCount = new int[STRIPES];
+        for (int i = 0; i < STRIPES; i += 1) {
+            _stripes[i] = new ReentrantLock();
+            _freeIds[i] = EMPTY;
+        }
+        _lowestFree = 1;
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertexSize;
+    }
+
+    @Override
+    public int maxVertex() {
+        return _maxVertex;
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeSize.get();
+    }
+
+    @Override
+    public boolean isDirected() {
+        return true;
+    }
+
+    @Override
+    public int outDegree(int v) {
+        int[] out = get(_succ, v);
+        return out == null ? 0 : out.length / 2;
+    }
+
+    @Override
+    public int inDegree(int v) {
+        int[] in = get(_pred, v);
+        return in == null ? 0 : in.length;
+    }
+
+    @Override
+    public boolean contains(int u) {
+        return get(_succ, u) != null;
+    }
+
+    @Override
+    public boolean contains(int u, int v) {
+        return find(get(_succ, u), v) >= 0;
+    }
+
+    @Override
+    public int add() {
+        _structure.writeLock().lock();
+        try {
+            int v;
+            for (v = _lowestFree; v < _succ.length(); v += 1) {
+                if (_succ.get(v) == null) {
+                    break;
+                }
+            }
+            if (v >= _succ.length()) {
+                grow(2 * v);
+            }
+            _pred.set(v, EMPTY);
+            _succ.set(v, EMPTY);
+            _lowestFree = v + 1;
+            _vertexSize += 1;
+            _maxVertex = Math.max(_maxVertex, v);
+            return v;
+        } finally {
+            _structure.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public int add(int u, int v) {
+        _structure.readLock().lock();
+        try {
+            checkMyVertex(u);
+            checkMyVertex(v);
+            lockStripes(u, v);
+            try {
+                int[] out = _succ.get(u);
+                int k = find(out, v);
+                if (k >= 0) {
+                    return out[k + 1];
+                }
+                int id = newEdgeId(u);
+                _succ.set(u, append(out, v, id));
+                _pred.set(v, append(_pred.get(v), u));
+                _edgeSize.incrementAndGet();
+                return id;
+            } finally {
+                unlockStripes(u, v);
+            }
+        } finally {
+            _structure.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int v) {
+        _structure.writeLock().lock();
+        try {
+            if (!contains(v)) {
+                return;
+            }
+            int[] out = _succ.get(v), in = _pred.get(v);
+            int removed = out.length / 2 + in.length;
+            for (int k = 0; k < out.length; k += 2) {
+                freeEdgeId(v, out[k + 1]);
+                if (out[k] == v) {
+                    removed -= 1;
+                } else {
+                    _pred.set(out[k], without(_pred.get(out[k]), v, 1));
+                }
+            }
+            for (int u : in) {
+                if (u != v) {
+                    int[] uOut = _succ.get(u);
+                    freeEdgeId(u, uOut[find(uOut, v) + 1]);
+                    _succ.set(u, without(uOut, v, 2));
+                }
+            }
+            _succ.set(v, null);
+            _pred.set(v, null);
+            _edgeSize.addAndGet(-removed);
+            _vertexSize -= 1;
+            _lowestFree = Math.min(_lowestFree, v);
+            while (_maxVertex > 0 && _succ.get(_maxVertex) == null) {
+                _maxVertex -= 1;
+            }
+        } finally {
+            _structure.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        _structure.readLock().lock();
+        try {
+            if (!contains(u) || !contains(v)) {
+                return;
+            }
+            lockStripes(u, v);
+            try {
+                int[] out = _succ.get(u);
+                int k = find(out, v);
+                if (k >= 0) {
+                    freeEdgeId(u, out[k + 1]);
+                    _succ.set(u, without(out, v, 2));
+                    _pred.set(v, without(_pred.get(v), u, 1));
+                    _edgeSize.decrementAndGet();
+                }
+            } finally {
+                unlockStripes(u, v);
+            }
+        } finally {
+            _structure.readLock().unlock();
+        }
+    }
+
+    @Override
+    public Iteration<Integer> vertices() {
+        return new VertexIteration(_succ, _maxVertex);
+    }
+
+    @Override
+    public Iteration<Integer> successors(int v) {
+        int[] out = get(_succ, v);
+        if (out == null) {
+            out = EMPTY;
+        }
+        return Iteration.iteration(out, 0, out.length, 2);
+    }
+
+    @Override
+    public Iteration<Integer> predecessors(int v) {
+        int[] in = get(_pred, v);
+        if (in == null) {
+            in = EMPTY;
+        }
+        return Iteration.iteration(in, 0, in.length, 1);
+    }
+
+    @Override
+    public IntIteration successors(int v, IntIteration cursor) {
+        int[] out = get(_succ, v);
+        if (out == null) {
+            out = EMPTY;
+        }
+        return cursor.reset(out, 0, out.length, 2);
+    }
+
+    @Override
+    public IntIteration predecessors(int v, IntIteration cursor) {
+        int[] in = get(_pred, v);
+        if (in == null) {
+            in = EMPTY;
+        }
+        return cursor.reset(in, 0, in.length, 1);
+    }
+
+    @Override
+    public Iteration<int[]> edges() {
+        return new EdgeIteration(_succ, _maxVertex);
+    }
+
+    /** Returns a consistent, immutable snapshot of me.  This briefly
+     *  blocks other modifications while it copies references to my
+     *  adjacency arrays, which are then shared with the snapshot rather
+     *  than copied, so that the cost is proportional to the number of
+     *  vertices rather than edges.  Readers are never blocked. */
+    @Override
+    public Graph snapshot() {
+        _structure.writeLock().lock();
+        try {
+            int max = _maxVertex;
+            int[][] succ = new int[max + 1][], pred = new int[max + 1][];
+            for (int v = 1; v <= max; v += 1) {
+                succ[v] = _succ.get(v);
+                pred[v] = _pred.get(v);
+            }
+            return new GraphSnapshot(succ, pred, _vertexSize, max,
+                                     _edgeSize.get());
+        } finally {
+            _structure.writeLock().unlock();
+        }
+    }
+
+    @Override
+    protected int edgeId(int u, int v) {
+        int[] out = get(_succ, u);
+        int k = find(out, v);
+        return k < 0 ? 0 : out[k + 1];
+    }
+
+    /** Returns TABLE's entry for vertex V, or null if V is out of range or
+     *  not a vertex. */
+    private static int[] get(AtomicReferenceArray<int[]> table, int v) {
+        if (v <= 0 || v >= table.length()) {
+            return null;
+        }
+        return table.get(v);
+    }
+
+    /** Returns the index of V in the successor array OUT, which alternates
+     *  vertices and edge identifiers, or -1 if V is absent or OUT is
+     *  null. */
+    private static int find(int[] out, int v) {
+        if (out != null) {
+            for (int k = 0; k < out.length; k += 2) {
+                if (out[k] == v) {
+                    return k;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Returns a copy of A with the values X appended. */
+    private static int[] append(int[] a, int... x) {
+        int[] result = new int[a.length + x.length];
+        System.arraycopy(a, 0, result, 0, a.length);
+        System.arraycopy(x, 0, result, a.length, x.length);
+        return result;
+    }
+
+    /** Returns a copy of A, which consists of records of length WIDTH,
+     *  without the first record whose initial element is V. */
+    private static int[] without(int[] a, int v, int width) {
+        for (int k = 0; k < a.length; k += width) {
+            if (a[k] == v) {
+                int[] result = new int[a.length - width];
+                System.arraycopy(a, 0, result, 0, k);
+                System.arraycopy(a, k + width, result, k,
+                                 a.length - k - width);
+                return result;
+            }
+        }
+        return a;
+    }
+
+    /** Enlarge my adjacency tables to hold vertices numbered below
+     *  CAPACITY.  Requires that the write lock be held. */
+    private void grow(int capacity) {
+        AtomicReferenceArray<int[]>
+            succ = new AtomicReferenceArray<>(capacity),
+            pred = new AtomicReferenceArray<>(capacity);
+        for (int v = 1; v < _succ.length(); v += 1) {
+            succ.set(v, _succ.get(v));
+            pred.set(v, _pred.get(v));
+        }
+        _pred = pred;
+        _succ = succ;
+    }
+
+    /** Returns an identifier for a new edge leaving U, reusing one freed
+     *  in U's stripe if possible.  Requires that U's stripe lock, or the
+     *  write lock, be held. */
+    private int newEdgeId(int u) {
+        int s = u & STRIPE_MASK;
+        if (_freeCount[s] > 0) {
+            _freeCount[s] -= 1;
+            return _freeIds[s][_freeCount[s]];
+        }
+        int id = _lastEdgeId.incrementAndGet();
+        if (id <= 0) {
+            _lastEdgeId.decrementAndGet();
+            throw new IllegalStateException("too many edge identifiers");
+        }
+        return id;
+    }
+
+    /** Record that ID, the identifier of a removed edge leaving U, may
+     *  be reused.  Requires that U's stripe lock, or the write lock, be
+     *  held. */
+    private void freeEdgeId(int u, int id) {
+        int s = u & STRIPE_MASK;
+        if (_freeCount[s] == _freeIds[s].length) {
+            _freeIds[s] = Arrays.copyOf(_freeIds[s],
+                                        Math.max(INITIAL_CAPACITY,
+                                                 2 * _freeCount[s]));
+        }
+        _freeIds[s][_freeCount[s]] = id;
+        _freeCount[s] += 1;
+    }
+
+    /** Acquire the stripe locks for vertices U and V, in a fixed order so
+     *  that concurrent writers cannot deadlock. */
+    private void lockStripes(int u, int v) {
+        int s0 = Math.min(u & STRIPE_MASK, v & STRIPE_MASK),
+            s1 = Math.max(u & STRIPE_MASK, v & STRIPE_MASK);
+        _stripes[s0].lock();
+        if (s1 != s0) {
+            _stripes[s1].lock();
+        }
+    }
+
+    /** Release the locks acquired by lockStripes(U, V). */
+    private void unlockStripes(int u, int v) {
+        int s0 = u & STRIPE_MASK, s1 = v & STRIPE_MASK;
+        _stripes[s0].unlock();
+        if (s1 != s0) {
+            _stripes[s1].unlock();
+        }
+    }
+
+    /** An Iteration over the vertices recorded in a successor table. */
+    private static class VertexIteration extends Iteration<Integer> {
+        /** Iterate over the vertices <= MAX that are present in SUCC. */
+        VertexIteration(AtomicReferenceArray<int[]> succ, int max) {
+            _table = succ;
+            _max = Math.min(max, succ.length() - 1);
+            _next = 0;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _next <= _max;
+        }
+
+        @Override
+        public Integer next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            int result = _next;
+            advance();
+            return result;
+        }
+
+        /** Move _next to the next vertex present in _table. */
+        private void advance() {
+            do {
+                _next += 1;
+            } while (_next <= _max && _table.get(_next) == null);
+        }
+
+        /** The table of successors. */
+        private final AtomicReferenceArray<int[]> _table;
+        /** The largest vertex I will return. */
+        private final int _max;
+        /** The next vertex to return (if <= _max). */
+        private int _next;
+    }
+
+    /** An Iteration over the edges recorded in a successor table.  Returns
+     *  the same array from each call of next. */
+    private static class EdgeIteration extends Iteration<int[]> {
+        /** Iterate over the edges leaving vertices <= MAX in SUCC. */
+        EdgeIteration(AtomicReferenceArray<int[]> succ, int max) {
+            _table = succ;
+            _max = Math.min(max, succ.length() - 1);
+            _out = EMPTY;
+            _k = 0;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _k < _out.length;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _edge[0] = _u;
+            _edge[1] = _out[_k];
+            _k += 2;
+            advance();
+            return _edge;
+        }
+
+        /** Move to the next vertex with an unvisited outgoing edge, if the
+         *  current one has none left. */
+        private void advance() {
+            while (_k >= _out.length && _u < _max) {
+                _u += 1;
+                int[] out = _table.get(_u);
+                _out = out == null ? EMPTY : out;
+                _k = 0;
+            }
+        }
+
+        /** The table of successors. */
+        private final AtomicReferenceArray<int[]> _table;
+        /** The largest vertex whose edges I return. */
+        private final int _max;
+        /** The source vertex of the next edge. */
+        private int _u;
+        /** The successor array of _u. */
+        private int[] _out;
+        /** Index of the next edge's target in _out. */
+        private int _k;
+        /** The array returned by next. */
+        private final int[] _edge = new int[2];
+    }
+
+    /** Initial size of the adjacency tables. */
+    private static final int INITIAL_CAPACITY = 16;
+    /** Number of stripe locks (a power of 2). */
+    private static final int STRIPES = 64;
+    /** Mask selecting the stripe of a vertex. */
+    private static final int STRIPE_MASK = STRIPES - 1;
+    /** The adjacency of a vertex with no edges. */
+    private static final int[] EMPTY = new int[0];
+
+    /** Mapping of vertex numbers to their outgoing edges, as arrays
+     *  alternating successor vertices and edge identifiers.  Null entries
+     *  denote absent vertices.  Entry 0 is unused. */
+    private volatile AtomicReferenceArray<int[]> _succ;
+    /** Mapping of vertex numbers to arrays of their predecessors. */
+    private volatile AtomicReferenceArray<int[]> _pred;
+    /** Held for reading while modifying edges, and for writing while
+     *  adding or removing vertices or replacing the tables. */
+    private final ReentrantReadWriteLock _structure =
+        new ReentrantReadWriteLock();
+    /** Locks serializing modifications to edges, selected by end point. */
+    private final ReentrantLock[] _stripes;
+    /** For each stripe, the freed identifiers of edges leaving its
+     *  vertices, in _freeIds[s][0 .. _freeCount[s]-1], guarded by its
+     *  lock. */
+    private final int[][] _freeIds;
+    private final int[] _freeCount;
+    /** Number of vertices. */
+    private volatile int _vertexSize;
+    /** Largest vertex number, or 0 if empty. */
+    private volatile int _maxVertex;
+    /** A vertex number at or below the smallest unused one. */
+    private int _lowestFree;
+    /** Number of edges. */
+    private final AtomicInteger _edgeSize = new AtomicInteger();
+    /** The last edge identifier issued. */
+    private final AtomicInteger _lastEdgeId = new AtomicInteger();
+}
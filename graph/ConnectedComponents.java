@@ -0,0 +1,234 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.stream.IntStream;
+
+/** A partition of vertices into connected components, kept as a
+ *  union-find (disjoint-set) structure with union by size and path
+ *  halving, so that union and find take nearly constant amortized time.
+ *  The components of a graph may be found all at once (by the
+ *  constructor or by afforest) and then kept up to date as edges are
+ *  added by calling union for each.  Edges are treated as undirected, so
+ *  for a directed graph the components are those of the graph with its
+ *  edges' directions ignored; the components of a directed graph whose
+ *  edges all come in opposite pairs (such as a road map) are exactly its
+ *  strongly connected components.  Removing an edge may split a
+ *  component, which union-find cannot represent: the components must
+ *  then be recomputed.
+ *  @author Warner Tsang
+ */
+public class ConnectedComponents {
+
+    /** An empty partition, in which every vertex is alone. */
+    public ConnectedComponents() {
+        this(INITIAL_SIZE - 1);
+    }
+
+    /** The connected components of G. */
+    public ConnectedComponents(Graph G) {
+        this(G.vertexSize() == 0 ? 0 : G.maxVertex());
+        for (int[] e : G.edges()) {
+            union(e[0], e[1]);
+        }
+    }
+
+    /** A partition in which vertices up to MAXVERTEX are alone. */
+    private ConnectedComponents(int maxVertex) {
+        _parent = new int[maxVertex + 1];
+        _size = new int[maxVertex + 1];
+        for (int v = 0; v <= maxVertex; v += 1) {
+            _parent[v] = v;
+            _size[v] = 1;
+        }
+    }
+
+    /** Returns the connected components of G, which must be undirected
+     *  or have every edge matched by one in the opposite direction,
+     *  computed in parallel on POOL by the Afforest algorithm of Sutton,
+     *  Ben-Nun, and Barak.  Each vertex is first linked to a few of its
+     *  neighbors.  Most vertices of a large graph then already belong to
+     *  one giant component, whose members need not have their remaining
+     *  edges examined; the remaining edges of all other vertices are
+     *  then linked.  Linking uses compare-and-set, so no locks are
+     *  needed. */
+    public static ConnectedComponents afforest(Graph G, ForkJoinPool pool) {
+        Graph g = G.snapshot();
+        int n = g.vertexSize() == 0 ? 0 : g.maxVertex();
+        AtomicIntegerArray parent = new AtomicIntegerArray(n + 1);
+        for (int v = 0; v <= n; v += 1) {
+            parent.set(v, v);
+        }
+        ThreadLocal<IntIteration> cursors =
+            ThreadLocal.withInitial(IntIteration::new);
+        for (int r = 0; r < NEIGHBOR_ROUNDS; r += 1) {
+            final int round = r;
+            parallel(pool, n, v -> {
+                if (!g.contains(v)) {
+                    return;
+                }
+                IntIteration succ = g.successors(v, cursors.get());
+                for (int k = 0; k < round && succ.hasNext(); k += 1) {
+                    succ.nextInt();
+                }
+                if (succ.hasNext()) {
+                    link(parent, v, succ.nextInt());
+                }
+            });
+            parallel(pool, n, v -> compress(parent, v));
+        }
+        int giant = mostFrequent(parent, n);
+        parallel(pool, n, v -> {
+            if (parent.get(v) == giant || !g.contains(v)) {
+                return;
+            }
+            IntIteration succ = g.successors(v, cursors.get());
+            for (int k = 0; k < NEIGHBOR_ROUNDS && succ.hasNext(); k += 1) {
+                succ.nextInt();
+            }
+            while (succ.hasNext()) {
+                link(parent, v, succ.nextInt());
+            }
+        });
+        parallel(pool, n, v -> compress(parent, v));
+        ConnectedComponents result = new ConnectedComponents(n);
+        Arrays.fill(result._size, 0);
+        for (int v = 0; v <= n; v += 1) {
+            result._parent[v] = parent.get(v);
+            result._size[parent.get(v)] += 1;
+        }
+        return result;
+    }
+
+    /** Returns the representative of the component containing V: the same
+     *  vertex for all vertices of a component. */
+    public int find(int v) {
+        if (v >= _parent.length) {
+            return v;
+        }
+        while (_parent[v] != v) {
+            _parent[v] = _parent[_parent[v]];
+            v = _parent[v];
+        }
+        return v;
+    }
+
+    /** Returns true iff U and V are in the same component. */
+    public boolean connected(int u, int v) {
+        return find(u) == find(v);
+    }
+
+    /** Returns the number of vertices in V's component. */
+    public int size(int v) {
+        return v >= _parent.length ? 1 : _size[find(v)];
+    }
+
+    /** Merge the components of U and V, as when an edge (U, V) is added.
+     *  Returns true iff they were different components. */
+    public boolean union(int u, int v) {
+        grow(Math.max(u, v));
+        int ru = find(u), rv = find(v);
+        if (ru == rv) {
+            return false;
+        }
+        if (_size[ru] < _size[rv]) {
+            int t = ru;
+            ru = rv;
+            rv = t;
+        }
+        _parent[rv] = ru;
+        _size[ru] += _size[rv];
+        return true;
+    }
+
+    /** Make room for vertices up to V. */
+    private void grow(int v) {
+        int n = _parent.length;
+        if (v >= n) {
+            int size = Math.max(v + 1, 2 * n);
+            _parent = Arrays.copyOf(_parent, size);
+            _size = Arrays.copyOf(_size, size);
+            for (int w = n; w < size; w += 1) {
+                _parent[w] = w;
+                _size[w] = 1;
+            }
+        }
+    }
+
+    /** An action on a vertex. */
+    private interface VertexAction {
+        /** Perform the action on V. */
+        void apply(int v);
+    }
+
+    /** Perform ACTION on 1 .. N in parallel on POOL. */
+    private static void parallel(ForkJoinPool pool, int n,
+                                 VertexAction action) {
+        pool.submit(() -> IntStream.rangeClosed(1, n).parallel()
+                    .forEach(action::apply)).join();
+    }
+
+    /** Merge the trees containing U and V in PARENT, always making the
+     *  larger root point to the smaller, so that concurrent links cannot
+     *  form a cycle. */
+    private static void link(AtomicIntegerArray parent, int u, int v) {
+        int p1 = parent.get(u), p2 = parent.get(v);
+        while (p1 != p2) {
+            int high = Math.max(p1, p2), low = Math.min(p1, p2);
+            int pHigh = parent.get(high);
+            if (pHigh == low
+                || (pHigh == high && parent.compareAndSet(high, high, low))) {
+                break;
+            }
+            p1 = parent.get(parent.get(high));
+            p2 = parent.get(low);
+        }
+    }
+
+    /** Make V in PARENT point directly to its root. */
+    private static void compress(AtomicIntegerArray parent, int v) {
+        while (parent.get(parent.get(v)) != parent.get(v)) {
+            parent.set(v, parent.get(parent.get(v)));
+        }
+    }
+
+    /** Returns the most frequent value of PARENT[v] among a sample of the
+     *  vertices 1 .. N. */
+    private static int mostFrequent(AtomicIntegerArray parent, int n) {
+        if (n == 0) {
+            return 0;
+        }
+        Random rand = new Random(SEED);
+        HashMap<Integer, Integer> counts = new HashMap<>();
+        int best = 0, bestCount = 0;
+        for (int i = 0; i < SAMPLES; i += 1) {
+            int root = parent.get(rand.nextInt(n) + 1);
+            int count = counts.merge(root, 1, Integer::sum);
+            if (count > bestCount) {
+                best = root;
+                bestCount = count;
+            }
+        }
+        return best;
+    }
+
+    /** Number of neighbors of each vertex linked before sampling. */
+    private static final int NEIGHBOR_ROUNDS = 2;
+    /** Number of vertices sampled to find the giant component. */
+    private static final int SAMPLES = 1024;
+    /** Random-number seed for sampling. */
+    private static final long SEED = 61;
+    /** Default initial size of my arrays. */
+    private static final int INITIAL_SIZE = 16;
+
+    /** Parent of each vertex in its component's tree (itself for the
+     *  root). */
+    private int[] _parent;
+    /** Number of vertices in the component of each root. */
+    private int[] _size;
+}
@@ -0,0 +1,603 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.function.IntConsumer;
+import java.util.stream.IntStream;
+
+/** The shortest paths from one vertex to all others through a graph whose
+ *  edges have non-negative weights, computed in parallel by the
+ *  delta-stepping algorithm of Meyer and Sanders.  Tentative distances
+ *  are kept in buckets of width delta.  The vertices of the lowest
+ *  non-empty bucket are processed together in parallel, first relaxing
+ *  their light edges (those lighter than delta, which may put vertices
+ *  back into the same bucket) until the bucket stays empty, and then
+ *  relaxing the heavy edges of every vertex removed from it, which cannot.
+ *  Distances are lowered by compare-and-set, so no locks are needed.
+ *  Like SimpleShortestPaths, the client supplies only the two-argument
+ *  getWeight method, which is called once per edge per search, from
+ *  several threads at once.  The results are kept in arrays indexed by
+ *  vertex.  Distances do not depend on the number of threads, and neither
+ *  do predecessors, which are chosen after the search: the largest
+ *  neighbor along a shortest path.
+ *  @author Warner Tsang
+ */
+public abstract class DeltaStepping {
+
+    /** The shortest paths in G from SOURCE. */
+    public DeltaStepping(Graph G, int source) {
+        _G = G;
+        _source = source;
+    }
+
+    /** Use buckets of width DELTA in subsequent searches, or, if DELTA is
+     *  0, a width chosen from the edge weights of the graph searched: the
+     *  mean weight of its edges.  A small width leaves little work to do
+     *  in parallel; a large one re-relaxes more edges. */
+    public void setDelta(double delta) {
+        if (!(delta >= 0) || Double.isInfinite(delta)) {
+            throw new IllegalArgumentException("delta must be finite and "
+                                               + "non-negative");
+        }
+        _fixedDelta = _delta = delta;
+    }
+
+    /** Returns the bucket width used by the last search, or the one set by
+     *  setDelta if there has been none. */
+    public double getDelta() {
+        return _delta;
+    }
+
+    /** Compute the shortest paths from my source, using the threads of
+     *  POOL.  Must be called before using getWeight, getPredecessor,
+     *  pathTo, distances, or predecessors.  Throws
+     *  IllegalArgumentException if an edge weight is negative or NaN.
+     *  The graph is snapshotted first, and may be modified by other
+     *  threads during the search. */
+    public void setPaths(ForkJoinPool pool) {
+        Graph g = _G.snapshot();
+        int n = g.vertexSize() == 0 ? 0 : g.maxVertex();
+        _pool = pool;
+        _workers = new ConcurrentHashMap<>();
+        try {
+            prepare(g, n);
+            search(g, n);
+            finish(n);
+        } finally {
+            _pool = null;
+            _workers = null;
+            _dist = null;
+            _settledRound = null;
+            _frontier = null;
+            _offsets = null;
+            _targets = null;
+            _weights = null;
+            _lightEnd = null;
+        }
+    }
+
+    /** Returns the weight of the shortest path from my source to V, or
+     *  positive infinity if there is none or V is not a vertex. */
+    public double getWeight(int v) {
+        if (_distances == null || v < 0 || v >= _distances.length) {
+            return Double.POSITIVE_INFINITY;
+        }
+        return _distances[v];
+    }
+
+    /** Returns the vertex before V on a shortest path from my source to V,
+     *  or 0 if V is my source or is unreachable. */
+    public int getPredecessor(int v) {
+        if (_predecessors == null || v < 0 || v >= _predecessors.length) {
+            return 0;
+        }
+        return _predecessors[v];
+    }
+
+    /** Returns the weights of the shortest paths from my source, indexed
+     *  by vertex, as for getWeight.  The array is not a copy: it is the
+     *  one I use, and is replaced by the next search. */
+    public double[] distances() {
+        return _distances;
+    }
+
+    /** Returns the predecessors on the shortest paths from my source,
+     *  indexed by vertex, as for getPredecessor.  The array is not a
+     *  copy. */
+    public int[] predecessors() {
+        return _predecessors;
+    }
+
+    /** Returns a list of vertices starting at my source and ending at V
+     *  that represents a shortest path to V, or an empty list if V is
+     *  unreachable. */
+    public List<Integer> pathTo(int v) {
+        List<Integer> path = new ArrayList<>();
+        if (getWeight(v) == Double.POSITIVE_INFINITY) {
+            return path;
+        }
+        for (; v != 0; v = getPredecessor(v)) {
+            path.add(v);
+        }
+        Collections.reverse(path);
+        return path;
+    }
+
+    /** Returns the starting vertex. */
+    public int getSource() {
+        return _source;
+    }
+
+    /** Returns the weight of edge (U, V) in the graph, which must be
+     *  non-negative.  May be called by several threads at once. */
+    protected abstract double getWeight(int u, int v);
+
+    /** Set up the edge arrays of G, whose largest vertex is N: the
+     *  successors of each vertex v with their weights, in slots
+     *  _offsets[v] .. _offsets[v + 1] - 1, light edges first.  Choose
+     *  the bucket width for this search. */
+    private void prepare(Graph g, int n) {
+        _offsets = new int[n + 2];
+        for (int v : g.vertices()) {
+            _offsets[v + 1] = g.outDegree(v);
+        }
+        for (int v = 1; v <= n + 1; v += 1) {
+            _offsets[v] += _offsets[v - 1];
+        }
+        int m = _offsets[n + 1];
+        _targets = new int[m];
+        _weights = new double[m];
+        _lightEnd = new int[n + 1];
+        ThreadLocal<IntIteration> cursors =
+            ThreadLocal.withInitial(IntIteration::new);
+        _badWeight = null;
+        parallel(n, u -> {
+            IntIteration succ = g.successors(u, cursors.get());
+            for (int k = _offsets[u]; succ.hasNext(); k += 1) {
+                int v = succ.nextInt();
+                double w = getWeight(u, v);
+                if (!(w >= 0)) {
+                    _badWeight = String.format("edge (%d, %d) has weight %s",
+                                               u, v, w);
+                }
+                _targets[k] = v;
+                _weights[k] = w;
+            }
+        });
+        if (_badWeight != null) {
+            throw new IllegalArgumentException(_badWeight);
+        }
+        double sum;
+        int finite;
+        sum = 0;
+        finite = 0;
+        _hasZero = false;
+        for (double w : _weights) {
+            if (w != Double.POSITIVE_INFINITY) {
+                sum += w;
+                finite += 1;
+            }
+            _hasZero |= w == 0;
+        }
+        if (_fixedDelta > 0) {
+            _delta = _fixedDelta;
+        } else {
+            _delta = sum > 0 ? sum / finite : 1;
+        }
+        double delta = _delta;
+        parallel(n, u -> {
+            int i = _offsets[u], j = _offsets[u + 1] - 1;
+            while (i <= j) {
+                if (_weights[i] < delta) {
+                    i += 1;
+                } else {
+                    swap(i, j);
+                    j -= 1;
+                }
+            }
+            _lightEnd[u] = i;
+        });
+    }
+
+    /** Compute the distances from my source in G, whose largest vertex is
+     *  N, into _dist. */
+    private void search(Graph g, int n) {
+        _dist = new AtomicLongArray(n + 1);
+        _settledRound = new int[n + 1];
+        _round = 0;
+        _frontier = new int[INITIAL_FRONTIER];
+        for (int v = 0; v <= n; v += 1) {
+            _dist.set(v, INFINITY);
+        }
+        if (!g.contains(_source)) {
+            return;
+        }
+        _dist.set(_source, Double.doubleToLongBits(0.0));
+        _frontier[0] = _source;
+        int bucket, size;
+        bucket = 0;
+        size = 1;
+        while (true) {
+            _round += 1;
+            while (size > 0) {
+                run(size, bucket, false);
+                size = gather(bucket);
+            }
+            size = gatherSettled();
+            run(size, bucket, true);
+            for (Worker w : _workers.values()) {
+                w.release(bucket);
+            }
+            bucket = nextBucket(bucket);
+            if (bucket < 0) {
+                break;
+            }
+            size = gather(bucket);
+        }
+    }
+
+    /** Fill _distances and _predecessors from _dist, for vertices up to
+     *  N. */
+    private void finish(int n) {
+        double[] dist = new double[n + 1];
+        parallel(n, v -> dist[v] = Double.longBitsToDouble(_dist.get(v)));
+        dist[0] = Double.POSITIVE_INFINITY;
+        AtomicIntegerArray pred = new AtomicIntegerArray(n + 1);
+        parallel(n, u -> {
+            double du = dist[u];
+            if (du == Double.POSITIVE_INFINITY) {
+                return;
+            }
+            for (int k = _offsets[u]; k < _offsets[u + 1]; k += 1) {
+                int v = _targets[k];
+                if (_weights[k] > 0 && du + _weights[k] == dist[v]
+                    && v != _source) {
+                    pred.accumulateAndGet(v, u, Math::max);
+                }
+            }
+        });
+        int[] result = new int[n + 1];
+        for (int v = 0; v <= n; v += 1) {
+            result[v] = pred.get(v);
+        }
+        if (_hasZero) {
+            linkZeroWeightPaths(dist, result);
+        }
+        _distances = dist;
+        _predecessors = result;
+    }
+
+    /** Give predecessors in PRED to reachable vertices that have none
+     *  because every shortest path to them ends in edges of weight 0,
+     *  given the distances DIST.  The new predecessors are found by a
+     *  breadth-first search along such edges from the vertices that
+     *  already have predecessors, so they form no cycles. */
+    private void linkZeroWeightPaths(double[] dist, int[] pred) {
+        int[] queue = new int[pred.length];
+        int head, tail;
+        head = tail = 0;
+        for (int v = 1; v < pred.length; v += 1) {
+            if (pred[v] != 0 || (v == _source
+                                 && dist[v] != Double.POSITIVE_INFINITY)) {
+                queue[tail] = v;
+                tail += 1;
+            }
+        }
+        while (head < tail) {
+            int u = queue[head];
+            head += 1;
+            for (int k = _offsets[u]; k < _lightEnd[u]; k += 1) {
+                int v = _targets[k];
+                if (_weights[k] == 0 && pred[v] == 0 && v != _source
+                    && dist[v] == dist[u]) {
+                    pred[v] = u;
+                    queue[tail] = v;
+                    tail += 1;
+                }
+            }
+        }
+    }
+
+    /** Process the first SIZE vertices of _frontier, which were taken from
+     *  bucket number BUCKET, in parallel if there are enough of them: relax
+     *  their heavy edges if HEAVY, and otherwise their light edges. */
+    private void run(int size, int bucket, boolean heavy) {
+        if (size <= GRAIN) {
+            process(_frontier, 0, size, bucket, heavy);
+        } else {
+            _pool.invoke(new Phase(_frontier, 0, size, bucket, heavy));
+        }
+    }
+
+    /** Process FRONTIER[LO .. HI - 1] as for run(.., BUCKET, HEAVY), in
+     *  the current thread. */
+    private void process(int[] frontier, int lo, int hi, int bucket,
+                         boolean heavy) {
+        Worker worker =
+            _workers.computeIfAbsent(Thread.currentThread(),
+                                     t -> new Worker());
+        for (int i = lo; i < hi; i += 1) {
+            int u = frontier[i];
+            double du = Double.longBitsToDouble(_dist.get(u));
+            if (heavy) {
+                relax(worker, du, _lightEnd[u], _offsets[u + 1]);
+            } else if (bucket(du) == bucket) {
+                if (_settledRound[u] != _round) {
+                    _settledRound[u] = _round;
+                    worker.settle(u);
+                }
+                relax(worker, du, _offsets[u], _lightEnd[u]);
+            }
+        }
+    }
+
+    /** Lower the distance of the target of each edge in slots FROM ..
+     *  TO - 1 to DU plus its weight, if that is less, and put the target
+     *  into WORKER's bucket for its new distance. */
+    private void relax(Worker worker, double du, int from, int to) {
+        for (int k = from; k < to; k += 1) {
+            int v = _targets[k];
+            double d = du + _weights[k];
+            long old = _dist.get(v);
+            while (d < Double.longBitsToDouble(old)) {
+                if (_dist.compareAndSet(v, old, Double.doubleToLongBits(d))) {
+                    worker.add(bucket(d), v);
+                    break;
+                }
+                old = _dist.get(v);
+            }
+        }
+    }
+
+    /** Returns the number of the bucket holding distance D. */
+    private int bucket(double d) {
+        double b = d / _delta;
+        return b < MAX_BUCKET ? (int) b : MAX_BUCKET;
+    }
+
+    /** Move the contents of every worker's bucket number BUCKET to the
+     *  start of _frontier, and return their number. */
+    private int gather(int bucket) {
+        int size;
+        size = 0;
+        for (Worker w : _workers.values()) {
+            size += w.size(bucket);
+        }
+        ensureFrontier(size);
+        int n;
+        n = 0;
+        for (Worker w : _workers.values()) {
+            n = w.drain(bucket, _frontier, n);
+        }
+        return size;
+    }
+
+    /** Move the vertices settled by every worker since the last call to
+     *  the start of _frontier, and return their number. */
+    private int gatherSettled() {
+        int size;
+        size = 0;
+        for (Worker w : _workers.values()) {
+            size += w._settledSize;
+        }
+        ensureFrontier(size);
+        int n;
+        n = 0;
+        for (Worker w : _workers.values()) {
+            System.arraycopy(w._settled, 0, _frontier, n, w._settledSize);
+            n += w._settledSize;
+            w._settledSize = 0;
+        }
+        return size;
+    }
+
+    /** Returns the number of the lowest non-empty bucket numbered at least
+     *  BUCKET, or -1 if all are empty. */
+    private int nextBucket(int bucket) {
+        int result = -1;
+        for (Worker w : _workers.values()) {
+            int b = w.lowest(bucket);
+            if (b >= 0 && (result < 0 || b < result)) {
+                result = b;
+            }
+        }
+        return result;
+    }
+
+    /** Make _frontier hold at least SIZE vertices. */
+    private void ensureFrontier(int size) {
+        if (size > _frontier.length) {
+            _frontier = new int[Math.max(size, 2 * _frontier.length)];
+        }
+    }
+
+    /** Exchange the edges in slots I and J. */
+    private void swap(int i, int j) {
+        int v = _targets[i];
+        _targets[i] = _targets[j];
+        _targets[j] = v;
+        double w = _weights[i];
+        _weights[i] = _weights[j];
+        _weights[j] = w;
+    }
+
+    /** Perform ACTION on 1 .. N in parallel on _pool. */
+    private void parallel(int n, IntConsumer action) {
+        _pool.submit(() -> IntStream.rangeClosed(1, n).parallel()
+                     .forEach(action)).join();
+    }
+
+    /** Processes a range of a frontier in parallel. */
+    private class Phase extends RecursiveAction {
+
+        /** Process FRONTIER[LO .. HI - 1] as for run(.., BUCKET,
+         *  HEAVY). */
+        Phase(int[] frontier, int lo, int hi, int bucket, boolean heavy) {
+            _phaseFrontier = frontier;
+            _lo = lo;
+            _hi = hi;
+            _bucket = bucket;
+            _heavy = heavy;
+        }
+
+        @Override
+        protected void compute() {
+            if (_hi - _lo <= GRAIN) {
+                process(_phaseFrontier, _lo, _hi, _bucket, _heavy);
+                return;
+            }
+            int mid = (_lo + _hi) >>> 1;
+            invokeAll(new Phase(_phaseFrontier, _lo, mid, _bucket, _heavy),
+                      new Phase(_phaseFrontier, mid, _hi, _bucket, _heavy));
+        }
+
+        /** The vertices to process. */
+        private final int[] _phaseFrontier;
+        /** Bounds of the range to process. */
+        private final int _lo, _hi;
+        /** The bucket from which the vertices were taken. */
+        private final int _bucket;
+        /** True iff heavy edges are to be relaxed. */
+        private final boolean _heavy;
+    }
+
+    /** The vertices put into buckets by one thread, and those it has
+     *  settled in the current bucket. */
+    private static final class Worker {
+
+        /** Put V into bucket number B. */
+        void add(int b, int v) {
+            if (b >= _bins.length) {
+                int size = Math.max(b + 1, 2 * _bins.length);
+                _bins = Arrays.copyOf(_bins, size);
+                _sizes = Arrays.copyOf(_sizes, size);
+            }
+            int[] bin = _bins[b];
+            if (bin == null) {
+                bin = _bins[b] = new int[INITIAL_BIN];
+            } else if (_sizes[b] == bin.length) {
+                bin = _bins[b] = Arrays.copyOf(bin, 2 * bin.length);
+            }
+            bin[_sizes[b]] = v;
+            _sizes[b] += 1;
+            _low = Math.min(_low, b);
+        }
+
+        /** Returns the number of vertices in bucket number B. */
+        int size(int b) {
+            return b < _sizes.length ? _sizes[b] : 0;
+        }
+
+        /** Copy the contents of bucket B to DEST, starting at POS, empty
+         *  the bucket, and return the position after the last copied. */
+        int drain(int b, int[] dest, int pos) {
+            int n = size(b);
+            if (n > 0) {
+                System.arraycopy(_bins[b], 0, dest, pos, n);
+                _sizes[b] = 0;
+            }
+            return pos + n;
+        }
+
+        /** Free the space of bucket B if it is empty. */
+        void release(int b) {
+            if (b < _bins.length && _sizes[b] == 0) {
+                _bins[b] = null;
+            }
+        }
+
+        /** Returns the number of the lowest non-empty bucket numbered at
+         *  least FROM, or -1 if there is none. */
+        int lowest(int from) {
+            for (int b = Math.max(from, _low); b < _sizes.length; b += 1) {
+                if (_sizes[b] > 0) {
+                    _low = b;
+                    return b;
+                }
+            }
+            _low = _sizes.length;
+            return -1;
+        }
+
+        /** Record that U was settled in the current bucket. */
+        void settle(int u) {
+            if (_settledSize == _settled.length) {
+                _settled = Arrays.copyOf(_settled, 2 * _settledSize);
+            }
+            _settled[_settledSize] = u;
+            _settledSize += 1;
+        }
+
+        /** The contents of each bucket, and their numbers. */
+        private int[][] _bins = new int[INITIAL_BINS][];
+        private int[] _sizes = new int[INITIAL_BINS];
+        /** No bucket numbered below this is non-empty. */
+        private int _low;
+        /** The vertices settled in the current bucket, and their
+         *  number. */
+        private int[] _settled = new int[INITIAL_BIN];
+        private int _settledSize;
+    }
+
+    /** The bits of positive infinity, as stored in _dist. */
+    private static final long INFINITY =
+        Double.doubleToLongBits(Double.POSITIVE_INFINITY);
+    /** Largest bucket number.  Distances beyond MAX_BUCKET * delta share
+     *  the last bucket, and are still found correctly, but by repeatedly
+     *  processing that bucket. */
+    private static final int MAX_BUCKET = 1 << 24;
+    /** Largest number of vertices processed as a single task. */
+    private static final int GRAIN = 256;
+    /** Initial sizes of a worker's bucket array and of each bucket. */
+    private static final int INITIAL_BINS = 64, INITIAL_BIN = 16;
+    /** Initial size of _frontier. */
+    private static final int INITIAL_FRONTIER = 1024;
+
+    /** The graph being searched. */
+    private final Graph _G;
+    /** The starting vertex. */
+    private final int _source;
+    /** The bucket width set by setDelta, or 0 to choose one. */
+    private double _fixedDelta;
+    /** The bucket width of the last search. */
+    private double _delta;
+    /** The results of the last search, by vertex. */
+    private double[] _distances;
+    private int[] _predecessors;
+
+    /** The edges of the graph being searched, during a search: the
+     *  successors of each vertex v, with the weights of the edges to
+     *  them, are in slots _offsets[v] .. _offsets[v + 1] - 1, with the
+     *  light edges first, ending at _lightEnd[v]. */
+    private int[] _offsets, _targets, _lightEnd;
+    private double[] _weights;
+    /** True iff some edge has weight 0. */
+    private boolean _hasZero;
+    /** A description of an edge with an invalid weight, if any. */
+    private volatile String _badWeight;
+
+    /** During a search, the pool on which it runs. */
+    private ForkJoinPool _pool;
+    /** During a search, the state of each thread that has taken part. */
+    private ConcurrentHashMap<Thread, Worker> _workers;
+    /** During a search, the tentative distance of each vertex, as the
+     *  bits of a double. */
+    private AtomicLongArray _dist;
+    /** During a search, the number of the round in which each vertex was
+     *  last settled, or 0.  A round empties one bucket and then relaxes
+     *  the heavy edges of the vertices it settled; a bucket may take more
+     *  than one. */
+    private int[] _settledRound;
+    private int _round;
+    /** During a search, the vertices being processed. */
+    private int[] _frontier;
+}
@@ -33,16 +33,21 @@ public class DirectedGraph extends GraphObj {
 
     @Override
     public Iteration<Integer> predecessors(int v) {
+        return checked(predecessors(v, new IntIteration()));
+    }
+
+    @Override
+    public IntIteration predecessors(int v, IntIteration cursor) {
+        cursor.clear();
         if (!contains(v)) {
-            return Iteration.iteration(new ArrayList<>());
+            return cursor;
         }
         ArrayList<ArrayList<Integer>> edges = getAdjacentEdges();
-        ArrayList<Integer> predecessorIterator = new ArrayList<>();
         for (int i = 0; i < edges.size(); i++) {
             if (edges.get(i).contains(v)) {
-                predecessorIterator.add(i + 1);
+                cursor.add(i + 1);
             }
         }
-        return Iteration.iteration(predecessorIterator);
+        return cursor;
     }
 }
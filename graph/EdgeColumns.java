@@ -0,0 +1,154 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+
+/** Values attached to the edges of a graph for any number of metrics
+ *  (lengths, travel times, and so on), kept in primitive arrays rather
+ *  than in edge labels.  Each edge (U, V) is given a slot: the edges
+ *  leaving U occupy consecutive slots, in the order in which successors
+ *  returns their targets.  Each metric is a column, an array holding its
+ *  value for the edge in each slot, so that adding a metric costs one
+ *  array of doubles and no copy of the graph, and a shortest-paths search
+ *  using a metric reads its weights from one flat array.  Because
+ *  searches ask for the weights of the edges leaving a vertex in the same
+ *  order as their slots, slot(U, V, HINT) finds most slots at the first
+ *  probe.  Later changes to the graph are not reflected.
+ *  @author Warner Tsang
+ */
+public final class EdgeColumns {
+
+    /** Supplies the value of a metric for each edge. */
+    public interface Metric {
+        /** Returns the value for edge (U, V). */
+        double weight(int u, int v);
+    }
+
+    /** Columns, initially none, for the edges of G. */
+    public EdgeColumns(Graph G) {
+        int n = G.maxVertex();
+        _first = new int[n + 2];
+        _targets = new int[Math.max(1, G.edgeSize())];
+        IntIteration cursor = new IntIteration();
+        int e;
+        e = 0;
+        for (int u = 1; u <= n; u += 1) {
+            _first[u] = e;
+            IntIteration iter = G.successors(u, cursor);
+            while (iter.hasNext()) {
+                if (e == _targets.length) {
+                    _targets = Arrays.copyOf(_targets, 2 * e);
+                }
+                _targets[e] = iter.nextInt();
+                e += 1;
+            }
+        }
+        _first[n + 1] = e;
+        _slots = e;
+    }
+
+    /** Columns for the same edges as OTHER, holding the same columns
+     *  (shared, not copied). */
+    private EdgeColumns(EdgeColumns other) {
+        _first = other._first;
+        _targets = other._targets;
+        _slots = other._slots;
+        _names.addAll(other._names);
+        _columns.addAll(other._columns);
+    }
+
+    /** Returns the number of edge slots. */
+    public int slots() {
+        return _slots;
+    }
+
+    /** Returns the slot of edge (U, V), or -1 if there is no such
+     *  edge. */
+    public int slot(int u, int v) {
+        if (u <= 0 || u >= _first.length - 1) {
+            return -1;
+        }
+        for (int e = _first[u]; e < _first[u + 1]; e += 1) {
+            if (_targets[e] == v) {
+                return e;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns slot(U, V), trying slot HINT first. */
+    public int slot(int u, int v, int hint) {
+        if (hint >= 0 && hint < _slots && _targets[hint] == v
+            && hint >= _first[u] && hint < _first[u + 1]) {
+            return hint;
+        }
+        return slot(u, v);
+    }
+
+    /** Add a column named NAME holding the values of METRIC for each of
+     *  my edges, and return its number.  There must not already be a
+     *  column named NAME. */
+    public int addColumn(String name, Metric metric) {
+        if (column(name) >= 0) {
+            throw new IllegalArgumentException("duplicate column: " + name);
+        }
+        double[] values = new double[_slots];
+        for (int u = 1; u < _first.length - 1; u += 1) {
+            for (int e = _first[u]; e < _first[u + 1]; e += 1) {
+                values[e] = metric.weight(u, _targets[e]);
+            }
+        }
+        _names.add(name);
+        _columns.add(values);
+        return _columns.size() - 1;
+    }
+
+    /** Returns new columns for my edges holding my columns, which are
+     *  shared rather than copied, and a column named NAME holding the
+     *  values of METRIC, as for addColumn.  I am unchanged, so that
+     *  threads still reading me are unaffected. */
+    public EdgeColumns withColumn(String name, Metric metric) {
+        EdgeColumns result = new EdgeColumns(this);
+        result.addColumn(name, metric);
+        return result;
+    }
+
+    /** Returns the number of the column named NAME, or -1 if there is
+     *  none. */
+    public int column(String name) {
+        return _names.indexOf(name);
+    }
+
+    /** Returns the values of column number C, indexed by slot.  The
+     *  array is mine, not a copy, and must not be modified. */
+    public double[] values(int c) {
+        return _columns.get(c);
+    }
+
+    /** Returns the value in column number C for edge (U, V), which must
+     *  be one of my edges. */
+    public double weight(int c, int u, int v) {
+        int e = slot(u, v);
+        if (e < 0) {
+            throw new IllegalArgumentException("no such edge");
+        }
+        return _columns.get(c)[e];
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d edges, columns %s", _slots, _names);
+    }
+
+    /** The edges leaving vertex u occupy slots _first[u] ..
+     *  _first[u + 1] - 1, and the edge in slot e enters _targets[e]. */
+    private final int[] _first;
+    private int[] _targets;
+    /** Number of slots. */
+    private final int _slots;
+    /** Names and values of my columns, in order of their numbers. */
+    private final ArrayList<String> _names = new ArrayList<>();
+    private final ArrayList<double[]> _columns = new ArrayList<>();
+}
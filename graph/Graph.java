@@ -85,6 +85,28 @@ public abstract class Graph {
      *  Empty if V is not my vertex. */
     public abstract Iteration<Integer> predecessors(int v);
 
+    /** Returns CURSOR, refilled with the successors of V (empty if V is not
+     *  my vertex).  This behaves like successors(V), but lets a loop reuse
+     *  one cursor rather than allocating an Iteration on each call.  This
+     *  default implementation copies the values of successors(V). */
+    public IntIteration successors(int v, IntIteration cursor) {
+        cursor.clear();
+        for (Iteration<Integer> it = successors(v); it.hasNext(); ) {
+            cursor.add(it.next());
+        }
+        return cursor;
+    }
+
+    /** Returns CURSOR, refilled with the predecessors of V (empty if V is
+     *  not my vertex), as for successors(V, CURSOR). */
+    public IntIteration predecessors(int v, IntIteration cursor) {
+        cursor.clear();
+        for (Iteration<Integer> it = predecessors(v); it.hasNext(); ) {
+            cursor.add(it.next());
+        }
+        return cursor;
+    }
+
     /** Returns successors(V).  This is a synonym typically used on
      *  undirected graphs. */
     public final Iteration<Integer> neighbors(int v) {
@@ -98,6 +120,15 @@ public abstract class Graph {
      *  array to return all results). */
     public abstract Iteration<int[]> edges();
 
+    /** Returns an immutable copy of my current structure, which is
+     *  unaffected by later changes to me and may be read by any number of
+     *  threads at once.  Its edge identifiers are the same as mine.  This
+     *  default implementation copies all my edges; subclasses may do
+     *  better by sharing unchanged adjacency data between versions. */
+    public Graph snapshot() {
+        return new GraphSnapshot(this);
+    }
+
     /* Non-public methods for internal use. */
 
     /** Throw exception if V is not one of my vertices. */
@@ -0,0 +1,336 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.IntFunction;
+
+/** Saves graphs to files and opens them again.  A graph file holds a
+ *  graph in the compressed sparse row form of an OffHeapGraph, so that
+ *  opening it simply maps its arrays into memory: the time taken does not
+ *  depend on the size of the graph, pages are read from the file only as
+ *  they are used, and processes that open the same file share one copy of
+ *  it in the operating system's page cache.  Labels are saved too, each
+ *  encoded by a LabelCodec, and are decoded from the mapped pages when
+ *  requested (see MappedGraph).
+ *
+ *  A file begins with a header of HEADER_SIZE bytes: the magic number
+ *  MAGIC, the format VERSION, flags (bit 0 set for directed graphs), the
+ *  numbers of vertices, edges, edge slots (twice the number of edges of
+ *  an undirected graph, less self-loops), and predecessor slots (0 for an
+ *  undirected graph), a reserved int, and then the byte offset and length
+ *  of each section, as longs.  The sections, each starting at a multiple
+ *  of 8 bytes, are the arrays of the OffHeapGraph (offsets, targets, edge
+ *  identifiers, and for a directed graph, reversed offsets and sources),
+ *  then for each of the vertex and edge labels, the concatenated label
+ *  encodings followed by the offset of each label's encoding.  Vertex
+ *  labels are indexed by vertex and edge labels by edge slot; an empty
+ *  encoding denotes a null label, and an empty section, no labels.  All
+ *  numbers outside the label encodings are little-endian.
+ *  @author Warner Tsang
+ */
+public final class GraphFile {
+
+    /** Not instantiable. */
+    private GraphFile() {
+    }
+
+    /** Save the structure of G, whose vertices must be 1 .. G.maxVertex(),
+     *  to the file PATH, replacing any previous contents. */
+    public static void write(Graph G, Path path) throws IOException {
+        write(G, path, null, null, null);
+    }
+
+    /** Save G, whose vertices must be 1 .. G.maxVertex(), to the file
+     *  PATH, replacing any previous contents.  Its vertex labels are
+     *  encoded by VERTEXCODEC and its edge labels by EDGECODEC; either
+     *  may be null to save no labels of that kind. */
+    public static <VL, EL> void write(LabeledGraph<VL, EL> G, Path path,
+                                      LabelCodec<VL> vertexCodec,
+                                      LabelCodec<EL> edgeCodec)
+        throws IOException {
+        write(G, path, G, vertexCodec, edgeCodec);
+    }
+
+    /** Returns true iff PATH names a readable graph file. */
+    public static boolean isGraphFile(Path path) {
+        try (FileChannel in = FileChannel.open(path,
+                                               StandardOpenOption.READ)) {
+            ByteBuffer magic =
+                ByteBuffer.allocate(Integer.BYTES)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            while (magic.hasRemaining() && in.read(magic) >= 0) {
+                continue;
+            }
+            return !magic.hasRemaining() && magic.getInt(0) == MAGIC;
+        } catch (IOException excp) {
+            return false;
+        }
+    }
+
+    /** Returns the graph saved in the file PATH, without its labels. */
+    public static OffHeapGraph open(Path path) throws IOException {
+        try (FileChannel in = FileChannel.open(path,
+                                               StandardOpenOption.READ)) {
+            return open(in, new Header(in));
+        }
+    }
+
+    /** Returns the labeled graph saved in the file PATH, whose vertex
+     *  labels are decoded by VERTEXCODEC and edge labels by EDGECODEC.
+     *  If either is null, or the file has no labels of that kind, those
+     *  labels are all null. */
+    public static <VL, EL> MappedGraph<VL, EL> open(Path path,
+                                                    LabelCodec<VL>
+                                                    vertexCodec,
+                                                    LabelCodec<EL> edgeCodec)
+        throws IOException {
+        try (FileChannel in = FileChannel.open(path,
+                                               StandardOpenOption.READ)) {
+            Header header = new Header(in);
+            OffHeapGraph graph = open(in, header);
+            OffHeapInts vertexIndex = null, edgeIndex = null;
+            ByteBuffer vertexLabels = null, edgeLabels = null;
+            if (vertexCodec != null && header.length(VERTEX_LABELS) > 0) {
+                vertexLabels = header.bytes(in, VERTEX_LABELS);
+                vertexIndex = header.ints(in, VERTEX_INDEX);
+            }
+            if (edgeCodec != null && header.length(EDGE_LABELS) > 0) {
+                edgeLabels = header.bytes(in, EDGE_LABELS);
+                edgeIndex = header.ints(in, EDGE_INDEX);
+            }
+            return new MappedGraph<>(graph, vertexCodec, vertexIndex,
+                                     vertexLabels, edgeCodec, edgeIndex,
+                                     edgeLabels);
+        }
+    }
+
+    /** Returns the graph described by HEADER in the file open on IN. */
+    private static OffHeapGraph open(FileChannel in, Header header)
+        throws IOException {
+        return new OffHeapGraph(header._vertexSize, header._directed,
+                                header._edgeSize, header.ints(in, OFFSETS),
+                                header.ints(in, TARGETS),
+                                header.ints(in, IDS),
+                                header._directed
+                                ? header.ints(in, REVERSE_OFFSETS) : null,
+                                header._directed
+                                ? header.ints(in, SOURCES) : null);
+    }
+
+    /** Save the structure of G to PATH, with the vertex and edge labels
+     *  of LABELS (which has the same structure as G) as encoded by
+     *  VERTEXCODEC and EDGECODEC, if they are not null.  The file is
+     *  written under a temporary name and then renamed, so that
+     *  processes that have mapped an earlier version of it are not
+     *  disturbed. */
+    private static <VL, EL> void write(Graph G, Path path,
+                                       LabeledGraph<VL, EL> labels,
+                                       LabelCodec<VL> vertexCodec,
+                                       LabelCodec<EL> edgeCodec)
+        throws IOException {
+        Path temp = path.resolveSibling(path.getFileName() + ".tmp");
+        long[] sections = new long[2 * SECTIONS];
+        try (OffHeapGraph csr = OffHeapGraph.copyOf(G);
+             FileChannel out =
+                 FileChannel.open(temp, StandardOpenOption.CREATE,
+                                  StandardOpenOption.TRUNCATE_EXISTING,
+                                  StandardOpenOption.WRITE)) {
+            int n = csr.maxVertex();
+            OffHeapInts offsets = csr.offsets(), targets = csr.targets();
+            out.position(HEADER_SIZE);
+            writeSection(out, sections, OFFSETS, offsets);
+            writeSection(out, sections, TARGETS, targets);
+            writeSection(out, sections, IDS, csr.ids());
+            if (csr.isDirected()) {
+                writeSection(out, sections, REVERSE_OFFSETS,
+                             csr.reverseOffsets());
+                writeSection(out, sections, SOURCES, csr.sources());
+            }
+            if (vertexCodec != null) {
+                writeLabels(out, sections, VERTEX_LABELS, n + 1,
+                            v -> v == 0 ? null : labels.getLabel(v),
+                            vertexCodec);
+            }
+            if (edgeCodec != null) {
+                int[] source = new int[1];
+                writeLabels(out, sections, EDGE_LABELS, targets.size(),
+                            k -> {
+                                while (offsets.get(source[0] + 1) <= k) {
+                                    source[0] += 1;
+                                }
+                                return labels.getLabel(source[0],
+                                                       targets.get(k));
+                            }, edgeCodec);
+            }
+            ByteBuffer header =
+                ByteBuffer.allocate(HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            header.putInt(MAGIC).putInt(VERSION)
+                .putInt(csr.isDirected() ? DIRECTED : 0)
+                .putInt(n).putInt(csr.edgeSize()).putInt(targets.size())
+                .putInt(csr.isDirected() ? csr.sources().size() : 0)
+                .putInt(0);
+            for (long x : sections) {
+                header.putLong(x);
+            }
+            header.flip();
+            out.position(0);
+            while (header.hasRemaining()) {
+                out.write(header);
+            }
+        } catch (IOException | RuntimeException excp) {
+            Files.deleteIfExists(temp);
+            throw excp;
+        }
+        Files.move(temp, path, StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /** Write VALUES to OUT as section #K, recording its position and
+     *  length in SECTIONS. */
+    private static void writeSection(FileChannel out, long[] sections, int k,
+                                     OffHeapInts values)
+        throws IOException {
+        align(out);
+        sections[2 * k] = out.position();
+        values.write(out);
+        sections[2 * k + 1] = out.position() - sections[2 * k];
+    }
+
+    /** Write the labels LABEL.apply(0) .. LABEL.apply(COUNT - 1) to OUT as
+     *  section #K, encoded by CODEC, followed by their offsets in that
+     *  section as section #K + 1, recording the positions and lengths of
+     *  both in SECTIONS. */
+    private static <T> void writeLabels(FileChannel out, long[] sections,
+                                        int k, int count,
+                                        IntFunction<T> label,
+                                        LabelCodec<T> codec)
+        throws IOException {
+        align(out);
+        sections[2 * k] = out.position();
+        DataOutputStream data =
+            new DataOutputStream(new BufferedOutputStream(
+                Channels.newOutputStream(out)));
+        try (OffHeapInts index = new OffHeapInts(count + 1)) {
+            for (int i = 0; i < count; i += 1) {
+                T lab = label.apply(i);
+                if (lab != null) {
+                    int start = data.size();
+                    codec.write(lab, data);
+                    if (data.size() == Integer.MAX_VALUE) {
+                        throw new IOException("labels exceed 2 GB");
+                    } else if (data.size() == start) {
+                        throw new IllegalArgumentException("empty encoding "
+                                                           + "of label "
+                                                           + lab);
+                    }
+                }
+                index.set(i + 1, data.size());
+            }
+            data.flush();
+            sections[2 * k + 1] = out.position() - sections[2 * k];
+            writeSection(out, sections, k + 1, index);
+        }
+    }
+
+    /** Pad OUT with zeros to a multiple of 8 bytes. */
+    private static void align(FileChannel out) throws IOException {
+        int pad = (int) (-out.position() & (ALIGNMENT - 1));
+        ByteBuffer zeros = ByteBuffer.allocate(pad);
+        while (zeros.hasRemaining()) {
+            out.write(zeros);
+        }
+    }
+
+    /** The header of a graph file. */
+    private static class Header {
+
+        /** The header of the file open on IN. */
+        Header(FileChannel in) throws IOException {
+            if (in.size() < HEADER_SIZE) {
+                throw new IOException("not a graph file");
+            }
+            ByteBuffer header =
+                in.map(MapMode.READ_ONLY, 0, HEADER_SIZE)
+                .order(ByteOrder.LITTLE_ENDIAN);
+            if (header.getInt() != MAGIC) {
+                throw new IOException("not a graph file");
+            }
+            int version = header.getInt();
+            if (version != VERSION) {
+                throw new IOException("unsupported graph file version "
+                                      + version);
+            }
+            _directed = (header.getInt() & DIRECTED) != 0;
+            _vertexSize = header.getInt();
+            _edgeSize = header.getInt();
+            header.getInt();
+            header.getInt();
+            header.getInt();
+            _sections = new long[2 * SECTIONS];
+            for (int k = 0; k < _sections.length; k += 1) {
+                _sections[k] = header.getLong();
+            }
+            for (int k = 0; k < SECTIONS; k += 1) {
+                if (_sections[2 * k] < 0 || _sections[2 * k + 1] < 0
+                    || _sections[2 * k] + _sections[2 * k + 1] > in.size()) {
+                    throw new IOException("graph file is truncated");
+                }
+            }
+        }
+
+        /** Returns the length in bytes of section #K. */
+        long length(int k) {
+            return _sections[2 * k + 1];
+        }
+
+        /** Returns section #K of the file open on IN, mapped as ints. */
+        OffHeapInts ints(FileChannel in, int k) throws IOException {
+            return OffHeapInts.map(in, _sections[2 * k],
+                                   (int) (length(k) / Integer.BYTES));
+        }
+
+        /** Returns section #K of the file open on IN, mapped as bytes. */
+        ByteBuffer bytes(FileChannel in, int k) throws IOException {
+            return in.map(MapMode.READ_ONLY, _sections[2 * k], length(k));
+        }
+
+        /** True iff the graph is directed. */
+        private final boolean _directed;
+        /** Numbers of vertices and edges. */
+        private final int _vertexSize, _edgeSize;
+        /** Offset and length of each section, alternately. */
+        private final long[] _sections;
+    }
+
+    /** The first four bytes of a graph file: "GRPH" in ASCII. */
+    static final int MAGIC = 0x48505247;
+    /** The version of the file format. */
+    static final int VERSION = 1;
+    /** Flag marking a directed graph. */
+    private static final int DIRECTED = 1;
+    /** Sections are aligned to multiples of this many bytes. */
+    private static final int ALIGNMENT = 8;
+
+    /** Section numbers. */
+    private static final int
+        OFFSETS = 0, TARGETS = 1, IDS = 2, REVERSE_OFFSETS = 3, SOURCES = 4,
+        VERTEX_LABELS = 5, VERTEX_INDEX = 6, EDGE_LABELS = 7, EDGE_INDEX = 8;
+    /** Number of sections. */
+    private static final int SECTIONS = 9;
+    /** Size of the header in bytes. */
+    static final int HEADER_SIZE = 8 * Integer.BYTES
+        + 2 * SECTIONS * Long.BYTES;
+}
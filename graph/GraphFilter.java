@@ -86,11 +86,26 @@ public class GraphFilter extends Graph {
         return _G.predecessors(v);
     }
 
+    @Override
+    public IntIteration successors(int v, IntIteration cursor) {
+        return _G.successors(v, cursor);
+    }
+
+    @Override
+    public IntIteration predecessors(int v, IntIteration cursor) {
+        return _G.predecessors(v, cursor);
+    }
+
     @Override
     public Iteration<int[]> edges() {
         return _G.edges();
     }
 
+    @Override
+    public Graph snapshot() {
+        return _G.snapshot();
+    }
+
     @Override
     protected int edgeId(int u, int v) {
         return _G.edgeId(u, v);
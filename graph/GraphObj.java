@@ -3,6 +3,7 @@ package graph;
 import java.lang.reflect.Array;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.ConcurrentModificationException;
 
 /** A partial implementation of Graph containing elements common to
  *  directed and undirected graphs.
@@ -31,6 +32,18 @@ abstract class GraphObj extends Graph {
      * Tracks undirected edgeIDs.
      */
     private ArrayList<Integer> uEdgeCodes;
+    /**
+     * Number of modifications made to me so far.
+     */
+    private int _version;
+    /**
+     * Most recent snapshot of me, if any.
+     */
+    private Graph _snapshot;
+    /**
+     * Value of _version when _snapshot was taken.
+     */
+    private int _snapshotVersion;
 
 
 
@@ -122,6 +135,7 @@ abstract class GraphObj extends Graph {
     @Override
     public int add() {
 
+        _version++;
         int index = 0;
         if (adjacentEdges.size() == 0) {
             ArrayList<Integer> first = new ArrayList<>();
@@ -155,7 +169,7 @@ abstract class GraphObj extends Graph {
                 }
                 for (int i = 0; i < adjacentEdges.size(); i++) {
                     ArrayList<Integer> node = adjacentEdges.get(i);
-                    if (i == u - 1 && node.contains(v)) {
+                    if (i == u - 1 && !node.contains(v)) {
                         node.add(v);
                     }
                 }
@@ -167,15 +181,16 @@ abstract class GraphObj extends Graph {
                 }
                 for (int j = 0; j < adjacentEdges.size(); j++) {
                     ArrayList<Integer> node = adjacentEdges.get(j);
-                    if (j == u - 1 && node.contains(v)) {
+                    if (j == u - 1 && !node.contains(v)) {
                         node.add(v);
-                    } else if (j == v - 1 && node.contains(u)) {
+                    } else if (j == v - 1 && !node.contains(u)) {
                         node.add(u);
                     }
                 }
                 uEdgeCodes.add(edgeId(u, v));
                 uEdgeCodes.add(edgeId(v, u));
             }
+            _version++;
             int[] edgePair = new int[2];
             edgePair[0] = u;
             edgePair[1] = v;
@@ -188,6 +203,7 @@ abstract class GraphObj extends Graph {
     public void remove(int v) {
 
         if (contains(v)) {
+            _version++;
             vertexTrack.remove(vertexTrack.indexOf(v));
             adjacentEdges.get(v - 1).clear();
             for (ArrayList<Integer> nodes : adjacentEdges) {
@@ -232,6 +248,7 @@ abstract class GraphObj extends Graph {
     public void remove(int u, int v) {
 
         if (contains(u, v)) {
+            _version++;
             if (!isDirected()) {
                 uEdgeCodes.remove(uEdgeCodes.indexOf(edgeId(u, v)));
                 uEdgeCodes.remove(uEdgeCodes.indexOf(edgeId(v, u)));
@@ -282,7 +299,7 @@ abstract class GraphObj extends Graph {
     @Override
     public Iteration<Integer> vertices() {
 
-        return Iteration.iteration(vertexTrack);
+        return checked(Iteration.iteration(vertexTrack));
     }
 
     @Override
@@ -291,7 +308,20 @@ abstract class GraphObj extends Graph {
         if (!contains(v)) {
             return Iteration.iteration(new ArrayList<>());
         }
-        return Iteration.iteration(adjacentEdges.get(v - 1));
+        return checked(Iteration.iteration(adjacentEdges.get(v - 1)));
+    }
+
+    @Override
+    public IntIteration successors(int v, IntIteration cursor) {
+
+        cursor.clear();
+        if (v >= 1 && v <= adjacentEdges.size()) {
+            ArrayList<Integer> nodes = adjacentEdges.get(v - 1);
+            for (int i = 0; i < nodes.size(); i++) {
+                cursor.add(nodes.get(i));
+            }
+        }
+        return cursor;
     }
 
     @Override
@@ -300,7 +330,30 @@ abstract class GraphObj extends Graph {
     @Override
     public Iteration<int[]> edges() {
 
-        return Iteration.iteration(_edges);
+        return checked(Iteration.iteration(_edges));
+    }
+
+    /**
+     * Returns an Iteration that delegates to ITER, but that fails with a
+     * ConcurrentModificationException if I am modified before it is done,
+     * rather than returning a mix of old and new values.
+     */
+    <T> Iteration<T> checked(Iteration<T> iter) {
+        return new CheckedIteration<>(iter);
+    }
+
+    /** Returns a snapshot of me.  The snapshot is copied only when I have
+     *  changed since the last call, so repeated searches of an unchanging
+     *  graph share one copy.  Like my other methods, this one must not be
+     *  called while another thread is modifying me; the result, however,
+     *  may be handed to any number of reader threads. */
+    @Override
+    public Graph snapshot() {
+        if (_snapshot == null || _snapshotVersion != _version) {
+            _snapshot = new GraphSnapshot(this);
+            _snapshotVersion = _version;
+        }
+        return _snapshot;
     }
 
     @Override
@@ -316,4 +369,35 @@ abstract class GraphObj extends Graph {
 
         return ((u + v) * (u + v + 1)) / 2 + v;
     }
+
+    /**
+     * An Iteration over part of me that checks my modification count
+     * before returning each value.
+     */
+    private class CheckedIteration<T> extends Iteration<T> {
+        /** Delegate to ITER, which must be over one of my lists. */
+        CheckedIteration(Iteration<T> iter) {
+            _iter = iter;
+            _expectedVersion = _version;
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _iter.hasNext();
+        }
+
+        @Override
+        public T next() {
+            if (_version != _expectedVersion) {
+                throw new ConcurrentModificationException("graph modified "
+                        + "during iteration");
+            }
+            return _iter.next();
+        }
+
+        /** The underlying iteration. */
+        private final Iteration<T> _iter;
+        /** The value of _version when I was created. */
+        private final int _expectedVersion;
+    }
 }
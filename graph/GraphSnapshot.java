@@ -0,0 +1,298 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.NoSuchElementException;
+
+/** An immutable copy of the structure of a Graph as of some moment.
+ *  A snapshot may be read by any number of threads at once, and is not
+ *  affected by later modifications of the graph from which it was made.
+ *  It keeps the edge identifiers of that graph, so that they may still be
+ *  used to find labels.  Its adjacency arrays are never modified, and
+ *  so may be shared with the graph they came from (see
+ *  ConcurrentDirectedGraph.snapshot).
+ *  @author Warner Tsang
+ */
+final class GraphSnapshot extends Graph {
+
+    /** A snapshot of the current contents of G. */
+    GraphSnapshot(Graph G) {
+        _directed = G.isDirected();
+        _edgeSize = G.edgeSize();
+        _vertexSize = G.vertexSize();
+        _maxVertex = _vertexSize == 0 ? 0 : G.maxVertex();
+        _succ = new int[_maxVertex + 1][];
+        _vertices = new int[_vertexSize];
+        int[] inDegrees = new int[_maxVertex + 1];
+        int n;
+        n = 0;
+        for (int v : G.vertices()) {
+            _vertices[n] = v;
+            n += 1;
+            int[] out = new int[2 * G.outDegree(v)];
+            int k;
+            k = 0;
+            for (int w : G.successors(v)) {
+                out[k] = w;
+                out[k + 1] = G.edgeId(v, w);
+                inDegrees[w] += 1;
+                k += 2;
+            }
+            _succ[v] = out;
+        }
+        if (_directed) {
+            _pred = new int[_maxVertex + 1][];
+            for (int v : _vertices) {
+                _pred[v] = new int[inDegrees[v]];
+                inDegrees[v] = 0;
+            }
+            for (int u : _vertices) {
+                int[] out = _succ[u];
+                for (int k = 0; k < out.length; k += 2) {
+                    int w = out[k];
+                    _pred[w][inDegrees[w]] = u;
+                    inDegrees[w] += 1;
+                }
+            }
+        } else {
+            _pred = null;
+        }
+    }
+
+    /** A snapshot of a directed graph whose successor arrays, alternating
+     *  vertices and edge identifiers, are SUCC, and whose predecessor
+     *  arrays are PRED, with null entries for absent vertices.  It has
+     *  VERTEXSIZE vertices, the largest of which is MAXVERTEX, and
+     *  EDGESIZE edges.  The arrays are not copied. */
+    GraphSnapshot(int[][] succ, int[][] pred, int vertexSize, int maxVertex,
+                  int edgeSize) {
+        _directed = true;
+        _succ = succ;
+        _pred = pred;
+        _vertexSize = vertexSize;
+        _maxVertex = maxVertex;
+        _edgeSize = edgeSize;
+        _vertices = new int[vertexSize];
+        int n;
+        n = 0;
+        for (int v = 1; v <= maxVertex; v += 1) {
+            if (succ[v] != null) {
+                _vertices[n] = v;
+                n += 1;
+            }
+        }
+    }
+
+    @Override
+    public int vertexSize() {
+        return _vertexSize;
+    }
+
+    @Override
+    public int maxVertex() {
+        return _maxVertex;
+    }
+
+    @Override
+    public int edgeSize() {
+        return _edgeSize;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    public int outDegree(int v) {
+        return contains(v) ? _succ[v].length / 2 : 0;
+    }
+
+    @Override
+    public int inDegree(int v) {
+        if (!contains(v)) {
+            return 0;
+        }
+        return _directed ? _pred[v].length : _succ[v].length / 2;
+    }
+
+    @Override
+    public boolean contains(int u) {
+        return u > 0 && u <= _maxVertex && _succ[u] != null;
+    }
+
+    @Override
+    public boolean contains(int u, int v) {
+        return find(u, v) >= 0;
+    }
+
+    @Override
+    public int add() {
+        throw readOnly();
+    }
+
+    @Override
+    public int add(int u, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public Iteration<Integer> vertices() {
+        return Iteration.iteration(_vertices, 0, _vertices.length, 1);
+    }
+
+    @Override
+    public Iteration<Integer> successors(int v) {
+        if (!contains(v)) {
+            return Iteration.iteration(EMPTY, 0, 0, 1);
+        }
+        return Iteration.iteration(_succ[v], 0, _succ[v].length, 2);
+    }
+
+    @Override
+    public Iteration<Integer> predecessors(int v) {
+        if (!_directed) {
+            return successors(v);
+        } else if (!contains(v)) {
+            return Iteration.iteration(EMPTY, 0, 0, 1);
+        }
+        return Iteration.iteration(_pred[v], 0, _pred[v].length, 1);
+    }
+
+    @Override
+    public IntIteration successors(int v, IntIteration cursor) {
+        if (!contains(v)) {
+            return cursor.reset(EMPTY, 0, 0, 1);
+        }
+        return cursor.reset(_succ[v], 0, _succ[v].length, 2);
+    }
+
+    @Override
+    public IntIteration predecessors(int v, IntIteration cursor) {
+        if (!_directed) {
+            return successors(v, cursor);
+        } else if (!contains(v)) {
+            return cursor.reset(EMPTY, 0, 0, 1);
+        }
+        return cursor.reset(_pred[v], 0, _pred[v].length, 1);
+    }
+
+    @Override
+    public Iteration<int[]> edges() {
+        return new EdgeIteration();
+    }
+
+    @Override
+    public Graph snapshot() {
+        return this;
+    }
+
+    @Override
+    protected int edgeId(int u, int v) {
+        int k = find(u, v);
+        return k < 0 ? 0 : _succ[u][k + 1];
+    }
+
+    /** Returns the index of V in the successor array of U, or -1 if there
+     *  is no edge (U, V). */
+    private int find(int u, int v) {
+        if (contains(u)) {
+            int[] out = _succ[u];
+            for (int k = 0; k < out.length; k += 2) {
+                if (out[k] == v) {
+                    return k;
+                }
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the exception thrown by attempts to modify me. */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("graph snapshot is "
+                                                 + "read-only");
+    }
+
+    /** An Iteration over my edges, returning each undirected edge once.
+     *  Returns the same array from each call of next. */
+    private class EdgeIteration extends Iteration<int[]> {
+        /** An iteration over all edges. */
+        EdgeIteration() {
+            _out = EMPTY;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _k < _out.length;
+        }
+
+        @Override
+        public int[] next() {
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _edge[0] = _vertices[_u - 1];
+            _edge[1] = _out[_k];
+            _k += 2;
+            advance();
+            return _edge;
+        }
+
+        /** Move to the next edge to be returned, if the current position
+         *  is not one. */
+        private void advance() {
+            while (true) {
+                while (_k < _out.length) {
+                    if (_directed || _out[_k] >= _vertices[_u - 1]) {
+                        return;
+                    }
+                    _k += 2;
+                }
+                if (_u >= _vertices.length) {
+                    return;
+                }
+                _out = _succ[_vertices[_u]];
+                _u += 1;
+                _k = 0;
+            }
+        }
+
+        /** One more than the index in _vertices of the current source
+         *  vertex. */
+        private int _u;
+        /** The successor array of the current source vertex. */
+        private int[] _out;
+        /** Index of the next edge's target in _out. */
+        private int _k;
+        /** The array returned by next. */
+        private final int[] _edge = new int[2];
+    }
+
+    /** An empty adjacency array. */
+    private static final int[] EMPTY = new int[0];
+
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** Numbers of vertices and edges, and the largest vertex number. */
+    private final int _vertexSize, _edgeSize, _maxVertex;
+    /** My vertices, in increasing order. */
+    private final int[] _vertices;
+    /** Mapping of vertex numbers to their outgoing edges, as arrays
+     *  alternating successors and edge identifiers.  Null for absent
+     *  vertices. */
+    private final int[][] _succ;
+    /** Mapping of vertex numbers to arrays of predecessors, if I am
+     *  directed; otherwise null. */
+    private final int[][] _pred;
+}
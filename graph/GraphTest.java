@@ -2,7 +2,18 @@ package graph;
 
 import org.junit.Test;
 
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
 
 import static org.junit.Assert.*;
 
@@ -395,4 +406,1378 @@ public class GraphTest {
 
     }
 
+    @Test
+    public void testConcurrentGraph() {
+        ConcurrentDirectedGraph g = new ConcurrentDirectedGraph();
+        for (int i = 0; i < 40; i++) {
+            g.add();
+        }
+        int e = g.add(1, 2);
+        assertEquals(e, g.add(1, 2));
+        g.add(2, 1);
+        g.add(2, 2);
+        g.add(3, 2);
+        assertEquals(40, g.maxVertex());
+        assertEquals(4, g.edgeSize());
+        assertTrue(g.contains(1, 2));
+        assertFalse(g.contains(1, 3));
+        assertEquals(2, g.outDegree(2));
+        assertEquals(3, g.inDegree(2));
+        g.remove(2);
+        assertEquals(0, g.edgeSize());
+        assertEquals(0, g.outDegree(1));
+        assertEquals(2, g.add());
+        g.remove(40);
+        assertEquals(39, g.maxVertex());
+        int count = 0;
+        for (int v : g.vertices()) {
+            count++;
+        }
+        assertEquals(39, count);
+
+        int[] ids = { g.add(1, 3), g.add(3, 4), g.add(4, 1) };
+        for (int i = 0; i < 10000; i++) {
+            g.remove(3, 4);
+            g.add(3, 4);
+            g.remove(4);
+            assertEquals(4, g.add());
+            g.add(4, 1);
+        }
+        assertTrue(g.edgeId(3, 4) <= ids[2]);
+        assertTrue(g.edgeId(4, 1) <= ids[2]);
+        assertNotEquals(g.edgeId(3, 4), g.edgeId(4, 1));
+        assertEquals(g.edgeId(1, 3), ids[0]);
+
+        LabeledGraph<String, String> labeled = new LabeledGraph<>(g);
+        labeled.add(3, 4, "closed");
+        labeled.remove(4);
+        assertEquals(4, labeled.add());
+        labeled.add(4, 1);
+        labeled.add(3, 4);
+        assertNull(labeled.getLabel(3, 4));
+        assertNull(labeled.getLabel(4, 1));
+    }
+
+    @Test
+    public void testConcurrentGraphStress() throws InterruptedException {
+        final int n = 200;
+        final ConcurrentDirectedGraph g = new ConcurrentDirectedGraph();
+        for (int i = 0; i < n; i++) {
+            g.add();
+        }
+        final ArrayList<Throwable> failures = new ArrayList<>();
+        ArrayList<Thread> threads = new ArrayList<>();
+        for (int t = 0; t < 8; t++) {
+            final int seed = t;
+            threads.add(new Thread(() -> {
+                java.util.Random rand = new java.util.Random(seed);
+                try {
+                    for (int i = 0; i < 20000; i++) {
+                        int u = rand.nextInt(n) + 1, v = rand.nextInt(n) + 1;
+                        if (seed % 2 == 0) {
+                            if (rand.nextBoolean()) {
+                                g.add(u, v);
+                            } else {
+                                g.remove(u, v);
+                            }
+                        } else {
+                            for (int w : g.successors(u)) {
+                                assertTrue(w >= 1 && w <= n);
+                            }
+                        }
+                    }
+                } catch (Throwable excp) {
+                    synchronized (failures) {
+                        failures.add(excp);
+                    }
+                }
+            }));
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+        for (Thread thread : threads) {
+            thread.join();
+        }
+        assertTrue(failures.toString(), failures.isEmpty());
+        HashSet<Integer> ids = new HashSet<>();
+        for (int[] edge : g.edges()) {
+            assertTrue(ids.add(g.edgeId(edge[0], edge[1])));
+        }
+        int out = 0, in = 0, edges = 0;
+        for (int v = 1; v <= n; v++) {
+            out += g.outDegree(v);
+            in += g.inDegree(v);
+            for (int w : g.successors(v)) {
+                assertTrue(g.contains(v, w));
+            }
+        }
+        for (int[] edge : g.edges()) {
+            edges++;
+        }
+        assertEquals(g.edgeSize(), out);
+        assertEquals(g.edgeSize(), in);
+        assertEquals(g.edgeSize(), edges);
+    }
+
+    @Test
+    public void testSnapshot() {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 4; i++) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(2, 3);
+        g.add(3, 1);
+        Graph snap = g.snapshot();
+        assertSame(snap, g.snapshot());
+        g.add(1, 2);
+        assertSame(snap, g.snapshot());
+        g.remove(2, 3);
+        g.add(3, 4);
+        g.remove(1);
+        assertNotSame(snap, g.snapshot());
+        assertEquals(4, snap.vertexSize());
+        assertEquals(3, snap.edgeSize());
+        assertTrue(snap.contains(2, 3));
+        assertFalse(snap.contains(3, 4));
+        assertEquals(1, snap.inDegree(1));
+        assertEquals((Integer) 3, snap.predecessors(1).next());
+        int count = 0;
+        for (int[] e : snap.edges()) {
+            assertTrue(snap.contains(e[0], e[1]));
+            count++;
+        }
+        assertEquals(3, count);
+        try {
+            snap.add();
+            fail("snapshot should be read-only");
+        } catch (UnsupportedOperationException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testLabeledSnapshot() {
+        LabeledGraph<String, String> g =
+            new LabeledGraph<>(new UndirectedGraph());
+        int a = g.add("a"), b = g.add("b");
+        g.add(a, b, "ab");
+        LabeledGraph<String, String> snap = g.snapshot();
+        assertSame(snap, g.snapshot());
+        g.remove(a, b);
+        g.setLabel(a, "A");
+        assertEquals("a", snap.getLabel(a));
+        assertEquals("ab", snap.getLabel(a, b));
+        assertTrue(snap.contains(b, a));
+        assertEquals(1, snap.edgeSize());
+
+        LabeledGraph<String, String> snap2 = g.snapshot();
+        assertNotSame(snap, snap2);
+        assertSame(snap2, g.snapshot());
+        assertEquals("A", snap2.getLabel(a));
+        g.setLabel(b, "B");
+        LabeledGraph<String, String> snap3 = g.snapshot();
+        assertNotSame(snap2, snap3);
+        assertEquals("b", snap2.getLabel(b));
+        assertEquals("B", snap3.getLabel(b));
+        int c = g.add("c");
+        g.add(a, c, "ac");
+        assertNotSame(snap3, g.snapshot());
+        assertFalse(snap3.contains(c));
+        assertEquals("ac", g.snapshot().getLabel(a, c));
+
+        snap3.setLabel(a, "snap");
+        assertEquals("A", g.getLabel(a));
+        assertEquals("A", g.snapshot().getLabel(a));
+        g.setLabel(a, "again");
+        assertEquals("snap", snap3.getLabel(a));
+    }
+
+    @Test
+    public void testConcurrentSnapshot() throws InterruptedException {
+        final int n = 100;
+        final ConcurrentDirectedGraph g = new ConcurrentDirectedGraph();
+        for (int i = 0; i < n; i++) {
+            g.add();
+        }
+        for (int v = 1; v < n; v++) {
+            g.add(v, v + 1);
+        }
+        final Graph snap = g.snapshot();
+        Thread writer = new Thread(() -> {
+            for (int v = 1; v < n; v++) {
+                g.remove(v, v + 1);
+                g.add(v + 1, v);
+            }
+        });
+        writer.start();
+        for (int trial = 0; trial < 50; trial++) {
+            int v, hops;
+            for (v = 1, hops = 0; snap.outDegree(v) > 0; hops++) {
+                v = snap.successors(v).next();
+            }
+            assertEquals(n - 1, hops);
+        }
+        writer.join();
+        assertEquals(n - 1, snap.edgeSize());
+        assertTrue(snap.contains(1, 2));
+        assertFalse(g.contains(1, 2));
+        assertTrue(g.snapshot().contains(2, 1));
+    }
+
+    @Test
+    public void testCursors() {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 4; i++) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(1, 3);
+        g.add(4, 3);
+        IntIteration cursor = new IntIteration();
+        assertSame(cursor, g.successors(1, cursor));
+        assertEquals(2, cursor.remaining());
+        assertEquals(2, cursor.nextInt());
+        assertEquals(3, cursor.nextInt());
+        assertFalse(cursor.hasNext());
+        assertEquals(2, cursor.rewind().nextInt());
+        g.predecessors(3, cursor);
+        assertEquals(1, cursor.nextInt());
+        assertEquals(4, cursor.nextInt());
+        assertEquals(1, g.predecessors(2, cursor).nextInt());
+        g.successors(7, cursor);
+        assertFalse(cursor.hasNext());
+        Graph snap = g.snapshot();
+        snap.successors(4, cursor);
+        assertEquals(1, cursor.remaining());
+        assertEquals(3, cursor.nextInt());
+    }
+
+    @Test
+    public void testFailFast() {
+        UndirectedGraph g = new UndirectedGraph();
+        for (int i = 0; i < 3; i++) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(1, 3);
+        Iteration<Integer> succ = g.successors(1);
+        Iteration<int[]> edges = g.edges();
+        succ.next();
+        edges.next();
+        g.add(3, 1);
+        succ.next();
+        g.remove(3);
+        try {
+            succ.next();
+            fail("expected ConcurrentModificationException");
+        } catch (java.util.ConcurrentModificationException excp) {
+            /* Expected. */
+        }
+        try {
+            edges.next();
+            fail("expected ConcurrentModificationException");
+        } catch (java.util.ConcurrentModificationException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testSearchStats() {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 4; i++) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(2, 3);
+        g.add(1, 3);
+        SearchStats stats = new SearchStats();
+        SimpleShortestPaths paths = new SimpleShortestPaths(g, 1) {
+            @Override
+            protected double getWeight(int u, int v) {
+                return 1.0;
+            }
+        };
+        paths.setStats(stats);
+        paths.setPaths();
+        assertEquals(1, stats.searches());
+        assertEquals(3, stats.settled());
+        assertEquals(3, stats.relaxed());
+        assertTrue(stats.heuristicCalls() > 0);
+        BreadthFirstTraversal bfs = new BreadthFirstTraversal(g);
+        bfs.setStats(stats);
+        bfs.traverse(1);
+        assertEquals(2, stats.searches());
+        assertEquals(6, stats.settled());
+        assertEquals(6, stats.relaxed());
+        assertTrue(stats.toString().startsWith("searches=2 settled=6"));
+        stats.reset();
+        assertEquals(0, stats.searches());
+    }
+
+    /** A chain 1 - 2 - ... - N of unit-weight edges in both directions. */
+    private SimpleShortestPaths chainPaths(int n, int source) {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 1; i <= n; i++) {
+            g.add();
+        }
+        for (int i = 1; i < n; i++) {
+            g.add(i, i + 1);
+            g.add(i + 1, i);
+        }
+        return new SimpleShortestPaths(g, source) {
+            @Override
+            protected double getWeight(int u, int v) {
+                return 1.0;
+            }
+        };
+    }
+
+    @Test
+    public void testBoundedSearches() {
+        SimpleShortestPaths paths = chainPaths(10, 5);
+        paths.setPaths();
+        assertEquals(10, paths.settled().length);
+        assertEquals(5, paths.settled()[0]);
+
+        paths.setDistanceLimit(2.0);
+        paths.setPaths();
+        int[] near = paths.settled();
+        Arrays.sort(near);
+        assertArrayEquals(new int[] { 3, 4, 5, 6, 7 }, near);
+        assertEquals(2.0, paths.getWeight(7), 0.0);
+
+        paths.setDistanceLimit(Double.POSITIVE_INFINITY);
+        paths.setHopLimit(1);
+        paths.setPaths();
+        near = paths.settled();
+        Arrays.sort(near);
+        assertArrayEquals(new int[] { 4, 5, 6 }, near);
+        assertEquals(Double.POSITIVE_INFINITY, paths.getWeight(8), 0.0);
+
+        paths.setHopLimit(-1);
+        paths.setTargets(6, 3);
+        paths.setPaths();
+        assertEquals(Arrays.asList(5, 4, 3), paths.pathTo(3));
+        assertTrue(paths.settled().length < 10);
+        paths.setTargets((int[]) null);
+        paths.setPaths();
+        assertEquals(10, paths.settled().length);
+
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 4; i++) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(2, 3);
+        g.add(3, 4);
+        g.add(1, 3);
+        SimpleShortestPaths hops = new SimpleShortestPaths(g, 1) {
+            @Override
+            protected double getWeight(int u, int v) {
+                return u == 1 && v == 3 ? 10.0 : 1.0;
+            }
+        };
+        hops.setHopLimit(2);
+        hops.setPaths();
+        assertEquals(4, hops.settled().length);
+        assertEquals(11.0, hops.getWeight(4), 0.0);
+        assertEquals(Arrays.asList(1, 3, 4), hops.pathTo(4));
+        assertEquals(3, hops.getPredecessor(4));
+        assertEquals(2.0, hops.getWeight(3), 0.0);
+        assertEquals(Arrays.asList(1, 2, 3), hops.pathTo(3));
+        hops.setHopLimit(1);
+        hops.setPaths();
+        assertEquals(3, hops.settled().length);
+        assertEquals(10.0, hops.getWeight(3), 0.0);
+        hops.setHopLimit(-1);
+        hops.setPaths();
+        assertEquals(3.0, hops.getWeight(4), 0.0);
+        assertEquals(Arrays.asList(1, 2, 3, 4), hops.pathTo(4));
+    }
+
+    @Test
+    public void testPathStorage() {
+        for (PathStorage storage
+                 : new PathStorage[] { new StampedPathStorage(),
+                                       new SparsePathStorage() }) {
+            DirectedGraph g = new DirectedGraph();
+            for (int i = 0; i < 5; i++) {
+                g.add();
+            }
+            g.add(1, 2);
+            g.add(2, 3);
+            g.add(4, 5);
+            SimpleShortestPaths paths =
+                new SimpleShortestPaths(g, 1, 0, storage) {
+                    @Override
+                    protected double getWeight(int u, int v) {
+                        return 2.0;
+                    }
+                };
+            paths.setPaths();
+            assertEquals(4.0, paths.getWeight(3), 0.0);
+            assertEquals(2, paths.getPredecessor(3));
+            assertEquals(Double.POSITIVE_INFINITY, paths.getWeight(5), 0.0);
+            SimpleShortestPaths other =
+                new SimpleShortestPaths(g, 4, 0, storage) {
+                    @Override
+                    protected double getWeight(int u, int v) {
+                        return 1.0;
+                    }
+                };
+            other.setPaths();
+            assertEquals(1.0, other.getWeight(5), 0.0);
+            assertEquals(4, other.getPredecessor(5));
+            assertEquals(Double.POSITIVE_INFINITY, other.getWeight(3), 0.0);
+            assertEquals(0, other.getPredecessor(3));
+            assertEquals(Double.POSITIVE_INFINITY,
+                         other.getWeight(100), 0.0);
+            g.add();
+            g.add(5, 6);
+            other.setPaths();
+            assertEquals(2.0, other.getWeight(6), 0.0);
+        }
+        DirectedGraph big = new DirectedGraph();
+        for (int i = 0; i < 1000; i++) {
+            big.add();
+        }
+        assertTrue(PathStorage.forSearch(big, 4)
+                   instanceof SparsePathStorage);
+        assertTrue(PathStorage.forSearch(big, 500)
+                   instanceof StampedPathStorage);
+    }
+
+    @Test
+    public void testStronglyConnectedComponents() {
+        DirectedGraph g = new DirectedGraph();
+        for (int i = 0; i < 8; i++) {
+            g.add();
+        }
+        g.add(1, 2);
+        g.add(2, 3);
+        g.add(3, 1);
+        g.add(3, 4);
+        g.add(4, 5);
+        g.add(5, 4);
+        g.add(6, 6);
+        g.add(7, 8);
+        g.remove(8);
+        StronglyConnectedComponents scc = new StronglyConnectedComponents(g);
+        assertEquals(4, scc.count());
+        assertEquals(-1, scc.component(8));
+        assertEquals(scc.component(1), scc.component(3));
+        assertEquals(scc.component(4), scc.component(5));
+        assertTrue(scc.component(3) > scc.component(4));
+        assertEquals(Arrays.asList(1, 2, 3), scc.members(scc.component(2)));
+        assertTrue(scc.isCyclic(scc.component(6)));
+        assertFalse(scc.isCyclic(scc.component(7)));
+        assertEquals(Arrays.asList(1, 2, 3), scc.cycle());
+        g.remove(3, 1);
+        g.remove(5, 4);
+        assertEquals(Arrays.asList(6),
+                     new StronglyConnectedComponents(g).cycle());
+        g.remove(6, 6);
+        scc = new StronglyConnectedComponents(g);
+        assertTrue(scc.cycle().isEmpty());
+        assertEquals(7, scc.count());
+    }
+
+    @Test
+    public void testDeepStronglyConnectedComponents() {
+        int n = 200000;
+        ConcurrentDirectedGraph g = new ConcurrentDirectedGraph();
+        for (int i = 0; i < n; i++) {
+            g.add();
+        }
+        for (int i = 1; i < n; i++) {
+            g.add(i, i + 1);
+        }
+        StronglyConnectedComponents scc = new StronglyConnectedComponents(g);
+        assertEquals(n, scc.count());
+        assertEquals(0, scc.component(n));
+        g.add(n, 1);
+        scc = new StronglyConnectedComponents(g);
+        assertEquals(1, scc.count());
+        assertEquals(n, scc.cycle().size());
+    }
+
+    /** Assert that every edge of G goes forward in G's order. */
+    private void checkOrder(TopologicalOrder g) {
+        int[] order = g.order();
+        assertEquals(g.vertexSize(), order.length);
+        for (int i = 1; i < order.length; i++) {
+            assertTrue(g.position(order[i - 1]) < g.position(order[i]));
+        }
+        for (int[] e : g.edges()) {
+            assertTrue(g.position(e[0]) < g.position(e[1]));
+        }
+    }
+
+    @Test
+    public void testTopologicalOrder() {
+        DirectedGraph base = new DirectedGraph();
+        for (int i = 0; i < 3; i++) {
+            base.add();
+        }
+        base.add(3, 1);
+        TopologicalOrder g = new TopologicalOrder(base);
+        assertArrayEquals(new int[] { 2, 3, 1 }, g.order());
+        for (int i = 0; i < 3; i++) {
+            g.add();
+        }
+        g.add(1, 4);
+        g.add(4, 5);
+        g.add(6, 2);
+        g.add(5, 6);
+        checkOrder(g);
+        try {
+            g.add(2, 3);
+            fail("cycle not detected");
+        } catch (IllegalArgumentException excp) {
+            assertEquals(Arrays.asList(2, 3, 1, 4, 5, 6), g.cycle());
+        }
+        assertFalse(g.contains(2, 3));
+        try {
+            g.add(4, 4);
+            fail("self-loop not detected");
+        } catch (IllegalArgumentException excp) {
+            assertEquals(Arrays.asList(4), g.cycle());
+        }
+        g.add(3, 2);
+        assertTrue(g.cycle().isEmpty());
+        checkOrder(g);
+        g.remove(4);
+        g.add(5, 1);
+        checkOrder(g);
+        base.add(1, 2);
+        base.add(2, 3);
+        try {
+            new TopologicalOrder(base);
+            fail("cyclic graph accepted");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("graph is cyclic: [1, 2, 3]", excp.getMessage());
+        }
+
+        Random rand = new Random(61);
+        g = new TopologicalOrder(new DirectedGraph());
+        int n = 200;
+        for (int i = 0; i < n; i++) {
+            g.add();
+        }
+        for (int k = 0; k < 2000; k++) {
+            int u = rand.nextInt(n) + 1, v = rand.nextInt(n) + 1;
+            try {
+                g.add(u, v);
+            } catch (IllegalArgumentException excp) {
+                List<Integer> cycle = g.cycle();
+                assertEquals(u, (int) cycle.get(0));
+                assertEquals(v, (int) cycle.get(cycle.size() > 1 ? 1 : 0));
+                for (int i = 1; i < cycle.size(); i++) {
+                    assertTrue(g.contains(cycle.get(i),
+                                          cycle.get((i + 1) % cycle.size())));
+                }
+            }
+        }
+        checkOrder(g);
+        assertTrue(new StronglyConnectedComponents(g).cycle().isEmpty());
+    }
+
+    @Test
+    public void testTopologicalOrderReversedChain() {
+        int[] calls = new int[2];
+        Graph base = new GraphFilter(new DirectedGraph()) {
+            @Override
+            public IntIteration successors(int v, IntIteration cursor) {
+                calls[0] += 1;
+                return super.successors(v, cursor);
+            }
+
+            @Override
+            public IntIteration predecessors(int v, IntIteration cursor) {
+                calls[1] += 1;
+                return super.predecessors(v, cursor);
+            }
+        };
+        TopologicalOrder g = new TopologicalOrder(base);
+        int n = 2000;
+        for (int i = 0; i < n; i++) {
+            g.add();
+        }
+        for (int v = n; v > 1; v--) {
+            g.add(v, v - 1);
+        }
+        assertEquals(n - 1, g.edgeSize());
+        assertEquals(0, calls[1]);
+        assertTrue("too many successor lists read: " + calls[0],
+                   calls[0] <= 2 * n);
+        assertEquals(1, g.inDegree(1));
+        assertEquals(0, g.inDegree(n));
+        assertEquals(3, g.predecessors(2, new IntIteration()).nextInt());
+        checkOrder(g);
+        g.remove(n / 2);
+        g.remove(3, 2);
+        assertEquals(0, g.inDegree(n / 2 - 1));
+        assertEquals(0, g.inDegree(2));
+        g.add(1, n);
+        checkOrder(g);
+    }
+
+    @Test
+    public void testTopologicalOrderChurn() {
+        TopologicalOrder g = new TopologicalOrder(new DirectedGraph());
+        int n = 50;
+        for (int i = 0; i < n; i++) {
+            g.add();
+        }
+        for (int v = 2; v <= n; v++) {
+            g.add(v - 1, v);
+        }
+        for (int k = 0; k < 10000; k++) {
+            int v = k % n + 1;
+            g.remove(v);
+            assertEquals(v, g.add());
+            if (v > 1) {
+                g.add(v - 1, v);
+            }
+            if (v < n) {
+                g.add(v, v + 1);
+            }
+        }
+        assertEquals(n, g.order().length);
+        for (int v = 1; v <= n; v++) {
+            assertTrue(g.position(v) < 4 * n);
+        }
+        checkOrder(g);
+    }
+
+    @Test
+    public void testConnectedComponents() {
+        ConnectedComponents cc = new ConnectedComponents();
+        assertFalse(cc.connected(1, 2));
+        assertTrue(cc.union(1, 2));
+        assertTrue(cc.union(40, 3));
+        assertFalse(cc.union(2, 1));
+        assertTrue(cc.connected(2, 1));
+        assertFalse(cc.connected(2, 3));
+        cc.union(2, 40);
+        assertTrue(cc.connected(1, 3));
+        assertEquals(4, cc.size(3));
+        assertEquals(1, cc.size(100));
+
+        Random rand = new Random(61);
+        UndirectedGraph g = new UndirectedGraph();
+        int n = 2000;
+        for (int i = 0; i < n; i++) {
+            g.add();
+        }
+        for (int k = 0; k < 1500; k++) {
+            int u = rand.nextInt(n) + 1;
+            g.add(u, rand.nextInt(n) + 1);
+        }
+        for (int k = 0; k < 1000; k++) {
+            int u = rand.nextInt(n / 2) + 1;
+            g.add(u, rand.nextInt(n / 2) + 1);
+        }
+        g.remove(7);
+        ConnectedComponents seq = new ConnectedComponents(g);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        ConnectedComponents par = ConnectedComponents.afforest(g, pool);
+        pool.shutdown();
+        for (int u = 1; u <= n; u++) {
+            assertEquals(seq.size(u), par.size(u));
+            int v = rand.nextInt(n) + 1;
+            assertEquals(seq.connected(u, v), par.connected(u, v));
+            for (int w : g.contains(u) ? g.successors(u)
+                     : new ArrayList<Integer>()) {
+                assertTrue(par.connected(u, w));
+            }
+        }
+    }
+
+    /** Check that H has the same vertices, edges, and edge identifiers
+     *  as G. */
+    private void checkSameGraph(Graph G, Graph H) {
+        checkSameStructure(G, H);
+        for (int[] e : G.edges()) {
+            assertEquals(G.edgeId(e[0], e[1]), H.edgeId(e[0], e[1]));
+            if (!G.isDirected()) {
+                assertEquals(G.edgeId(e[1], e[0]), H.edgeId(e[1], e[0]));
+            }
+        }
+    }
+
+    /** Check that H has the same vertices and edges as G. */
+    private void checkSameStructure(Graph G, Graph H) {
+        assertEquals(G.vertexSize(), H.vertexSize());
+        assertEquals(G.edgeSize(), H.edgeSize());
+        IntIteration cursor = new IntIteration();
+        for (int v : G.vertices()) {
+            assertTrue(H.contains(v));
+            assertEquals(G.outDegree(v), H.outDegree(v));
+            assertEquals(G.inDegree(v), H.inDegree(v));
+            List<Integer> succ = new ArrayList<>(), pred = new ArrayList<>();
+            for (int w : G.successors(v)) {
+                succ.add(w);
+                assertTrue(H.contains(v, w));
+            }
+            for (int w : G.predecessors(v)) {
+                pred.add(w);
+            }
+            List<Integer> hSucc = new ArrayList<>(), hPred = new ArrayList<>();
+            IntIteration it = H.successors(v, cursor);
+            while (it.hasNext()) {
+                hSucc.add(it.nextInt());
+            }
+            for (int w : H.predecessors(v)) {
+                hPred.add(w);
+            }
+            succ.sort(null);
+            pred.sort(null);
+            hPred.sort(null);
+            assertEquals(succ, hSucc);
+            assertEquals(pred, hPred);
+        }
+        int edges;
+        edges = 0;
+        for (int[] e : H.edges()) {
+            assertTrue(G.contains(e[0], e[1]));
+            edges += 1;
+        }
+        assertEquals(G.edgeSize(), edges);
+    }
+
+    @Test
+    public void testOffHeapGraph() {
+        Random rand = new Random(39);
+        for (boolean directed : new boolean[] { true, false }) {
+            Graph g = directed ? new DirectedGraph() : new UndirectedGraph();
+            for (int v = 0; v < 50; v += 1) {
+                g.add();
+            }
+            for (int i = 0; i < 200; i += 1) {
+                g.add(rand.nextInt(50) + 1, rand.nextInt(50) + 1);
+            }
+            g.add(7, 7);
+            try (OffHeapGraph h = OffHeapGraph.copyOf(g)) {
+                checkSameGraph(g, h);
+                assertFalse(h.contains(51));
+                assertFalse(h.contains(7, 51));
+                assertTrue(h.offHeapBytes() > 0);
+                assertSame(h, h.snapshot());
+                try {
+                    h.add(1, 2);
+                    fail("off-heap graph modified");
+                } catch (UnsupportedOperationException excp) {
+                    /* Expected. */
+                }
+                Iteration<int[]> edges = h.edges();
+                Iteration<Integer> vertices = h.vertices();
+                h.close();
+                try {
+                    h.edgeSize();
+                    fail("closed graph used");
+                } catch (IllegalStateException excp) {
+                    /* Expected. */
+                }
+                try {
+                    edges.next();
+                    fail("closed graph's edges used");
+                } catch (IllegalStateException excp) {
+                    /* Expected. */
+                }
+                try {
+                    vertices.next();
+                    fail("closed graph's vertices used");
+                } catch (IllegalStateException excp) {
+                    /* Expected. */
+                }
+            }
+        }
+
+        OffHeapGraph.Builder builder = new OffHeapGraph.Builder(3, true);
+        assertEquals(1, builder.add(1, 2));
+        assertEquals(2, builder.add(3, 2));
+        builder.add(1, 3);
+        try (OffHeapGraph h = builder.build()) {
+            assertEquals(3, h.edgeSize());
+            assertEquals(2, h.edgeId(3, 2));
+            assertEquals(2, h.inDegree(2));
+            assertFalse(h.contains(2, 1));
+        }
+        builder = new OffHeapGraph.Builder(2, false);
+        builder.add(1, 2);
+        builder.add(2, 1);
+        try {
+            builder.build();
+            fail("duplicate edge accepted");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+        DirectedGraph gaps = new DirectedGraph();
+        gaps.add();
+        gaps.add();
+        gaps.remove(1);
+        try {
+            OffHeapGraph.copyOf(gaps);
+            fail("non-consecutive vertices accepted");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    /** Encodes strings for graph files. */
+    private static final LabelCodec<String> STRING_CODEC =
+        new LabelCodec<>() {
+            @Override
+            public void write(String label, DataOutput out)
+                throws IOException {
+                LabelCodec.writeString(label, out);
+            }
+
+            @Override
+            public String read(ByteBuffer in) {
+                return LabelCodec.readString(in);
+            }
+        };
+
+    @Test
+    public void testGraphFile() throws IOException {
+        Path path = Files.createTempFile("graph", ".graph");
+        try {
+            LabeledGraph<String, String> g =
+                new LabeledGraph<>(new DirectedGraph());
+            for (int v = 1; v <= 5; v += 1) {
+                g.add(v == 3 ? null : "v" + v);
+            }
+            g.add(1, 2, "a");
+            g.add(2, 1, "b");
+            g.add(2, 3, "\u00e9t\u00e9");
+            g.add(5, 5, null);
+            g.add(4, 1, "d");
+            GraphFile.write(g, path, STRING_CODEC, STRING_CODEC);
+            assertTrue(GraphFile.isGraphFile(path));
+            try (MappedGraph<String, String> h =
+                     GraphFile.open(path, STRING_CODEC, STRING_CODEC)) {
+                checkSameGraph(g, h);
+                for (int v : g.vertices()) {
+                    assertEquals(g.getLabel(v), h.getLabel(v));
+                    for (int w : g.successors(v)) {
+                        assertEquals(g.getLabel(v, w), h.getLabel(v, w));
+                    }
+                }
+                assertSame(h, h.snapshot());
+                assertEquals(3, h.getSuccessor(2, "\u00e9t\u00e9"));
+                try {
+                    h.setLabel(1, "x");
+                    fail("mapped graph modified");
+                } catch (UnsupportedOperationException excp) {
+                    /* Expected. */
+                }
+                try (OffHeapGraph s = GraphFile.open(path)) {
+                    checkSameGraph(g, s);
+                }
+            }
+
+            UndirectedGraph u = new UndirectedGraph();
+            for (int v = 1; v <= 4; v += 1) {
+                u.add();
+            }
+            u.add(1, 2);
+            u.add(3, 2);
+            u.add(4, 4);
+            GraphFile.write(u, path);
+            try (MappedGraph<String, String> h =
+                     GraphFile.open(path, STRING_CODEC, STRING_CODEC)) {
+                checkSameGraph(u, h);
+                assertNull(h.getLabel(1));
+                assertNull(h.getLabel(2, 1));
+            }
+            Files.write(path, new byte[] { 1, 2, 3 });
+            assertFalse(GraphFile.isGraphFile(path));
+            try {
+                GraphFile.open(path);
+                fail("bad graph file accepted");
+            } catch (IOException excp) {
+                /* Expected. */
+            }
+        } finally {
+            Files.deleteIfExists(path);
+        }
+    }
+
+    @Test
+    public void testCompressedGraph() {
+        Random rand = new Random(41);
+        for (boolean directed : new boolean[] { true, false }) {
+            Graph g = directed ? new ConcurrentDirectedGraph()
+                : new UndirectedGraph();
+            int n = 300;
+            for (int v = 0; v < n; v += 1) {
+                g.add();
+            }
+            for (int i = 0; i < 1000; i += 1) {
+                int u = rand.nextInt(n) + 1;
+                g.add(u, Math.max(1, Math.min(n, u + rand.nextInt(9) - 4)));
+                g.add(rand.nextInt(n) + 1, rand.nextInt(n) + 1);
+            }
+            for (int v = 1; v <= n; v += 3) {
+                g.add(150, v);
+            }
+            CompressedGraph h = CompressedGraph.copyOf(g);
+            checkSameStructure(g, h);
+            for (int v = 1; v <= n; v += 1) {
+                assertEquals(g.contains(150, v), h.contains(150, v));
+                assertEquals(g.contains(v, 150), h.contains(v, 150));
+            }
+            assertFalse(h.contains(150, n + 1));
+            assertFalse(h.contains(0, 1));
+            boolean[] seen = new boolean[2 * g.edgeSize() + 1];
+            for (int[] e : h.edges()) {
+                int id = h.edgeId(e[0], e[1]);
+                assertTrue(id >= 1 && id < seen.length);
+                assertFalse(seen[id]);
+                seen[id] = true;
+                assertEquals(id, h.edgeId(directed ? e[0] : e[1],
+                                          directed ? e[1] : e[0]));
+            }
+            assertEquals(0, h.edgeId(1, n + 1));
+            assertTrue(h.byteSize() < 8L * g.edgeSize());
+            try {
+                h.remove(1);
+                fail("compressed graph modified");
+            } catch (UnsupportedOperationException excp) {
+                /* Expected. */
+            }
+        }
+    }
+
+    /** Returns the sum over the edges (u, v) of G of |u - v|. */
+    private static long spread(Graph G) {
+        long sum;
+        sum = 0;
+        for (int[] e : G.edges()) {
+            sum += Math.abs(e[0] - e[1]);
+        }
+        return sum;
+    }
+
+    /** Returns the largest |u - v| over the edges (u, v) of G. */
+    private static int bandwidth(Graph G) {
+        int result;
+        result = 0;
+        for (int[] e : G.edges()) {
+            result = Math.max(result, Math.abs(e[0] - e[1]));
+        }
+        return result;
+    }
+
+    @Test
+    public void testVertexOrder() {
+        int side = 20, n = side * side;
+        List<Integer> cells = new ArrayList<>();
+        for (int c = 0; c < n; c += 1) {
+            cells.add(c);
+        }
+        Collections.shuffle(cells, new Random(42));
+        int[] cell = new int[n + 1], at = new int[n];
+        for (int v = 1; v <= n; v += 1) {
+            cell[v] = cells.get(v - 1);
+            at[cell[v]] = v;
+        }
+        for (boolean directed : new boolean[] { true, false }) {
+            LabeledGraph<String, String> g =
+                new LabeledGraph<>(directed ? new DirectedGraph()
+                                   : new UndirectedGraph());
+            for (int v = 1; v <= n; v += 1) {
+                g.add("v" + v);
+            }
+            for (int c = 0; c < n; c += 1) {
+                for (int d : new int[] { 1, side }) {
+                    if (c + d < n && (d == side || (c + 1) % side != 0)) {
+                        int u = at[c], w = at[c + d];
+                        g.add(u, w, u + "-" + w);
+                        if (directed) {
+                            g.add(w, u, w + "-" + u);
+                        }
+                    }
+                }
+            }
+            VertexOrder[] orders = {
+                VertexOrder.breadthFirst(g),
+                VertexOrder.reverseCuthillMcKee(g),
+                VertexOrder.hilbert(g, v -> cell[v] % side,
+                                    v -> cell[v] / side),
+            };
+            int[] widths = new int[orders.length];
+            for (int k = 0; k < orders.length; k += 1) {
+                VertexOrder order = orders[k];
+                assertEquals(n, order.size());
+                LabeledGraph<String, String> h =
+                    order.apply(g, new LabeledGraph<>(directed
+                                                      ? new DirectedGraph()
+                                                      : new UndirectedGraph()));
+                assertEquals(g.edgeSize(), h.edgeSize());
+                for (int v = 1; v <= n; v += 1) {
+                    assertEquals(v, order.oldId(order.newId(v)));
+                    assertEquals(g.getLabel(v), h.getLabel(order.newId(v)));
+                }
+                for (int[] e : g.edges()) {
+                    int u = order.newId(e[0]), w = order.newId(e[1]);
+                    assertTrue(h.contains(u, w));
+                    if (directed) {
+                        assertEquals(g.getLabel(e[0], e[1]),
+                                     h.getLabel(u, w));
+                    }
+                }
+                assertTrue(spread(h) < spread(g) / 4);
+                widths[k] = bandwidth(h);
+            }
+            assertTrue(bandwidth(g) > n / 2);
+            assertTrue(widths[0] <= 4 * side);
+            assertTrue(widths[1] <= 2 * side);
+        }
+        try {
+            VertexOrder.breadthFirst(new DirectedGraph())
+                .apply(new UndirectedGraph(), new DirectedGraph());
+            fail("mismatched result graph accepted");
+        } catch (IllegalArgumentException excp) {
+            /* Expected. */
+        }
+    }
+
+    @Test
+    public void testDeltaStepping() {
+        Random rand = new Random(43);
+        ForkJoinPool pool = new ForkJoinPool(4);
+        try {
+            for (boolean directed : new boolean[] { true, false }) {
+                Graph g = directed ? new DirectedGraph()
+                    : new UndirectedGraph();
+                int n = 1000;
+                for (int v = 0; v < n; v += 1) {
+                    g.add();
+                }
+                for (int i = 0; i < 3 * n; i += 1) {
+                    g.add(rand.nextInt(n) + 1, rand.nextInt(n) + 1);
+                }
+                g.remove(n);
+                double[] weight = new double[n + 1];
+                for (int v = 1; v <= n; v += 1) {
+                    weight[v] = v % 7 == 0 ? 0 : rand.nextInt(20) / 2.0;
+                }
+                SimpleShortestPaths expected = new SimpleShortestPaths(g, 1) {
+                    @Override
+                    protected double getWeight(int u, int v) {
+                        return weight[u] + weight[v];
+                    }
+                };
+                expected.setPaths();
+                for (double delta : new double[] { 0, 0.5, 4, 1000 }) {
+                    DeltaStepping paths = new DeltaStepping(g, 1) {
+                        @Override
+                        protected double getWeight(int u, int v) {
+                            return weight[u] + weight[v];
+                        }
+                    };
+                    paths.setDelta(delta);
+                    paths.setPaths(pool);
+                    assertTrue(paths.getDelta() > 0);
+                    for (int v = 1; v < n; v += 1) {
+                        double d = paths.getWeight(v);
+                        assertEquals(expected.getWeight(v), d, 1e-9);
+                        assertEquals(d, paths.distances()[v], 0);
+                        int u = paths.getPredecessor(v);
+                        if (v == 1 || d == Double.POSITIVE_INFINITY) {
+                            assertEquals(0, u);
+                            continue;
+                        }
+                        assertTrue(g.contains(u, v));
+                        assertEquals(d, paths.getWeight(u) + weight[u]
+                                     + weight[v], 1e-9);
+                        List<Integer> path = paths.pathTo(v);
+                        assertEquals(1, (int) path.get(0));
+                        assertEquals(v, (int) path.get(path.size() - 1));
+                        assertTrue(path.size() <= n);
+                    }
+                    assertEquals(Double.POSITIVE_INFINITY, paths.getWeight(n),
+                                 0);
+                    assertEquals(Collections.emptyList(), paths.pathTo(n));
+                }
+            }
+            Graph g = new DirectedGraph();
+            g.add();
+            g.add();
+            g.add(1, 2);
+            DeltaStepping negative = new DeltaStepping(g, 1) {
+                @Override
+                protected double getWeight(int u, int v) {
+                    return -1;
+                }
+            };
+            try {
+                negative.setPaths(pool);
+                fail("negative weight accepted");
+            } catch (IllegalArgumentException excp) {
+                assertEquals("edge (1, 2) has weight -1.0",
+                             excp.getMessage());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testChainContraction() {
+        Random rand = new Random(44);
+        for (boolean directed : new boolean[] { true, false }) {
+            Graph g = directed ? new DirectedGraph() : new UndirectedGraph();
+            int side = 6;
+            for (int v = 0; v < side * side; v += 1) {
+                g.add();
+            }
+            for (int r = 0; r < side; r += 1) {
+                for (int c = 0; c < side; c += 1) {
+                    int u = r * side + c + 1;
+                    if (c + 1 < side) {
+                        subdivide(g, u, u + 1, rand.nextInt(4),
+                                  directed && rand.nextInt(4) == 0);
+                    }
+                    if (r + 1 < side) {
+                        subdivide(g, u, u + side, rand.nextInt(4),
+                                  directed && rand.nextInt(4) == 0);
+                    }
+                }
+            }
+            int ring = g.maxVertex() + 1;
+            for (int i = 0; i < 5; i += 1) {
+                g.add();
+            }
+            for (int i = 0; i < 5; i += 1) {
+                g.add(ring + i, ring + (i + 1) % 5);
+                if (!directed) {
+                    continue;
+                }
+                g.add(ring + (i + 1) % 5, ring + i);
+            }
+            double[] weights = new double[g.maxVertex() + 1];
+            for (int v = 1; v < weights.length; v += 1) {
+                weights[v] = rand.nextInt(10) / 2.0;
+            }
+            ChainContraction chains = new ChainContraction(g) {
+                @Override
+                protected double getWeight(int u, int v) {
+                    return weights[u] + weights[v];
+                }
+            };
+            chains.contract();
+            Graph h = chains.contracted();
+            assertTrue(h.isDirected());
+            assertTrue(h.vertexSize() < g.vertexSize());
+            assertTrue(h.vertexSize() >= side * side - 4);
+            int ringKept = 0;
+            for (int i = 0; i < 5; i += 1) {
+                if (chains.contractedId(ring + i) != 0) {
+                    ringKept += 1;
+                }
+            }
+            assertEquals(1, ringKept);
+            for (int s = 2; s <= side * side; s += 7) {
+                if (chains.contractedId(s) == 0) {
+                    continue;
+                }
+                final int source = s;
+                SimpleShortestPaths expected = new SimpleShortestPaths(g, s) {
+                    @Override
+                    protected double getWeight(int u, int v) {
+                        return weights[u] + weights[v];
+                    }
+                };
+                expected.setPaths();
+                SimpleShortestPaths paths =
+                    new SimpleShortestPaths(h, chains.contractedId(s)) {
+                        @Override
+                        protected double getWeight(int u, int v) {
+                            return chains.chainWeight(u, v);
+                        }
+                    };
+                paths.setPaths();
+                for (int v = 1; v <= g.maxVertex(); v += 1) {
+                    int c = chains.contractedId(v);
+                    if (c == 0) {
+                        continue;
+                    }
+                    assertEquals(v, chains.originalId(c));
+                    double d = expected.getWeight(v);
+                    assertEquals(d, paths.getWeight(c), 1e-9);
+                    if (d == Double.POSITIVE_INFINITY) {
+                        continue;
+                    }
+                    List<Integer> via = new ArrayList<>();
+                    for (int u = c; u != 0; u = paths.getPredecessor(u)) {
+                        via.add(0, u);
+                    }
+                    int[] path = new int[via.size()];
+                    for (int i = 0; i < path.length; i += 1) {
+                        path[i] = via.get(i);
+                    }
+                    int[] full = chains.unpack(path);
+                    assertEquals(source, full[0]);
+                    assertEquals(v, full[full.length - 1]);
+                    double total = 0;
+                    for (int i = 1; i < full.length; i += 1) {
+                        assertTrue(g.contains(full[i - 1], full[i]));
+                        total += weights[full[i - 1]] + weights[full[i]];
+                    }
+                    assertEquals(d, total, 1e-9);
+                }
+            }
+            ChainContraction none = new ChainContraction(g) {
+                @Override
+                protected double getWeight(int u, int v) {
+                    return 1;
+                }
+
+                @Override
+                protected boolean mergeable(int u, int v, int w) {
+                    return false;
+                }
+            };
+            none.contract();
+            assertEquals(g.vertexSize(), none.contracted().vertexSize());
+            assertEquals(directed ? g.edgeSize() : 2 * g.edgeSize(),
+                         none.contracted().edgeSize());
+        }
+    }
+
+    @Test
+    public void testKdTree() {
+        Random rand = new Random(49);
+        Graph g = new UndirectedGraph();
+        KdTree empty = KdTree.of(g, v -> 0, v -> 0);
+        assertEquals(0, empty.size());
+        assertEquals(0, empty.nearest(1, 2));
+        assertEquals(0, empty.within(1, 2, 10).length);
+        int n = 500;
+        double[] x = new double[n + 1], y = new double[n + 1];
+        for (int v = 1; v <= n; v += 1) {
+            g.add();
+            x[v] = rand.nextInt(40) / 2.0;
+            y[v] = rand.nextInt(v % 7 == 0 ? 2 : 40) / 2.0;
+        }
+        g.remove(n / 2);
+        KdTree tree = KdTree.of(g, v -> x[v], v -> y[v]);
+        assertEquals(n - 1, tree.size());
+        for (int q = 0; q < 300; q += 1) {
+            double qx = rand.nextInt(50) / 2.0 - 2,
+                qy = rand.nextInt(50) / 2.0 - 2;
+            int best;
+            best = 0;
+            for (int v : g.vertices()) {
+                if (best == 0
+                    || dist(x, y, v, qx, qy) < dist(x, y, best, qx, qy)) {
+                    best = v;
+                }
+            }
+            assertEquals(best, tree.nearest(qx, qy));
+            double radius = rand.nextInt(8) / 2.0;
+            List<Integer> near = new ArrayList<>();
+            for (int v : g.vertices()) {
+                if (dist(x, y, v, qx, qy) <= radius * radius) {
+                    near.add(v);
+                }
+            }
+            near.sort((a, b) -> {
+                int c = Double.compare(dist(x, y, a, qx, qy),
+                                       dist(x, y, b, qx, qy));
+                return c != 0 ? c : Integer.compare(a, b);
+            });
+            int[] found = tree.within(qx, qy, radius);
+            assertEquals(near.size(), found.length);
+            for (int i = 0; i < found.length; i += 1) {
+                assertEquals((int) near.get(i), found[i]);
+            }
+        }
+    }
+
+    @Test
+    public void testEdgeColumns() {
+        for (boolean directed : new boolean[] { true, false }) {
+            Graph g = directed ? new DirectedGraph() : new UndirectedGraph();
+            for (int v = 0; v < 6; v += 1) {
+                g.add();
+            }
+            int[][] edges = { { 1, 2 }, { 1, 3 }, { 2, 3 }, { 3, 1 },
+                              { 4, 5 }, { 5, 5 } };
+            for (int[] e : edges) {
+                g.add(e[0], e[1]);
+            }
+            g.remove(6);
+            EdgeColumns columns = new EdgeColumns(g);
+            assertEquals(directed ? g.edgeSize() : 2 * g.edgeSize() - 1,
+                         columns.slots());
+            assertEquals(0, columns.addColumn("sum", (u, v) -> u + v));
+            assertEquals(1, columns.addColumn("product", (u, v) -> u * v));
+            assertEquals(1, columns.column("product"));
+            assertEquals(-1, columns.column("time"));
+            try {
+                columns.addColumn("sum", (u, v) -> 0);
+                fail("duplicate column not rejected");
+            } catch (IllegalArgumentException excp) {
+                /* Ignore */
+            }
+            double[] sums = columns.values(0);
+            int next;
+            next = 0;
+            for (int u = 1; u <= g.maxVertex(); u += 1) {
+                for (int v : g.successors(u)) {
+                    int e = columns.slot(u, v);
+                    assertEquals(next, e);
+                    assertEquals(e, columns.slot(u, v, e));
+                    assertEquals(e, columns.slot(u, v, 0));
+                    assertEquals(u + v, sums[e], 0.0);
+                    assertEquals(u * v, columns.weight(1, u, v), 0.0);
+                    next += 1;
+                }
+            }
+            assertEquals(columns.slots(), next);
+            assertEquals(-1, columns.slot(2, 4));
+            assertEquals(-1, columns.slot(6, 1));
+            assertEquals(-1, columns.slot(0, 1));
+            assertEquals(directed ? -1 : columns.slot(3, 2),
+                         columns.slot(3, 2, columns.slot(1, 2)));
+
+            EdgeColumns wider = columns.withColumn("one", (u, v) -> 1);
+            assertEquals(-1, columns.column("one"));
+            assertEquals(2, wider.column("one"));
+            assertSame(sums, wider.values(0));
+            assertEquals(1.0, wider.weight(2, 1, 2), 0.0);
+            assertEquals(columns.slots(), wider.slots());
+        }
+    }
+
+    /** Returns the square of the distance from vertex V, at (X[V], Y[V]),
+     *  to (QX, QY). */
+    private static double dist(double[] x, double[] y, int v, double qx,
+                               double qy) {
+        double dx = x[v] - qx, dy = y[v] - qy;
+        return dx * dx + dy * dy;
+    }
+
+    /** Join U to V in G by a chain through N new vertices, running only
+     *  from U to V if ONEWAY, and otherwise both ways. */
+    private static void subdivide(Graph g, int u, int v, int n,
+                                  boolean oneWay) {
+        int prev = u;
+        for (int i = 0; i <= n; i += 1) {
+            int next = i == n ? v : g.add();
+            g.add(prev, next);
+            if (g.isDirected() && !oneWay) {
+                g.add(next, prev);
+            }
+            prev = next;
+        }
+    }
+
 }
@@ -0,0 +1,97 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.NoSuchElementException;
+
+/** An Iteration over int values that may be reused.  Graph methods that
+ *  take an IntIteration argument (such as Graph.successors(v, cursor))
+ *  refill and return it rather than allocating a new Iteration, so that a
+ *  loop that runs once per vertex or edge can recycle a single cursor.
+ *  The values are either a view of an array belonging to the graph, which
+ *  is then never modified, or are copied into a buffer that the
+ *  IntIteration owns and reuses.  Use nextInt to avoid boxing.  A cursor
+ *  is only valid until it is next passed to a Graph method.
+ *  @author Warner Tsang
+ */
+public class IntIteration extends Iteration<Integer> {
+
+    /** An empty cursor. */
+    public IntIteration() {
+        _buffer = _values = EMPTY;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return _next < _end;
+    }
+
+    @Override
+    public Integer next() {
+        return nextInt();
+    }
+
+    /** Returns my next value, as for next(), but without boxing it. */
+    public int nextInt() {
+        if (_next >= _end) {
+            throw new NoSuchElementException();
+        }
+        int result = _values[_next];
+        _next += _step;
+        return result;
+    }
+
+    /** Returns the number of values remaining. */
+    public int remaining() {
+        return _next >= _end ? 0 : (_end - _next + _step - 1) / _step;
+    }
+
+    /** Restart me at my first value, and return me. */
+    public IntIteration rewind() {
+        _next = _start;
+        return this;
+    }
+
+    /** Make me iterate over VALUES[START], VALUES[START + STEP], ...,
+     *  stopping before index END, and return me.  VALUES is not copied, so
+     *  it must not be modified while I am in use. */
+    IntIteration reset(int[] values, int start, int end, int step) {
+        _values = values;
+        _start = _next = start;
+        _end = end;
+        _step = step;
+        return this;
+    }
+
+    /** Make me empty, ready to be refilled by add, and return me. */
+    IntIteration clear() {
+        return reset(_buffer, 0, 0, 1);
+    }
+
+    /** Append V to my values.  Assumes that I have been cleared and not
+     *  reset since. */
+    void add(int v) {
+        if (_end == _buffer.length) {
+            int[] buffer = new int[Math.max(INITIAL_SIZE, 2 * _end)];
+            System.arraycopy(_buffer, 0, buffer, 0, _end);
+            _buffer = _values = buffer;
+        }
+        _buffer[_end] = v;
+        _end += 1;
+    }
+
+    /** Default size of my buffer when it is first needed. */
+    private static final int INITIAL_SIZE = 8;
+    /** An empty array. */
+    private static final int[] EMPTY = new int[0];
+
+    /** The array containing my values. */
+    private int[] _values;
+    /** The array I own and use when values are copied into me. */
+    private int[] _buffer;
+    /** Index of my first value in _values, of my next value, and of the
+     *  end of my values. */
+    private int _start, _next, _end;
+    /** Distance between successive values in _values. */
+    private int _step;
+}
@@ -56,4 +56,12 @@ public abstract class Iteration<Type>
         return new SimpleIteration<>(iterable.iterator());
     }
 
+    /** Returns an Iteration over VALUES[START], VALUES[START + STEP], ...,
+     *  stopping before index END.  VALUES is not copied, so it must not be
+     *  modified while the result is in use. */
+    static IntIteration iteration(int[] values, int start, int end,
+                                  int step) {
+        return new IntIteration().reset(values, start, end, step);
+    }
+
 }
@@ -0,0 +1,246 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/** A static two-dimensional k-d tree over the vertices of a graph, each at
+ *  a point in the plane, for finding the vertex nearest to a point and the
+ *  vertices within a given distance of one.  The points are kept in three
+ *  parallel arrays arranged as an implicit balanced tree: the root of the
+ *  subtree for the index range [lo, hi) is at its middle, (lo + hi) / 2,
+ *  and splits its range along whichever axis the points of the range
+ *  spread further.  Queries take time proportional to the logarithm of
+ *  the number of vertices for points spread evenly.  Later changes to the
+ *  graph are not reflected.
+ *  @author Warner Tsang
+ */
+public final class KdTree {
+
+    /** Returns a tree over the vertices of G, where vertex v is at
+     *  (X(v), Y(v)).  The positions must be finite. */
+    public static KdTree of(Graph G, IntToDoubleFunction x,
+                            IntToDoubleFunction y) {
+        int n = G.vertexSize();
+        int[] ids = new int[n];
+        double[] xs = new double[n], ys = new double[n];
+        int i;
+        i = 0;
+        for (int v : G.vertices()) {
+            ids[i] = v;
+            xs[i] = x.applyAsDouble(v);
+            ys[i] = y.applyAsDouble(v);
+            i += 1;
+        }
+        return new KdTree(ids, xs, ys);
+    }
+
+    /** A tree over the vertices IDS[i], at (XS[i], YS[i]).  Takes
+     *  ownership of the arrays. */
+    private KdTree(int[] ids, double[] xs, double[] ys) {
+        _ids = ids;
+        _xs = xs;
+        _ys = ys;
+        _splitX = new boolean[ids.length];
+        build(0, ids.length);
+    }
+
+    /** Returns the number of vertices in the tree. */
+    public int size() {
+        return _ids.length;
+    }
+
+    /** Returns the vertex nearest to (X, Y), the smallest such if there
+     *  are several, or 0 if the tree is empty. */
+    public int nearest(double x, double y) {
+        Nearest query = new Nearest(x, y);
+        query.search(0, _ids.length);
+        return query._best;
+    }
+
+    /** Returns the vertices at distance at most RADIUS from (X, Y), in
+     *  increasing order of distance, and of number where distances are
+     *  equal. */
+    public int[] within(double x, double y, double radius) {
+        Within query = new Within(x, y, radius);
+        query.search(0, _ids.length);
+        Integer[] found = new Integer[query._size];
+        for (int i = 0; i < found.length; i += 1) {
+            found[i] = query._found[i];
+        }
+        Arrays.sort(found, (a, b) -> {
+            int c = Double.compare(dist2(a, x, y), dist2(b, x, y));
+            return c != 0 ? c : Integer.compare(_ids[a], _ids[b]);
+        });
+        int[] result = new int[found.length];
+        for (int i = 0; i < result.length; i += 1) {
+            result[i] = _ids[found[i]];
+        }
+        return result;
+    }
+
+    /** Arrange the points in [LO, HI) as a subtree. */
+    private void build(int lo, int hi) {
+        while (hi - lo > 1) {
+            double x0, y0, x1, y1;
+            x0 = y0 = Double.POSITIVE_INFINITY;
+            x1 = y1 = Double.NEGATIVE_INFINITY;
+            for (int i = lo; i < hi; i += 1) {
+                x0 = Math.min(x0, _xs[i]);
+                x1 = Math.max(x1, _xs[i]);
+                y0 = Math.min(y0, _ys[i]);
+                y1 = Math.max(y1, _ys[i]);
+            }
+            int mid = (lo + hi) >>> 1;
+            boolean splitX = x1 - x0 >= y1 - y0;
+            select(lo, hi, mid, splitX);
+            _splitX[mid] = splitX;
+            build(lo, mid);
+            lo = mid + 1;
+        }
+    }
+
+    /** Rearrange the points in [LO, HI) so that the one at K has the
+     *  K-LO'th smallest x coordinate if SPLITX, and otherwise y
+     *  coordinate, with none larger before it and none smaller after
+     *  it. */
+    private void select(int lo, int hi, int k, boolean splitX) {
+        double[] keys = splitX ? _xs : _ys;
+        hi -= 1;
+        while (lo < hi) {
+            double pivot = keys[(lo + hi) >>> 1];
+            int i = lo, j = hi;
+            while (i <= j) {
+                while (keys[i] < pivot) {
+                    i += 1;
+                }
+                while (keys[j] > pivot) {
+                    j -= 1;
+                }
+                if (i <= j) {
+                    swap(i, j);
+                    i += 1;
+                    j -= 1;
+                }
+            }
+            if (k <= j) {
+                hi = j;
+            } else if (k >= i) {
+                lo = i;
+            } else {
+                return;
+            }
+        }
+    }
+
+    /** Exchange the points at I and J. */
+    private void swap(int i, int j) {
+        int id = _ids[i];
+        _ids[i] = _ids[j];
+        _ids[j] = id;
+        double t = _xs[i];
+        _xs[i] = _xs[j];
+        _xs[j] = t;
+        t = _ys[i];
+        _ys[i] = _ys[j];
+        _ys[j] = t;
+    }
+
+    /** Returns the square of the distance from the point at I to
+     *  (X, Y). */
+    private double dist2(int i, double x, double y) {
+        double dx = _xs[i] - x, dy = _ys[i] - y;
+        return dx * dx + dy * dy;
+    }
+
+    /** A search for the vertex nearest a point. */
+    private class Nearest {
+        /** A search for the vertex nearest (X, Y). */
+        Nearest(double x, double y) {
+            _x = x;
+            _y = y;
+        }
+
+        /** Consider the points of the subtree for [LO, HI). */
+        void search(int lo, int hi) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                double d = dist2(mid, _x, _y);
+                if (d < _bestDist2 || d == _bestDist2 && _ids[mid] < _best) {
+                    _best = _ids[mid];
+                    _bestDist2 = d;
+                }
+                double diff = _splitX[mid] ? _x - _xs[mid] : _y - _ys[mid];
+                if (diff < 0) {
+                    search(lo, mid);
+                    if (diff * diff > _bestDist2) {
+                        return;
+                    }
+                    lo = mid + 1;
+                } else {
+                    search(mid + 1, hi);
+                    if (diff * diff > _bestDist2) {
+                        return;
+                    }
+                    hi = mid;
+                }
+            }
+        }
+
+        /** The query point. */
+        private final double _x, _y;
+        /** The nearest vertex so far, or 0, and the square of its
+         *  distance. */
+        private int _best;
+        private double _bestDist2 = Double.POSITIVE_INFINITY;
+    }
+
+    /** A search for the vertices within a distance of a point. */
+    private class Within {
+        /** A search for the vertices at distance at most RADIUS from
+         *  (X, Y). */
+        Within(double x, double y, double radius) {
+            _x = x;
+            _y = y;
+            _radius = radius;
+            _radius2 = radius * radius;
+        }
+
+        /** Record the indices of the points of the subtree for [LO, HI)
+         *  that are close enough. */
+        void search(int lo, int hi) {
+            while (lo < hi) {
+                int mid = (lo + hi) >>> 1;
+                if (dist2(mid, _x, _y) <= _radius2) {
+                    if (_size == _found.length) {
+                        _found = Arrays.copyOf(_found, 2 * _size);
+                    }
+                    _found[_size] = mid;
+                    _size += 1;
+                }
+                double diff = _splitX[mid] ? _x - _xs[mid] : _y - _ys[mid];
+                if (diff - _radius <= 0) {
+                    search(lo, mid);
+                }
+                if (diff + _radius < 0) {
+                    return;
+                }
+                lo = mid + 1;
+            }
+        }
+
+        /** The query point and distance, and its square. */
+        private final double _x, _y, _radius, _radius2;
+        /** Indices of the points found, in _found[0 .. _size-1]. */
+        private int[] _found = new int[16];
+        private int _size;
+    }
+
+    /** The vertices and their positions, in tree order. */
+    private final int[] _ids;
+    private final double[] _xs, _ys;
+    /** True where the subtree rooted at an index splits along the x
+     *  axis, and false where it splits along the y axis. */
+    private final boolean[] _splitX;
+}
@@ -0,0 +1,43 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/** Converts labels of type T to and from bytes, so that the labels of a
+ *  LabeledGraph may be saved in a graph file (see GraphFile).  Each label
+ *  is encoded separately, and decoded only when it is requested, directly
+ *  from the file's mapped pages.  Null labels are never encoded.
+ *  @author Warner Tsang
+ */
+public interface LabelCodec<T> {
+
+    /** Write the encoding of LABEL, which is not null, to OUT.  The
+     *  encoding must not be empty. */
+    void write(T label, DataOutput out) throws IOException;
+
+    /** Returns the label whose encoding is the remaining contents of IN,
+     *  which is in the big-endian order used by DataOutput, so that
+     *  values written by writeInt, writeDouble, and so on may be read
+     *  back by getInt, getDouble, and so on. */
+    T read(ByteBuffer in);
+
+    /** Write S to OUT as its length in bytes followed by its UTF-8
+     *  encoding, as expected by readString. */
+    static void writeString(String s, DataOutput out) throws IOException {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    /** Returns the string written by writeString at the current position
+     *  of IN, advancing past it. */
+    static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[in.getInt()];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
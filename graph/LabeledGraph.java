@@ -5,7 +5,11 @@ package graph;
 import java.util.ArrayList;
 
 /** A Graph whose vertices are labeled with type VL and whose edges are
- *  labeled with type EL.
+ *  labeled with type EL.  Changes to labels and snapshot are synchronized
+ *  with each other, so that a snapshot never sees a label changed after
+ *  it was taken, even over a graph that several threads change at once.
+ *  Reading the labels of the graph itself while another thread changes
+ *  them requires external synchronization.
  *  @author P. N. Hilfinger
  */
 public class LabeledGraph<VL, EL> extends GraphFilter {
@@ -50,10 +54,7 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
     /** Set getVertexLabel(V) to LAB.  V must be one of my vertices. */
     public void setLabel(int v, VL lab) {
         checkMyVertex(v);
-        if (lab != null || v < _vlabel.size()) {
-            expand(_vlabel, v + 1);
-            _vlabel.set(v, lab);
-        }
+        labelVertex(v, lab);
     }
 
     /** Set getEdgeLabel(U, V) to LAB. (U, V) must be one of my edges. */
@@ -62,10 +63,7 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
         if (e == 0) {
             throw new IllegalArgumentException("no such edge");
         }
-        if (lab != null || e < _elabel.size()) {
-            expand(_elabel, e + 1);
-            _elabel.set(e, lab);
-        }
+        labelEdge(e, lab);
     }
 
     /** Returns a new vertex labeled LAB, and adds it to me with no
@@ -82,18 +80,28 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
      *  an edge (U, V), sets its label to EL. */
     public int add(int u, int v, EL lab) {
         int e = add(u, v);
-        if (lab != null || e < _elabel.size()) {
-            expand(_elabel, e + 1);
-            _elabel.set(e, lab);
-        }
+        labelEdge(e, lab);
         return e;
     }
 
+    /** Removes vertex V and its edges, and their labels, so that none is
+     *  inherited by a later vertex or edge given the same number. */
     @Override
     public void remove(int v) {
+        if (!contains(v)) {
+            return;
+        }
+        ArrayList<Integer> edges = new ArrayList<>();
+        for (int w : successors(v)) {
+            edges.add(edgeId(v, w));
+        }
+        for (int u : predecessors(v)) {
+            edges.add(edgeId(u, v));
+        }
         super.remove(v);
-        if (v < _vlabel.size()) {
-            _vlabel.set(v, null);
+        labelVertex(v, null);
+        for (int e : edges) {
+            labelEdge(e, null);
         }
     }
 
@@ -102,10 +110,73 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
         int e = edgeId(u, v);
         if (e != 0) {
             super.remove(u, v);
-            if (e < _elabel.size()) {
-                _elabel.set(e, null);
-            }
+            labelEdge(e, null);
+        }
+    }
+
+    /** Returns an immutable copy of my current structure and labels,
+     *  unaffected by later changes to me.  The labels themselves are
+     *  shared, not copied.  Modifying the structure of the result causes
+     *  an UnsupportedOperationException.  The result shares my lists of
+     *  labels until either of us changes a label, when the one changing
+     *  copies the list it changes, and it is reused by later calls until
+     *  my structure (as shown by my underlying graph's snapshot) or my
+     *  labels change. */
+    @Override
+    public synchronized LabeledGraph<VL, EL> snapshot() {
+        Graph structure = super.snapshot();
+        LabeledGraph<VL, EL> result = _snapshot;
+        if (result == null || result._structure != structure
+            || result._vlabel != _vlabel || result._elabel != _elabel) {
+            result = new LabeledGraph<>(structure);
+            result._structure = structure;
+            result._vlabel = _vlabel;
+            result._elabel = _elabel;
+            result._vShared = result._eShared = true;
+            _vShared = _eShared = true;
+            _snapshot = result;
+        }
+        return result;
+    }
+
+    /** Set the label of vertex V to LAB, unless it is already null and
+     *  LAB is null. */
+    private synchronized void labelVertex(int v, VL lab) {
+        if (lab != null || v < _vlabel.size() && _vlabel.get(v) != null) {
+            ArrayList<VL> labels = vertexLabels();
+            expand(labels, v + 1);
+            labels.set(v, lab);
+        }
+    }
+
+    /** Set the label of the edge with id E to LAB, unless it is already
+     *  null and LAB is null. */
+    private synchronized void labelEdge(int e, EL lab) {
+        if (lab != null || e < _elabel.size() && _elabel.get(e) != null) {
+            ArrayList<EL> labels = edgeLabels();
+            expand(labels, e + 1);
+            labels.set(e, lab);
+        }
+    }
+
+    /** Returns my vertex labels, ready to be changed: copied first, if
+     *  they are shared with a snapshot. */
+    private ArrayList<VL> vertexLabels() {
+        if (_vShared) {
+            _vlabel = new ArrayList<>(_vlabel);
+            _vShared = false;
+        }
+        return _vlabel;
+    }
+
+    /** Returns my edge labels, ready to be changed: copied first, if they
+     *  are shared with a snapshot. */
+    private ArrayList<EL> edgeLabels() {
+        if (_eShared) {
+            _elabel = new ArrayList<>(_elabel);
+            _eShared = false;
         }
+        return _elabel;
     }
 
     /** If necessary, add nulls to L to make its length N.  Has no effect if
@@ -117,7 +188,14 @@ public class LabeledGraph<VL, EL> extends GraphFilter {
     }
 
     /** Mapping of vertex numbers to vertex labels. */
-    private final ArrayList<VL> _vlabel = new ArrayList<>();
+    private ArrayList<VL> _vlabel = new ArrayList<>();
     /** Mapping of unique edge ids to edge labels. */
-    private final ArrayList<EL> _elabel = new ArrayList<>();
+    private ArrayList<EL> _elabel = new ArrayList<>();
+    /** True iff _vlabel or _elabel, respectively, may be shared with a
+     *  snapshot (or, in a snapshot, with the graph it was taken from). */
+    private boolean _vShared, _eShared;
+    /** My most recent snapshot, if any. */
+    private LabeledGraph<VL, EL> _snapshot;
+    /** In a snapshot, the snapshot of the structure it labels. */
+    private Graph _structure;
 }
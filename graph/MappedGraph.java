@@ -0,0 +1,129 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.nio.ByteBuffer;
+
+/** A read-only LabeledGraph opened from a graph file (see GraphFile).
+ *  Its structure is an OffHeapGraph mapped from the file, and its labels
+ *  are decoded from the file's mapped pages each time they are requested,
+ *  so that the labels occupy no heap space between requests.  Since
+ *  decoding creates a new label each time, labels should be compared with
+ *  equals rather than ==, and modifying one has no effect on the graph.
+ *  Like an OffHeapGraph, it may be read by any number of threads at once,
+ *  and is its own snapshot.
+ *  @author Warner Tsang
+ */
+public class MappedGraph<VL, EL> extends LabeledGraph<VL, EL>
+    implements AutoCloseable {
+
+    /** A labeling of G in which the label of vertex v is decoded by
+     *  VERTEXCODEC from VERTEXLABELS[VERTEXINDEX[v] .. VERTEXINDEX[v + 1]
+     *  - 1], and the label of the edge in slot k of G is decoded by
+     *  EDGECODEC from EDGELABELS[EDGEINDEX[k] .. EDGEINDEX[k + 1] - 1].
+     *  Null indices denote absent labels. */
+    MappedGraph(OffHeapGraph G,
+                LabelCodec<VL> vertexCodec, OffHeapInts vertexIndex,
+                ByteBuffer vertexLabels,
+                LabelCodec<EL> edgeCodec, OffHeapInts edgeIndex,
+                ByteBuffer edgeLabels) {
+        super(G);
+        _graph = G;
+        _vertexCodec = vertexCodec;
+        _vertexIndex = vertexIndex;
+        _vertexLabels = vertexLabels;
+        _edgeCodec = edgeCodec;
+        _edgeIndex = edgeIndex;
+        _edgeLabels = edgeLabels;
+    }
+
+    @Override
+    public VL getLabel(int v) {
+        checkMyVertex(v);
+        if (_vertexIndex == null) {
+            return null;
+        }
+        return decode(_vertexCodec, _vertexIndex, _vertexLabels, v);
+    }
+
+    @Override
+    public EL getLabel(int u, int v) {
+        int k = _graph.slot(u, v);
+        if (k < 0) {
+            throw new IllegalArgumentException("no such edge");
+        }
+        if (_edgeIndex == null) {
+            return null;
+        }
+        return decode(_edgeCodec, _edgeIndex, _edgeLabels, k);
+    }
+
+    @Override
+    public void setLabel(int v, VL lab) {
+        throw readOnly();
+    }
+
+    @Override
+    public void setLabel(int u, int v, EL lab) {
+        throw readOnly();
+    }
+
+    @Override
+    public MappedGraph<VL, EL> snapshot() {
+        return this;
+    }
+
+    /** Release my memory and unmap my file, which no other thread may be
+     *  reading.  Any further use of me other than close throws
+     *  IllegalStateException. */
+    @Override
+    public void close() {
+        _graph.close();
+        if (_vertexIndex != null) {
+            _vertexIndex.close();
+            OffHeapInts.release(_vertexLabels);
+            _vertexIndex = null;
+            _vertexLabels = null;
+        }
+        if (_edgeIndex != null) {
+            _edgeIndex.close();
+            OffHeapInts.release(_edgeLabels);
+            _edgeIndex = null;
+            _edgeLabels = null;
+        }
+    }
+
+    /** Returns the label #I decoded by CODEC from LABELS according to
+     *  INDEX, or null if its encoding is empty. */
+    private static <T> T decode(LabelCodec<T> codec, OffHeapInts index,
+                                ByteBuffer labels, int i) {
+        int start = index.get(i), end = index.get(i + 1);
+        if (start == end) {
+            return null;
+        }
+        return codec.read(labels.slice(start, end - start));
+    }
+
+    /** Returns the exception thrown by attempts to modify me. */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("mapped graph is "
+                                                 + "read-only");
+    }
+
+    /** My structure. */
+    private final OffHeapGraph _graph;
+    /** Decoder of my vertex labels. */
+    private final LabelCodec<VL> _vertexCodec;
+    /** Decoder of my edge labels. */
+    private final LabelCodec<EL> _edgeCodec;
+    /** Offsets of the encodings of my vertex labels, by vertex, or null
+     *  if I have none. */
+    private OffHeapInts _vertexIndex;
+    /** Encodings of my vertex labels. */
+    private ByteBuffer _vertexLabels;
+    /** Offsets of the encodings of my edge labels, by edge slot, or null
+     *  if I have none. */
+    private OffHeapInts _edgeIndex;
+    /** Encodings of my edge labels. */
+    private ByteBuffer _edgeLabels;
+}
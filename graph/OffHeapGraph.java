@@ -0,0 +1,575 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+
+/** A read-only Graph whose structure is kept outside the Java heap, so
+ *  that graphs too large for the heap (or large enough to slow its
+ *  collection) may still be searched.  Its vertices are always 1 .. N.
+ *  The edges are stored in compressed sparse row form: the edges leaving
+ *  each vertex are consecutive in one large array of targets (sorted by
+ *  target, so that finding an edge takes a binary search), with a
+ *  parallel array of edge identifiers and an array of the offsets at
+ *  which each vertex's edges start.  A directed graph also has the same
+ *  arrays for its reversed edges, so that predecessors are as cheap as
+ *  successors.  The graph is made by a Builder or copied from another
+ *  graph, and may be read by any number of threads at once.  Its memory
+ *  is released by close, which no other thread may be reading during,
+ *  after which it may not be used.
+ *  @author Warner Tsang
+ */
+public final class OffHeapGraph extends Graph implements AutoCloseable {
+
+    /** A graph with vertices 1 .. N, whose adjacency lists are given by
+     *  OFFSETS, TARGETS, and IDS, and for a DIRECTED graph, whose reversed
+     *  adjacency lists are given by ROFFSETS and SOURCES (which are
+     *  otherwise null).  The edges of vertex v are at indices OFFSETS[v]
+     *  .. OFFSETS[v + 1] - 1 of TARGETS and IDS, and are sorted by
+     *  target.  The graph has EDGESIZE edges. */
+    OffHeapGraph(int n, boolean directed, int edgeSize, OffHeapInts offsets,
+                 OffHeapInts targets, OffHeapInts ids, OffHeapInts rOffsets,
+                 OffHeapInts sources) {
+        _n = n;
+        _directed = directed;
+        _edgeSize = edgeSize;
+        _offsets = offsets;
+        _targets = targets;
+        _ids = ids;
+        _rOffsets = rOffsets;
+        _sources = sources;
+    }
+
+    /** Returns an off-heap copy of G, whose vertices must be 1 ..
+     *  G.maxVertex().  The copy has the same edge identifiers as G, so
+     *  that labels of G's edges still apply. */
+    public static OffHeapGraph copyOf(Graph G) {
+        int n = G.vertexSize() == 0 ? 0 : G.maxVertex();
+        if (n != G.vertexSize()) {
+            throw new IllegalArgumentException("vertices are not "
+                                               + "consecutive");
+        }
+        Builder builder = new Builder(n, G.isDirected());
+        for (int[] e : G.edges()) {
+            builder.add(e[0], e[1], G.edgeId(e[0], e[1]),
+                        G.edgeId(e[1], e[0]));
+        }
+        return builder.build();
+    }
+
+    /** Collects the edges of a new OffHeapGraph.  The edges are buffered
+     *  off the heap as well, and the graph is assembled from them by
+     *  sorting each vertex's edges in place, so that building a graph
+     *  needs heap space only in proportion to its largest degree. */
+    public static final class Builder {
+
+        /** A builder for a graph with vertices 1 .. VERTEXSIZE, which is
+         *  directed iff DIRECTED. */
+        public Builder(int vertexSize, boolean directed) {
+            if (vertexSize < 0) {
+                throw new IllegalArgumentException("negative vertex count");
+            }
+            _n = vertexSize;
+            _directed = directed;
+            _from = new OffHeapInts(0);
+            _to = new OffHeapInts(0);
+            _edgeIds = new OffHeapInts(0);
+            _reverseIds = directed ? null : new OffHeapInts(0);
+        }
+
+        /** Add an edge (U, V), which must not already have been added
+         *  (nor, for an undirected graph, (V, U)), and return its
+         *  identifier: one more than the number of edges added before
+         *  it. */
+        public int add(int u, int v) {
+            int id = _from == null ? 0 : _from.size() + 1;
+            add(u, v, id, id);
+            return id;
+        }
+
+        /** Add an edge (U, V) with identifier ID, whose identifier in the
+         *  direction from V to U, if I am undirected, is REVERSEID. */
+        void add(int u, int v, int id, int reverseId) {
+            if (_from == null) {
+                throw new IllegalStateException("graph already built");
+            }
+            if (u < 1 || u > _n || v < 1 || v > _n) {
+                throw new IllegalArgumentException(
+                    String.format("edge (%d, %d) is out of range", u, v));
+            }
+            _from.add(u);
+            _to.add(v);
+            _edgeIds.add(id);
+            if (!_directed) {
+                _reverseIds.add(reverseId);
+            }
+        }
+
+        /** Returns the graph containing the edges added so far.  I may not
+         *  be used afterwards. */
+        public OffHeapGraph build() {
+            if (_from == null) {
+                throw new IllegalStateException("graph already built");
+            }
+            int m = _from.size();
+            try {
+                OffHeapInts offsets = new OffHeapInts(_n + 2);
+                for (int e = 0; e < m; e += 1) {
+                    int u = _from.get(e), v = _to.get(e);
+                    count(offsets, u);
+                    if (!_directed && u != v) {
+                        count(offsets, v);
+                    }
+                }
+                sum(offsets);
+                OffHeapInts targets = new OffHeapInts(offsets.get(_n + 1));
+                OffHeapInts ids = new OffHeapInts(targets.size());
+                for (int e = 0; e < m; e += 1) {
+                    int u = _from.get(e), v = _to.get(e),
+                        id = _edgeIds.get(e);
+                    place(offsets, targets, ids, u, v, id);
+                    if (!_directed && u != v) {
+                        place(offsets, targets, ids, v, u,
+                              _reverseIds.get(e));
+                    }
+                }
+                unshift(offsets);
+                sort(offsets, targets, ids);
+                OffHeapInts rOffsets, sources;
+                if (_directed) {
+                    rOffsets = new OffHeapInts(_n + 2);
+                    for (int e = 0; e < m; e += 1) {
+                        count(rOffsets, _to.get(e));
+                    }
+                    sum(rOffsets);
+                    sources = new OffHeapInts(m);
+                    for (int u = 1; u <= _n; u += 1) {
+                        for (int k = offsets.get(u); k < offsets.get(u + 1);
+                             k += 1) {
+                            place(rOffsets, sources, null, targets.get(k), u,
+                                  0);
+                        }
+                    }
+                    unshift(rOffsets);
+                } else {
+                    rOffsets = sources = null;
+                }
+                return new OffHeapGraph(_n, _directed, m, offsets, targets,
+                                        ids, rOffsets, sources);
+            } finally {
+                _from.close();
+                _to.close();
+                _edgeIds.close();
+                if (!_directed) {
+                    _reverseIds.close();
+                }
+                _from = _to = _edgeIds = _reverseIds = null;
+            }
+        }
+
+        /** Count one more edge of vertex V in OFFSETS, whose element V
+         *  accumulates the degree of V. */
+        private static void count(OffHeapInts offsets, int v) {
+            offsets.set(v, offsets.get(v) + 1);
+        }
+
+        /** Replace the degrees counted in OFFSETS by their running sums,
+         *  so that element V becomes the offset of the edges of V, and the
+         *  last element the total. */
+        private static void sum(OffHeapInts offsets) {
+            int total;
+            total = 0;
+            for (int v = 1; v < offsets.size(); v += 1) {
+                int degree = offsets.get(v);
+                offsets.set(v, total);
+                total += degree;
+            }
+        }
+
+        /** Store the edge (U, V) with identifier ID (if IDS is not null)
+         *  in the next free slot of U, which is OFFSETS[U]. */
+        private static void place(OffHeapInts offsets, OffHeapInts targets,
+                                  OffHeapInts ids, int u, int v, int id) {
+            int k = offsets.get(u);
+            targets.set(k, v);
+            if (ids != null) {
+                ids.set(k, id);
+            }
+            offsets.set(u, k + 1);
+        }
+
+        /** Having placed every edge, so that element V of OFFSETS is the
+         *  end of the edges of V, which is the start of those of V + 1,
+         *  make it the start of the edges of V again. */
+        private void unshift(OffHeapInts offsets) {
+            for (int v = _n; v > 1; v -= 1) {
+                offsets.set(v, offsets.get(v - 1));
+            }
+            offsets.set(1, 0);
+        }
+
+        /** Sort the edges of each vertex by target, checking for
+         *  duplicates. */
+        private void sort(OffHeapInts offsets, OffHeapInts targets,
+                          OffHeapInts ids) {
+            long[] edges = new long[INITIAL_SIZE];
+            for (int u = 1; u <= _n; u += 1) {
+                int start = offsets.get(u), degree = offsets.get(u + 1) - start;
+                if (degree > edges.length) {
+                    edges = new long[Math.max(degree, 2 * edges.length)];
+                }
+                for (int i = 0; i < degree; i += 1) {
+                    edges[i] = ((long) targets.get(start + i) << 32)
+                        | (ids.get(start + i) & 0xffffffffL);
+                }
+                Arrays.sort(edges, 0, degree);
+                for (int i = 0; i < degree; i += 1) {
+                    int v = (int) (edges[i] >>> 32);
+                    if (i > 0 && v == targets.get(start + i - 1)) {
+                        throw new IllegalArgumentException(
+                            String.format("duplicate edge (%d, %d)", u, v));
+                    }
+                    targets.set(start + i, v);
+                    ids.set(start + i, (int) edges[i]);
+                }
+            }
+        }
+
+        /** Number of vertices. */
+        private final int _n;
+        /** True iff the graph is directed. */
+        private final boolean _directed;
+        /** Sources, targets, and identifiers of the edges added, and for
+         *  an undirected graph, the identifiers of their reverse
+         *  directions, or null once built. */
+        private OffHeapInts _from, _to, _edgeIds, _reverseIds;
+    }
+
+    /** Returns the number of bytes of memory outside the heap that I
+     *  occupy. */
+    public long offHeapBytes() {
+        checkOpen();
+        long total = _offsets.bytes() + _targets.bytes() + _ids.bytes();
+        if (_directed) {
+            total += _rOffsets.bytes() + _sources.bytes();
+        }
+        return total;
+    }
+
+    /** Release my memory, which no other thread may be reading: the
+     *  memory is freed at once, and a read already under way would touch
+     *  freed memory.  Any further use of me other than close, including
+     *  by iterations made before, throws IllegalStateException. */
+    @Override
+    public void close() {
+        if (!_closed) {
+            _closed = true;
+            _offsets.close();
+            _targets.close();
+            _ids.close();
+            if (_directed) {
+                _rOffsets.close();
+                _sources.close();
+            }
+        }
+    }
+
+    @Override
+    public int vertexSize() {
+        checkOpen();
+        return _n;
+    }
+
+    @Override
+    public int maxVertex() {
+        checkOpen();
+        return _n;
+    }
+
+    @Override
+    public int edgeSize() {
+        checkOpen();
+        return _edgeSize;
+    }
+
+    @Override
+    public boolean isDirected() {
+        return _directed;
+    }
+
+    @Override
+    public int outDegree(int v) {
+        if (!contains(v)) {
+            return 0;
+        }
+        return _offsets.get(v + 1) - _offsets.get(v);
+    }
+
+    @Override
+    public int inDegree(int v) {
+        if (!_directed) {
+            return outDegree(v);
+        } else if (!contains(v)) {
+            return 0;
+        }
+        return _rOffsets.get(v + 1) - _rOffsets.get(v);
+    }
+
+    @Override
+    public boolean contains(int u) {
+        checkOpen();
+        return u > 0 && u <= _n;
+    }
+
+    @Override
+    public boolean contains(int u, int v) {
+        return slot(u, v) >= 0;
+    }
+
+    @Override
+    public int add() {
+        throw readOnly();
+    }
+
+    @Override
+    public int add(int u, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        throw readOnly();
+    }
+
+    @Override
+    public Iteration<Integer> vertices() {
+        checkOpen();
+        return new VertexIteration();
+    }
+
+    @Override
+    public Iteration<Integer> successors(int v) {
+        return successors(v, new IntIteration());
+    }
+
+    @Override
+    public Iteration<Integer> predecessors(int v) {
+        return predecessors(v, new IntIteration());
+    }
+
+    @Override
+    public IntIteration successors(int v, IntIteration cursor) {
+        return fill(cursor, v, _offsets, _targets);
+    }
+
+    @Override
+    public IntIteration predecessors(int v, IntIteration cursor) {
+        if (!_directed) {
+            return successors(v, cursor);
+        }
+        return fill(cursor, v, _rOffsets, _sources);
+    }
+
+    @Override
+    public Iteration<int[]> edges() {
+        checkOpen();
+        return new EdgeIteration();
+    }
+
+    @Override
+    public Graph snapshot() {
+        return this;
+    }
+
+    @Override
+    protected int edgeId(int u, int v) {
+        int k = slot(u, v);
+        return k < 0 ? 0 : _ids.get(k);
+    }
+
+    /** Fill CURSOR with the elements of VALUES belonging to vertex V
+     *  according to OFFSETS, and return it. */
+    private IntIteration fill(IntIteration cursor, int v, OffHeapInts offsets,
+                              OffHeapInts values) {
+        cursor.clear();
+        if (contains(v)) {
+            for (int k = offsets.get(v), end = offsets.get(v + 1); k < end;
+                 k += 1) {
+                cursor.add(values.get(k));
+            }
+        }
+        return cursor;
+    }
+
+    /** Returns the index in my array of edge targets (the slot) of the
+     *  edge (U, V), or -1 if there is none. */
+    int slot(int u, int v) {
+        if (!contains(u)) {
+            return -1;
+        }
+        int lo = _offsets.get(u), hi = _offsets.get(u + 1) - 1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            int w = _targets.get(mid);
+            if (w < v) {
+                lo = mid + 1;
+            } else if (w > v) {
+                hi = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    /** Returns the offsets of the edges of each vertex in my arrays of
+     *  edge targets and identifiers, indexed by vertex, followed by the
+     *  total number of slots. */
+    OffHeapInts offsets() {
+        checkOpen();
+        return _offsets;
+    }
+
+    /** Returns the targets of the edges of each vertex, sorted. */
+    OffHeapInts targets() {
+        checkOpen();
+        return _targets;
+    }
+
+    /** Returns the identifiers of the edges in targets(). */
+    OffHeapInts ids() {
+        checkOpen();
+        return _ids;
+    }
+
+    /** Returns the offsets of the predecessors of each vertex, as for
+     *  offsets(), if I am directed, and otherwise null. */
+    OffHeapInts reverseOffsets() {
+        checkOpen();
+        return _rOffsets;
+    }
+
+    /** Returns the predecessors of each vertex, sorted, if I am
+     *  directed, and otherwise null. */
+    OffHeapInts sources() {
+        checkOpen();
+        return _sources;
+    }
+
+    /** Throw IllegalStateException if I have been closed. */
+    private void checkOpen() {
+        if (_closed) {
+            throw new IllegalStateException("graph is closed");
+        }
+    }
+
+    /** Returns the exception thrown by attempts to modify me. */
+    private static UnsupportedOperationException readOnly() {
+        return new UnsupportedOperationException("off-heap graph is "
+                                                 + "read-only");
+    }
+
+    /** An Iteration over my vertices, in increasing order. */
+    private class VertexIteration extends Iteration<Integer> {
+        @Override
+        public boolean hasNext() {
+            return _v <= _n;
+        }
+
+        @Override
+        public Integer next() {
+            checkOpen();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _v += 1;
+            return _v - 1;
+        }
+
+        /** The next vertex. */
+        private int _v = 1;
+    }
+
+    /** An Iteration over my edges, returning each undirected edge once.
+     *  Returns the same array from each call of next. */
+    private class EdgeIteration extends Iteration<int[]> {
+        /** An iteration over all edges. */
+        EdgeIteration() {
+            _u = 1;
+            _k = 0;
+            advance();
+        }
+
+        @Override
+        public boolean hasNext() {
+            return _u <= _n;
+        }
+
+        @Override
+        public int[] next() {
+            checkOpen();
+            if (!hasNext()) {
+                throw new NoSuchElementException();
+            }
+            _edge[0] = _u;
+            _edge[1] = _targets.get(_k);
+            _k += 1;
+            advance();
+            return _edge;
+        }
+
+        /** Move to the next edge to be returned, if the current position
+         *  is not one. */
+        private void advance() {
+            while (_u <= _n) {
+                if (_k < _offsets.get(_u + 1)) {
+                    if (_directed || _targets.get(_k) >= _u) {
+                        return;
+                    }
+                    _k += 1;
+                } else {
+                    _u += 1;
+                }
+            }
+        }
+
+        /** The source of the next edge. */
+        private int _u;
+        /** Index in _targets of the next edge's target. */
+        private int _k;
+        /** The array returned by next. */
+        private final int[] _edge = new int[2];
+    }
+
+    /** Initial size of the buffer used to sort each vertex's edges. */
+    private static final int INITIAL_SIZE = 16;
+
+    /** My vertices are 1 .. _n. */
+    private final int _n;
+    /** True iff I am directed. */
+    private final boolean _directed;
+    /** Number of edges. */
+    private final int _edgeSize;
+    /** Offset in _targets and _ids of the edges of each vertex v at index
+     *  v, with the total number of edges stored at index _n + 1. */
+    private final OffHeapInts _offsets;
+    /** Targets of the edges of each vertex, sorted by target. */
+    private final OffHeapInts _targets;
+    /** Identifiers of the edges in _targets. */
+    private final OffHeapInts _ids;
+    /** Offsets in _sources of the predecessors of each vertex, if I am
+     *  directed; otherwise null. */
+    private final OffHeapInts _rOffsets;
+    /** Sources of the edges entering each vertex, if I am directed;
+     *  otherwise null. */
+    private final OffHeapInts _sources;
+    /** True once I have been closed.  Volatile so that a thread using me
+     *  after another has closed me sees that I am closed. */
+    private volatile boolean _closed;
+}
@@ -0,0 +1,244 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.io.IOException;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileChannel.MapMode;
+import java.nio.channels.WritableByteChannel;
+import java.util.Arrays;
+
+/** A growable array of ints kept outside the Java heap, in direct
+ *  ByteBuffers (or buffers mapped from a file) of at most CHUNK ints each
+ *  (a single buffer cannot exceed 2 GB).  Since the garbage collector
+ *  neither copies nor scans the contents, their size does not affect heap
+ *  size or collection times.
+ *  The memory is released by close, after which I may not be used, or
+ *  else whenever the collector finds me unreachable.
+ *  @author Warner Tsang
+ */
+final class OffHeapInts implements AutoCloseable {
+
+    /** An array of SIZE zeros. */
+    OffHeapInts(int size) {
+        _chunks = new IntBuffer[0];
+        _buffers = new ByteBuffer[0];
+        ensureCapacity(size);
+        _size = size;
+    }
+
+    /** An array of SIZE ints, held in CHUNKS, each of which but the last
+     *  must hold exactly CHUNK ints.  BUFFERS are the buffers underlying
+     *  CHUNKS, to be released on close. */
+    OffHeapInts(IntBuffer[] chunks, ByteBuffer[] buffers, int size) {
+        _chunks = chunks;
+        _buffers = buffers;
+        _size = size;
+    }
+
+    /** Returns the SIZE ints stored in little-endian order at byte
+     *  POSITION of the file open on CHANNEL, mapped into memory read-only
+     *  rather than copied, so that they are read from the file as
+     *  needed and share the operating system's cached copy of its pages
+     *  with other processes. */
+    static OffHeapInts map(FileChannel channel, long position, int size)
+        throws IOException {
+        int n = (int) (((long) size + CHUNK - 1) / CHUNK);
+        IntBuffer[] chunks = new IntBuffer[n];
+        ByteBuffer[] buffers = new ByteBuffer[n];
+        for (int i = 0; i < n; i += 1) {
+            long start = (long) i * CHUNK;
+            long length = Math.min(CHUNK, size - start);
+            buffers[i] = channel.map(MapMode.READ_ONLY,
+                                     position + start * Integer.BYTES,
+                                     length * Integer.BYTES);
+            chunks[i] = buffers[i].order(ByteOrder.LITTLE_ENDIAN)
+                .asIntBuffer();
+        }
+        return new OffHeapInts(chunks, buffers, size);
+    }
+
+    /** Returns my length. */
+    int size() {
+        return _size;
+    }
+
+    /** Returns my element #I. */
+    int get(int i) {
+        return _chunks[i >>> SHIFT].get(i & MASK);
+    }
+
+    /** Set my element #I to X. */
+    void set(int i, int x) {
+        _chunks[i >>> SHIFT].put(i & MASK, x);
+    }
+
+    /** Append X to me. */
+    void add(int x) {
+        if (_size == Integer.MAX_VALUE) {
+            throw new IllegalStateException("off-heap array is full");
+        }
+        ensureCapacity(_size + 1);
+        set(_size, x);
+        _size += 1;
+    }
+
+    /** Copy my elements #START .. #START + N - 1 into DEST[OFFSET ...]. */
+    void get(int start, int[] dest, int offset, int n) {
+        while (n > 0) {
+            IntBuffer chunk = _chunks[start >>> SHIFT];
+            int k = Math.min(n, CHUNK - (start & MASK));
+            chunk.get(start & MASK, dest, offset, k);
+            start += k;
+            offset += k;
+            n -= k;
+        }
+    }
+
+    /** Write my elements to OUT in little-endian order. */
+    void write(WritableByteChannel out) throws IOException {
+        ByteBuffer buffer =
+            ByteBuffer.allocate(WRITE_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+        for (int i = 0; i < _size; i += 1) {
+            if (!buffer.hasRemaining()) {
+                drain(buffer, out);
+            }
+            buffer.putInt(get(i));
+        }
+        drain(buffer, out);
+    }
+
+    /** Write the contents of BUFFER to OUT, and clear it. */
+    private static void drain(ByteBuffer buffer, WritableByteChannel out)
+        throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            out.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /** Returns the number of bytes of memory I occupy. */
+    long bytes() {
+        long total;
+        total = 0;
+        for (ByteBuffer buffer : _buffers) {
+            total += buffer.capacity();
+        }
+        return total;
+    }
+
+    /** Release my memory.  Further use of me is an error. */
+    @Override
+    public void close() {
+        for (ByteBuffer buffer : _buffers) {
+            release(buffer);
+        }
+        _chunks = null;
+        _buffers = null;
+    }
+
+    /** Make room for at least N elements, growing by whole chunks except
+     *  while I fit in one. */
+    private void ensureCapacity(int n) {
+        long capacity = _chunks.length == 0 ? 0
+            : (long) (_chunks.length - 1) * CHUNK
+              + _chunks[_chunks.length - 1].capacity();
+        if (n <= capacity) {
+            return;
+        }
+        int last = _chunks.length - 1;
+        if (last >= 0 && _chunks[last].capacity() < CHUNK) {
+            int size = (int) Math.min(CHUNK,
+                                      Math.max(n - (long) last * CHUNK,
+                                               2L * _chunks[last].capacity()));
+            ByteBuffer buffer = allocate(size);
+            IntBuffer chunk = view(buffer);
+            IntBuffer old = _chunks[last].duplicate();
+            old.clear();
+            chunk.put(old);
+            release(_buffers[last]);
+            _chunks[last] = chunk;
+            _buffers[last] = buffer;
+            capacity = (long) last * CHUNK + size;
+        }
+        while (capacity < n) {
+            int size = _chunks.length == 0
+                ? Math.max(n, INITIAL_SIZE) : CHUNK;
+            size = Math.min(size, CHUNK);
+            ByteBuffer buffer = allocate(size);
+            _chunks = Arrays.copyOf(_chunks, _chunks.length + 1);
+            _buffers = Arrays.copyOf(_buffers, _buffers.length + 1);
+            _chunks[_chunks.length - 1] = view(buffer);
+            _buffers[_buffers.length - 1] = buffer;
+            capacity += size;
+        }
+    }
+
+    /** Returns a new direct buffer holding N ints. */
+    private static ByteBuffer allocate(int n) {
+        return ByteBuffer.allocateDirect(n * Integer.BYTES);
+    }
+
+    /** Returns BUFFER viewed as ints in native order. */
+    static IntBuffer view(ByteBuffer buffer) {
+        return buffer.order(ByteOrder.nativeOrder()).asIntBuffer();
+    }
+
+    /** Free the memory of direct BUFFER now, if the platform allows it;
+     *  otherwise it is freed when BUFFER is collected. */
+    static void release(ByteBuffer buffer) {
+        if (INVOKE_CLEANER != null && buffer.isDirect()) {
+            try {
+                INVOKE_CLEANER.invoke(UNSAFE, buffer);
+            } catch (ReflectiveOperationException | RuntimeException excp) {
+                /* Leave it to the collector. */
+            }
+        }
+    }
+
+    /** Log2 of CHUNK. */
+    private static final int SHIFT = 26;
+    /** Maximum number of ints in one buffer. */
+    static final int CHUNK = 1 << SHIFT;
+    /** Mask selecting an index within a chunk. */
+    private static final int MASK = CHUNK - 1;
+    /** Smallest buffer allocated. */
+    private static final int INITIAL_SIZE = 16;
+    /** Size in bytes of the buffer used to write me. */
+    private static final int WRITE_SIZE = 1 << 16;
+
+    /** The sun.misc.Unsafe instance, if available. */
+    private static final Object UNSAFE;
+    /** Unsafe.invokeCleaner, which frees a direct buffer, if available. */
+    private static final Method INVOKE_CLEANER;
+
+    static {
+        Object unsafe;
+        Method invokeCleaner;
+        try {
+            Class<?> type = Class.forName("sun.misc.Unsafe");
+            Field field = type.getDeclaredField("theUnsafe");
+            field.setAccessible(true);
+            unsafe = field.get(null);
+            invokeCleaner = type.getMethod("invokeCleaner", ByteBuffer.class);
+        } catch (ReflectiveOperationException | RuntimeException excp) {
+            unsafe = null;
+            invokeCleaner = null;
+        }
+        UNSAFE = unsafe;
+        INVOKE_CLEANER = invokeCleaner;
+    }
+
+    /** My contents, CHUNK ints per chunk except perhaps the last. */
+    private IntBuffer[] _chunks;
+    /** The buffers underlying _chunks. */
+    private ByteBuffer[] _buffers;
+    /** My length. */
+    private int _size;
+}
@@ -0,0 +1,45 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+/** Storage for the weights and predecessors computed by a search
+ *  (see SimpleShortestPaths).  A PathStorage may be reused by any number
+ *  of successive searches, each of which begins by calling clear, but
+ *  not by two searches at once.  Implementations arrange that clear and
+ *  the accessors take time proportional to the number of vertices a
+ *  search actually touches, rather than to the size of the graph.
+ *  @author Warner Tsang
+ */
+public abstract class PathStorage {
+
+    /** Returns a new PathStorage suitable for searches of G that are
+     *  expected to touch about EXPECTED vertices: a SparsePathStorage if
+     *  that is a small fraction of G, and otherwise a
+     *  StampedPathStorage. */
+    public static PathStorage forSearch(Graph G, int expected) {
+        if ((long) expected * SPARSE_RATIO < G.maxVertex()) {
+            return new SparsePathStorage();
+        }
+        return new StampedPathStorage();
+    }
+
+    /** Prepare me for a new search of G, so that every vertex has
+     *  weight positive infinity and predecessor 0. */
+    public abstract void clear(Graph G);
+
+    /** Returns the weight of vertex V. */
+    public abstract double getWeight(int v);
+
+    /** Set getWeight(V) to W. */
+    public abstract void setWeight(int v, double w);
+
+    /** Returns the predecessor of vertex V, or 0 if none. */
+    public abstract int getPredecessor(int v);
+
+    /** Set getPredecessor(V) to U. */
+    public abstract void setPredecessor(int v, int u);
+
+    /** Graphs with more than this many times the expected number of
+     *  touched vertices get sparse storage from forSearch. */
+    private static final int SPARSE_RATIO = 64;
+}
@@ -0,0 +1,69 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.StackTrace;
+
+/** A Java Flight Recorder event describing one search or traversal.
+ *  Enable it in a recording with, e.g.,
+ *      java -XX:StartFlightRecording:graph.Search#enabled=true ...
+ *  When it is disabled (the default), creating and committing it costs
+ *  almost nothing.
+ *  @author Warner Tsang
+ */
+@Name("graph.Search")
+@Label("Graph Search")
+@Category("Graph")
+@Description("A shortest-path search or graph traversal")
+@StackTrace(false)
+final class SearchEvent extends Event {
+
+    /** The kind of search: "ShortestPaths" or "Traversal". */
+    @Label("Kind")
+    String kind;
+
+    /** The starting vertex, or 0 if there are several. */
+    @Label("Source")
+    int source;
+
+    /** The target vertex, or 0 if there is none. */
+    @Label("Destination")
+    int dest;
+
+    /** Number of vertices settled or visited. */
+    @Label("Vertices Settled")
+    long settled;
+
+    /** Number of edges examined. */
+    @Label("Edges Relaxed")
+    long relaxed;
+
+    /** Number of queue insertions and removals. */
+    @Label("Queue Operations")
+    long queueOps;
+
+    /** Number of calls of the heuristic. */
+    @Label("Heuristic Calls")
+    long heuristicCalls;
+
+    /** Commit me, if enabled, with the given KIND, SOURCE, DEST, and
+     *  counts SETTLED, RELAXED, QUEUEOPS, and HEURISTICCALLS. */
+    void commit(String kind0, int source0, int dest0, long settled0,
+                long relaxed0, long queueOps0, long heuristicCalls0) {
+        if (shouldCommit()) {
+            kind = kind0;
+            source = source0;
+            dest = dest0;
+            settled = settled0;
+            relaxed = relaxed0;
+            queueOps = queueOps0;
+            heuristicCalls = heuristicCalls0;
+            commit();
+        }
+    }
+}
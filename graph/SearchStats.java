@@ -0,0 +1,87 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+/** Accumulated measures of the effort spent by searches (ShortestPaths)
+ *  and traversals (Traversal).  A SearchStats is attached to a search
+ *  with setStats; each completed search then adds its counts to it.  A
+ *  search to which no SearchStats is attached keeps only a few local
+ *  counters, so the cost of not collecting statistics is negligible.  A
+ *  SearchStats may be shared by searches running in different threads.
+ *
+ *  Each search also emits a graph.Search event to the Java Flight
+ *  Recorder when that event is enabled, whether or not statistics are
+ *  being collected (see SearchEvent).
+ *  @author Warner Tsang
+ */
+public class SearchStats {
+
+    /** Returns the number of searches recorded. */
+    public synchronized long searches() {
+        return _searches;
+    }
+
+    /** Returns the total number of vertices settled (removed from the
+     *  priority queue, or visited by a traversal). */
+    public synchronized long settled() {
+        return _settled;
+    }
+
+    /** Returns the total number of edges examined. */
+    public synchronized long relaxed() {
+        return _relaxed;
+    }
+
+    /** Returns the total number of insertions into and removals from
+     *  priority queues or fringes. */
+    public synchronized long queueOperations() {
+        return _queueOps;
+    }
+
+    /** Returns the total number of calls of estimatedDistance made while
+     *  ordering priority queues. */
+    public synchronized long heuristicCalls() {
+        return _heuristicCalls;
+    }
+
+    /** Returns the total elapsed time of the recorded searches, in
+     *  nanoseconds. */
+    public synchronized long nanos() {
+        return _nanos;
+    }
+
+    /** Clear all counts. */
+    public synchronized void reset() {
+        _searches = _settled = _relaxed = _queueOps = _heuristicCalls
+            = _nanos = 0;
+    }
+
+    /** Add one search that settled SETTLED vertices, examined RELAXED
+     *  edges, performed QUEUEOPS queue operations and HEURISTICCALLS calls
+     *  of the heuristic, and took NANOS nanoseconds. */
+    synchronized void record(long settled, long relaxed, long queueOps,
+                             long heuristicCalls, long nanos) {
+        _searches += 1;
+        _settled += settled;
+        _relaxed += relaxed;
+        _queueOps += queueOps;
+        _heuristicCalls += heuristicCalls;
+        _nanos += nanos;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("searches=%d settled=%d relaxed=%d queue-ops=%d"
+                             + " heuristic-calls=%d time=%.3fms",
+                             _searches, _settled, _relaxed, _queueOps,
+                             _heuristicCalls, _nanos / 1e6);
+    }
+
+    /** Number of searches. */
+    private long _searches;
+    /** Totals of vertices settled, edges relaxed, queue operations, and
+     *  heuristic calls. */
+    private long _settled, _relaxed, _queueOps, _heuristicCalls;
+    /** Total elapsed time in nanoseconds. */
+    private long _nanos;
+}
@@ -1,7 +1,11 @@
 package graph;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.PriorityQueue;
 import java.util.TreeSet;
 import java.util.List;
 
@@ -35,6 +39,57 @@ public abstract class ShortestPaths {
      * Stores path.
      */
     private ArrayList<Integer> _path;
+    /**
+     * Cursor reused to iterate over successors.
+     */
+    private final IntIteration _cursor = new IntIteration();
+    /**
+     * Where to record search statistics, if anywhere.
+     */
+    private SearchStats _stats;
+    /**
+     * Number of calls of estimatedDistance in the current search.
+     */
+    private long _heuristicCalls;
+    /**
+     * Largest key (weight plus estimated distance) of a vertex that will be
+     * settled, or infinity for none.
+     */
+    private double _distanceLimit = Double.POSITIVE_INFINITY;
+    /**
+     * Largest number of edges in a path that will be extended, or
+     * Integer.MAX_VALUE for none.
+     */
+    private int _hopLimit = Integer.MAX_VALUE;
+    /**
+     * In a search with a hop limit, the fewest edges in any path to each
+     * vertex extended so far, or Integer.MAX_VALUE if none.
+     */
+    private int[] _hops;
+    /**
+     * In a search with a hop limit, the label settled for each vertex, or
+     * -1 if none.
+     */
+    private int[] _settledLabel;
+    /**
+     * The labels of the last search with a hop limit: the paths it found,
+     * each given by its last vertex, its number of edges, its weight, and
+     * the label of the path it extends by one edge (-1 for the source),
+     * and their number (0 after a search with no hop limit).
+     */
+    private int[] _labelVertex, _labelHops, _labelParent;
+    private double[] _labelWeight;
+    private int _labelCount;
+    /**
+     * Vertices which, once all settled, end a search, or null for none.
+     */
+    private int[] _targets;
+    /**
+     * The vertices settled by the last search, in the order settled, and
+     * their number.
+     */
+    private int[] _settled = new int[INITIAL_SETTLED];
+    private int _settledSize;
 
 
     /**
@@ -61,37 +116,244 @@ public abstract class ShortestPaths {
      */
     public void setPaths() {
 
-        _traversal.clear();
-        for (int i : _G.vertices()) {
-            if (i == _source) {
-                continue;
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = _stats == null ? 0 : System.nanoTime();
+        _heuristicCalls = 0;
+        _settledSize = 0;
+        resetPaths();
+        BitSet pending = null;
+        if (_targets != null) {
+            pending = new BitSet();
+            for (int t : _targets) {
+                pending.set(t);
             }
-            setWeight(i, Double.POSITIVE_INFINITY);
-            _traversal.add(i);
         }
+        long[] counts = _hopLimit == Integer.MAX_VALUE
+            ? search(pending) : searchWithinHops(pending);
+        if (_stats != null) {
+            _stats.record(counts[0], counts[1], counts[2], _heuristicCalls,
+                          System.nanoTime() - start);
+        }
+        event.commit("ShortestPaths", _source, _dest, counts[0], counts[1],
+                     counts[2], _heuristicCalls);
+    }
+
+    /**
+     * Perform a search with no hop limit, ending it early as set by
+     * setDistanceLimit, setTargets, and my destination, if any.  PENDING
+     * holds the targets, or is null if there are none.  Returns the
+     * numbers of vertices settled, edges relaxed, and queue operations.
+     */
+    private long[] search(BitSet pending) {
+        long settled = 0, relaxed = 0, queueOps = 0;
+        int pendingSize = pending == null ? 0 : pending.cardinality();
+        _labelCount = 0;
+        _traversal.clear();
         setWeight(_source, 0);
         _traversal.add(_source);
+        queueOps++;
         while (!_traversal.isEmpty()) {
             int parent = _traversal.pollFirst();
+            queueOps++;
+            if (getWeight(parent) + estimatedDistance(parent)
+                > _distanceLimit) {
+                break;
+            }
+            settled++;
+            addSettled(parent);
             if (parent == _dest) {
-                return;
-            } else {
-                Iteration<Integer> iter = _G.successors(parent);
-                while (iter.hasNext()) {
-                    int children = iter.next();
-                    double newWeightParent = getWeight(parent);
-                    double newWeightChild = getWeight(parent, children);
-                    double currentWeight = getWeight(children);
-                    if (newWeightParent + newWeightChild < currentWeight) {
-                        _traversal.remove(children);
-                        setWeight(children, newWeightParent + newWeightChild);
-                        setPredecessor(children, parent);
-                        _traversal.add(children);
+                break;
+            }
+            if (pending != null && pending.get(parent)) {
+                pending.clear(parent);
+                pendingSize -= 1;
+                if (pendingSize == 0) {
+                    break;
+                }
+            }
+            IntIteration iter = _G.successors(parent, _cursor);
+            while (iter.hasNext()) {
+                int children = iter.nextInt();
+                relaxed++;
+                double newWeightParent = getWeight(parent);
+                double newWeightChild = getWeight(parent, children);
+                double currentWeight = getWeight(children);
+                if (newWeightParent + newWeightChild < currentWeight) {
+                    _traversal.remove(children);
+                    setWeight(children, newWeightParent + newWeightChild);
+                    setPredecessor(children, parent);
+                    _traversal.add(children);
+                    queueOps += 2;
+                }
+            }
+        }
+        return new long[] { settled, relaxed, queueOps };
+    }
+
+    /**
+     * Perform a search for the shortest paths of at most _hopLimit edges,
+     * as for search(PENDING).  A path to a vertex that is heavier than
+     * one already found is still extended if it has fewer edges, since
+     * its extensions may reach vertices that the lighter path cannot
+     * reach within the limit.  Each path is a label, and the labels of a
+     * vertex are extended in increasing order of weight, each only if it
+     * has fewer edges than all before it, so that a vertex has at most
+     * _hopLimit + 1 labels extended.
+     */
+    private long[] searchWithinHops(BitSet pending) {
+        long settled = 0, relaxed = 0, queueOps = 0;
+        int pendingSize = pending == null ? 0 : pending.cardinality();
+        int n = _G.maxVertex() + 1;
+        if (_hops == null || _hops.length < n) {
+            _hops = new int[n];
+            _settledLabel = new int[n];
+            Arrays.fill(_hops, Integer.MAX_VALUE);
+            Arrays.fill(_settledLabel, -1);
+            _labelVertex = new int[INITIAL_SETTLED];
+            _labelHops = new int[INITIAL_SETTLED];
+            _labelParent = new int[INITIAL_SETTLED];
+            _labelWeight = new double[INITIAL_SETTLED];
+        } else {
+            for (int i = 0; i < _labelCount; i += 1) {
+                _hops[_labelVertex[i]] = Integer.MAX_VALUE;
+                _settledLabel[_labelVertex[i]] = -1;
+            }
+        }
+        _labelCount = 0;
+        PriorityQueue<Integer> queue = new PriorityQueue<>(_labelOrder);
+        setWeight(_source, 0);
+        queue.add(addLabel(_source, 0, 0.0, -1));
+        queueOps++;
+        while (!queue.isEmpty()) {
+            int label = queue.poll();
+            queueOps++;
+            int v = _labelVertex[label], hops = _labelHops[label];
+            if (_labelWeight[label] + estimatedDistance(v) > _distanceLimit) {
+                break;
+            }
+            if (hops >= _hops[v]) {
+                continue;
+            }
+            _hops[v] = hops;
+            if (_settledLabel[v] < 0) {
+                _settledLabel[v] = label;
+                setWeight(v, _labelWeight[label]);
+                setPredecessor(v, label == 0 ? 0
+                               : _labelVertex[_labelParent[label]]);
+                settled++;
+                addSettled(v);
+                if (v == _dest) {
+                    break;
+                }
+                if (pending != null && pending.get(v)) {
+                    pending.clear(v);
+                    pendingSize -= 1;
+                    if (pendingSize == 0) {
+                        break;
                     }
                 }
             }
+            if (hops >= _hopLimit) {
+                continue;
+            }
+            IntIteration iter = _G.successors(v, _cursor);
+            while (iter.hasNext()) {
+                int w = iter.nextInt();
+                relaxed++;
+                double weight = _labelWeight[label] + getWeight(v, w);
+                if (hops + 1 >= _hops[w]
+                    || weight == Double.POSITIVE_INFINITY) {
+                    continue;
+                }
+                queue.add(addLabel(w, hops + 1, weight, label));
+                queueOps++;
+                if (_settledLabel[w] < 0 && weight < getWeight(w)) {
+                    setWeight(w, weight);
+                    setPredecessor(w, v);
+                }
+            }
         }
+        return new long[] { settled, relaxed, queueOps };
     }
+
+    /**
+     * Add a label for a path to V of HOPS edges and weight WEIGHT that
+     * extends the path of label PARENT, and return its index.
+     */
+    private int addLabel(int v, int hops, double weight, int parent) {
+        if (_labelCount == _labelVertex.length) {
+            int size = 2 * _labelCount;
+            _labelVertex = Arrays.copyOf(_labelVertex, size);
+            _labelHops = Arrays.copyOf(_labelHops, size);
+            _labelParent = Arrays.copyOf(_labelParent, size);
+            _labelWeight = Arrays.copyOf(_labelWeight, size);
+        }
+        _labelVertex[_labelCount] = v;
+        _labelHops[_labelCount] = hops;
+        _labelParent[_labelCount] = parent;
+        _labelWeight[_labelCount] = weight;
+        _labelCount += 1;
+        return _labelCount - 1;
+    }
+
+    /**
+     * Make subsequent searches stop once every unsettled vertex V has
+     * getWeight(V) + estimatedDistance(V) greater than LIMIT.  With no
+     * estimate, this settles exactly the vertices within LIMIT of the
+     * source.  Vertices beyond LIMIT that were reached but not settled
+     * keep tentative weights.  LIMIT may be positive infinity for no limit.
+     */
+    public void setDistanceLimit(double limit) {
+        _distanceLimit = limit;
+    }
+
+    /**
+     * Make subsequent searches find the shortest paths among those of at
+     * most LIMIT edges, settling exactly the vertices reachable by such
+     * paths (subject to the other limits), or remove any such restriction
+     * if LIMIT is negative.  With a limit, pathTo(V) returns the path found
+     * to V, and getPredecessor(V) is the vertex before V on that path,
+     * though that vertex's own path may differ from the start of it: the
+     * lightest path of at most LIMIT edges to a vertex may pass through
+     * another vertex by a heavier path of fewer edges.
+     */
+    public void setHopLimit(int limit) {
+        _hopLimit = limit < 0 ? Integer.MAX_VALUE : limit;
+    }
+
+    /**
+     * Make subsequent searches stop once all of the vertices in TARGETS
+     * have been settled (or the reachable vertices run out), or remove
+     * any such restriction if TARGETS is null.
+     */
+    public void setTargets(int... targets) {
+        _targets = targets == null ? null : targets.clone();
+    }
+
+    /**
+     * Returns the vertices settled by the last call of setPaths, in the
+     * order settled: those whose weights and predecessors are final.
+     */
+    public int[] settled() {
+        return Arrays.copyOf(_settled, _settledSize);
+    }
+
+    /**
+     * Accumulate the counts of each subsequent call of setPaths in STATS,
+     * or stop accumulating them if STATS is null.
+     */
+    public void setStats(SearchStats stats) {
+        _stats = stats;
+    }
+
+    /**
+     * Returns the statistics set by setStats, or null if none.
+     */
+    public SearchStats getStats() {
+        return _stats;
+    }
+
     /**
      * Returns the starting vertex.
      */
@@ -131,6 +393,19 @@ public abstract class ShortestPaths {
      */
     protected abstract void setPredecessor(int v, int u);
 
+    /**
+     * Make getWeight(V) positive infinity and getPredecessor(V) 0 for all
+     * vertices V, before a search.  By default, sets each vertex in
+     * turn.  Subclasses whose storage can be reset without visiting
+     * every vertex should override this.
+     */
+    protected void resetPaths() {
+        for (int i : _G.vertices()) {
+            setWeight(i, Double.POSITIVE_INFINITY);
+            setPredecessor(i, 0);
+        }
+    }
+
     /**
      * Returns an estimated heuristic weight of the shortest path from vertex
      * V to the destination vertex (if any).  This is assumed to be less
@@ -152,7 +427,15 @@ public abstract class ShortestPaths {
      * destination vertex other than V.
      */
     public List<Integer> pathTo(int v) {
-
+        if (_labelCount > 0 && v >= 0 && v < _settledLabel.length
+            && _settledLabel[v] >= 0) {
+            ArrayList<Integer> path = new ArrayList<>();
+            for (int l = _settledLabel[v]; l >= 0; l = _labelParent[l]) {
+                path.add(_labelVertex[l]);
+            }
+            Collections.reverse(path);
+            return path;
+        }
         while ((getPredecessor(v)) != 0) {
             _path.add(v);
             v = getPredecessor(v);
@@ -176,6 +459,34 @@ public abstract class ShortestPaths {
         return pathTo(getDest());
     }
 
+    /**
+     * Record that V has been settled in the current search.
+     */
+    private void addSettled(int v) {
+        if (_settledSize == _settled.length) {
+            _settled = Arrays.copyOf(_settled, 2 * _settledSize);
+        }
+        _settled[_settledSize] = v;
+        _settledSize += 1;
+    }
+
+    /**
+     * Initial size of _settled.
+     */
+    private static final int INITIAL_SETTLED = 16;
+
+    /**
+     * Comparator for the labels of a search with a hop limit, ordering
+     * them by weight plus estimated distance, and then by index.
+     */
+    private final Comparator<Integer> _labelOrder = (l1, l2) -> {
+        double key1 = _labelWeight[l1] + estimatedDistance(_labelVertex[l1]);
+        double key2 = _labelWeight[l2] + estimatedDistance(_labelVertex[l2]);
+        _heuristicCalls += 2;
+        int c = Double.compare(key1, key2);
+        return c != 0 ? c : Integer.compare(l1, l2);
+    };
+
     /**
      * Comparator for the tree set.
      */
@@ -184,6 +495,7 @@ public abstract class ShortestPaths {
         public int compare(Integer o1, Integer o2) {
             double firstEdge = getWeight(o1) + estimatedDistance(o1);
             double secondEdge = getWeight(o2) + estimatedDistance(o2);
+            _heuristicCalls += 2;
             if (firstEdge > secondEdge) {
                 return 1;
             } else if (firstEdge < secondEdge) {
@@ -5,19 +5,18 @@ package graph;
 
 /** A partial implementation of ShortestPaths that contains the weights of
  *  the vertices and the predecessor edges.   The client needs to
- *  supply only the two-argument getWeight method.
+ *  supply only the two-argument getWeight method.  The weights and
+ *  predecessors are kept in a PathStorage, which may be shared by
+ *  successive searches so that each costs time proportional to the
+ *  vertices it touches.
  *  @author Warner Tsang
  */
 public abstract class SimpleShortestPaths extends ShortestPaths {
 
     /**
-     * Stores weights.
+     * Stores weights and predecessors.
      */
-    private double[] _weights;
-    /**
-     * Stores predecessors.
-     */
-    private int[] _predecessors;
+    private final PathStorage _storage;
 
     /** The shortest paths in G from SOURCE. */
     public SimpleShortestPaths(Graph G, int source) {
@@ -26,9 +25,16 @@ public abstract class SimpleShortestPaths extends ShortestPaths {
 
     /** A shortest path in G from SOURCE to DEST. */
     public SimpleShortestPaths(Graph G, int source, int dest) {
+        this(G, source, dest, new StampedPathStorage());
+    }
+
+    /** A shortest path in G from SOURCE to DEST (0 for all destinations),
+     *  keeping its results in STORAGE, which must not be in use by any
+     *  other search while setPaths runs. */
+    public SimpleShortestPaths(Graph G, int source, int dest,
+                               PathStorage storage) {
         super(new LabeledGraph<>(G), source, dest);
-        _weights = new double[G.vertexSize()];
-        _predecessors = new int[G.vertexSize()];
+        _storage = storage;
     }
 
     /** Returns the current weight of edge (U, V) in the graph.  If (U, V) is
@@ -39,25 +45,29 @@ public abstract class SimpleShortestPaths extends ShortestPaths {
     @Override
     public double getWeight(int v) {
 
-
-        return _weights[v - 1];
+        return _storage.getWeight(v);
     }
 
     @Override
     protected void setWeight(int v, double w) {
 
-        _weights[v - 1] = w;
+        _storage.setWeight(v, w);
     }
 
     @Override
     public int getPredecessor(int v) {
 
-        return _predecessors[v - 1];
+        return _storage.getPredecessor(v);
     }
 
     @Override
     protected void setPredecessor(int v, int u) {
 
-        _predecessors[v - 1] = u;
+        _storage.setPredecessor(v, u);
+    }
+
+    @Override
+    protected void resetPaths() {
+        _storage.clear(_G);
     }
 }
@@ -0,0 +1,70 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.HashMap;
+
+/** A PathStorage that keeps weights and predecessors in a hash table, so
+ *  that its size depends only on the number of vertices touched.  It
+ *  suits small searches (for example, bounded ones) of large graphs.
+ *  @author Warner Tsang
+ */
+public class SparsePathStorage extends PathStorage {
+
+    @Override
+    public void clear(Graph G) {
+        if (_entries.size() > SHRINK_SIZE) {
+            _entries = new HashMap<>();
+        } else {
+            _entries.clear();
+        }
+    }
+
+    @Override
+    public double getWeight(int v) {
+        Entry e = _entries.get(v);
+        return e == null ? Double.POSITIVE_INFINITY : e.weight;
+    }
+
+    @Override
+    public void setWeight(int v, double w) {
+        entry(v).weight = w;
+    }
+
+    @Override
+    public int getPredecessor(int v) {
+        Entry e = _entries.get(v);
+        return e == null ? 0 : e.predecessor;
+    }
+
+    @Override
+    public void setPredecessor(int v, int u) {
+        entry(v).predecessor = u;
+    }
+
+    /** Returns the entry for V, creating it if needed. */
+    private Entry entry(int v) {
+        Entry e = _entries.get(v);
+        if (e == null) {
+            e = new Entry();
+            _entries.put(v, e);
+        }
+        return e;
+    }
+
+    /** The weight and predecessor of one vertex. */
+    private static class Entry {
+        /** The weight. */
+        private double weight = Double.POSITIVE_INFINITY;
+        /** The predecessor, or 0. */
+        private int predecessor;
+    }
+
+    /** Tables that grew beyond this size are discarded rather than
+     *  cleared, since clearing takes time proportional to their
+     *  capacity. */
+    private static final int SHRINK_SIZE = 1024;
+
+    /** Mapping of touched vertices to their entries. */
+    private HashMap<Integer, Entry> _entries = new HashMap<>();
+}
@@ -0,0 +1,78 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+
+/** A PathStorage that keeps weights and predecessors in arrays indexed by
+ *  vertex.  Each entry is stamped with the number of the search that last
+ *  set it, and entries with any other stamp are taken to be unset, so
+ *  clearing the arrays between searches takes constant time.  The arrays
+ *  grow to fit the largest vertex searched, and are kept for reuse.
+ *  @author Warner Tsang
+ */
+public class StampedPathStorage extends PathStorage {
+
+    @Override
+    public void clear(Graph G) {
+        int size = G.maxVertex() + 1;
+        if (size > _stamps.length) {
+            size = Math.max(size, 2 * _stamps.length);
+            _stamps = Arrays.copyOf(_stamps, size);
+            _weights = Arrays.copyOf(_weights, size);
+            _predecessors = Arrays.copyOf(_predecessors, size);
+        }
+        if (_generation == Integer.MAX_VALUE) {
+            Arrays.fill(_stamps, 0);
+            _generation = 0;
+        }
+        _generation += 1;
+    }
+
+    @Override
+    public double getWeight(int v) {
+        return isSet(v) ? _weights[v] : Double.POSITIVE_INFINITY;
+    }
+
+    @Override
+    public void setWeight(int v, double w) {
+        stamp(v);
+        _weights[v] = w;
+    }
+
+    @Override
+    public int getPredecessor(int v) {
+        return isSet(v) ? _predecessors[v] : 0;
+    }
+
+    @Override
+    public void setPredecessor(int v, int u) {
+        stamp(v);
+        _predecessors[v] = u;
+    }
+
+    /** Returns true iff V has been set during the current search. */
+    private boolean isSet(int v) {
+        return v > 0 && v < _stamps.length && _stamps[v] == _generation;
+    }
+
+    /** Mark V as set during the current search, giving it default
+     *  values if it was not already. */
+    private void stamp(int v) {
+        if (_stamps[v] != _generation) {
+            _stamps[v] = _generation;
+            _weights[v] = Double.POSITIVE_INFINITY;
+            _predecessors[v] = 0;
+        }
+    }
+
+    /** Number of the current search (never 0, which marks entries that
+     *  have never been set). */
+    private int _generation;
+    /** Number of the search that last set each vertex. */
+    private int[] _stamps = new int[0];
+    /** Weight of each vertex. */
+    private double[] _weights = new double[0];
+    /** Predecessor of each vertex. */
+    private int[] _predecessors = new int[0];
+}
@@ -0,0 +1,236 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/** The strongly connected components of a Graph, as of the time of
+ *  construction.  Components are found by Pearce's variant of Tarjan's
+ *  algorithm, run iteratively with explicit stacks so that arbitrarily
+ *  long paths do not exhaust the Java stack, and using only primitive
+ *  arrays: O(V + E) time and O(V + E) space for a copy of the
+ *  successors.  Components are numbered 0 .. count() - 1 in the order in
+ *  which they are completed, so that any edge (u, v) joining two
+ *  different components has component(u) > component(v).  In a graph of
+ *  dependencies (edges from each target to its prerequisites), building
+ *  components in increasing order therefore builds prerequisites first.
+ *  TopologicalOrder uses cycle() to report the cycle of a cyclic graph
+ *  it is given.  Make does not use this class: its dependencies are kept
+ *  in a TopologicalOrder, which refuses each cycle as it is read, so
+ *  there is none left to find when building.
+ *  @author Warner Tsang
+ */
+public class StronglyConnectedComponents {
+
+    /** The strongly connected components of G. */
+    public StronglyConnectedComponents(Graph G) {
+        int n = G.vertexSize() == 0 ? 1 : G.maxVertex() + 1;
+        copySuccessors(G, n);
+        find(n);
+    }
+
+    /** Returns the number of components. */
+    public int count() {
+        return _count;
+    }
+
+    /** Returns the number of the component containing vertex V, or -1 if
+     *  V was not a vertex. */
+    public int component(int v) {
+        return v <= 0 || v >= _component.length ? -1 : _component[v];
+    }
+
+    /** Returns the vertices in component C, in increasing order. */
+    public List<Integer> members(int c) {
+        List<Integer> result = new ArrayList<>();
+        for (int v = 1; v < _component.length; v += 1) {
+            if (_component[v] == c) {
+                result.add(v);
+            }
+        }
+        return result;
+    }
+
+    /** Returns true iff component C contains a cycle: that is, it has
+     *  more than one vertex, or its vertex has an edge to itself. */
+    public boolean isCyclic(int c) {
+        for (int v = 1; v < _component.length; v += 1) {
+            if (_component[v] == c && onCycle(v)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Returns a cycle of the graph, as a list of vertices [v1, ..., vk]
+     *  such that there are edges v1 -> v2, ..., vk -> v1, or an empty list
+     *  if the graph is acyclic.  The cycle is a shortest one through the
+     *  smallest vertex that is on any cycle. */
+    public List<Integer> cycle() {
+        for (int v = 1; v < _component.length; v += 1) {
+            if (onCycle(v)) {
+                return cycleThrough(v);
+            }
+        }
+        return new ArrayList<>();
+    }
+
+    /** Returns true iff vertex V has an edge to a vertex of its own
+     *  component. */
+    private boolean onCycle(int v) {
+        if (_component[v] < 0) {
+            return false;
+        }
+        for (int e = _start[v]; e < _start[v + 1]; e += 1) {
+            if (_component[_succ[e]] == _component[v]) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /** Fill _start and _succ with the successors of the vertices of G,
+     *  all of which are less than N, and set _component to 0 for vertices
+     *  and -1 for other numbers. */
+    private void copySuccessors(Graph G, int n) {
+        _start = new int[n + 1];
+        _succ = new int[G.isDirected() ? G.edgeSize() : 2 * G.edgeSize()];
+        _component = new int[n];
+        Arrays.fill(_component, -1);
+        IntIteration cursor = new IntIteration();
+        int e;
+        e = 0;
+        for (int v = 1; v < n; v += 1) {
+            _start[v] = e;
+            if (!G.contains(v)) {
+                continue;
+            }
+            _component[v] = 0;
+            IntIteration succ = G.successors(v, cursor);
+            while (succ.hasNext()) {
+                if (e == _succ.length) {
+                    _succ = Arrays.copyOf(_succ, 2 * e + 1);
+                }
+                _succ[e] = succ.nextInt();
+                e += 1;
+            }
+        }
+        _start[n] = e;
+    }
+
+    /** Find the components of the vertices less than N, setting
+     *  _component and _count.  This is Pearce's algorithm: RINDEX[v] is 0
+     *  until v is visited, then v's visiting order lowered to the least
+     *  order reachable from v, and finally a component number counted
+     *  down from N - 1, which exceeds every visiting order in use. */
+    private void find(int n) {
+        int[] rindex = new int[n];
+        boolean[] root = new boolean[n];
+        int[] next = new int[n];
+        int[] path = new int[n];
+        int[] stack = new int[n];
+        int pathSize, stackSize, index, c;
+        stackSize = 0;
+        index = 1;
+        c = n - 1;
+        for (int r = 1; r < n; r += 1) {
+            if (_component[r] < 0 || rindex[r] != 0) {
+                continue;
+            }
+            rindex[r] = index;
+            index += 1;
+            root[r] = true;
+            next[r] = _start[r];
+            path[0] = r;
+            pathSize = 1;
+            while (pathSize > 0) {
+                int v = path[pathSize - 1];
+                if (next[v] < _start[v + 1]) {
+                    int w = _succ[next[v]];
+                    if (rindex[w] == 0) {
+                        rindex[w] = index;
+                        index += 1;
+                        root[w] = true;
+                        next[w] = _start[w];
+                        path[pathSize] = w;
+                        pathSize += 1;
+                        continue;
+                    }
+                    if (rindex[w] < rindex[v]) {
+                        rindex[v] = rindex[w];
+                        root[v] = false;
+                    }
+                    next[v] += 1;
+                    continue;
+                }
+                pathSize -= 1;
+                if (root[v]) {
+                    index -= 1;
+                    while (stackSize > 0
+                           && rindex[v] <= rindex[stack[stackSize - 1]]) {
+                        stackSize -= 1;
+                        rindex[stack[stackSize]] = c;
+                        index -= 1;
+                    }
+                    rindex[v] = c;
+                    c -= 1;
+                } else {
+                    stack[stackSize] = v;
+                    stackSize += 1;
+                }
+            }
+        }
+        for (int v = 1; v < n; v += 1) {
+            if (_component[v] >= 0) {
+                _component[v] = n - 1 - rindex[v];
+            }
+        }
+        _count = n - 1 - c;
+    }
+
+    /** Returns a shortest cycle through V, which must lie on one, found by
+     *  breadth-first search within V's component. */
+    private List<Integer> cycleThrough(int v) {
+        int[] parent = new int[_component.length];
+        int[] queue = new int[_component.length];
+        int head, tail;
+        head = tail = 0;
+        queue[tail] = v;
+        tail += 1;
+        while (head < tail) {
+            int x = queue[head];
+            head += 1;
+            for (int e = _start[x]; e < _start[x + 1]; e += 1) {
+                int y = _succ[e];
+                if (y == v) {
+                    List<Integer> result = new ArrayList<>();
+                    for (int u = x; u != v; u = parent[u]) {
+                        result.add(u);
+                    }
+                    result.add(v);
+                    Collections.reverse(result);
+                    return result;
+                }
+                if (_component[y] == _component[v] && parent[y] == 0) {
+                    parent[y] = x;
+                    queue[tail] = y;
+                    tail += 1;
+                }
+            }
+        }
+        throw new IllegalStateException("vertex is on no cycle");
+    }
+
+    /** Offset in _succ of the first successor of each vertex, and (at the
+     *  end) the total number of successors. */
+    private int[] _start;
+    /** Successors of all vertices, grouped by vertex. */
+    private int[] _succ;
+    /** Component number of each vertex, or -1 for non-vertices. */
+    private int[] _component;
+    /** Number of components. */
+    private int _count;
+}
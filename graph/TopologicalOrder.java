@@ -0,0 +1,376 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.PriorityQueue;
+
+/** A directed Graph that keeps its vertices in a topological order as it
+ *  is modified: for every edge (u, v), position(u) < position(v).  Adding
+ *  an edge that would create a cycle is refused.  The order is maintained
+ *  by the algorithm of Pearce and Kelly: adding an edge (u, v) with u
+ *  already before v costs nothing; otherwise, only the vertices whose
+ *  positions lie between those of v and u and that are reachable from v,
+ *  or reach u, are searched and given new positions among their own
+ *  former positions.  I keep my own lists of the predecessors of each
+ *  vertex, so that the backward search costs time proportional to the
+ *  edges it follows, whatever the cost of predecessors in the underlying
+ *  Graph.  All other operations are delegated to the underlying Graph,
+ *  which must not be modified except through me.
+ *  @author Warner Tsang
+ */
+public class TopologicalOrder extends GraphFilter {
+
+    /** A topologically ordered view of G, which must be directed and
+     *  acyclic.  Initially, the vertices are ordered by Kahn's algorithm,
+     *  taking the smallest available vertex first.  If G is cyclic,
+     *  throws IllegalArgumentException listing a cycle of G, found from
+     *  its strongly connected components. */
+    public TopologicalOrder(Graph G) {
+        super(G);
+        if (!G.isDirected()) {
+            throw new IllegalArgumentException("graph is not directed");
+        }
+        int n = G.vertexSize() == 0 ? 1 : G.maxVertex() + 1;
+        _position = new int[n];
+        _vertexAt = new int[Math.max(INITIAL_SIZE, n)];
+        _mark = new int[n];
+        _parent = new int[n];
+        _preds = new int[n][];
+        _predCount = new int[n];
+        for (int v : G.vertices()) {
+            IntIteration succ = G.successors(v, _cursor);
+            while (succ.hasNext()) {
+                addPredecessor(succ.nextInt(), v);
+            }
+        }
+        int[] inDegree = Arrays.copyOf(_predCount, n);
+        PriorityQueue<Integer> ready = new PriorityQueue<>();
+        for (int v : G.vertices()) {
+            if (inDegree[v] == 0) {
+                ready.add(v);
+            }
+        }
+        while (!ready.isEmpty()) {
+            int v = ready.poll();
+            place(v);
+            IntIteration succ = G.successors(v, _cursor);
+            while (succ.hasNext()) {
+                int w = succ.nextInt();
+                inDegree[w] -= 1;
+                if (inDegree[w] == 0) {
+                    ready.add(w);
+                }
+            }
+        }
+        if (_end != G.vertexSize()) {
+            List<Integer> cycle = new StronglyConnectedComponents(G).cycle();
+            throw new IllegalArgumentException("graph is cyclic: " + cycle);
+        }
+    }
+
+    /** Returns the position of vertex V in my order.  Positions increase
+     *  along every edge, but need not be consecutive, and may change
+     *  whenever I am modified. */
+    public int position(int v) {
+        checkMyVertex(v);
+        return _position[v];
+    }
+
+    /** Returns my vertices in topological order, each before all the
+     *  vertices it reaches. */
+    public int[] order() {
+        int[] result = new int[vertexSize()];
+        int k;
+        k = 0;
+        for (int i = 0; i < _end; i += 1) {
+            if (_vertexAt[i] != 0) {
+                result[k] = _vertexAt[i];
+                k += 1;
+            }
+        }
+        return result;
+    }
+
+    /** Returns the cycle that the edge (U, V) refused by the last call of
+     *  add(U, V) would have created, as a list [u, v, ..., w] of vertices,
+     *  each with an edge to the next and the last with an edge to U.
+     *  Returns an empty list if the last edge was accepted. */
+    public List<Integer> cycle() {
+        return Collections.unmodifiableList(_cycle);
+    }
+
+    @Override
+    public int add() {
+        int v = super.add();
+        grow(v);
+        place(v);
+        return v;
+    }
+
+    /** Adds the edge (U, V), as for Graph.add, and reorders my vertices
+     *  if needed.  If the edge would create a cycle, it is not added, the
+     *  cycle is recorded (see cycle()), and IllegalArgumentException is
+     *  thrown. */
+    @Override
+    public int add(int u, int v) {
+        checkMyVertex(u);
+        checkMyVertex(v);
+        _cycle.clear();
+        if (contains(u, v)) {
+            return super.add(u, v);
+        }
+        if (!reorder(u, v)) {
+            throw new IllegalArgumentException(
+                String.format("edge (%d, %d) would create a cycle", u, v));
+        }
+        int e = super.add(u, v);
+        addPredecessor(v, u);
+        return e;
+    }
+
+    @Override
+    public void remove(int v) {
+        if (contains(v)) {
+            _vertexAt[_position[v]] = 0;
+            IntIteration succ = successors(v, _cursor);
+            while (succ.hasNext()) {
+                removePredecessor(succ.nextInt(), v);
+            }
+            _predCount[v] = 0;
+        }
+        super.remove(v);
+    }
+
+    @Override
+    public void remove(int u, int v) {
+        if (contains(u, v)) {
+            super.remove(u, v);
+            removePredecessor(v, u);
+        }
+    }
+
+    @Override
+    public int inDegree(int v) {
+        return contains(v) ? _predCount[v] : 0;
+    }
+
+    @Override
+    public Iteration<Integer> predecessors(int v) {
+        return predecessors(v, new IntIteration());
+    }
+
+    @Override
+    public IntIteration predecessors(int v, IntIteration cursor) {
+        cursor.clear();
+        if (contains(v)) {
+            for (int i = 0; i < _predCount[v]; i += 1) {
+                cursor.add(_preds[v][i]);
+            }
+        }
+        return cursor;
+    }
+
+    /** Record U as a predecessor of V. */
+    private void addPredecessor(int v, int u) {
+        if (_preds[v] == null) {
+            _preds[v] = new int[INITIAL_PREDECESSORS];
+        } else if (_predCount[v] == _preds[v].length) {
+            _preds[v] = Arrays.copyOf(_preds[v], 2 * _predCount[v]);
+        }
+        _preds[v][_predCount[v]] = u;
+        _predCount[v] += 1;
+    }
+
+    /** Remove U from the predecessors of V, if present. */
+    private void removePredecessor(int v, int u) {
+        for (int i = 0; i < _predCount[v]; i += 1) {
+            if (_preds[v][i] == u) {
+                _predCount[v] -= 1;
+                _preds[v][i] = _preds[v][_predCount[v]];
+                return;
+            }
+        }
+    }
+
+    /** Append V to my order.  When the positions run out, those left
+     *  unused by removed vertices are reclaimed first, so that they do
+     *  not accumulate. */
+    private void place(int v) {
+        if (_end == _vertexAt.length) {
+            compact();
+            if (2 * _end > _vertexAt.length) {
+                _vertexAt = Arrays.copyOf(_vertexAt, 2 * _vertexAt.length);
+            }
+        }
+        _position[v] = _end;
+        _vertexAt[_end] = v;
+        _end += 1;
+    }
+
+    /** Renumber my positions consecutively from 0, in the same order. */
+    private void compact() {
+        int k;
+        k = 0;
+        for (int i = 0; i < _end; i += 1) {
+            int w = _vertexAt[i];
+            if (w != 0) {
+                _vertexAt[k] = w;
+                _position[w] = k;
+                k += 1;
+            }
+        }
+        Arrays.fill(_vertexAt, k, _end, 0);
+        _end = k;
+    }
+
+    /** Make my arrays indexed by vertex large enough to hold V. */
+    private void grow(int v) {
+        if (v >= _position.length) {
+            int n = Math.max(v + 1, 2 * _position.length);
+            _position = Arrays.copyOf(_position, n);
+            _mark = Arrays.copyOf(_mark, n);
+            _parent = Arrays.copyOf(_parent, n);
+            _preds = Arrays.copyOf(_preds, n);
+            _predCount = Arrays.copyOf(_predCount, n);
+        }
+    }
+
+    /** Restore my order in preparation for adding the edge (X, Y).
+     *  Returns false, recording the cycle in _cycle, if the edge would
+     *  create a cycle. */
+    private boolean reorder(int x, int y) {
+        int lower = _position[y], upper = _position[x];
+        if (lower > upper) {
+            return true;
+        }
+        if (x == y) {
+            _cycle.add(x);
+            return false;
+        }
+        if (_generation >= Integer.MAX_VALUE - 2) {
+            Arrays.fill(_mark, 0);
+            _generation = 0;
+        }
+        _generation += 2;
+        int forward = _generation, backward = _generation + 1;
+
+        long[] reached = search(y, forward, true, upper, x);
+        if (reached == null) {
+            return false;
+        }
+        long[] reaching = search(x, backward, false, lower, 0);
+        int nf = reached.length, nb = reaching.length;
+        Arrays.sort(reached);
+        Arrays.sort(reaching);
+        int[] slots = new int[nf + nb];
+        for (int i = 0; i < nb; i += 1) {
+            slots[i] = (int) (reaching[i] >>> 32);
+        }
+        for (int i = 0; i < nf; i += 1) {
+            slots[nb + i] = (int) (reached[i] >>> 32);
+        }
+        Arrays.sort(slots);
+        for (int i = 0; i < nb + nf; i += 1) {
+            long entry = i < nb ? reaching[i] : reached[i - nb];
+            int v = (int) entry;
+            _position[v] = slots[i];
+            _vertexAt[slots[i]] = v;
+        }
+        return true;
+    }
+
+    /** Search from START, following successors if FORWARDS and otherwise
+     *  predecessors, through unmarked vertices whose positions are
+     *  strictly less than BOUND (if FORWARDS) or greater than BOUND (if
+     *  not), marking them with MARK.  Returns the vertices reached, each
+     *  packed with its position in the upper half.  If a successor of some
+     *  vertex is TARGET, instead records the cycle through TARGET in
+     *  _cycle and returns null. */
+    private long[] search(int start, int mark, boolean forwards, int bound,
+                          int target) {
+        int[] stack = new int[INITIAL_SIZE];
+        long[] result = new long[INITIAL_SIZE];
+        int stackSize, size;
+        stack[0] = start;
+        stackSize = 1;
+        size = 0;
+        _mark[start] = mark;
+        while (stackSize > 0) {
+            stackSize -= 1;
+            int v = stack[stackSize];
+            if (size == result.length) {
+                result = Arrays.copyOf(result, 2 * size);
+            }
+            result[size] = ((long) _position[v] << 32) | v;
+            size += 1;
+            IntIteration next =
+                forwards ? successors(v, _cursor) : predecessors(v, _cursor);
+            while (next.hasNext()) {
+                int w = next.nextInt();
+                if (forwards && w == target) {
+                    recordCycle(target, start, v);
+                    return null;
+                }
+                if (_mark[w] == mark
+                    || (forwards ? _position[w] >= bound
+                        : _position[w] <= bound)) {
+                    continue;
+                }
+                _mark[w] = mark;
+                _parent[w] = v;
+                if (stackSize == stack.length) {
+                    stack = Arrays.copyOf(stack, 2 * stackSize);
+                }
+                stack[stackSize] = w;
+                stackSize += 1;
+            }
+        }
+        return Arrays.copyOf(result, size);
+    }
+
+    /** Record in _cycle the cycle formed by the proposed edge from X to
+     *  START, the current forward search's path from START to V, and the
+     *  edge (V, X). */
+    private void recordCycle(int x, int start, int v) {
+        List<Integer> path = new ArrayList<>();
+        for (int w = v; w != start; w = _parent[w]) {
+            path.add(w);
+        }
+        path.add(start);
+        path.add(x);
+        Collections.reverse(path);
+        _cycle.addAll(path);
+    }
+
+    /** Initial size of my arrays. */
+    private static final int INITIAL_SIZE = 16;
+    /** Initial size of a vertex's list of predecessors. */
+    private static final int INITIAL_PREDECESSORS = 2;
+
+    /** Position of each vertex in my order. */
+    private int[] _position;
+    /** Vertex at each position, or 0 for positions no longer in use. */
+    private int[] _vertexAt;
+    /** Number of positions used. */
+    private int _end;
+    /** Marks of the vertices reached by the current reordering. */
+    private int[] _mark;
+    /** The predecessors of vertex v are _preds[v][0 .. _predCount[v]-1]
+     *  (_preds[v] is null if v has never had any). */
+    private int[][] _preds;
+    private int[] _predCount;
+    /** Vertex from which each vertex was reached in the current forward
+     *  search. */
+    private int[] _parent;
+    /** Mark value of the current reordering's forward search; that of
+     *  its backward search is one more. */
+    private int _generation;
+    /** The cycle that the last refused edge would have created. */
+    private final List<Integer> _cycle = new ArrayList<>();
+    /** Cursor reused to iterate over successors and predecessors. */
+    private final IntIteration _cursor = new IntIteration();
+}
@@ -41,6 +41,19 @@ public abstract class Traversal {
      * Stores post visited nodes.
      */
     private LinkedList<Integer> _postVisited;
+    /**
+     * Cursor reused to iterate over successors.
+     */
+    private final IntIteration _cursor = new IntIteration();
+    /**
+     * Where to record traversal statistics, if anywhere.
+     */
+    private SearchStats _stats;
+    /**
+     * Numbers of edges examined and of vertices added to the fringe in the
+     * current traversal.
+     */
+    private long _relaxed, _enqueued;
 
 
 
@@ -61,14 +74,23 @@ public abstract class Traversal {
     /** Initialize the fringe to V0 and perform a traversal. */
     public void traverse(Collection<Integer> V0) {
 
+        SearchEvent event = new SearchEvent();
+        event.begin();
+        long start = _stats == null ? 0 : System.nanoTime();
+        long removed = 0, visited = 0;
+        _relaxed = 0;
+        _enqueued = V0.size();
         _fringe.clear();
         _fringe.addAll(V0);
         while (!_fringe.isEmpty()) {
             Integer node = _fringe.remove();
+            removed++;
             if (!marked(node)) {
+                visited++;
                 mark(node);
                 visit(node);
                 _fringe.add(node);
+                _enqueued++;
                 processSuccessors(node);
             } else {
                 if (shouldPostVisit(node) && !_postVisited.contains(node)) {
@@ -77,6 +99,25 @@ public abstract class Traversal {
                 }
             }
         }
+        if (_stats != null) {
+            _stats.record(visited, _relaxed, _enqueued + removed, 0,
+                          System.nanoTime() - start);
+        }
+        event.commit("Traversal", V0.size() == 1 ? V0.iterator().next() : 0,
+                     0, visited, _relaxed, _enqueued + removed, 0);
+    }
+
+    /** Accumulate the counts of each subsequent traversal in STATS, or
+     *  stop accumulating them if STATS is null.  Edges examined and fringe
+     *  insertions are those passed to relax, as by the default
+     *  processSuccessors method. */
+    public void setStats(SearchStats stats) {
+        _stats = stats;
+    }
+
+    /** Returns the statistics set by setStats, or null if none. */
+    public SearchStats getStats() {
+        return _stats;
     }
 
     /** Initialize the fringe to { V0 } and perform a traversal. */
@@ -116,13 +157,24 @@ public abstract class Traversal {
 
 
     /** Process the successors of vertex U.  Assumes U has been visited.  This
-     *  default implementation simply processes each successor using
-     *  processSuccessor. */
+     *  default implementation simply relaxes each edge from U in turn.
+     *  Overridings should process edges with relax, so that they are
+     *  counted. */
     protected void processSuccessors(int u) {
-        for (int v : _G.successors(u)) {
-            if (processSuccessor(u, v)) {
-                _fringe.add(v);
-            }
+        IntIteration successors = _G.successors(u, _cursor);
+        while (successors.hasNext()) {
+            relax(u, successors.nextInt());
+        }
+    }
+
+    /** Examine the edge from U to its successor V: add V to the fringe if
+     *  processSuccessor(U, V) says to, counting the edge and any insertion
+     *  in my statistics. */
+    protected final void relax(int u, int v) {
+        _relaxed++;
+        if (processSuccessor(u, v)) {
+            _fringe.add(v);
+            _enqueued++;
         }
     }
 
@@ -36,4 +36,9 @@ public class UndirectedGraph extends GraphObj {
     public Iteration<Integer> predecessors(int v) {
         return super.successors(v);
     }
+
+    @Override
+    public IntIteration predecessors(int v, IntIteration cursor) {
+        return super.successors(v, cursor);
+    }
 }
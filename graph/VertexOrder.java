@@ -0,0 +1,446 @@
+package graph;
+
+/* See restrictions in Graph.java. */
+
+import java.util.Arrays;
+import java.util.function.IntToDoubleFunction;
+
+/** A renumbering of the vertices of a graph as 1 .. n, chosen so that
+ *  vertices that are near each other in the graph get nearby numbers.
+ *  Arrays indexed by vertex (path weights, predecessors, adjacency lists)
+ *  are then read at nearby positions as a search moves through the
+ *  graph, rather than at scattered ones.  An order is computed from a
+ *  graph by one of the static methods, applied to build a renumbered
+ *  copy of that graph (with its labels), and kept to translate vertex
+ *  numbers between the two.
+ *  @author Warner Tsang
+ */
+public final class VertexOrder {
+
+    /** Returns the order in which a breadth-first search visits the
+     *  vertices of G, starting at its smallest vertex and again at the
+     *  smallest unvisited vertex until all are visited.  Edges are
+     *  followed in both directions. */
+    public static VertexOrder breadthFirst(Graph G) {
+        Search search = new Search(G);
+        for (int v : search.vertices()) {
+            if (!search.placed(v)) {
+                search.visit(v, false);
+            }
+        }
+        return search.result(false);
+    }
+
+    /** Returns the Reverse Cuthill-McKee order of G, which tends to
+     *  minimize the bandwidth of G's adjacency matrix: the largest
+     *  difference between the numbers of adjacent vertices.  Each
+     *  connected component is searched breadth-first from a
+     *  pseudo-peripheral vertex (one at nearly the greatest distance from
+     *  some other), visiting the neighbors of each vertex in order of
+     *  increasing degree, and the resulting order is reversed.  Edges are
+     *  followed in both directions. */
+    public static VertexOrder reverseCuthillMcKee(Graph G) {
+        Search search = new Search(G);
+        int[] byDegree = search.vertices().clone();
+        search.sortByDegree(byDegree, byDegree.length);
+        for (int v : byDegree) {
+            if (!search.placed(v)) {
+                search.visit(search.peripheral(v), true);
+            }
+        }
+        return search.result(true);
+    }
+
+    /** Returns the order of the vertices of G along a Hilbert curve
+     *  filling the bounding box of their positions, where vertex v is at
+     *  (X(v), Y(v)).  Vertices that are close in the plane are usually
+     *  close in this order, which suits graphs such as road maps whose
+     *  edges join nearby vertices.  The positions must be finite. */
+    public static VertexOrder hilbert(Graph G, IntToDoubleFunction x,
+                                      IntToDoubleFunction y) {
+        int[] vertices = vertices(G);
+        double x0, y0, x1, y1;
+        x0 = y0 = Double.POSITIVE_INFINITY;
+        x1 = y1 = Double.NEGATIVE_INFINITY;
+        for (int v : vertices) {
+            x0 = Math.min(x0, x.applyAsDouble(v));
+            x1 = Math.max(x1, x.applyAsDouble(v));
+            y0 = Math.min(y0, y.applyAsDouble(v));
+            y1 = Math.max(y1, y.applyAsDouble(v));
+        }
+        double scale = HILBERT_SIDE - 1;
+        double span = Math.max(x1 - x0, y1 - y0);
+        if (span > 0) {
+            scale /= span;
+        }
+        long[] keys = new long[vertices.length];
+        for (int k = 0; k < vertices.length; k += 1) {
+            int v = vertices[k];
+            int cx = (int) ((x.applyAsDouble(v) - x0) * scale),
+                cy = (int) ((y.applyAsDouble(v) - y0) * scale);
+            keys[k] = hilbertIndex(cx, cy) << Integer.SIZE | v;
+        }
+        Arrays.sort(keys);
+        int[] oldIds = new int[vertices.length + 1];
+        for (int k = 0; k < keys.length; k += 1) {
+            oldIds[k + 1] = (int) keys[k];
+        }
+        return new VertexOrder(oldIds, maxVertex(G));
+    }
+
+    /** Returns the number of vertices I renumber. */
+    public int size() {
+        return _oldIds.length - 1;
+    }
+
+    /** Returns the new number of vertex V of the original graph, or 0 if
+     *  V was not one of its vertices. */
+    public int newId(int v) {
+        return v >= 0 && v < _newIds.length ? _newIds[v] : 0;
+    }
+
+    /** Returns the original number of vertex V of the renumbered graph,
+     *  which must be between 1 and size(). */
+    public int oldId(int v) {
+        return _oldIds[v];
+    }
+
+    /** Add the vertices and edges of G, renumbered by me, to RESULT,
+     *  which must be empty, directed iff G is, and number its new
+     *  vertices 1, 2, ... in order.  Returns RESULT.  The successors of
+     *  each vertex are added in increasing order.  G must be the graph
+     *  from which I was computed. */
+    public Graph apply(Graph G, Graph result) {
+        int[] edges = start(G, result);
+        for (int k = 1; k <= size(); k += 1) {
+            checkAdded(result.add(), k);
+        }
+        for (int k = 0; k < edges.length; k += 2) {
+            result.add(edges[k], edges[k + 1]);
+        }
+        return result;
+    }
+
+    /** Add the vertices and edges of G, renumbered by me, to RESULT,
+     *  together with their labels, as for apply(Graph, Graph).  Returns
+     *  RESULT.  The labels themselves are shared, not copied. */
+    public <VL, EL> LabeledGraph<VL, EL> apply(LabeledGraph<VL, EL> G,
+                                               LabeledGraph<VL, EL> result) {
+        int[] edges = start(G, result);
+        for (int k = 1; k <= size(); k += 1) {
+            checkAdded(result.add(G.getLabel(_oldIds[k])), k);
+        }
+        for (int k = 0; k < edges.length; k += 2) {
+            int u = edges[k], v = edges[k + 1];
+            result.add(u, v, G.getLabel(_oldIds[u], _oldIds[v]));
+        }
+        return result;
+    }
+
+    /** An order in which vertex OLDIDS[k] of a graph whose largest vertex
+     *  is MAXVERTEX becomes vertex k, for k >= 1. */
+    private VertexOrder(int[] oldIds, int maxVertex) {
+        _oldIds = oldIds;
+        _newIds = new int[maxVertex + 1];
+        for (int k = 1; k < oldIds.length; k += 1) {
+            _newIds[oldIds[k]] = k;
+        }
+    }
+
+    /** Check that RESULT may receive the renumbering of G, and return the
+     *  edges of G, renumbered, as consecutive pairs (u, v) sorted by u and
+     *  then v.  An undirected edge appears once, with u <= v. */
+    private int[] start(Graph G, Graph result) {
+        if (G.vertexSize() != size()) {
+            throw new IllegalArgumentException("order is for another graph");
+        }
+        if (result.vertexSize() != 0) {
+            throw new IllegalArgumentException("result graph is not empty");
+        }
+        if (result.isDirected() != G.isDirected()) {
+            throw new IllegalArgumentException("result graph is "
+                                               + (G.isDirected() ? "un" : "")
+                                               + "directed");
+        }
+        boolean directed = G.isDirected();
+        int[] edges = new int[2 * G.edgeSize()];
+        int[] targets = new int[INITIAL_SIZE];
+        IntIteration cursor = new IntIteration();
+        int n;
+        n = 0;
+        for (int u = 1; u <= size(); u += 1) {
+            IntIteration succ = G.successors(_oldIds[u], cursor);
+            int d;
+            d = 0;
+            while (succ.hasNext()) {
+                int v = newId(succ.nextInt());
+                if (directed || u <= v) {
+                    if (d == targets.length) {
+                        targets = Arrays.copyOf(targets, 2 * d);
+                    }
+                    targets[d] = v;
+                    d += 1;
+                }
+            }
+            Arrays.sort(targets, 0, d);
+            if (n + 2 * d > edges.length) {
+                edges = Arrays.copyOf(edges, Math.max(n + 2 * d,
+                                                      2 * edges.length));
+            }
+            for (int i = 0; i < d; i += 1) {
+                edges[n] = u;
+                edges[n + 1] = targets[i];
+                n += 2;
+            }
+        }
+        return n == edges.length ? edges : Arrays.copyOf(edges, n);
+    }
+
+    /** Check that the vertex added to a result graph as its Kth was
+     *  numbered V. */
+    private static void checkAdded(int v, int k) {
+        if (v != k) {
+            throw new IllegalArgumentException("result graph numbers new "
+                                               + "vertices out of order");
+        }
+    }
+
+    /** Returns the vertices of G in increasing order. */
+    private static int[] vertices(Graph G) {
+        int[] result = new int[G.vertexSize()];
+        int n;
+        n = 0;
+        for (int v : G.vertices()) {
+            result[n] = v;
+            n += 1;
+        }
+        Arrays.sort(result);
+        return result;
+    }
+
+    /** Returns the largest vertex of G, or 0 if it is empty. */
+    private static int maxVertex(Graph G) {
+        return G.vertexSize() == 0 ? 0 : G.maxVertex();
+    }
+
+    /** Returns the distance along the Hilbert curve through the
+     *  HILBERT_SIDE x HILBERT_SIDE grid of the point (X, Y) of that
+     *  grid. */
+    static long hilbertIndex(int x, int y) {
+        long d;
+        d = 0;
+        for (int s = HILBERT_SIDE / 2; s > 0; s /= 2) {
+            int rx = (x & s) != 0 ? 1 : 0,
+                ry = (y & s) != 0 ? 1 : 0;
+            d += (long) s * s * ((3 * rx) ^ ry);
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = HILBERT_SIDE - 1 - x;
+                    y = HILBERT_SIDE - 1 - y;
+                }
+                int t = x;
+                x = y;
+                y = t;
+            }
+        }
+        return d;
+    }
+
+    /** The state of a breadth-first numbering of the vertices of a
+     *  graph, in which edges are followed in both directions. */
+    private static final class Search {
+
+        /** A numbering of the vertices of G, initially empty. */
+        Search(Graph G) {
+            _G = G.snapshot();
+            _vertices = VertexOrder.vertices(_G);
+            int n = maxVertex(_G);
+            _placed = new boolean[n + 1];
+            _seen = new int[n + 1];
+            _queue = new int[_vertices.length];
+            _order = new int[_vertices.length + 1];
+            _degree = new int[n + 1];
+            for (int v : _vertices) {
+                _degree[v] = _G.outDegree(v)
+                    + (_G.isDirected() ? _G.inDegree(v) : 0);
+            }
+        }
+
+        /** Returns the vertices of my graph in increasing order. */
+        int[] vertices() {
+            return _vertices;
+        }
+
+        /** Returns true iff V has been numbered. */
+        boolean placed(int v) {
+            return _placed[v];
+        }
+
+        /** Number all unnumbered vertices reachable from ROOT in
+         *  breadth-first order, visiting the neighbors of each vertex in
+         *  order of increasing degree if BYDEGREE, and otherwise in the
+         *  order the graph gives them. */
+        void visit(int root, boolean byDegree) {
+            int head = _size + 1;
+            place(root);
+            while (head <= _size) {
+                int d = neighbors(_order[head]);
+                head += 1;
+                if (byDegree) {
+                    sortByDegree(_neighbors, d);
+                }
+                for (int i = 0; i < d; i += 1) {
+                    if (!_placed[_neighbors[i]]) {
+                        place(_neighbors[i]);
+                    }
+                }
+            }
+        }
+
+        /** Returns a pseudo-peripheral vertex of the unnumbered vertices
+         *  connected to START, found by the method of George and Liu:
+         *  repeatedly search breadth-first from the current candidate and
+         *  move to a vertex of least degree among those farthest from it,
+         *  until the greatest distance stops growing. */
+        int peripheral(int start) {
+            int root = start;
+            int eccentricity = -1;
+            while (true) {
+                _stamp += 1;
+                _seen[root] = _stamp;
+                _queue[0] = root;
+                int head, tail, levelStart, level;
+                head = levelStart = level = 0;
+                tail = 1;
+                while (true) {
+                    int levelEnd = tail;
+                    for (; head < levelEnd; head += 1) {
+                        int d = neighbors(_queue[head]);
+                        for (int i = 0; i < d; i += 1) {
+                            int w = _neighbors[i];
+                            if (!_placed[w] && _seen[w] != _stamp) {
+                                _seen[w] = _stamp;
+                                _queue[tail] = w;
+                                tail += 1;
+                            }
+                        }
+                    }
+                    if (tail == levelEnd) {
+                        break;
+                    }
+                    levelStart = levelEnd;
+                    level += 1;
+                }
+                if (level <= eccentricity) {
+                    return root;
+                }
+                eccentricity = level;
+                int next = _queue[levelStart];
+                for (int k = levelStart + 1; k < tail; k += 1) {
+                    if (_degree[_queue[k]] < _degree[next]) {
+                        next = _queue[k];
+                    }
+                }
+                if (next == root) {
+                    return root;
+                }
+                root = next;
+            }
+        }
+
+        /** Sort the first N elements of VERTICES by increasing degree,
+         *  and then by increasing number. */
+        void sortByDegree(int[] vertices, int n) {
+            if (_keys.length < n) {
+                _keys = new long[Math.max(n, 2 * _keys.length)];
+            }
+            for (int i = 0; i < n; i += 1) {
+                _keys[i] = (long) _degree[vertices[i]] << Integer.SIZE
+                    | vertices[i];
+            }
+            Arrays.sort(_keys, 0, n);
+            for (int i = 0; i < n; i += 1) {
+                vertices[i] = (int) _keys[i];
+            }
+        }
+
+        /** Returns the order of the numbering, reversed if REVERSE. */
+        VertexOrder result(boolean reverse) {
+            if (reverse) {
+                for (int i = 1, j = _size; i < j; i += 1, j -= 1) {
+                    int t = _order[i];
+                    _order[i] = _order[j];
+                    _order[j] = t;
+                }
+            }
+            return new VertexOrder(_order, _placed.length - 1);
+        }
+
+        /** Give V the next number. */
+        private void place(int v) {
+            _placed[v] = true;
+            _size += 1;
+            _order[_size] = v;
+        }
+
+        /** Fill the start of _neighbors with the successors and (if my
+         *  graph is directed) predecessors of V, and return their
+         *  number. */
+        private int neighbors(int v) {
+            int n;
+            n = 0;
+            IntIteration adj = _G.successors(v, _cursor);
+            for (int pass = 0; pass < 2; pass += 1) {
+                while (adj.hasNext()) {
+                    if (n == _neighbors.length) {
+                        _neighbors = Arrays.copyOf(_neighbors, 2 * n);
+                    }
+                    _neighbors[n] = adj.nextInt();
+                    n += 1;
+                }
+                if (!_G.isDirected()) {
+                    break;
+                }
+                adj = _G.predecessors(v, _cursor);
+            }
+            return n;
+        }
+
+        /** The graph being numbered. */
+        private final Graph _G;
+        /** Its vertices, in increasing order. */
+        private final int[] _vertices;
+        /** The number of neighbors of each vertex. */
+        private final int[] _degree;
+        /** Whether each vertex has been numbered. */
+        private final boolean[] _placed;
+        /** The vertices numbered so far, from index 1, and their
+         *  number. */
+        private final int[] _order;
+        private int _size;
+        /** Queue of a search by peripheral, and the marks of the vertices
+         *  it has reached: those equal to _stamp. */
+        private final int[] _queue;
+        private final int[] _seen;
+        private int _stamp;
+        /** Neighbors of the vertex last given to neighbors. */
+        private int[] _neighbors = new int[INITIAL_SIZE];
+        /** Sort keys for sortByDegree. */
+        private long[] _keys = new long[INITIAL_SIZE];
+        /** Cursor reused to iterate over neighbors. */
+        private final IntIteration _cursor = new IntIteration();
+    }
+
+    /** Number of grid points along each side of the square filled by the
+     *  Hilbert curve used by hilbert.  Vertices closer together than
+     *  1 / HILBERT_SIDE of the span of their positions may be ordered
+     *  arbitrarily. */
+    private static final int HILBERT_SIDE = 1 << 15;
+    /** Initial size of scratch arrays. */
+    private static final int INITIAL_SIZE = 16;
+
+    /** For each new vertex number k, the original number of vertex k. */
+    private final int[] _oldIds;
+    /** For each original vertex number, its new number, or 0 if none. */
+    private final int[] _newIds;
+}
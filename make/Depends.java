@@ -1,15 +1,64 @@
 package make;
 
+import graph.DirectedGraph;
 import graph.LabeledGraph;
+import graph.TopologicalOrder;
+
+import java.util.Collections;
+import java.util.List;
+
+import static make.Main.error;
 
 /** A directed, labeled subtype of Graph that describes dependencies between
  *  targets in a Makefile. The nodes correspond to Rules and edges out
- *  of rules are numbered to indicate the ordering of dependencies.
+ *  of rules are numbered to indicate the ordering of dependencies.  The
+ *  graph is kept in topological order as dependencies are added, so that
+ *  a circular dependency is reported as soon as it is read, and targets
+ *  can be built in that order without searching for one.
  *  @author Warner Tsang
  */
 class Depends extends LabeledGraph<Rule, Integer> {
     /** An empty dependency graph. */
     Depends() {
-        super(new graph.DirectedGraph());
+        this(new TopologicalOrder(new DirectedGraph()));
     }
+
+    /** An empty dependency graph kept in ORDER. */
+    private Depends(TopologicalOrder order) {
+        super(order);
+        _order = order;
+    }
+
+    /** Add the dependency of U on V, as for Graph.add.  Reports an error
+     *  listing the targets on the cycle if the dependency would create
+     *  one. */
+    @Override
+    public int add(int u, int v) {
+        try {
+            return super.add(u, v);
+        } catch (IllegalArgumentException excp) {
+            List<Integer> cycle = _order.cycle();
+            if (cycle.isEmpty()) {
+                throw excp;
+            }
+            int first = cycle.indexOf(Collections.min(cycle));
+            StringBuilder names = new StringBuilder();
+            for (int i = 0; i < cycle.size(); i += 1) {
+                int w = cycle.get((first + i) % cycle.size());
+                names.append(getLabel(w).getTarget()).append(" -> ");
+            }
+            names.append(getLabel(cycle.get(first)).getTarget());
+            error("Circular dependency: %s", names);
+            return 0;
+        }
+    }
+
+    /** Returns the position of vertex V in my topological order: every
+     *  target comes before all of its prerequisites. */
+    int position(int v) {
+        return _order.position(v);
+    }
+
+    /** The topological order of my vertices. */
+    private final TopologicalOrder _order;
 }
@@ -1,7 +1,9 @@
 package make;
 
 import java.util.ArrayList;
-import ucb.util.CommandArgs;
+
+import graph.SearchStats;
+import util.CommandArgs;
 
 /** Initial class for the 'make' program.
  *  @author P. N. Hilfinger
@@ -10,13 +12,15 @@ public final class Main {
 
     /** Entry point for the CS61B make program.  RAWARGS may contain options
      *  and targets:
-     *      [ -f MAKEFILE ] [ -D FILEINFO ] TARGET1 TARGET2 ...
+     *      [ -f MAKEFILE ] [ -D FILEINFO ] [ --stats ] TARGET1 TARGET2 ...
+     *  With --stats, a summary of the effort spent traversing the
+     *  dependency graph is printed on the standard error.
      */
     public static void main(String... rawArgs) {
         String makefileName;
         String fileInfoName;
-        CommandArgs args = new CommandArgs("-f={0,1} -D={0,1} --={1,}",
-                                           rawArgs);
+        CommandArgs args =
+            new CommandArgs("-f={0,1} -D={0,1} --stats --={1,}", rawArgs);
 
         if (!args.ok()) {
             usage();
@@ -28,6 +32,8 @@ public final class Main {
         ArrayList<String> targets = new ArrayList<String>();
 
         Maker maker = new Maker();
+        SearchStats stats = args.contains("--stats") ? new SearchStats() : null;
+        maker.setStats(stats);
 
         try {
             maker.readFileAges(fileInfoName);
@@ -35,6 +41,9 @@ public final class Main {
             for (String target : args.get("--")) {
                 maker.build(target);
             }
+            if (stats != null) {
+                System.err.printf("make: %s%n", stats);
+            }
         } catch (IllegalArgumentException | IllegalStateException excp) {
             System.err.printf("make: %s%n", excp.getMessage());
             System.exit(1);
@@ -50,13 +59,15 @@ public final class Main {
     /** Print a brief usage message and exit program abnormally. */
     private static void usage() {
         System.err.printf("Usage: java make [-D FILEINFO] [-f MAKEFILE] "
-                          + "TARGET...%n"
+                          + "[--stats] TARGET...%n"
                           + "   FILEINFO contains the current time and change "
                           + "times for files%n"
                           + "      (default 'fileinfo').%n"
                           + "   MAKEFILE contains dependency information and "
                           + "build commands%n"
-                          + "      (default Makefile).%n");
+                          + "      (default Makefile).%n"
+                          + "   --stats prints search statistics on the "
+                          + "standard error.%n");
         System.exit(1);
     }
 
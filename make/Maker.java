@@ -1,6 +1,7 @@
 package make;
 
-import graph.DepthFirstTraversal;
+import graph.BreadthFirstTraversal;
+import graph.SearchStats;
 
 import java.io.FileNotFoundException;
 import java.io.FileReader;
@@ -141,16 +142,36 @@ class Maker {
         }
     }
 
-    /** Issue instructions to build TARGET. */
+    /** Issue instructions to build TARGET.  Its prerequisites that are
+     *  not yet up to date are collected, and then rebuilt, with TARGET
+     *  last, in the reverse of the topological order kept by my
+     *  dependence graph, so that each is rebuilt after all of its own
+     *  prerequisites.  Of two targets neither of which depends on the
+     *  other, the one later in that order is rebuilt first: unless
+     *  dependencies added afterwards reordered them, that is the one
+     *  first mentioned later in the makefile. */
     void build(String target) {
         Rule targetRule = addRule(target, Collections.<String>emptyList(),
                 Collections.<String>emptyList());
-        int v = targetRule.getVertex();
         if (_traversal == null) {
             _traversal = new MakeTraversal();
-            _traversal.traverse(v);
-        } else {
-            _traversal.traverse(v);
+            _traversal.setStats(_stats);
+        }
+        _pending.clear();
+        _traversal.traverse(targetRule.getVertex());
+        _pending.sort((v, w) -> Integer.compare(_depends.position(w),
+                                                _depends.position(v)));
+        for (int v : _pending) {
+            _depends.getLabel(v).rebuild();
+        }
+    }
+
+    /** Record statistics about the dependency traversals of subsequent
+     *  builds in STATS (if non-null). */
+    void setStats(SearchStats stats) {
+        _stats = stats;
+        if (_traversal != null) {
+            _traversal.setStats(stats);
         }
     }
 
@@ -179,46 +200,33 @@ class Maker {
     private HashMap<String, Integer> _ages = new HashMap<>();
     /** Mapping of target names to their Rules. */
     private HashMap<String, Rule> _targets = new HashMap<>();
-    /** Depth-first traversal of my vertices. */
+    /** Traversal collecting the targets to be rebuilt. */
     private MakeTraversal _traversal;
-
-    /** Traversal for make dependency graph. */
-    class MakeTraversal extends DepthFirstTraversal {
+    /** The vertices of the targets to be rebuilt by the current build. */
+    private final ArrayList<Integer> _pending = new ArrayList<>();
+    /** Where to record traversal statistics, if anywhere. */
+    private SearchStats _stats;
+
+    /** Traversal for make dependency graph, adding the targets it
+     *  reaches that are not yet up to date to _pending.  Vertices marked
+     *  by earlier builds are not visited again. */
+    class MakeTraversal extends BreadthFirstTraversal {
         /** A traversal of my dependency graph. */
         MakeTraversal() {
             super(_depends);
         }
 
         @Override
-        protected boolean postVisit(int v0) {
-            _depends.getLabel(v0).rebuild();
-            return true;
-        }
-
-        @Override
-        protected boolean shouldPostVisit(int v) {
+        protected boolean visit(int v) {
+            if (_depends.getLabel(v).isUnfinished()) {
+                _pending.add(v);
+            }
             return true;
         }
 
         @Override
-        protected void processSuccessors(int v) {
-            boolean degreeCheck;
-            if (_depends.outDegree(v) == 0) {
-                return;
-            } else {
-                degreeCheck = true;
-            }
-            int degreeOut = _depends.outDegree(v);
-            while (degreeCheck) {
-                int child = _depends.getSuccessor(v, degreeOut - 1);
-                if (processSuccessor(v, child)) {
-                    _fringe.add(child);
-                }
-                degreeOut--;
-                if (degreeOut == 0) {
-                    degreeCheck = false;
-                }
-            }
+        protected boolean processSuccessor(int u, int v) {
+            return _depends.getLabel(v).isUnfinished() && !marked(v);
         }
     }
 }
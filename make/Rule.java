@@ -20,10 +20,13 @@ class Rule {
         _finished = false;
     }
 
-    /** Add the target of DEPENDENT to my dependencies. */
+    /** Add the target of DEPENDENT to my dependencies, unless it is
+     *  already one of them. */
     void addDependency(Rule dependent) {
-        _depends.add(getVertex(), dependent.getVertex(),
-                _depends.degree(getVertex()));
+        if (!_depends.contains(getVertex(), dependent.getVertex())) {
+            _depends.add(getVertex(), dependent.getVertex(),
+                    _depends.degree(getVertex()));
+        }
     }
 
     /** Add COMMANDS to my command set.  Signals IllegalStateException if
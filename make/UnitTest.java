@@ -5,8 +5,17 @@ package make;
  * may not be part of your make package per se (that is, it must be
  * possible to remove them and still have your package work). */
 
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+
+import graph.SearchStats;
+
 import org.junit.Test;
-import ucb.junit.textui;
+import org.junit.internal.TextListener;
+import org.junit.runner.JUnitCore;
 import static org.junit.Assert.*;
 
 /** Unit tests for the make package. */
@@ -14,11 +23,95 @@ public class UnitTest {
 
     /** Run all JUnit tests in the make package. */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(make.UnitTest.class));
+        JUnitCore junit = new JUnitCore();
+        junit.addListener(new TextListener(System.out));
+        System.exit(junit.run(make.UnitTest.class).wasSuccessful() ? 0 : 1);
     }
 
     @Test
     public void dummyTest() {
     }
 
+    /** Returns a Maker whose rules are read from a temporary file
+     *  containing LINES. */
+    private static Maker makerFor(String... lines) throws IOException {
+        File file = File.createTempFile("make", ".mk");
+        try {
+            try (PrintWriter out = new PrintWriter(file)) {
+                for (String line : lines) {
+                    out.println(line);
+                }
+            }
+            Maker maker = new Maker();
+            maker.readMakefile(file.getPath());
+            return maker;
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testCycle() throws IOException {
+        try {
+            makerFor("all: a", "a: b c", "c: d", "d: a", "b:", "\techo b");
+            fail("cycle not detected");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("Circular dependency: a -> c -> d -> a",
+                         excp.getMessage());
+        }
+    }
+
+    @Test
+    public void testRepeatedPrerequisite() throws IOException {
+        Maker maker = makerFor("a: b b", "\techo a", "b:", "\techo b");
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true));
+        try {
+            maker.build("a");
+        } finally {
+            System.setOut(stdout);
+        }
+        assertEquals(String.format("\techo b%n\techo a%n"), out.toString());
+    }
+
+    @Test
+    public void testStats() throws IOException {
+        Maker maker = makerFor("all: a b", "\techo all", "a: b", "\techo a",
+                               "b:", "\techo b");
+        SearchStats stats = new SearchStats();
+        maker.setStats(stats);
+        PrintStream stdout = System.out;
+        System.setOut(new PrintStream(new ByteArrayOutputStream(), true));
+        try {
+            maker.build("all");
+        } finally {
+            System.setOut(stdout);
+        }
+        assertEquals(1, stats.searches());
+        assertEquals(3, stats.settled());
+        assertEquals(3, stats.relaxed());
+        assertEquals(2 * (1 + 3 + 3), stats.queueOperations());
+    }
+
+    @Test
+    public void testBuildOrder() throws IOException {
+        Maker maker = makerFor("all: x y", "\techo all", "x: z", "\techo x",
+                               "y: z", "\techo y", "z:", "\techo z",
+                               "w: y", "\techo w");
+        PrintStream stdout = System.out;
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(out, true));
+        try {
+            maker.build("all");
+            maker.build("w");
+            maker.build("x");
+        } finally {
+            System.setOut(stdout);
+        }
+        assertEquals(String.format("\techo z%n\techo y%n\techo x%n"
+                                   + "\techo all%n\techo w%n"),
+                     out.toString());
+    }
+
 }
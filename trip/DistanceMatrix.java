@@ -0,0 +1,112 @@
+package trip;
+
+import graph.LabeledGraph;
+import graph.PathStorage;
+import graph.SearchStats;
+import graph.SimpleShortestPaths;
+import graph.StampedPathStorage;
+
+import java.util.Arrays;
+import java.util.Queue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/** The shortest road distances from each of a list of source locations to
+ *  each of a list of target locations.  One search is run from each
+ *  source, stopping once all targets have been settled, and the searches
+ *  for different sources run in parallel on the map itself, which must
+ *  not be changed meanwhile.  Each search borrows its storage from a
+ *  shared pool and returns it when done.
+ *  @author Warner Tsang
+ */
+class DistanceMatrix {
+
+    /** A matrix of distances in MAP from the vertices SOURCES to the
+     *  vertices TARGETS, recording search statistics in STATS if it is
+     *  non-null, and borrowing search storage from STORAGES (to which
+     *  new storage is added as needed). */
+    DistanceMatrix(LabeledGraph<Location, Road> map, int[] sources,
+                   int[] targets, SearchStats stats,
+                   Queue<PathStorage> storages) {
+        _map = map;
+        _sources = sources.clone();
+        _targets = targets.clone();
+        _stats = stats;
+        _storages = storages;
+    }
+
+    /** Compute all distances, using the threads of POOL, and return them
+     *  as a flat array in which the distance from SOURCES[i] to
+     *  TARGETS[j] is at index i * TARGETS.length + j.  Unreachable
+     *  targets have distance positive infinity. */
+    double[] compute(ForkJoinPool pool) {
+        double[] result = new double[_sources.length * _targets.length];
+        Arrays.fill(result, Double.POSITIVE_INFINITY);
+        pool.invoke(new Rows(result, 0, _sources.length));
+        return result;
+    }
+
+    /** Computes a range of rows of the matrix. */
+    private class Rows extends RecursiveAction {
+
+        /** Compute rows FIRST to LAST - 1 of RESULT. */
+        Rows(double[] result, int first, int last) {
+            _result = result;
+            _first = first;
+            _last = last;
+        }
+
+        @Override
+        protected void compute() {
+            if (_last - _first > 1) {
+                int mid = (_first + _last) >>> 1;
+                invokeAll(new Rows(_result, _first, mid),
+                          new Rows(_result, mid, _last));
+                return;
+            }
+            PathStorage storage = _storages.poll();
+            if (storage == null) {
+                storage = new StampedPathStorage();
+            }
+            try {
+                for (int i = _first; i < _last; i += 1) {
+                    row(i, storage);
+                }
+            } finally {
+                _storages.offer(storage);
+            }
+        }
+
+        /** Fill row I of the matrix from a search using STORAGE. */
+        private void row(int i, PathStorage storage) {
+            SimpleShortestPaths paths =
+                new SimpleShortestPaths(_map, _sources[i], 0, storage) {
+                    @Override
+                    protected double getWeight(int u, int v) {
+                        return _map.getLabel(u, v).length();
+                    }
+                };
+            paths.setTargets(_targets);
+            paths.setStats(_stats);
+            paths.setPaths();
+            int row = i * _targets.length;
+            for (int j = 0; j < _targets.length; j += 1) {
+                _result[row + j] = paths.getWeight(_targets[j]);
+            }
+        }
+
+        /** The matrix being filled. */
+        private final double[] _result;
+        /** The range of rows to compute. */
+        private final int _first, _last;
+    }
+
+    /** The map. */
+    private final LabeledGraph<Location, Road> _map;
+    /** The source and target vertices. */
+    private final int[] _sources, _targets;
+    /** Where to record search statistics, if anywhere. */
+    private final SearchStats _stats;
+    /** Search storage not currently in use. */
+    private final Queue<PathStorage> _storages;
+}
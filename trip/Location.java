@@ -1,5 +1,11 @@
 package trip;
 
+import graph.LabelCodec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import static java.lang.Math.sqrt;
 
 /** Represents a location on a map.
@@ -26,6 +32,16 @@ class Location {
         return x.dist(y);
     }
 
+    /** Returns my x coordinate. */
+    double x() {
+        return _x;
+    }
+
+    /** Returns my y coordinate. */
+    double y() {
+        return _y;
+    }
+
     @Override
     public String toString() {
         return _name;
@@ -41,6 +57,23 @@ class Location {
         _dist = w;
     }
 
+    /** Encodes Locations as their names and coordinates, for saving maps
+     *  (the estimated distance is not saved). */
+    static final LabelCodec<Location> CODEC = new LabelCodec<>() {
+        @Override
+        public void write(Location loc, DataOutput out) throws IOException {
+            LabelCodec.writeString(loc._name, out);
+            out.writeDouble(loc._x);
+            out.writeDouble(loc._y);
+        }
+
+        @Override
+        public Location read(ByteBuffer in) {
+            return new Location(LabelCodec.readString(in), in.getDouble(),
+                                in.getDouble());
+        }
+    };
+
     /** The identifying name of this location. */
     private String _name;
     /** Coordinates of this location. */
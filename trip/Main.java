@@ -1,13 +1,21 @@
 package trip;
 
-import java.io.FileOutputStream;
-import java.io.PrintStream;
-import java.io.FileNotFoundException;
+import java.io.BufferedReader;
+import java.io.FileReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
 
 import java.util.regex.Pattern;
 import java.util.List;
+import java.util.concurrent.ForkJoinPool;
 
-import ucb.util.CommandArgs;
+import graph.SearchStats;
+import util.CommandArgs;
 
 /** Initial class for the 'trip' program.
  *  @author P. N. Hilfinger
@@ -17,21 +25,56 @@ public final class Main {
     /** Describes separator in a comma-separated list. */
     static final Pattern LISTSEP = Pattern.compile("\\s*,\\s*");
 
+    /** Size of the buffer through which reports are written. */
+    static final int OUTPUT_BUFFER_SIZE = 1 << 16;
+
     /** Entry point for the CS61B trip program.  RAWARGS may contain options
      *  and targets:
-     *      [ -m MAP ] [ -o OUT ] [ REQUEST ]
-     *  where MAP (default Map) contains the map data, OUT (default standard
-     *  output) takes the result, and REQUEST (default standard input) contains
-     *  the locations along the requested trip.
+     *      [ -m MAP ] [ -o OUT ] [ -f FORMAT ] [ --order ORDER ]
+     *      [ --save SAVED ] [ --contract ] [ --stats ] [ --optimize ]
+     *      [ --xy ] [ --serve PORT ] [ --batch REQUESTS ] [ REQUEST ]
+     *  where MAP (default Map) contains the map data, either as text or as
+     *  saved by --save, OUT (default standard output) takes the result, and
+     *  REQUEST (default standard input) contains the locations along the
+     *  requested trip.  FORMAT (default text) is the form of the result:
+     *  text, as in the project specification, json, or binary, as
+     *  described in ReportFormat.  With --order, the locations are
+     *  renumbered in ORDER (hilbert, rcm, or bfs) after reading the map,
+     *  so that nearby locations are stored near each other, which speeds
+     *  up searches on large maps.  With --save, the map is also saved in
+     *  binary form to SAVED, from which it may be read again (as MAP) much
+     *  faster.  With --contract, chains of locations along a single road
+     *  are collapsed for searching, as described in Trip.contract, which
+     *  speeds up searches on maps with many such locations.  With
+     *  --stats, a summary of the effort spent searching for routes, and of
+     *  the use of the cache of routes found, is printed on the standard
+     *  error.  With --optimize, the locations after the first are visited
+     *  in whatever order makes the trip short, rather than in the order
+     *  given (a trip that ends where it starts still does).  With --xy,
+     *  each location of REQUEST written as a position, X,Y, stands for the
+     *  location nearest to it (see Trip.snap).  With --serve, no trip is
+     *  made; instead, trip runs until killed as a server answering
+     *  requests for trips on PORT of the loopback interface, as described
+     *  in TripServer.  With --batch, the trips requested by the
+     *  lines of the file REQUESTS (or the standard input, if REQUESTS is
+     *  -) are made instead, on as many threads as there are processors,
+     *  and their reports printed in order, as described in TripBatch.
      */
     public static void main(String... rawArgs) {
         String mapFileName;
         String outFileName;
         List<String> targets;
         CommandArgs args =
-            new CommandArgs("-m={0,1} -o={0,1} --={2,}", rawArgs);
-
-        if (!args.ok()) {
+            new CommandArgs("-m={0,1} -o={0,1} -f={0,1} --order={0,1}"
+                            + " --save={0,1} --contract --stats --optimize"
+                            + " --xy"
+                            + " --serve={0,1}"
+                            + " --batch={0,1} --={0,}",
+                            rawArgs);
+
+        if (!args.ok()
+            || (!args.contains("--serve") && !args.contains("--batch")
+                && args.get("--").size() < 2)) {
             usage();
         }
 
@@ -39,37 +82,116 @@ public final class Main {
         outFileName = args.getFirst("-o");
         targets = args.get("--");
 
-        setFiles(outFileName);
+        ReportBuffer out = new ReportBuffer(openOutput(outFileName),
+                                            OUTPUT_BUFFER_SIZE);
 
         Trip trip = new Trip();
+        SearchStats stats = args.contains("--stats") ? new SearchStats() : null;
+        trip.setStats(stats);
 
         try {
+            ReportFormat format =
+                ReportFormat.forName(args.getFirst("-f", "text"));
             trip.readMap(mapFileName);
-            trip.makeTrip(targets);
+            if (args.contains("--order")) {
+                trip.reorder(args.getFirst("--order"));
+            }
+            if (args.contains("--save")) {
+                trip.saveMap(args.getFirst("--save"));
+            }
+            if (args.contains("--contract")) {
+                trip.contract();
+            }
+            if (args.contains("--serve")) {
+                serve(trip, args.getFirst("--serve"));
+                return;
+            }
+            if (args.contains("--batch")) {
+                batch(trip, args.getFirst("--batch"), format, out);
+            } else {
+                if (args.contains("--xy")) {
+                    targets = trip.snap(targets);
+                }
+                if (args.contains("--optimize")) {
+                    targets =
+                        trip.optimize(targets, ForkJoinPool.commonPool());
+                }
+                trip.makeTrip(targets, format, out);
+            }
+            out.flush();
+            if (stats != null) {
+                System.err.printf("trip: %s%n", stats);
+                System.err.printf("trip: route cache: %s%n",
+                                  trip.routeCache());
+                if (trip.contraction() != null) {
+                    System.err.printf("trip: contraction: %s%n",
+                                      trip.contraction());
+                }
+            }
         } catch (IllegalArgumentException excp) {
+            out.flush();
             System.err.printf("trip: %s%n", excp.getMessage());
             System.exit(1);
         }
     }
 
 
-    /** Set System.in to read from INFILE, if non-null; otherwise, leaves
-     *  System.in unchanged.  Set System.out to go to OUTFILE, if non-null;
-     *  otherwise leaves System.out unchanged. */
-    private static void setFiles(String outFile) {
-        if (outFile != null) {
-            try {
-                System.setOut(new PrintStream(new FileOutputStream(outFile),
-                                              true));
-            } catch  (FileNotFoundException e) {
-                System.err.printf("Could not open %s for writing.%n",
-                                  outFile);
-                System.exit(1);
-            }
+    /** Returns a channel writing to the file OUTFILE, if non-null, and
+     *  otherwise to System.out. */
+    private static WritableByteChannel openOutput(String outFile) {
+        if (outFile == null) {
+            return Channels.newChannel(System.out);
+        }
+        try {
+            return FileChannel.open(Paths.get(outFile),
+                                    StandardOpenOption.CREATE,
+                                    StandardOpenOption.WRITE,
+                                    StandardOpenOption.TRUNCATE_EXISTING);
+        } catch (IOException e) {
+            System.err.printf("Could not open %s for writing.%n",
+                              outFile);
+            System.exit(1);
+            return null;
         }
     }
 
 
+    /** Serve requests for trips on TRIP's map on the loopback port named
+     *  PORT until killed. */
+    private static void serve(Trip trip, String port) {
+        try (TripServer server =
+                 new TripServer(trip, Integer.parseInt(port),
+                                ForkJoinPool.commonPool())) {
+            server.start();
+            System.err.printf("trip: serving on port %d%n", server.port());
+            server.await();
+        } catch (NumberFormatException excp) {
+            error("bad port number: %s", port);
+        } catch (IOException excp) {
+            error("could not serve: %s", excp.getMessage());
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Write to OUT in FORMAT the reports of the trips requested in the
+     *  file named REQUESTS, or on the standard input if it is "-". */
+    private static void batch(Trip trip, String requests,
+                              ReportFormat format, ReportBuffer out) {
+        try (BufferedReader in =
+                 requests.equals("-")
+                 ? new BufferedReader(new InputStreamReader(System.in))
+                 : new BufferedReader(new FileReader(requests))) {
+            new TripBatch(trip, format,
+                          Runtime.getRuntime().availableProcessors())
+                .run(in, out);
+        } catch (IOException excp) {
+            error("could not read requests: %s", excp.getMessage());
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
     /** Throw an exception containing a message constructed from FORMAT
      *  and ARGS, as for String.format. */
     static void error(String format, Object... args) {
@@ -79,7 +201,10 @@ public final class Main {
     /** Print a brief usage message and exit program abnormally. */
     private static void usage() {
         System.err.printf("Usage: java trip.Main [ -m MAPFILE ] [ -o OUTFILE ]"
-                          + " [ REQUESTFILE ]%n");
+                          + " [ -f FORMAT ] [ --order ORDER ]"
+                          + " [ --save SAVEFILE ] [ --contract ] [ --stats ]"
+                          + " [ --optimize ] [ --xy ] [ --serve PORT ]"
+                          + " [ --batch REQUESTFILE ] [ LOCATION ... ]%n");
         System.exit(1);
     }
 
@@ -0,0 +1,195 @@
+package trip;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+
+/** A reusable byte buffer into which ReportFormats write reports.  A
+ *  buffer with a sink writes its contents to the sink, a channel, when it
+ *  fills and when flushed, so that a long run of reports costs a few
+ *  large writes; a buffer without one grows as needed, and its contents
+ *  are read with toByteArray or appended to another buffer.  Text is
+ *  encoded as UTF-8, and ASCII text and numbers are appended without
+ *  creating any intermediate Strings.
+ *  @author Warner Tsang
+ */
+final class ReportBuffer {
+
+    /** A buffer of CAPACITY bytes writing to SINK. */
+    ReportBuffer(WritableByteChannel sink, int capacity) {
+        _sink = sink;
+        _bytes = new byte[capacity];
+    }
+
+    /** A growable buffer with no sink. */
+    ReportBuffer() {
+        this(null, INITIAL_CAPACITY);
+    }
+
+    /** Append byte B. */
+    ReportBuffer append(int b) {
+        ensure(1);
+        _bytes[_size] = (byte) b;
+        _size += 1;
+        return this;
+    }
+
+    /** Append the bytes BYTES[START .. END-1]. */
+    ReportBuffer append(byte[] bytes, int start, int end) {
+        int len = end - start;
+        if (_sink != null && len > _bytes.length) {
+            flush();
+            write(ByteBuffer.wrap(bytes, start, len));
+            return this;
+        }
+        ensure(len);
+        System.arraycopy(bytes, start, _bytes, _size, len);
+        _size += len;
+        return this;
+    }
+
+    /** Append the contents of OTHER. */
+    ReportBuffer append(ReportBuffer other) {
+        return append(other._bytes, 0, other._size);
+    }
+
+    /** Append TEXT, encoded as UTF-8. */
+    ReportBuffer append(CharSequence text) {
+        int n = text.length();
+        ensure(n);
+        for (int i = 0; i < n; i += 1) {
+            char c = text.charAt(i);
+            if (c >= 0x80) {
+                byte[] rest = text.subSequence(i, n).toString()
+                    .getBytes(StandardCharsets.UTF_8);
+                return append(rest, 0, rest.length);
+            }
+            _bytes[_size] = (byte) c;
+            _size += 1;
+        }
+        return this;
+    }
+
+    /** Append the decimal digits of X. */
+    ReportBuffer appendDecimal(long x) {
+        if (x < 0) {
+            if (x == Long.MIN_VALUE) {
+                return append(Long.toString(x));
+            }
+            append('-');
+            x = -x;
+        }
+        ensure(MAX_DIGITS);
+        int end = _size + digits(x);
+        _size = end;
+        do {
+            end -= 1;
+            _bytes[end] = (byte) ('0' + x % 10);
+            x /= 10;
+        } while (x != 0);
+        return this;
+    }
+
+    /** Append X rounded to the nearest tenth, exactly as
+     *  String.valueOf(Math.round(X * 10.0) / 10.0) would write it. */
+    ReportBuffer appendTenths(double x) {
+        long tenths = Math.round(x * 10.0);
+        if (tenths < 0 || tenths >= DECIMAL_LIMIT) {
+            return append(String.valueOf(tenths / 10.0));
+        }
+        appendDecimal(tenths / 10);
+        append('.');
+        return append((int) ('0' + tenths % 10));
+    }
+
+    /** Append X as an unsigned LEB128 varint of 1 to 10 bytes. */
+    ReportBuffer appendVarint(long x) {
+        ensure(MAX_VARINT);
+        while ((x & ~0x7fL) != 0) {
+            _bytes[_size] = (byte) (x & 0x7f | 0x80);
+            _size += 1;
+            x >>>= 7;
+        }
+        _bytes[_size] = (byte) x;
+        _size += 1;
+        return this;
+    }
+
+    /** Returns the number of bytes I hold. */
+    int size() {
+        return _size;
+    }
+
+    /** Discard my contents. */
+    void reset() {
+        _size = 0;
+    }
+
+    /** Returns a copy of my contents. */
+    byte[] toByteArray() {
+        return Arrays.copyOf(_bytes, _size);
+    }
+
+    /** Write my contents to my sink, if I have one, and empty me. */
+    void flush() {
+        if (_sink != null && _size > 0) {
+            write(ByteBuffer.wrap(_bytes, 0, _size));
+            _size = 0;
+        }
+    }
+
+    /** Make room for at least N more bytes, flushing or growing as
+     *  needed. */
+    private void ensure(int n) {
+        if (_size + n <= _bytes.length) {
+            return;
+        }
+        flush();
+        if (_size + n > _bytes.length) {
+            _bytes = Arrays.copyOf(_bytes,
+                                   Math.max(2 * _bytes.length, _size + n));
+        }
+    }
+
+    /** Write all of DATA to my sink. */
+    private void write(ByteBuffer data) {
+        try {
+            while (data.hasRemaining()) {
+                _sink.write(data);
+            }
+        } catch (IOException excp) {
+            throw new UncheckedIOException(excp);
+        }
+    }
+
+    /** Returns the number of decimal digits in X >= 0. */
+    private static int digits(long x) {
+        int n;
+        n = 1;
+        while (x >= 10) {
+            x /= 10;
+            n += 1;
+        }
+        return n;
+    }
+
+    /** Default initial size of a buffer without a sink. */
+    static final int INITIAL_CAPACITY = 512;
+
+    /** Bound on the number of tenths that Double.toString writes as a
+     *  plain decimal rather than in scientific notation. */
+    private static final long DECIMAL_LIMIT = 100_000_000L;
+    /** Longest decimal representation of a non-negative long. */
+    private static final int MAX_DIGITS = 19;
+    /** Longest varint. */
+    private static final int MAX_VARINT = 10;
+
+    /** Where my contents go when flushed, or null. */
+    private final WritableByteChannel _sink;
+    /** My contents, in _bytes[0 .. _size-1]. */
+    private byte[] _bytes;
+    private int _size;
+}
@@ -0,0 +1,208 @@
+package trip;
+
+import java.nio.charset.StandardCharsets;
+
+/** A way of writing trip reports into a ReportBuffer.  A report is
+ *  written as a call of begin, then a call of step for each direction of
+ *  the journey, in order, and then a call of end; a failed request is
+ *  written by a call of error instead.  Between consecutive reports in
+ *  one stream, separate is called.  The formats are
+ *
+ *  text: the format of the project specification, as trip has always
+ *    printed it, with reports separated by empty lines;
+ *  json: each report on one line as a JSON object, such as
+ *    {"from":"A","steps":[{"road":"Main_St","direction":"east",
+ *    "miles":2.0},{"road":"Oak","direction":"north","miles":1.3,
+ *    "to":"D"}]}, and each error as {"error":"MESSAGE"};
+ *  binary: a sequence of records, each starting with a tag byte.  A
+ *    report is a record BEGIN followed by the name of the starting
+ *    location; then for each direction a record STEP followed by the
+ *    road name, a byte giving the ordinal of its Direction, the length
+ *    in tenths of miles as a varint, and the name of the location
+ *    reached, which is empty except at the end of a leg; then a record
+ *    END.  An error is a record ERROR followed by the message.  Names
+ *    and messages are written as a varint length followed by that many
+ *    bytes of UTF-8, and varints are unsigned LEB128.
+ *  @author Warner Tsang
+ */
+abstract class ReportFormat {
+
+    /** Returns the format named NAME: "text", "json", or "binary". */
+    static ReportFormat forName(String name) {
+        switch (name) {
+        case "text":
+            return TEXT;
+        case "json":
+            return JSON;
+        case "binary":
+            return BINARY;
+        default:
+            Main.error("unknown output format: %s", name);
+            return null;
+        }
+    }
+
+    /** Start a report on OUT of a journey from the location named
+     *  FROM. */
+    abstract void begin(ReportBuffer out, String from);
+
+    /** Write on OUT direction number SEQ of the current report: take the
+     *  road named ROAD in direction DIR for MILES miles, arriving at the
+     *  location named TO, or, if TO is null, continuing onto the next
+     *  road. */
+    abstract void step(ReportBuffer out, int seq, String road,
+                       Direction dir, double miles, String to);
+
+    /** End the current report on OUT. */
+    abstract void end(ReportBuffer out);
+
+    /** Write on OUT the reply to a request that failed with MESSAGE. */
+    abstract void error(ReportBuffer out, String message);
+
+    /** Write on OUT whatever separates one report or error from the
+     *  next. */
+    void separate(ReportBuffer out) {
+    }
+
+    /** The format of the project specification. */
+    static final ReportFormat TEXT = new ReportFormat() {
+        @Override
+        void begin(ReportBuffer out, String from) {
+            out.append("From ").append(from).append(':').append(NL)
+                .append(NL);
+        }
+
+        @Override
+        void step(ReportBuffer out, int seq, String road, Direction dir,
+                  double miles, String to) {
+            out.appendDecimal(seq).append(". Take ").append(road)
+                .append(' ').append(dir.fullName()).append(" for ")
+                .appendTenths(miles).append(" miles");
+            if (to != null) {
+                out.append(" to ").append(to);
+            }
+            out.append('.').append(NL);
+        }
+
+        @Override
+        void end(ReportBuffer out) {
+        }
+
+        @Override
+        void error(ReportBuffer out, String message) {
+            out.append("trip: ").append(message).append(NL);
+        }
+
+        @Override
+        void separate(ReportBuffer out) {
+            out.append(NL);
+        }
+    };
+
+    /** One JSON object per line. */
+    static final ReportFormat JSON = new ReportFormat() {
+        @Override
+        void begin(ReportBuffer out, String from) {
+            out.append("{\"from\":");
+            string(out, from);
+            out.append(",\"steps\":[");
+        }
+
+        @Override
+        void step(ReportBuffer out, int seq, String road, Direction dir,
+                  double miles, String to) {
+            out.append(seq == 1 ? "{\"road\":" : ",{\"road\":");
+            string(out, road);
+            out.append(",\"direction\":\"").append(dir.fullName())
+                .append("\",\"miles\":").appendTenths(miles);
+            if (to != null) {
+                out.append(",\"to\":");
+                string(out, to);
+            }
+            out.append('}');
+        }
+
+        @Override
+        void end(ReportBuffer out) {
+            out.append("]}\n");
+        }
+
+        @Override
+        void error(ReportBuffer out, String message) {
+            out.append("{\"error\":");
+            string(out, message);
+            out.append("}\n");
+        }
+
+        /** Append S to OUT as a JSON string. */
+        private void string(ReportBuffer out, String s) {
+            out.append('"');
+            for (int i = 0; i < s.length(); i += 1) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    out.append('\\').append(c);
+                } else if (c < 0x20) {
+                    out.append(String.format("\\u%04x", (int) c));
+                } else if (c < 0x80) {
+                    out.append(c);
+                } else {
+                    int end;
+                    end = i + 1;
+                    while (end < s.length() && s.charAt(end) >= 0x80) {
+                        end += 1;
+                    }
+                    out.append(s.substring(i, end));
+                    i = end - 1;
+                }
+            }
+            out.append('"');
+        }
+    };
+
+    /** Tags of the records of the binary format. */
+    static final int BEGIN = 1, STEP = 2, END = 3, ERROR = 4;
+
+    /** Tagged binary records. */
+    static final ReportFormat BINARY = new ReportFormat() {
+        @Override
+        void begin(ReportBuffer out, String from) {
+            string(out.append(BEGIN), from);
+        }
+
+        @Override
+        void step(ReportBuffer out, int seq, String road, Direction dir,
+                  double miles, String to) {
+            string(out.append(STEP), road);
+            out.append(dir.ordinal()).appendVarint(Math.round(miles * 10.0));
+            string(out, to == null ? "" : to);
+        }
+
+        @Override
+        void end(ReportBuffer out) {
+            out.append(END);
+        }
+
+        @Override
+        void error(ReportBuffer out, String message) {
+            string(out.append(ERROR), message);
+        }
+
+        /** Append S to OUT as a varint length and UTF-8 bytes. */
+        private void string(ReportBuffer out, String s) {
+            boolean ascii = true;
+            for (int i = 0; i < s.length() && ascii; i += 1) {
+                ascii = s.charAt(i) < 0x80;
+            }
+            if (ascii) {
+                out.appendVarint(s.length()).append(s);
+            } else {
+                byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+                out.appendVarint(bytes.length).append(bytes, 0,
+                                                      bytes.length);
+            }
+        }
+    };
+
+    /** The line separator of the text format. */
+    private static final String NL = System.lineSeparator();
+}
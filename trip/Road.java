@@ -1,5 +1,11 @@
 package trip;
 
+import graph.LabelCodec;
+
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
 import static trip.Main.error;
 
 /** Represents a road between two Locations.
@@ -33,6 +39,23 @@ class Road {
         return _length;
     }
 
+    /** Encodes Roads as their names, directions, and lengths, for saving
+     *  maps. */
+    static final LabelCodec<Road> CODEC = new LabelCodec<>() {
+        @Override
+        public void write(Road road, DataOutput out) throws IOException {
+            LabelCodec.writeString(road._name, out);
+            out.writeByte(road._direction.ordinal());
+            out.writeDouble(road._length);
+        }
+
+        @Override
+        public Road read(ByteBuffer in) {
+            return new Road(LabelCodec.readString(in),
+                            Direction.values()[in.get()], in.getDouble());
+        }
+    };
+
     /** The name given to this segment. */
     private final String _name;
     /** The direction this segment runs towards its destination. */
@@ -0,0 +1,223 @@
+package trip;
+
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/** A bounded cache of the routes found by a Trip, for maps on which the
+ *  same legs are requested again and again.  It holds single routes,
+ *  keyed by their first and last locations, and the whole shortest-path
+ *  trees of sources from which routes are often requested: once a source
+ *  has missed HOTTHRESHOLD times, the Trip computes its tree, from which
+ *  all later routes from that source are read.  Entries are evicted in
+ *  least-recently-used order once there are too many or they take too
+ *  much memory, as estimated from the sizes of their arrays.  Every
+ *  entry belongs to one version of the map: a request for a different
+ *  version empties the cache.  All methods may be called by several
+ *  threads at once.
+ *  @author Warner Tsang
+ */
+class RouteCache {
+
+    /** A cache holding at most MAXENTRIES routes and trees, taking at most
+     *  about MAXBYTES bytes, which computes the tree of a source after
+     *  HOTTHRESHOLD misses from it. */
+    RouteCache(int maxEntries, long maxBytes, int hotThreshold) {
+        _maxEntries = maxEntries;
+        _maxBytes = maxBytes;
+        _hotThreshold = hotThreshold;
+    }
+
+    /** Returns the vertices of the cached route from FROM to TO on version
+     *  VERSION of the map, or null if there is none.  A route from FROM is
+     *  read from its tree, if that is cached. */
+    synchronized int[] route(long version, int from, int to) {
+        checkVersion(version);
+        Entry entry = _entries.get(key(from, to));
+        if (entry != null) {
+            _hits += 1;
+            return entry._vertices;
+        }
+        entry = _entries.get(key(from, 0));
+        int[] path = entry == null ? null : pathIn(entry._vertices, from, to);
+        if (path != null) {
+            _hits += 1;
+            _treeHits += 1;
+            return path;
+        }
+        _misses += 1;
+        _sourceMisses.merge(from, 1, Integer::sum);
+        return null;
+    }
+
+    /** Returns true iff the tree of FROM on version VERSION of the map,
+     *  an array of SIZE predecessors, should be computed and cached,
+     *  because FROM has missed often enough, its tree is not cached, and
+     *  the tree would fit in me. */
+    synchronized boolean wantsTree(long version, int from, int size) {
+        checkVersion(version);
+        return _hotThreshold > 0 && entryBytes(size) <= _maxBytes
+            && _sourceMisses.getOrDefault(from, 0) >= _hotThreshold
+            && !_entries.containsKey(key(from, 0));
+    }
+
+    /** Cache ROUTE, the vertices of a shortest route from its first to
+     *  its last location, on version VERSION of the map. */
+    synchronized void putRoute(long version, int[] route) {
+        checkVersion(version);
+        put(key(route[0], route[route.length - 1]), route);
+    }
+
+    /** Cache the shortest-path tree of FROM on version VERSION of the map,
+     *  in which PREDECESSORS[v] is the vertex before v on a shortest path
+     *  from FROM to v. */
+    synchronized void putTree(long version, int from, int[] predecessors) {
+        checkVersion(version);
+        if (put(key(from, 0), predecessors)) {
+            _trees += 1;
+        }
+        _sourceMisses.remove(from);
+    }
+
+    /** Returns the number of routes found in the cache. */
+    synchronized long hits() {
+        return _hits;
+    }
+
+    /** Returns the number of routes not found in the cache. */
+    synchronized long misses() {
+        return _misses;
+    }
+
+    /** Returns the fraction of requested routes found in the cache, or 0
+     *  if none have been requested. */
+    synchronized double hitRate() {
+        long total = _hits + _misses;
+        return total == 0 ? 0.0 : (double) _hits / total;
+    }
+
+    /** Returns the estimated number of bytes taken by my entries. */
+    synchronized long bytes() {
+        return _bytes;
+    }
+
+    /** Forget all entries and counts. */
+    synchronized void clear() {
+        _entries.clear();
+        _sourceMisses.clear();
+        _bytes = 0;
+        _hits = _misses = _treeHits = _trees = _evictions = 0;
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("%d hits (%.1f%%, %d from %d trees), %d misses,"
+                             + " %d entries in %d KB, %d evicted",
+                             _hits, 100 * hitRate(), _treeHits, _trees,
+                             _misses, _entries.size(), _bytes / 1024,
+                             _evictions);
+    }
+
+    /** Empty me if VERSION is not the version of my entries, and make it
+     *  their version. */
+    private void checkVersion(long version) {
+        if (version != _version) {
+            _entries.clear();
+            _sourceMisses.clear();
+            _bytes = 0;
+            _version = version;
+        }
+    }
+
+    /** Add an entry with key KEY holding VERTICES, evicting least recently
+     *  used entries as needed.  Returns false, adding nothing, if the entry
+     *  alone would take more than my limit. */
+    private boolean put(long key, int[] vertices) {
+        long bytes = entryBytes(vertices.length);
+        if (bytes > _maxBytes) {
+            return false;
+        }
+        Entry old = _entries.put(key, new Entry(vertices, bytes));
+        if (old != null) {
+            _bytes -= old._bytes;
+        }
+        _bytes += bytes;
+        Iterator<Entry> lru = _entries.values().iterator();
+        while (_bytes > _maxBytes || _entries.size() > _maxEntries) {
+            _bytes -= lru.next()._bytes;
+            lru.remove();
+            _evictions += 1;
+        }
+        if (_sourceMisses.size() > _maxEntries) {
+            _sourceMisses.clear();
+        }
+        return true;
+    }
+
+    /** Returns the estimated size of an entry holding an array of LENGTH
+     *  vertices. */
+    private static long entryBytes(int length) {
+        return ENTRY_BYTES + 4L * length;
+    }
+
+    /** Returns the route from FROM to TO in the shortest-path tree of
+     *  FROM given by PREDECESSORS, or null if TO is not in the tree. */
+    private static int[] pathIn(int[] predecessors, int from, int to) {
+        int n;
+        n = 1;
+        for (int v = to; v != from; v = predecessors[v]) {
+            if (v >= predecessors.length || predecessors[v] == 0) {
+                return null;
+            }
+            n += 1;
+        }
+        int[] path = new int[n];
+        for (int v = to; n > 0; v = predecessors[v]) {
+            n -= 1;
+            path[n] = v;
+        }
+        return path;
+    }
+
+    /** Returns the key of the route from FROM to TO, or of the tree of FROM
+     *  if TO is 0. */
+    private static long key(int from, int to) {
+        return (long) from << Integer.SIZE | to;
+    }
+
+    /** A cached route or tree. */
+    private static class Entry {
+        /** An entry holding VERTICES, estimated to take BYTES bytes. */
+        Entry(int[] vertices, long bytes) {
+            _vertices = vertices;
+            _bytes = bytes;
+        }
+
+        /** The vertices of a route, or the predecessors of a tree. */
+        private final int[] _vertices;
+        /** Estimated size of this entry. */
+        private final long _bytes;
+    }
+
+    /** Estimated bytes taken by an entry apart from its array. */
+    private static final long ENTRY_BYTES = 96;
+
+    /** My entries, from least to most recently used. */
+    private final LinkedHashMap<Long, Entry> _entries =
+        new LinkedHashMap<>(16, 0.75f, true);
+    /** Number of misses of each source without a cached tree. */
+    private final Map<Integer, Integer> _sourceMisses = new HashMap<>();
+    /** Limits on my entries. */
+    private final int _maxEntries;
+    private final long _maxBytes;
+    /** Misses after which a source's tree is wanted, or 0 for never. */
+    private final int _hotThreshold;
+    /** The map version of my entries. */
+    private long _version;
+    /** Estimated size of my entries. */
+    private long _bytes;
+    /** Counts of hits (and those from trees), misses, trees cached, and
+     *  evictions. */
+    private long _hits, _treeHits, _misses, _trees, _evictions;
+}
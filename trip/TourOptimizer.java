@@ -0,0 +1,322 @@
+package trip;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
+/** Finds a short order in which to visit a set of stops, given the
+ *  distances between them.  Stop 0 is always visited first and, for a
+ *  round trip, stop N - 1 last; the others may be visited in any order.
+ *  Each of several restarts builds a tour by a (randomized) nearest
+ *  neighbor rule and then improves it by 2-opt moves (reversing part of
+ *  the tour) and Or-opt moves (moving a run of up to three stops
+ *  elsewhere), considering only moves that join a stop to one of its
+ *  nearest neighbors.  There is a fixed number of restarts, each with
+ *  its own fixed seed, so that the result does not depend on the number
+ *  of threads.  The restarts run in parallel, and the shortest result
+ *  wins, the earliest restart's among equals.  Distances are assumed to
+ *  be symmetric and finite, as they are between connected locations of a
+ *  road map.
+ *  @author Warner Tsang
+ */
+class TourOptimizer {
+
+    /** An optimizer for N stops, where the distance from stop i to stop j
+     *  is DIST[i * N + j].  If ROUNDTRIP, stop N - 1 ends every tour. */
+    TourOptimizer(double[] dist, int n, boolean roundTrip) {
+        _dist = dist;
+        _n = n;
+        _last = roundTrip ? n - 2 : n - 1;
+        _neighbors = new int[n][];
+        for (int i = 0; i < n; i += 1) {
+            _neighbors[i] = nearest(i, Math.min(NEIGHBORS, n - 1));
+        }
+    }
+
+    /** Returns the best tour found by RESTARTS restarts running on POOL,
+     *  as the sequence of stop numbers to visit. */
+    int[] optimize(ForkJoinPool pool) {
+        List<Callable<int[]>> tasks = new ArrayList<>();
+        for (int r = 0; r < RESTARTS; r += 1) {
+            final long seed = r;
+            tasks.add(new Callable<int[]>() {
+                @Override
+                public int[] call() {
+                    return new Search(seed).run();
+                }
+            });
+        }
+        int[] best = null;
+        try {
+            for (Future<int[]> result : pool.invokeAll(tasks)) {
+                int[] tour = result.get();
+                if (best == null || length(tour) < length(best)) {
+                    best = tour;
+                }
+            }
+        } catch (InterruptedException | ExecutionException excp) {
+            throw new IllegalStateException(excp);
+        }
+        return best;
+    }
+
+    /** Returns the total distance along TOUR. */
+    double length(int[] tour) {
+        double total;
+        total = 0;
+        for (int i = 1; i < tour.length; i += 1) {
+            total += d(tour[i - 1], tour[i]);
+        }
+        return total;
+    }
+
+    /** Returns the distance from stop X to stop Y. */
+    private double d(int x, int y) {
+        return _dist[x * _n + y];
+    }
+
+    /** Returns the K stops nearest to stop X (excluding X), nearest
+     *  first. */
+    private int[] nearest(int x, int k) {
+        int[] result = new int[k];
+        int size;
+        size = 0;
+        for (int y = 0; y < _n; y += 1) {
+            if (y == x) {
+                continue;
+            }
+            double dy = d(x, y);
+            if (size == k && (k == 0 || dy >= d(x, result[k - 1]))) {
+                continue;
+            }
+            int i = size == k ? k - 1 : size;
+            while (i > 0 && d(x, result[i - 1]) > dy) {
+                result[i] = result[i - 1];
+                i -= 1;
+            }
+            result[i] = y;
+            size = Math.min(size + 1, k);
+        }
+        return result;
+    }
+
+    /** One restart: a tour under construction and improvement. */
+    private class Search {
+
+        /** A restart whose random choices are determined by SEED.  Seed 0
+         *  makes no random choices. */
+        Search(long seed) {
+            _random = seed == 0 ? null : new Random(seed);
+            _tour = new int[_n];
+            _pos = new int[_n];
+        }
+
+        /** Build and improve a tour, and return it. */
+        int[] run() {
+            nearestNeighbor();
+            boolean improved = true;
+            while (improved) {
+                improved = twoOpt();
+                improved |= orOpt();
+            }
+            return _tour;
+        }
+
+        /** Fill _tour by starting at stop 0 and repeatedly going to the
+         *  nearest unvisited stop (or, when randomized, to one of the
+         *  few nearest). */
+        private void nearestNeighbor() {
+            boolean[] visited = new boolean[_n];
+            visited[0] = true;
+            if (_last < _n - 1) {
+                visited[_n - 1] = true;
+                _tour[_n - 1] = _n - 1;
+            }
+            int[] choices = new int[CHOICES];
+            for (int i = 1; i <= _last; i += 1) {
+                int from = _tour[i - 1];
+                int found;
+                found = 0;
+                for (int y : _neighbors[from]) {
+                    if (!visited[y] && found < CHOICES) {
+                        choices[found] = y;
+                        found += 1;
+                    }
+                }
+                if (found == 0) {
+                    for (int y = 0; y < _n; y += 1) {
+                        if (!visited[y] && (found == 0
+                                            || d(from, y)
+                                               < d(from, choices[0]))) {
+                            choices[0] = y;
+                            found = 1;
+                        }
+                    }
+                }
+                int next = choices[_random == null ? 0
+                                   : _random.nextInt(found)];
+                visited[next] = true;
+                _tour[i] = next;
+            }
+            for (int i = 0; i < _n; i += 1) {
+                _pos[_tour[i]] = i;
+            }
+        }
+
+        /** Returns the distance from the stop at position K of the tour to
+         *  stop X. */
+        private double from(int k, int x) {
+            return d(_tour[k], x);
+        }
+
+        /** Returns the distance from stop X to the stop at position K, or
+         *  0 if K is past the end of the tour. */
+        private double to(int x, int k) {
+            return k >= _n ? 0 : d(x, _tour[k]);
+        }
+
+        /** Make one pass of improving 2-opt moves.  Returns true iff any
+         *  were made. */
+        private boolean twoOpt() {
+            boolean improved = false;
+            for (int p = 0; p < _last; p += 1) {
+                int a = _tour[p], b = _tour[p + 1];
+                for (int c : _neighbors[a]) {
+                    double gain = d(a, b) - d(a, c);
+                    if (gain <= EPSILON) {
+                        break;
+                    }
+                    int j = _pos[c];
+                    double delta;
+                    if (j > p + 1 && j <= _last) {
+                        delta = to(b, j + 1) - to(c, j + 1) - gain;
+                        if (delta < -EPSILON) {
+                            reverse(p + 1, j);
+                            improved = true;
+                            break;
+                        }
+                    } else if (j < p) {
+                        int cn = _tour[j + 1];
+                        delta = d(cn, b) - d(c, cn) - gain;
+                        if (delta < -EPSILON) {
+                            reverse(j + 1, p);
+                            improved = true;
+                            break;
+                        }
+                    }
+                }
+            }
+            return improved;
+        }
+
+        /** Make one pass of improving Or-opt moves.  Returns true iff any
+         *  were made. */
+        private boolean orOpt() {
+            boolean improved = false;
+            for (int len = 1; len <= MAX_SEGMENT; len += 1) {
+                for (int s = 1; s + len - 1 <= _last; s += 1) {
+                    if (moveSegment(s, len)) {
+                        improved = true;
+                    }
+                }
+            }
+            return improved;
+        }
+
+        /** Try to move the LEN stops starting at position S to a better
+         *  place, next to a neighbor of one of its ends.  Returns true iff
+         *  the move was made. */
+        private boolean moveSegment(int s, int len) {
+            int e = s + len - 1;
+            int x = _tour[s], y = _tour[e];
+            double removed =
+                d(_tour[s - 1], x) + to(y, e + 1)
+                - (e + 1 < _n ? d(_tour[s - 1], _tour[e + 1]) : 0);
+            for (int end : new int[] { x, y }) {
+                for (int c : _neighbors[end]) {
+                    int pc = _pos[c];
+                    for (int k = pc - 1; k <= pc; k += 1) {
+                        if (k < 0 || (k >= s - 1 && k <= e)
+                            || k > _last) {
+                            continue;
+                        }
+                        double forward = from(k, x) + to(y, k + 1),
+                            backward = from(k, y) + to(x, k + 1),
+                            gap = k + 1 < _n ? d(_tour[k], _tour[k + 1]) : 0;
+                        boolean reversed = backward < forward;
+                        double delta =
+                            Math.min(forward, backward) - gap - removed;
+                        if (delta < -EPSILON) {
+                            move(s, len, k, reversed);
+                            return true;
+                        }
+                    }
+                }
+            }
+            return false;
+        }
+
+        /** Reverse the part of the tour from position LO to HI. */
+        private void reverse(int lo, int hi) {
+            for (; lo < hi; lo += 1, hi -= 1) {
+                int t = _tour[lo];
+                _tour[lo] = _tour[hi];
+                _tour[hi] = t;
+                _pos[_tour[lo]] = lo;
+                _pos[_tour[hi]] = hi;
+            }
+        }
+
+        /** Move the LEN stops starting at position S so that they follow
+         *  the stop now at position K, reversing them if REVERSED. */
+        private void move(int s, int len, int k, boolean reversed) {
+            int[] segment = new int[len];
+            System.arraycopy(_tour, s, segment, 0, len);
+            if (k > s) {
+                System.arraycopy(_tour, s + len, _tour, s, k - s - len + 1);
+                k -= len;
+            } else {
+                System.arraycopy(_tour, k + 1, _tour, k + 1 + len,
+                                 s - k - 1);
+            }
+            for (int i = 0; i < len; i += 1) {
+                _tour[k + 1 + i] = segment[reversed ? len - 1 - i : i];
+            }
+            for (int i = 0; i < _n; i += 1) {
+                _pos[_tour[i]] = i;
+            }
+        }
+
+        /** Source of random choices, or null for none. */
+        private final Random _random;
+        /** The stops in the order visited. */
+        private final int[] _tour;
+        /** The position of each stop in _tour. */
+        private final int[] _pos;
+    }
+
+    /** Number of restarts. */
+    private static final int RESTARTS = 8;
+    /** Number of nearest neighbors considered for each stop. */
+    private static final int NEIGHBORS = 10;
+    /** Number of nearest stops among which a randomized restart
+     *  chooses. */
+    private static final int CHOICES = 3;
+    /** Longest run of stops moved by an Or-opt move. */
+    private static final int MAX_SEGMENT = 3;
+    /** Improvements smaller than this are ignored. */
+    private static final double EPSILON = 1e-9;
+
+    /** The distances between stops, by rows. */
+    private final double[] _dist;
+    /** The number of stops. */
+    private final int _n;
+    /** The last position in a tour whose stop may change. */
+    private final int _last;
+    /** The nearest stops to each stop, nearest first. */
+    private final int[][] _neighbors;
+}
@@ -1,20 +1,41 @@
 package trip;
 
+import graph.ChainContraction;
+import graph.ConnectedComponents;
 import graph.DirectedGraph;
-
+import graph.EdgeColumns;
+import graph.GraphFile;
+import graph.KdTree;
 import graph.LabeledGraph;
+import graph.MappedGraph;
+import graph.PathStorage;
+import graph.SearchStats;
+import graph.ShortestPaths;
 import graph.SimpleShortestPaths;
+import graph.StampedPathStorage;
+import graph.VertexOrder;
 
 import java.io.FileReader;
 
 import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.channels.Channels;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Scanner;
 import java.util.InputMismatchException;
 import java.util.NoSuchElementException;
 import java.util.List;
 import java.util.Iterator;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.ToDoubleFunction;
 
 import static trip.Main.error;
 
@@ -23,8 +44,14 @@ import static trip.Main.error;
  *  @author Warner Tsang
  */
 class Trip {
-    /** Read map file named NAME into out map graph. */
+    /** Read map file named NAME into out map graph.  If NAME was written
+     *  by saveMap, its map replaces the current one. */
     void readMap(String name) {
+        Path path = Paths.get(name);
+        if (GraphFile.isGraphFile(path)) {
+            loadMap(path);
+            return;
+        }
         int n;
         n = 0;
         try {
@@ -54,48 +81,251 @@ class Trip {
         }
     }
 
+    /** Save the current map in binary form to the file named NAME, from
+     *  which readMap can read it again in time independent of its size,
+     *  mapping it into memory rather than parsing it. */
+    void saveMap(String name) {
+        try {
+            GraphFile.write(_map, Paths.get(name), Location.CODEC,
+                            Road.CODEC);
+        } catch (IOException excp) {
+            error("could not save map: %s", excp.getMessage());
+        }
+    }
+
+    /** Renumber the locations of the current map in ORDER, which is
+     *  "hilbert" (along a Hilbert curve through their positions), "rcm"
+     *  (Reverse Cuthill-McKee), or "bfs" (breadth-first), so that
+     *  locations near each other get nearby numbers and route searches
+     *  read less scattered memory.  The map becomes a copy of the old one
+     *  under the new numbering, so saveMap then saves it in that order. */
+    void reorder(String order) {
+        LabeledGraph<Location, Road> map = _map;
+        VertexOrder perm = null;
+        switch (order) {
+        case "hilbert":
+            perm = VertexOrder.hilbert(map, v -> map.getLabel(v).x(),
+                                       v -> map.getLabel(v).y());
+            break;
+        case "rcm":
+            perm = VertexOrder.reverseCuthillMcKee(map);
+            break;
+        case "bfs":
+            perm = VertexOrder.breadthFirst(map);
+            break;
+        default:
+            error("unknown vertex order: %s", order);
+            break;
+        }
+        _components = null;
+        _map = perm.apply(map, new RoadMap());
+        _version += 1;
+        for (Map.Entry<String, Integer> site : _sites.entrySet()) {
+            site.setValue(perm.newId(site.getValue()));
+        }
+    }
+
     /** Produce a report on the standard output of a shortest journey from
      *  DESTS.get(0), then DESTS.get(1), .... */
     void makeTrip(List<String> dests) {
+        makeTrip(dests, System.out);
+    }
+
+    /** Produce a report on OUT of a shortest journey from DESTS.get(0),
+     *  then DESTS.get(1), ....  Nothing is printed if some leg of the
+     *  journey is impossible.  May be called by several threads at once,
+     *  provided that the map is not being changed. */
+    void makeTrip(List<String> dests, PrintStream out) {
+        ReportBuffer buffer = new ReportBuffer(Channels.newChannel(out),
+                                               ReportBuffer.INITIAL_CAPACITY);
+        makeTrip(dests, ReportFormat.TEXT, buffer);
+        buffer.flush();
+    }
+
+    /** Write the report of a shortest journey from DESTS.get(0), then
+     *  DESTS.get(1), ..., in FORMAT, to OUT, as for makeTrip(DESTS,
+     *  PrintStream). */
+    void makeTrip(List<String> dests, ReportFormat format, ReportBuffer out) {
+        int[] stops = stops(dests);
+        List<List<Integer>> segments = new ArrayList<>();
+        for (int i = 1; i < stops.length; i += 1) {
+            segments.add(routes(stops[i - 1], stops[i]).get(0));
+        }
+        report(dests, segments, format, out);
+    }
+
+    /** Returns the vertices of the locations named DESTS, checking that
+     *  there are at least two and that there is a route from each to the
+     *  next. */
+    int[] stops(List<String> dests) {
         if (dests.size() < 2) {
             error("must have at least two locations for a trip");
         }
+        int[] stops = new int[dests.size()];
+        for (int i = 0; i < stops.length; i += 1) {
+            stops[i] = site(dests.get(i));
+            if (i > 0 && !connected(stops[i - 1], stops[i])) {
+                error("No route from %s to %s", dests.get(i - 1),
+                      dests.get(i));
+            }
+        }
+        return stops;
+    }
 
-        System.out.printf("From %s:%n%n", dests.get(0));
-        int step;
+    /** Returns shortest routes from FROM to each of TOS, as lists of
+     *  vertices from FROM to the corresponding member of TOS, according to
+     *  my current profile.  Each of TOS must be reachable from FROM.
+     *  Routes are taken from my route cache where possible; the rest are
+     *  found by one search, or, if FROM has become a hot source, by a
+     *  search of all routes from FROM, whose tree is cached.  May be
+     *  called by several threads at once, provided that the map is not
+     *  being changed: each search borrows its own storage. */
+    List<List<Integer>> routes(int from, int... tos) {
+        return routes(_profile, from, tos);
+    }
 
+    /** Returns routes(FROM, TOS), but shortest according to the profile
+     *  named PROFILE, under which some of TOS may be unreachable.  Only
+     *  routes by DISTANCE are cached or found in the contracted map. */
+    List<List<Integer>> routes(String profile, int from, int... tos) {
+        boolean byDistance = profile.equals(DISTANCE);
+        RouteCache cache = byDistance ? _cache : null;
+        long version = _version;
+        EdgeColumns columns = columns();
+        int column = columns.column(profile);
+        if (column < 0) {
+            error("unknown profile: %s", profile);
+        }
+        double[] weights = columns.values(column);
+        int[][] paths = new int[tos.length][];
+        int[] missing = new int[tos.length];
+        int n;
+        n = 0;
+        for (int i = 0; i < tos.length; i += 1) {
+            paths[i] = cache == null ? null : cache.route(version, from,
+                                                          tos[i]);
+            if (paths[i] == null) {
+                missing[n] = tos[i];
+                n += 1;
+            }
+        }
+        if (n > 0) {
+            missing = Arrays.copyOf(missing, n);
+            int[] tree = null;
+            int size = _map.maxVertex() + 1;
+            if (cache != null && cache.wantsTree(version, from, size)) {
+                tree = new int[size];
+            }
+            int[][] found = search(from, missing, tree, columns, weights,
+                                   byDistance);
+            if (tree != null) {
+                cache.putTree(version, from, tree);
+            }
+            n = 0;
+            for (int i = 0; i < tos.length; i += 1) {
+                if (paths[i] == null) {
+                    paths[i] = found[n];
+                    n += 1;
+                    if (paths[i][0] != from) {
+                        error("No route from %s to %s", _map.getLabel(from),
+                              _map.getLabel(tos[i]));
+                    }
+                    if (cache != null && tree == null) {
+                        cache.putRoute(version, paths[i]);
+                    }
+                }
+            }
+        }
+        List<List<Integer>> result = new ArrayList<>();
+        for (int[] path : paths) {
+            List<Integer> route = new ArrayList<>(path.length);
+            for (int v : path) {
+                route.add(v);
+            }
+            result.add(route);
+        }
+        return result;
+    }
+
+    /** Print on OUT the report of a journey through the locations named
+     *  DESTS, whose legs follow the routes SEGMENTS, as from routes. */
+    void report(List<String> dests, List<List<Integer>> segments,
+                PrintStream out) {
+        ReportBuffer buffer = new ReportBuffer(Channels.newChannel(out),
+                                               ReportBuffer.INITIAL_CAPACITY);
+        report(dests, segments, ReportFormat.TEXT, buffer);
+        buffer.flush();
+    }
+
+    /** Write to OUT in FORMAT the report of a journey through the
+     *  locations named DESTS, whose legs follow the routes SEGMENTS. */
+    void report(List<String> dests, List<List<Integer>> segments,
+                ReportFormat format, ReportBuffer out) {
+        format.begin(out, dests.get(0));
+        int step;
         step = 1;
-        for (int i = 1; i < dests.size(); i += 1) {
-            Integer
-                from = _sites.get(dests.get(i - 1)),
-                to = _sites.get(dests.get(i));
-            if (from == null) {
-                error("No location named %s", dests.get(i - 1));
-            } else if (to == null) {
-                error("No location named %s", dests.get(i));
-            }
-            TripPlan plan = new TripPlan(from, to);
-            plan.setPaths();
-            List<Integer> segment = plan.pathTo(to);
-            step = reportSegment(step, from, segment);
+        for (List<Integer> segment : segments) {
+            step = reportSegment(step, segment.get(0), segment, format, out);
         }
+        format.end(out);
     }
 
-    /** Print out a written description of the location sequence SEGMENT,
-     *  starting at FROM, and numbering the lines of the description starting
-     *  at SEQ.  That is, FROM and each item in SEGMENT are the
+    /** Returns the shortest road distances between all pairs of the
+     *  locations named in STOPS, as a flat array in which the distance
+     *  from STOPS.get(i) to STOPS.get(j) is at index i * STOPS.size() + j
+     *  (positive infinity if there is no route).  The searches run in
+     *  parallel on POOL, sharing the storage of route searches, and the
+     *  map must not be changed meanwhile. */
+    double[] distanceMatrix(List<String> stops, ForkJoinPool pool) {
+        int[] vertices = new int[stops.size()];
+        for (int i = 0; i < vertices.length; i += 1) {
+            vertices[i] = site(stops.get(i));
+        }
+        return new DistanceMatrix(_map, vertices, vertices, _stats,
+                                  _storages)
+            .compute(pool);
+    }
+
+    /** Returns STOPS reordered to make a short trip.  The trip still
+     *  starts at STOPS.get(0), and if STOPS ends where it starts, it
+     *  still ends there; the other stops may be visited in any order.
+     *  The computation uses the threads of POOL. */
+    List<String> optimize(List<String> stops, ForkJoinPool pool) {
+        int n = stops.size();
+        if (n < 3) {
+            return stops;
+        }
+        int first = site(stops.get(0));
+        for (int i = 1; i < n; i += 1) {
+            if (!connected(first, site(stops.get(i)))) {
+                error("No route from %s to %s", stops.get(0), stops.get(i));
+            }
+        }
+        double[] dist = distanceMatrix(stops, pool);
+        boolean roundTrip = stops.get(0).equals(stops.get(n - 1));
+        List<String> result = new ArrayList<>();
+        for (int i : new TourOptimizer(dist, n, roundTrip).optimize(pool)) {
+            result.add(stops.get(i));
+        }
+        return result;
+    }
+
+    /** Write out a description of the location sequence SEGMENT, starting
+     *  at FROM, and numbering the lines of the description starting at SEQ,
+     *  on OUT in FORMAT.  That is, FROM and each item in SEGMENT are the
      *  numbers of vertices representing locations.  Together, they
      *  specify the starting point and vertices along a path where
      *  each vertex is joined to the next by an edge.  Returns the
-     *  next sequence number.  The format is as described in the
-     *  project specification.  That is, each line but the last in the
-     *  segment is formated like this example:
+     *  next sequence number.  In the text format, as described in the
+     *  project specification, each line but the last in the segment is
+     *  formated like this example:
      *      1. Take University_Ave west for 0.1 miles.
      *  and the last like this:
      *      5. Take I-80 west for 8.4 miles to San_Francisco.
      *  Adjacent roads with the same name and direction are combined.
      *  */
-    int reportSegment(int seq, int from, List<Integer> segment) {
+    int reportSegment(int seq, int from, List<Integer> segment,
+                      ReportFormat format, ReportBuffer out) {
 
         String lastLocation;
         boolean sameRoad = false;
@@ -107,22 +337,21 @@ class Trip {
         Road startingRoad = _map.getLabel(fromHolder, nextLocation);
         String currentString = startingRoad.toString();
         double currentDistance = startingRoad.length();
-        String currentDirection = startingRoad.direction().fullName();
+        Direction currentDirection = startingRoad.direction();
         while (locationIterator.hasNext()) {
             fromHolder = nextLocation;
             nextLocation = locationIterator.next();
             Road nextRoad = _map.getLabel(fromHolder, nextLocation);
             if (nextRoad.toString().equals(currentString)) {
-                if (nextRoad.direction().fullName().equals(currentDirection)) {
+                if (nextRoad.direction() == currentDirection) {
                     sameRoad = true;
                 }
             }
             if (!sameRoad) {
-                double length = Math.round(currentDistance * 10.0) / 10.0;
-                System.out.println(seq + ". Take " + currentString + " "
-                        + currentDirection + " for " + length + " miles.");
+                format.step(out, seq, currentString, currentDirection,
+                            currentDistance, null);
                 currentString = nextRoad.toString();
-                currentDirection = nextRoad.direction().fullName();
+                currentDirection = nextRoad.direction();
                 currentDistance = nextRoad.length();
                 seq++;
             } else {
@@ -131,14 +360,309 @@ class Trip {
             sameRoad = false;
             lastLocation = _map.getLabel(nextLocation).toString();
         }
-        double finalStretch = Math.round(currentDistance * 10.0) / 10.0;
-        System.out.println(seq + ". " + "Take " + currentString + " "
-                + currentDirection + " for " + finalStretch + " miles to "
-                + lastLocation + ".");
+        format.step(out, seq, currentString, currentDirection,
+                    currentDistance, lastLocation);
 
         seq++;
         return seq;
     }
+
+    /** Collapse each chain of locations that lie along a single road, with
+     *  no other road meeting it, into a single edge for the purposes of
+     *  route searches between the locations at the ends of chains, as
+     *  described in ChainContraction.  Routes are found in the contracted
+     *  map and then unpacked, so the directions given are unchanged.
+     *  Routes to and from locations inside chains are still found in the
+     *  full map, and any later change to the map discards the
+     *  contraction. */
+    void contract() {
+        LabeledGraph<Location, Road> map = _map;
+        ChainContraction chains = new ChainContraction(map) {
+            @Override
+            protected double getWeight(int u, int v) {
+                return map.getLabel(u, v).length();
+            }
+
+            @Override
+            protected boolean mergeable(int u, int v, int w) {
+                Road in = map.getLabel(u, v), out = map.getLabel(v, w);
+                return in.toString().equals(out.toString())
+                    && in.direction() == out.direction();
+            }
+        };
+        chains.contract();
+        _chains = chains;
+        _chainsVersion = _version;
+    }
+
+    /** Returns my current contraction, or null if there is none. */
+    ChainContraction contraction() {
+        return _chainsVersion == _version ? _chains : null;
+    }
+
+    /** Returns the name of the location nearest to (X, Y), or of the
+     *  one stored first, if several are equally near. */
+    String nearestLocation(double x, double y) {
+        int v = locationIndex().nearest(x, y);
+        if (v == 0) {
+            error("map has no locations");
+        }
+        return _map.getLabel(v).toString();
+    }
+
+    /** Returns the names of the locations at most RADIUS from (X, Y),
+     *  nearest first. */
+    List<String> locationsWithin(double x, double y, double radius) {
+        ArrayList<String> result = new ArrayList<>();
+        for (int v : locationIndex().within(x, y, radius)) {
+            result.add(_map.getLabel(v).toString());
+        }
+        return result;
+    }
+
+    /** Returns TARGETS with each that has the form X,Y, for numerals X
+     *  and Y, replaced by the name of the location nearest to (X, Y). */
+    List<String> snap(List<String> targets) {
+        ArrayList<String> result = new ArrayList<>();
+        for (String target : targets) {
+            String[] xy = target.split(",", -1);
+            if (xy.length == 2) {
+                try {
+                    double x = Double.parseDouble(xy[0]),
+                        y = Double.parseDouble(xy[1]);
+                    if (Double.isFinite(x) && Double.isFinite(y)) {
+                        target = nearestLocation(x, y);
+                    }
+                } catch (NumberFormatException excp) {
+                    /* Not a position: a location name. */
+                }
+            }
+            result.add(target);
+        }
+        return result;
+    }
+
+    /** Record statistics about subsequent route searches in STATS (if
+     *  non-null). */
+    void setStats(SearchStats stats) {
+        _stats = stats;
+    }
+
+    /** Keep the routes found by subsequent searches in CACHE, or in no
+     *  cache if it is null. */
+    void setRouteCache(RouteCache cache) {
+        _cache = cache;
+    }
+
+    /** Returns my route cache, or null if there is none. */
+    RouteCache routeCache() {
+        return _cache;
+    }
+
+    /** Add a routing profile named NAME, under which the weight of each
+     *  road is WEIGHT applied to it, rather than its length.  A weight of
+     *  positive infinity closes the road.  The weights are computed once
+     *  for each version of the map and kept in a column of my edge
+     *  columns, shared by all profiles.  Searches already under way keep
+     *  the columns they started with, which are never changed. */
+    synchronized void addProfile(String name, ToDoubleFunction<Road> weight) {
+        if (_profiles.containsKey(name)) {
+            error("duplicate profile: %s", name);
+        }
+        if (_columns != null && _columnsVersion == _version) {
+            _columns = _columns.withColumn(name, metric(name, weight));
+        }
+        _profiles.put(name, weight);
+    }
+
+    /** Make subsequent routes shortest according to the profile named
+     *  NAME, which is DISTANCE (the default) or was added by
+     *  addProfile. */
+    void setProfile(String name) {
+        if (!_profiles.containsKey(name)) {
+            error("unknown profile: %s", name);
+        }
+        _profile = name;
+    }
+
+    /** Returns the name of my current profile. */
+    String profile() {
+        return _profile;
+    }
+
+    /** Returns the vertices of shortest routes from FROM to each of TOS,
+     *  where the weight of each road is in WEIGHTS, a column of COLUMNS,
+     *  found by one search.  If BYDISTANCE, the weights are road
+     *  lengths, so that the search may be guided by straight-line
+     *  distances, and is made in the contracted map if there is a current
+     *  contraction in which all of FROM and TOS are kept.  If TREE is
+     *  non-null, the search instead finds routes to all locations in the
+     *  full map, and sets TREE[v] to the predecessor of each vertex v on
+     *  its route. */
+    private int[][] search(int from, int[] tos, int[] tree,
+                           EdgeColumns columns, double[] weights,
+                           boolean byDistance) {
+        PathStorage storage = _storages.poll();
+        if (storage == null) {
+            storage = new StampedPathStorage();
+        }
+        try {
+            ChainContraction chains =
+                byDistance && _chainsVersion == _version ? _chains : null;
+            if (tree == null && chains != null
+                && chains.contractedId(from) != 0) {
+                int[] kept = new int[tos.length];
+                for (int i = 0; i < tos.length && chains != null; i += 1) {
+                    kept[i] = chains.contractedId(tos[i]);
+                    if (kept[i] == 0) {
+                        chains = null;
+                    }
+                }
+                if (chains != null) {
+                    return searchChains(chains, from, tos, kept, storage);
+                }
+            }
+            TripPlan plan;
+            if (tree != null) {
+                plan = new TripPlan(from, 0, storage, columns, weights,
+                                    false);
+            } else {
+                plan = new TripPlan(from, tos.length == 1 ? tos[0] : 0,
+                                    storage, columns, weights, byDistance);
+                if (tos.length > 1) {
+                    plan.setTargets(tos);
+                }
+            }
+            plan.setStats(_stats);
+            plan.setPaths();
+            if (tree != null) {
+                for (int v : _map.vertices()) {
+                    tree[v] = plan.getPredecessor(v);
+                }
+            }
+            int[][] result = new int[tos.length][];
+            for (int i = 0; i < tos.length; i += 1) {
+                result[i] = pathTo(plan, tos[i]);
+            }
+            return result;
+        } finally {
+            _storages.offer(storage);
+        }
+    }
+
+    /** Returns the vertices of shortest routes from FROM to each of TOS,
+     *  found by one search of the contracted map of CHAINS, using STORAGE.
+     *  KEPT contains the contracted vertices of TOS. */
+    private int[][] searchChains(ChainContraction chains, int from,
+                                 int[] tos, int[] kept, PathStorage storage) {
+        ChainPlan plan = new ChainPlan(chains, from,
+                                       tos.length == 1 ? tos[0] : 0,
+                                       storage);
+        if (kept.length > 1) {
+            plan.setTargets(kept);
+        }
+        plan.setStats(_stats);
+        plan.setPaths();
+        int[][] result = new int[tos.length][];
+        for (int i = 0; i < tos.length; i += 1) {
+            result[i] = chains.unpack(pathTo(plan, kept[i]));
+        }
+        return result;
+    }
+
+    /** Returns the vertices of the route to TO found by PLAN. */
+    private static int[] pathTo(ShortestPaths plan, int to) {
+        int len;
+        len = 0;
+        for (int v = to; v != 0; v = plan.getPredecessor(v)) {
+            len += 1;
+        }
+        int[] path = new int[len];
+        for (int v = to; v != 0; v = plan.getPredecessor(v)) {
+            len -= 1;
+            path[len] = v;
+        }
+        return path;
+    }
+
+    /** Returns a spatial index of the current locations of the map. */
+    private synchronized KdTree locationIndex() {
+        if (_index == null || _indexVersion != _version) {
+            LabeledGraph<Location, Road> map = _map;
+            _index = KdTree.of(map, v -> map.getLabel(v).x(),
+                               v -> map.getLabel(v).y());
+            _indexVersion = _version;
+        }
+        return _index;
+    }
+
+    /** Returns the edge columns of the current version of the map, with a
+     *  column for each profile. */
+    private synchronized EdgeColumns columns() {
+        if (_columns == null || _columnsVersion != _version) {
+            EdgeColumns columns = new EdgeColumns(_map);
+            for (Map.Entry<String, ToDoubleFunction<Road>> profile
+                     : _profiles.entrySet()) {
+                columns.addColumn(profile.getKey(),
+                                  metric(profile.getKey(),
+                                         profile.getValue()));
+            }
+            _columns = columns;
+            _columnsVersion = _version;
+        }
+        return _columns;
+    }
+
+    /** Returns the metric of the profile named NAME, giving each edge of
+     *  the map WEIGHT applied to its road, which must not be negative. */
+    private EdgeColumns.Metric metric(String name,
+                                      ToDoubleFunction<Road> weight) {
+        LabeledGraph<Location, Road> map = _map;
+        return (u, v) -> {
+            Road road = map.getLabel(u, v);
+            double w = weight.applyAsDouble(road);
+            if (!(w >= 0)) {
+                error("profile %s gives %s a bad weight: %s", name, road, w);
+            }
+            return w;
+        };
+    }
+
+    /** Returns true iff there is a route between locations U and V. */
+    private synchronized boolean connected(int u, int v) {
+        if (_components == null) {
+            _components = new ConnectedComponents(_map);
+        }
+        return _components.connected(u, v);
+    }
+
+    /** Replace my map with the one saved in the file PATH. */
+    private void loadMap(Path path) {
+        MappedGraph<Location, Road> map;
+        try {
+            map = GraphFile.open(path, Location.CODEC, Road.CODEC);
+        } catch (IOException excp) {
+            error("could not read map: %s", excp.getMessage());
+            return;
+        }
+        _map = map;
+        _components = null;
+        _version += 1;
+        _sites.clear();
+        for (int v : map.vertices()) {
+            _sites.put(map.getLabel(v).toString(), v);
+        }
+    }
+
+    /** Returns the vertex of the location named NAME. */
+    private int site(String name) {
+        Integer v = _sites.get(name);
+        if (v == null) {
+            error("No location named %s", name);
+        }
+        return v;
+    }
+
     /** Add a new location named NAME at (X, Y). */
     private void addLocation(String name, double x, double y) {
         if (_sites.containsKey(name)) {
@@ -170,44 +694,183 @@ class Trip {
 
     }
 
-    /** Represents the network of Locations and Roads. */
-    private RoadMap _map = new RoadMap();
+    /** Name of the profile under which the weight of a road is its
+     *  length. */
+    static final String DISTANCE = "distance";
+
+    /** Largest number of routes and trees in the default route cache. */
+    static final int CACHE_ENTRIES = 100_000;
+    /** Approximate largest size, in bytes, of the default route cache. */
+    static final long CACHE_BYTES = 64L << 20;
+    /** Number of misses from a source after which the default route cache
+     *  keeps all routes from it. */
+    static final int HOT_SOURCE_MISSES = 8;
+
+    /** Represents the network of Locations and Roads: a RoadMap, or a map
+     *  read by loadMap. */
+    private LabeledGraph<Location, Road> _map = new RoadMap();
     /** Mapping of Location names to corresponding map vertices. */
     private HashMap<String, Integer> _sites = new HashMap<>();
+    /** Where to record search statistics, if anywhere. */
+    private SearchStats _stats;
+    /** Where to keep the routes found, if anywhere. */
+    private RouteCache _cache =
+        new RouteCache(CACHE_ENTRIES, CACHE_BYTES, HOT_SOURCE_MISSES);
+    /** Number of changes made to _map, or replacements of it, so far:
+     *  the cached routes of one version do not hold for another. */
+    private long _version;
+    /** The contraction of _map made by contract, if any, and the version
+     *  of _map it was made from. */
+    private ChainContraction _chains;
+    private long _chainsVersion = -1;
+    /** Road weights of each routing profile, by name, and the name of
+     *  the profile used by default. */
+    private final LinkedHashMap<String, ToDoubleFunction<Road>> _profiles =
+        new LinkedHashMap<>(Map.of(DISTANCE, Road::length));
+    private String _profile = DISTANCE;
+    /** Edge columns holding the weights of each profile, if they have been
+     *  computed, and the version of _map they were computed from. */
+    private EdgeColumns _columns;
+    private long _columnsVersion;
+    /** A spatial index of the locations of _map, if one has been built,
+     *  and the version of _map it was built from. */
+    private KdTree _index;
+    private long _indexVersion;
+    /** Weights and predecessors not currently in use by any search (for
+     *  routes or a DistanceMatrix), to be reused by later ones. */
+    private final ConcurrentLinkedQueue<PathStorage> _storages =
+        new ConcurrentLinkedQueue<>();
+    /** The connected components of _map, or null if they must be
+     *  recomputed.  Every road runs both ways, so these tell whether
+     *  there is any route between two locations. */
+    private ConnectedComponents _components = new ConnectedComponents();
 
     /** A labeled directed graph of Locations whose edges are labeled by
-     *  Roads. */
-    private static class RoadMap extends LabeledGraph<Location, Road> {
+     *  Roads.  The connected components of the map are kept up to date
+     *  as roads are added, and recomputed after removals.  Every change
+     *  starts a new version of the map. */
+    private class RoadMap extends LabeledGraph<Location, Road> {
         /** An empty RoadMap. */
         RoadMap() {
 
             super(new DirectedGraph());
         }
+
+        @Override
+        public int add() {
+            _version += 1;
+            return super.add();
+        }
+
+        @Override
+        public int add(int u, int v) {
+            _version += 1;
+            int e = super.add(u, v);
+            if (_components != null) {
+                _components.union(u, v);
+            }
+            return e;
+        }
+
+        @Override
+        public void setLabel(int v, Location lab) {
+            _version += 1;
+            super.setLabel(v, lab);
+        }
+
+        @Override
+        public void setLabel(int u, int v, Road lab) {
+            _version += 1;
+            super.setLabel(u, v, lab);
+        }
+
+        @Override
+        public void remove(int v) {
+            _version += 1;
+            super.remove(v);
+            _components = null;
+        }
+
+        @Override
+        public void remove(int u, int v) {
+            _version += 1;
+            super.remove(u, v);
+            _components = null;
+        }
+    }
+
+    /** Paths in the contracted map of a ChainContraction of _map between
+     *  kept locations. */
+    private class ChainPlan extends SimpleShortestPaths {
+        /** A plan for travel from START to DEST (or to any number of
+         *  locations, if DEST is 0), both kept locations of _map,
+         *  according to the contracted map of CHAINS, kept in STORAGE. */
+        ChainPlan(ChainContraction chains, int start, int dest,
+                  PathStorage storage) {
+            super(chains.contracted(), chains.contractedId(start),
+                  chains.contractedId(dest), storage);
+            _contraction = chains;
+            _finalLocation = dest == 0 ? null : _map.getLabel(dest);
+        }
+
+        @Override
+        protected double getWeight(int u, int v) {
+            return _contraction.chainWeight(u, v);
+        }
+
+        @Override
+        protected double estimatedDistance(int v) {
+            if (_finalLocation == null) {
+                return 0.0;
+            }
+            return _map.getLabel(_contraction.originalId(v))
+                .dist(_finalLocation);
+        }
+
+        /** The contraction searched. */
+        private final ChainContraction _contraction;
+        /** Location of the destination, or null if there is none. */
+        private final Location _finalLocation;
     }
 
     /** Paths in _map from a given location. */
     private class TripPlan extends SimpleShortestPaths {
-        /** A plan for travel from START to DEST according to _map. */
-        TripPlan(int start, int dest) {
-            super(_map, start, dest);
-            _finalLocation = _map.getLabel(dest);
+        /** A plan for travel from START to DEST (or to any number of
+         *  locations, if DEST is 0) according to _map, kept in STORAGE,
+         *  where the weights of roads are WEIGHTS, a column of COLUMNS.
+         *  If GUIDED, the weights are no less than straight-line
+         *  distances, which then guide the search towards DEST. */
+        TripPlan(int start, int dest, PathStorage storage,
+                 EdgeColumns columns, double[] weights, boolean guided) {
+            super(_map, start, dest, storage);
+            _finalLocation =
+                dest == 0 || !guided ? null : _map.getLabel(dest);
+            _columns = columns;
+            _weights = weights;
         }
 
         @Override
         protected double getWeight(int u, int v) {
-
-            return _map.getLabel(u, v).length();
+            _slot = _columns.slot(u, v, _slot + 1);
+            return _weights[_slot];
         }
 
         @Override
         protected double estimatedDistance(int v) {
-
+            if (_finalLocation == null) {
+                return 0.0;
+            }
             return _map.getLabel(v).dist(_finalLocation);
         }
 
-        /** Location of the destination. */
+        /** Location of the destination, or null if there is none or it
+         *  does not guide the search. */
         private final Location _finalLocation;
-
+        /** The edge columns of the map, and the column of weights. */
+        private final EdgeColumns _columns;
+        private final double[] _weights;
+        /** The slot of the last edge whose weight was asked for. */
+        private int _slot = -1;
     }
 
 }
@@ -0,0 +1,189 @@
+package trip;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+
+/** Answers a stream of trip requests, such as a file of many of them,
+ *  using one map.  Each request is a line listing two or more locations
+ *  separated by commas, as for TripServer; blank lines are ignored.  The
+ *  answer to each request is its report, or an error if it is invalid,
+ *  in a given ReportFormat, and the answers are written in the order of
+ *  the requests.  In the text format, they are the reports that trip
+ *  prints, or lines "trip: MESSAGE", separated by empty lines.
+ *
+ *  The requests pass through a pipeline: a reader thread parses them and
+ *  queues them for a pool of worker threads, which find their routes and
+ *  format their reports into buffers, while the calling thread copies
+ *  the buffers in order, as they become ready, into the output buffer.
+ *  No more than a fixed number of requests are in the pipeline at once,
+ *  so that a slow writer holds back the reader rather than letting
+ *  finished reports pile up, and the workers reuse the buffers of
+ *  reports already written.
+ *  @author Warner Tsang
+ */
+class TripBatch {
+
+    /** A batch answering requests for trips on the map of TRIP, which must
+     *  not change meanwhile, in FORMAT, on WORKERS threads, with at most
+     *  WINDOW requests read but not yet written. */
+    TripBatch(Trip trip, ReportFormat format, int workers, int window) {
+        _trip = trip;
+        _format = format;
+        _workers = workers;
+        _window = window;
+    }
+
+    /** A batch answering requests on TRIP in FORMAT on WORKERS threads,
+     *  with the default window. */
+    TripBatch(Trip trip, ReportFormat format, int workers) {
+        this(trip, format, workers, WINDOW);
+    }
+
+    /** Read requests from IN until its end and write their answers to OUT,
+     *  which is then flushed.  Returns the number of requests answered. */
+    long run(BufferedReader in, ReportBuffer out)
+        throws IOException, InterruptedException {
+        BlockingQueue<Job> pending = new ArrayBlockingQueue<>(_window);
+        BlockingQueue<Job> work = new ArrayBlockingQueue<>(_window);
+        Thread[] threads = new Thread[_workers + 1];
+        threads[0] = new Thread(() -> read(in, pending, work),
+                                "trip-batch-reader");
+        for (int i = 1; i < threads.length; i += 1) {
+            threads[i] = new Thread(() -> work(work), "trip-batch-worker");
+        }
+        _readFailure = null;
+        long n;
+        n = 0;
+        try {
+            for (Thread thread : threads) {
+                thread.setDaemon(true);
+                thread.start();
+            }
+            for (Job job = pending.take(); job != END; job = pending.take()) {
+                ReportBuffer reply = job.reply();
+                if (n > 0) {
+                    _format.separate(out);
+                }
+                out.append(reply);
+                _buffers.offer(reply);
+                n += 1;
+            }
+        } finally {
+            for (Thread thread : threads) {
+                thread.interrupt();
+            }
+        }
+        out.flush();
+        if (_readFailure != null) {
+            throw _readFailure;
+        }
+        return n;
+    }
+
+    /** Read requests from IN, putting each both on PENDING, in order, and
+     *  on WORK, and then put END on PENDING and once for each worker on
+     *  WORK. */
+    private void read(BufferedReader in, BlockingQueue<Job> pending,
+                      BlockingQueue<Job> work) {
+        try {
+            try {
+                String line;
+                while ((line = in.readLine()) != null) {
+                    if (!line.isBlank()) {
+                        Job job = new Job(line.trim());
+                        pending.put(job);
+                        work.put(job);
+                    }
+                }
+            } catch (IOException excp) {
+                _readFailure = excp;
+            }
+            pending.put(END);
+            for (int i = 0; i < _workers; i += 1) {
+                work.put(END);
+            }
+        } catch (InterruptedException excp) {
+            /* The batch has been abandoned. */
+        }
+    }
+
+    /** Answer the jobs on WORK until reaching END. */
+    private void work(BlockingQueue<Job> work) {
+        try {
+            for (Job job = work.take(); job != END; job = work.take()) {
+                ReportBuffer out = _buffers.poll();
+                if (out == null) {
+                    out = new ReportBuffer();
+                }
+                out.reset();
+                try {
+                    _trip.makeTrip(Arrays.asList(Main.LISTSEP
+                                                 .split(job._request)),
+                                   _format, out);
+                } catch (IllegalArgumentException excp) {
+                    out.reset();
+                    _format.error(out, excp.getMessage());
+                } catch (RuntimeException excp) {
+                    job._reply.completeExceptionally(excp);
+                    continue;
+                }
+                job._reply.complete(out);
+            }
+        } catch (InterruptedException excp) {
+            /* The batch has been abandoned. */
+        }
+    }
+
+    /** A request and its answer. */
+    private static class Job {
+
+        /** A job answering REQUEST. */
+        Job(String request) {
+            _request = request;
+        }
+
+        /** Wait for and return my answer. */
+        ReportBuffer reply() throws InterruptedException {
+            try {
+                return _reply.get();
+            } catch (ExecutionException excp) {
+                if (excp.getCause() instanceof RuntimeException) {
+                    throw (RuntimeException) excp.getCause();
+                }
+                throw new IllegalStateException(excp.getCause());
+            }
+        }
+
+        /** The request. */
+        private final String _request;
+        /** The formatted answer, once ready. */
+        private final CompletableFuture<ReportBuffer> _reply =
+            new CompletableFuture<>();
+    }
+
+    /** Default largest number of requests in the pipeline. */
+    static final int WINDOW = 4096;
+
+    /** Marks the end of the requests. */
+    private static final Job END = new Job("");
+
+    /** The Trip whose map I use. */
+    private final Trip _trip;
+    /** The format of my answers. */
+    private final ReportFormat _format;
+    /** Number of worker threads. */
+    private final int _workers;
+    /** Largest number of requests in the pipeline. */
+    private final int _window;
+    /** Buffers of answers already written, for reuse. */
+    private final ConcurrentLinkedQueue<ReportBuffer> _buffers =
+        new ConcurrentLinkedQueue<>();
+    /** The error that ended reading, if any. */
+    private volatile IOException _readFailure;
+}
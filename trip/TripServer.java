@@ -0,0 +1,312 @@
+package trip;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/** A server that answers trip requests over TCP connections to the
+ *  loopback interface, using a map loaded once.  Each request is a line
+ *  listing two or more locations separated by commas; the reply is the
+ *  report that trip prints for them, or a line "trip: MESSAGE" if the
+ *  request is invalid, followed in either case by a line containing only
+ *  END (a period), which no report contains.  A connection may carry any
+ *  number of requests, and ends when the client closes it or sends an
+ *  empty line.
+ *
+ *  Each connection is handled on its own thread: a virtual thread when
+ *  the Java runtime provides them, and otherwise a thread from a cached
+ *  pool.  The legs of requests that arrive within a short window of each
+ *  other are gathered into a batch, in which legs that start at the same
+ *  location share a single search; the searches of a batch run in
+ *  parallel on a ForkJoinPool, each borrowing its storage from the
+ *  Trip's pool of search storage.
+ *  @author Warner Tsang
+ */
+class TripServer implements AutoCloseable {
+
+    /** A server for the map of TRIP, which must not change while the
+     *  server runs, listening on PORT of the loopback interface (any free
+     *  port, if 0) and searching on POOL. */
+    TripServer(Trip trip, int port, ForkJoinPool pool) throws IOException {
+        _trip = trip;
+        _pool = pool;
+        _socket = new ServerSocket(port, BACKLOG,
+                                   InetAddress.getLoopbackAddress());
+        _connections = newConnectionExecutor();
+        _batcher = new Thread(this::batchLoop, "trip-batcher");
+        _batcher.setDaemon(true);
+        _acceptor = new Thread(this::acceptLoop, "trip-acceptor");
+        _acceptor.setDaemon(true);
+    }
+
+    /** Start accepting connections. */
+    void start() {
+        _batcher.start();
+        _acceptor.start();
+    }
+
+    /** Returns the port on which I listen. */
+    int port() {
+        return _socket.getLocalPort();
+    }
+
+    /** Wait until I am closed. */
+    void await() throws InterruptedException {
+        _acceptor.join();
+    }
+
+    /** Stop accepting connections and close those that are open. */
+    @Override
+    public void close() throws IOException {
+        _closed = true;
+        _socket.close();
+        _batcher.interrupt();
+        _connections.shutdownNow();
+    }
+
+    /** Returns an executor that runs each task on a new virtual thread if
+     *  the Java runtime supports them (Java 21 and later), and otherwise
+     *  on a thread from a cached pool of daemon threads. */
+    static ExecutorService newConnectionExecutor() {
+        try {
+            return (ExecutorService) Executors.class
+                .getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException excp) {
+            return Executors.newCachedThreadPool(task -> {
+                Thread thread = new Thread(task, "trip-connection");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /** Accept connections until closed, handing each to a thread of
+     *  _connections. */
+    private void acceptLoop() {
+        while (!_closed) {
+            try {
+                Socket client = _socket.accept();
+                _connections.execute(() -> serve(client));
+            } catch (IOException excp) {
+                if (!_closed) {
+                    System.err.printf("trip: %s%n", excp.getMessage());
+                }
+            }
+        }
+    }
+
+    /** Answer the requests arriving on CLIENT until it is closed. */
+    private void serve(Socket client) {
+        try (client;
+             BufferedReader in =
+                 new BufferedReader(new InputStreamReader(
+                     client.getInputStream(), StandardCharsets.UTF_8));
+             PrintStream out =
+                 new PrintStream(new BufferedOutputStream(
+                     client.getOutputStream()), false,
+                                 StandardCharsets.UTF_8)) {
+            client.setTcpNoDelay(true);
+            String line;
+            while ((line = in.readLine()) != null && !line.isBlank()) {
+                answer(line.trim(), out);
+                out.println(END);
+                out.flush();
+            }
+        } catch (SocketException excp) {
+            /* Connection reset or server closed: nothing to answer. */
+        } catch (IOException excp) {
+            if (!_closed) {
+                System.err.printf("trip: %s%n", excp.getMessage());
+            }
+        }
+    }
+
+    /** Write to OUT the answer to the request LINE. */
+    private void answer(String line, PrintStream out) {
+        List<String> dests = Arrays.asList(Main.LISTSEP.split(line));
+        try {
+            Request request = new Request(_trip.stops(dests));
+            _requests.add(request);
+            _trip.report(dests, request.segments(), out);
+        } catch (IllegalArgumentException excp) {
+            out.printf("trip: %s%n", excp.getMessage());
+        } catch (InterruptedException excp) {
+            Thread.currentThread().interrupt();
+            out.printf("trip: server is shutting down%n");
+        }
+    }
+
+    /** Take batches of requests from _requests and answer them, until
+     *  closed.  If answering a batch fails unexpectedly, even with an
+     *  Error, its unanswered requests are completed with the failure and
+     *  the loop goes on, so that later requests are still answered. */
+    private void batchLoop() {
+        List<Request> batch = new ArrayList<>();
+        try {
+            while (!_closed) {
+                batch.add(_requests.take());
+                long deadline = System.nanoTime() + BATCH_WINDOW;
+                while (batch.size() < MAX_BATCH) {
+                    Request next =
+                        _requests.poll(deadline - System.nanoTime(),
+                                       TimeUnit.NANOSECONDS);
+                    if (next == null) {
+                        break;
+                    }
+                    batch.add(next);
+                }
+                try {
+                    runBatch(batch);
+                } catch (Throwable excp) {
+                    System.err.printf("trip: batch failed: %s%n", excp);
+                    for (Request request : batch) {
+                        request._result.completeExceptionally(excp);
+                    }
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException excp) {
+            for (Request request : batch) {
+                request._result.completeExceptionally(
+                    new IllegalArgumentException("server is shutting down"));
+            }
+        }
+    }
+
+    /** Find the routes for all legs of BATCH, with one search for all
+     *  legs that start at the same location, and complete its requests.
+     *  If the search for a group of legs fails, each of its legs is
+     *  searched for alone, and only the requests with a leg that still
+     *  fails are completed with its error.  (Package-private for
+     *  testing.) */
+    void runBatch(List<Request> batch) {
+        Map<Integer, List<int[]>> bySource = new LinkedHashMap<>();
+        for (int r = 0; r < batch.size(); r += 1) {
+            int[] stops = batch.get(r)._stops;
+            for (int i = 1; i < stops.length; i += 1) {
+                bySource.computeIfAbsent(stops[i - 1], k -> new ArrayList<>())
+                    .add(new int[] { r, i });
+            }
+        }
+        List<List<List<Integer>>> segments = new ArrayList<>();
+        for (Request request : batch) {
+            List<List<Integer>> legs = new ArrayList<>();
+            for (int i = 1; i < request._stops.length; i += 1) {
+                legs.add(null);
+            }
+            segments.add(legs);
+        }
+        List<ForkJoinTask<?>> searches = new ArrayList<>();
+        for (Map.Entry<Integer, List<int[]>> group : bySource.entrySet()) {
+            searches.add(_pool.submit(() -> {
+                int from = group.getKey();
+                List<int[]> legs = group.getValue();
+                int[] tos = new int[legs.size()];
+                for (int k = 0; k < tos.length; k += 1) {
+                    int[] leg = legs.get(k);
+                    tos[k] = batch.get(leg[0])._stops[leg[1]];
+                }
+                List<List<Integer>> routes;
+                try {
+                    routes = _trip.routes(from, tos);
+                } catch (RuntimeException excp) {
+                    routes = null;
+                }
+                for (int k = 0; k < tos.length; k += 1) {
+                    int[] leg = legs.get(k);
+                    List<Integer> route;
+                    try {
+                        route = routes != null ? routes.get(k)
+                            : _trip.routes(from, tos[k]).get(0);
+                    } catch (RuntimeException excp) {
+                        batch.get(leg[0])._result.completeExceptionally(excp);
+                        continue;
+                    }
+                    segments.get(leg[0]).set(leg[1] - 1, route);
+                }
+            }));
+        }
+        for (ForkJoinTask<?> search : searches) {
+            search.join();
+        }
+        for (int r = 0; r < batch.size(); r += 1) {
+            batch.get(r)._result.complete(segments.get(r));
+        }
+    }
+
+    /** A valid request waiting for its routes. */
+    static class Request {
+
+        /** A request for a journey through the vertices STOPS. */
+        Request(int[] stops) {
+            _stops = stops;
+        }
+
+        /** Wait for and return the routes of the legs of my journey. */
+        List<List<Integer>> segments() throws InterruptedException {
+            try {
+                return _result.get();
+            } catch (ExecutionException excp) {
+                Throwable cause = excp.getCause();
+                throw new IllegalArgumentException(
+                    cause.getMessage() != null ? cause.getMessage()
+                    : cause.toString());
+            }
+        }
+
+        /** The stops of the journey. */
+        private final int[] _stops;
+        /** The routes of its legs, once found. */
+        private final CompletableFuture<List<List<Integer>>> _result =
+            new CompletableFuture<>();
+    }
+
+    /** The line ending each reply. */
+    static final String END = ".";
+
+    /** Longest time, in nanoseconds, that the first request of a batch
+     *  waits for others to join it. */
+    private static final long BATCH_WINDOW =
+        TimeUnit.MICROSECONDS.toNanos(200);
+    /** Largest number of requests in a batch. */
+    private static final int MAX_BATCH = 64;
+    /** Number of connections that may wait to be accepted. */
+    private static final int BACKLOG = 256;
+
+    /** The Trip whose map I serve. */
+    private final Trip _trip;
+    /** Pool on which searches run. */
+    private final ForkJoinPool _pool;
+    /** The listening socket. */
+    private final ServerSocket _socket;
+    /** Runs the handler of each connection. */
+    private final ExecutorService _connections;
+    /** Requests waiting to be batched. */
+    private final BlockingQueue<Request> _requests =
+        new LinkedBlockingQueue<>();
+    /** Threads accepting connections and running batches. */
+    private final Thread _acceptor, _batcher;
+    /** True once I have been closed. */
+    private volatile boolean _closed;
+}
@@ -5,8 +5,32 @@ package trip;
  * may not be part of your trip package per se (that is, it must be
  * possible to remove them and still have your package work). */
 
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.io.PrintWriter;
+import java.io.StringReader;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+
 import org.junit.Test;
-import ucb.junit.textui;
+import org.junit.internal.TextListener;
+import org.junit.runner.JUnitCore;
 import static org.junit.Assert.*;
 
 /** Unit tests for the trip package. */
@@ -14,11 +38,648 @@ public class UnitTest {
 
     /** Run all JUnit tests in the graph package. */
     public static void main(String[] ignored) {
-        System.exit(textui.runClasses(trip.UnitTest.class));
+        JUnitCore junit = new JUnitCore();
+        junit.addListener(new TextListener(System.out));
+        System.exit(junit.run(trip.UnitTest.class).wasSuccessful() ? 0 : 1);
     }
 
     @Test
     public void dummyTest() {
     }
 
+    /** Returns a Trip whose map is read from a temporary file containing
+     *  LINES. */
+    private static Trip tripFor(String... lines) throws IOException {
+        Trip trip = new Trip();
+        readInto(trip, lines);
+        return trip;
+    }
+
+    /** Add the map entries LINES to the map of TRIP, reading them from a
+     *  temporary file. */
+    private static void readInto(Trip trip, String... lines)
+        throws IOException {
+        File file = File.createTempFile("trip", ".map");
+        try {
+            try (PrintWriter out = new PrintWriter(file)) {
+                for (String line : lines) {
+                    out.println(line);
+                }
+            }
+            trip.readMap(file.getPath());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    public void testDistanceMatrix() throws IOException {
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 3 0", "L D 9 9",
+                            "R A Main_St 1.0 WE B",
+                            "R B Main_St 2.0 WE C",
+                            "R A Long_Way 5.0 WE C");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            double[] m =
+                trip.distanceMatrix(Arrays.asList("A", "B", "C", "D"), pool);
+            double inf = Double.POSITIVE_INFINITY;
+            assertArrayEquals(new double[] {
+                    0, 1, 3, inf,
+                    1, 0, 2, inf,
+                    3, 2, 0, inf,
+                    inf, inf, inf, 0 }, m, 1e-9);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testNoRoute() throws IOException {
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 5 5", "L D 6 5",
+                            "R A Main_St 1.0 WE B",
+                            "R C Oak 1.0 WE D");
+        try {
+            trip.makeTrip(Arrays.asList("B", "D"));
+            fail("unreachable leg not rejected");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("No route from B to D", excp.getMessage());
+        }
+    }
+
+    @Test
+    public void testNearestLocation() throws IOException {
+        Trip trip = new Trip();
+        try {
+            trip.nearestLocation(0, 0);
+            fail("empty map not rejected");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("map has no locations", excp.getMessage());
+        }
+        readInto(trip, "L A 0 0", "L B 1 0", "L C 3 0", "L D 9 9",
+                 "R A Main_St 1.0 WE B",
+                 "R B Main_St 2.0 WE C",
+                 "R C Elm 8.0 SN D");
+        assertEquals("A", trip.nearestLocation(-5, 1));
+        assertEquals("C", trip.nearestLocation(2.6, 0.5));
+        assertEquals("D", trip.nearestLocation(100, 100));
+        assertEquals(Arrays.asList("B", "A", "C"),
+                     trip.locationsWithin(1, 0.5, 3));
+        assertEquals(Arrays.asList("A", "Main_St", "C", "D"),
+                     trip.snap(Arrays.asList("0.2,-0.1", "Main_St", "C",
+                                             "8e0,+7.5")));
+        assertEquals(Arrays.asList("1,2,3", "x,1", "C"),
+                     trip.snap(Arrays.asList("1,2,3", "x,1", "3,0")));
+        readInto(trip, "L E 0.1 0.1");
+        assertEquals("E", trip.nearestLocation(0.2, 0.2));
+    }
+
+    @Test
+    public void testOptimize() throws IOException {
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 2 0", "L D 3 0",
+                            "L E 4 0",
+                            "R A Main_St 1.0 WE B",
+                            "R B Main_St 1.0 WE C",
+                            "R C Main_St 1.0 WE D",
+                            "R D Main_St 1.0 WE E");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            assertEquals(Arrays.asList("A", "B", "C", "D", "E"),
+                         trip.optimize(Arrays.asList("A", "D", "B", "E", "C"),
+                                       pool));
+            assertEquals(Arrays.asList("B", "A", "C", "D", "E"),
+                         trip.optimize(Arrays.asList("B", "E", "A", "D", "C"),
+                                       pool));
+            List<String> round =
+                trip.optimize(Arrays.asList("C", "A", "E", "B", "D", "C"),
+                              pool);
+            assertEquals("C", round.get(0));
+            assertEquals("C", round.get(5));
+            assertEquals(new HashSet<>(Arrays.asList("A", "B", "D", "E")),
+                         new HashSet<>(round.subList(1, 5)));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testTourOptimizer() {
+        int n = 300;
+        Random rand = new Random(42);
+        double[] x = new double[n], y = new double[n];
+        for (int i = 0; i < n; i += 1) {
+            x[i] = rand.nextDouble();
+            y[i] = rand.nextDouble();
+        }
+        double[] dist = new double[n * n];
+        for (int i = 0; i < n; i += 1) {
+            for (int j = 0; j < n; j += 1) {
+                dist[i * n + j] = Math.hypot(x[i] - x[j], y[i] - y[j]);
+            }
+        }
+        int[] identity = new int[n];
+        for (int i = 0; i < n; i += 1) {
+            identity[i] = i;
+        }
+        ForkJoinPool pool = new ForkJoinPool(2);
+        ForkJoinPool single = new ForkJoinPool(1);
+        try {
+            for (boolean roundTrip : new boolean[] { false, true }) {
+                TourOptimizer opt = new TourOptimizer(dist, n, roundTrip);
+                int[] tour = opt.optimize(pool);
+                assertArrayEquals(tour, opt.optimize(single));
+                assertEquals(0, tour[0]);
+                if (roundTrip) {
+                    assertEquals(n - 1, tour[n - 1]);
+                }
+                int[] sorted = tour.clone();
+                Arrays.sort(sorted);
+                assertArrayEquals(identity, sorted);
+                assertTrue(opt.length(tour) < opt.length(identity) / 4);
+            }
+        } finally {
+            pool.shutdown();
+            single.shutdown();
+        }
+    }
+
+    @Test
+    public void testSavedMap() throws IOException {
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 3 0", "L D 9 9",
+                            "R A Main_St 1.0 WE B",
+                            "R B Main_St 2.0 WE C",
+                            "R A Long_Way 5.0 WE C");
+        File saved = File.createTempFile("trip", ".graph");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            trip.saveMap(saved.getPath());
+            Trip loaded = new Trip();
+            loaded.readMap(saved.getPath());
+            List<String> stops = Arrays.asList("A", "B", "C", "D");
+            assertArrayEquals(trip.distanceMatrix(stops, pool),
+                              loaded.distanceMatrix(stops, pool), 1e-9);
+            try {
+                loaded.makeTrip(Arrays.asList("A", "D"));
+                fail("unreachable leg not rejected");
+            } catch (IllegalArgumentException excp) {
+                assertEquals("No route from A to D", excp.getMessage());
+            }
+        } finally {
+            pool.shutdown();
+            saved.delete();
+        }
+    }
+
+    @Test
+    public void testReorder() throws IOException {
+        String[] map = {
+            "L C 3 0", "L A 0 0", "L D 9 9", "L B 1 0",
+            "R A Main_St 1.0 WE B",
+            "R B Main_St 2.0 WE C",
+            "R A Long_Way 5.0 WE C" };
+        List<String> stops = Arrays.asList("A", "B", "C", "D");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try {
+            double[] expected = tripFor(map).distanceMatrix(stops, pool);
+            for (String order : new String[] { "hilbert", "rcm", "bfs" }) {
+                Trip trip = tripFor(map);
+                trip.reorder(order);
+                assertArrayEquals(expected, trip.distanceMatrix(stops, pool),
+                                  1e-9);
+                try {
+                    trip.makeTrip(Arrays.asList("A", "D"));
+                    fail("unreachable leg not rejected");
+                } catch (IllegalArgumentException excp) {
+                    assertEquals("No route from A to D", excp.getMessage());
+                }
+            }
+            try {
+                tripFor(map).reorder("random");
+                fail("unknown order accepted");
+            } catch (IllegalArgumentException excp) {
+                assertEquals("unknown vertex order: random",
+                             excp.getMessage());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /** Returns the report of TRIP on the journey through the locations
+     *  listed in REQUEST. */
+    private static String report(Trip trip, String request) {
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        trip.makeTrip(Arrays.asList(Main.LISTSEP.split(request)),
+                      new PrintStream(report, true));
+        return report.toString();
+    }
+
+    @Test
+    public void testRouteCache() throws IOException {
+        String[] map = {
+            "L A 0 0", "L B 1 0", "L C 3 0", "L E 3 1",
+            "R A Main_St 1.0 WE B",
+            "R B Main_St 2.0 WE C",
+            "R A Long_Way 5.0 WE C",
+            "R C Oak 1.0 SN E" };
+        Trip plain = tripFor(map);
+        plain.setRouteCache(null);
+        Trip trip = tripFor(map);
+        RouteCache cache = new RouteCache(100, 1 << 20, 2);
+        trip.setRouteCache(cache);
+        assertEquals(report(plain, "A,C"), report(trip, "A,C"));
+        assertEquals(0, cache.hits());
+        assertEquals(1, cache.misses());
+        assertEquals(report(plain, "A,C"), report(trip, "A,C"));
+        assertEquals(1, cache.hits());
+        assertEquals(report(plain, "A,E"), report(trip, "A,E"));
+        assertEquals(2, cache.misses());
+        assertEquals(report(plain, "A,B,A"), report(trip, "A,B,A"));
+        assertEquals(2, cache.hits());
+        assertEquals(3, cache.misses());
+        assertEquals(0.4, cache.hitRate(), 1e-9);
+
+        String[] shortcut = { "R A Shortcut 0.5 WE C" };
+        readInto(plain, shortcut);
+        readInto(trip, shortcut);
+        assertEquals(report(plain, "A,C"), report(trip, "A,C"));
+        assertEquals(4, cache.misses());
+        assertTrue(report(trip, "A,C").contains("Shortcut"));
+        assertEquals(3, cache.hits());
+
+        RouteCache small = new RouteCache(2, 1 << 20, 0);
+        small.putRoute(1, new int[] { 1, 2 });
+        small.putRoute(1, new int[] { 2, 3 });
+        assertNotNull(small.route(1, 1, 2));
+        small.putRoute(1, new int[] { 3, 4 });
+        assertNull(small.route(1, 2, 3));
+        assertArrayEquals(new int[] { 1, 2 }, small.route(1, 1, 2));
+        assertNull(small.route(2, 1, 2));
+        assertEquals(0, small.bytes());
+    }
+
+    @Test
+    public void testOversizedTree() throws IOException {
+        RouteCache cache = new RouteCache(100, 96 + 4 * 3, 1);
+        assertNull(cache.route(0, 1, 3));
+        assertTrue(cache.wantsTree(0, 1, 3));
+        assertFalse(cache.wantsTree(0, 1, 4));
+        cache.putTree(0, 1, new int[] { 0, 0, 1, 2, 3 });
+        assertEquals(0, cache.bytes());
+        assertTrue(cache.toString().contains("from 0 trees"));
+
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 2 0", "L D 3 0",
+                            "R A Main_St 1.0 WE B",
+                            "R B Main_St 1.0 WE C",
+                            "R C Main_St 1.0 WE D");
+        cache = new RouteCache(100, 96 + 4 * 3, 1);
+        trip.setRouteCache(cache);
+        for (String request : new String[] { "A,B", "A,C", "A,D", "A,C" }) {
+            report(trip, request);
+        }
+        assertEquals(1, cache.hits());
+        assertEquals(3, cache.misses());
+        assertTrue(cache.toString().contains("from 0 trees"));
+    }
+
+    @Test
+    public void testProfiles() throws IOException {
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 2 0", "L D 3 0",
+                            "R A I-80 1.0 WE B",
+                            "R B I-80 1.0 WE C",
+                            "R C I-80 1.0 WE D",
+                            "R A Main_St 1.5 WE D");
+        String local = "From A:\n\n1. Take Main_St east for 1.5 miles to D.\n";
+        String highway = "From A:\n\n1. Take I-80 east for 3.0 miles to D.\n";
+        assertEquals(Trip.DISTANCE, trip.profile());
+        assertEquals(local, report(trip, "A,D"));
+        trip.addProfile("time", road -> road.length()
+                        / (road.toString().equals("I-80") ? 60 : 20));
+        trip.setProfile("time");
+        assertEquals(highway, report(trip, "A,D"));
+        assertEquals(Arrays.asList(1, 2, 3, 4),
+                     trip.routes("time", 1, 4).get(0));
+        assertEquals(Arrays.asList(1, 4),
+                     trip.routes(Trip.DISTANCE, 1, 4).get(0));
+        trip.addProfile("truck", road -> road.toString().equals("I-80")
+                        ? road.length() : Double.POSITIVE_INFINITY);
+        trip.setProfile("truck");
+        assertEquals(highway, report(trip, "A,D"));
+        trip.setProfile(Trip.DISTANCE);
+        assertEquals(local, report(trip, "A,D"));
+
+        readInto(trip, "R A Main_St 9.0 WE D");
+        trip.setProfile("time");
+        assertEquals(highway, report(trip, "A,D"));
+        trip.addProfile("bicycle", road -> road.toString().equals("I-80")
+                        ? Double.POSITIVE_INFINITY : road.length());
+        trip.setProfile("bicycle");
+        assertEquals("From A:\n\n1. Take Main_St east for 9.0 miles to D.\n",
+                     report(trip, "A,D"));
+        try {
+            report(trip, "A,C");
+            fail("closed road not rejected");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("No route from A to C", excp.getMessage());
+        }
+
+        try {
+            trip.setProfile("boat");
+            fail("unknown profile accepted");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("unknown profile: boat", excp.getMessage());
+        }
+        try {
+            trip.addProfile("time", Road::length);
+            fail("duplicate profile accepted");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("duplicate profile: time", excp.getMessage());
+        }
+    }
+
+    @Test
+    public void testContract() throws IOException {
+        String[] map = {
+            "L A 0 0", "L B 1 0", "L C 2 0", "L D 3 0", "L E 3 1",
+            "L F 3 2", "L G 0 2", "L H 1 1",
+            "R A Main_St 1.0 WE B",
+            "R B Main_St 1.1 WE C",
+            "R C Main_St 1.2 WE D",
+            "R D Oak 1.0 SN E",
+            "R E Oak 1.05 SN F",
+            "R F Pine 3.1 EW G",
+            "R G Elm 2.2 NS A",
+            "R B Cross 1.3 SN H",
+            "R H Cross 1.4 SN F" };
+        Trip plain = tripFor(map);
+        plain.setRouteCache(null);
+        Trip trip = tripFor(map);
+        trip.setRouteCache(null);
+        trip.contract();
+        assertEquals(5, trip.contraction().contracted().vertexSize());
+        String[] names = { "A", "B", "C", "D", "E", "F", "G", "H" };
+        for (String from : names) {
+            for (String to : names) {
+                if (from.equals(to) || to.equals(names[0])) {
+                    continue;
+                }
+                String request = from + "," + to + "," + names[0];
+                assertEquals(report(plain, request), report(trip, request));
+            }
+        }
+        readInto(trip, "R C Oak 0.1 SN E");
+        assertNull(trip.contraction());
+        readInto(plain, "R C Oak 0.1 SN E");
+        assertEquals(report(plain, "A,F"), report(trip, "A,F"));
+    }
+
+    @Test
+    public void testBatch() throws Exception {
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 3 0", "L D 9 9",
+                            "L E 3 1",
+                            "R A Main_St 1.0 WE B",
+                            "R B Main_St 2.0 WE C",
+                            "R A Long_Way 5.0 WE C",
+                            "R C Oak 1.0 SN E");
+        String[] requests = { "A, C", "C,A,E", "A,D", "B,E", "", "A,Z",
+                              "E, A, B", "A,E" };
+        StringBuilder input = new StringBuilder();
+        StringBuilder expected = new StringBuilder();
+        int n;
+        n = 0;
+        for (int k = 0; k < 50; k += 1) {
+            for (String request : requests) {
+                input.append(request).append(System.lineSeparator());
+                if (request.isEmpty()) {
+                    continue;
+                }
+                if (n > 0) {
+                    expected.append(System.lineSeparator());
+                }
+                n += 1;
+                try {
+                    expected.append(report(trip, request));
+                } catch (IllegalArgumentException excp) {
+                    expected.append("trip: ").append(excp.getMessage())
+                        .append(System.lineSeparator());
+                }
+            }
+        }
+        for (int workers = 1; workers <= 4; workers *= 2) {
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            long answered =
+                new TripBatch(trip, ReportFormat.TEXT, workers, 3)
+                .run(new BufferedReader(new StringReader(input.toString())),
+                     new ReportBuffer(Channels.newChannel(output), 64));
+            assertEquals(n, answered);
+            assertEquals(expected.toString(), output.toString());
+        }
+    }
+
+    @Test
+    public void testReportFormats() throws IOException {
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 3 0", "L D 3 1",
+                            "R A Main_St 1.0 WE B",
+                            "R B Main_St 1.04 WE C",
+                            "R C Oak 1.25 SN D");
+        List<String> dests = Arrays.asList("A", "D", "B");
+        ByteArrayOutputStream text = new ByteArrayOutputStream();
+        trip.makeTrip(dests, new PrintStream(text, true));
+        String nl = System.lineSeparator();
+        assertEquals("From A:" + nl + nl
+                     + "1. Take Main_St east for 2.0 miles." + nl
+                     + "2. Take Oak north for 1.3 miles to D." + nl
+                     + "3. Take Oak south for 1.3 miles." + nl
+                     + "4. Take Main_St west for 1.0 miles to B." + nl,
+                     text.toString());
+
+        ReportBuffer json = new ReportBuffer();
+        trip.makeTrip(dests, ReportFormat.JSON, json);
+        ReportFormat.JSON.error(json, "No \"Z\"");
+        assertEquals("{\"from\":\"A\",\"steps\":["
+                     + "{\"road\":\"Main_St\",\"direction\":\"east\","
+                     + "\"miles\":2.0},"
+                     + "{\"road\":\"Oak\",\"direction\":\"north\","
+                     + "\"miles\":1.3,\"to\":\"D\"},"
+                     + "{\"road\":\"Oak\",\"direction\":\"south\","
+                     + "\"miles\":1.3},"
+                     + "{\"road\":\"Main_St\",\"direction\":\"west\","
+                     + "\"miles\":1.0,\"to\":\"B\"}]}\n"
+                     + "{\"error\":\"No \\\"Z\\\"\"}\n",
+                     new String(json.toByteArray(),
+                                StandardCharsets.UTF_8));
+
+        String wide = "Caf\u00e9_\ud83d\ude97\u00b2\ud834\udd1e";
+        json.reset();
+        ReportFormat.JSON.begin(json, wide);
+        ReportFormat.JSON.end(json);
+        ReportFormat.JSON.error(json, "No " + wide);
+        assertArrayEquals(("{\"from\":\"" + wide + "\",\"steps\":[]}\n"
+                           + "{\"error\":\"No " + wide + "\"}\n")
+                          .getBytes(StandardCharsets.UTF_8),
+                          json.toByteArray());
+
+        ReportBuffer binary = new ReportBuffer();
+        trip.makeTrip(Arrays.asList("A", "C"), ReportFormat.BINARY, binary);
+        assertArrayEquals(new byte[] {
+                ReportFormat.BEGIN, 1, 'A',
+                ReportFormat.STEP, 7, 'M', 'a', 'i', 'n', '_', 'S', 't',
+                (byte) Direction.WE.ordinal(), 20, 1, 'C',
+                ReportFormat.END }, binary.toByteArray());
+
+        ReportBuffer numbers = new ReportBuffer();
+        Random rand = new Random(42);
+        StringBuilder expected = new StringBuilder();
+        for (int i = 0; i < 1000; i += 1) {
+            double x = i < 500 ? rand.nextDouble() * 100 : rand.nextDouble()
+                * Math.pow(10, rand.nextInt(12));
+            expected.append(Math.round(x * 10.0) / 10.0).append(' ');
+            numbers.appendTenths(x).append(' ');
+        }
+        assertEquals(expected.toString(),
+                     new String(numbers.toByteArray(),
+                                StandardCharsets.UTF_8));
+        try {
+            ReportFormat.forName("xml");
+            fail("unknown format accepted");
+        } catch (IllegalArgumentException excp) {
+            assertEquals("unknown output format: xml", excp.getMessage());
+        }
+    }
+
+    /** Returns the reply of the server listening on PORT to the request
+     *  LINE, sent on a new connection. */
+    private static String ask(int port, String line) throws IOException {
+        try (Socket socket = new Socket(InetAddress.getLoopbackAddress(),
+                                        port);
+             PrintWriter out = new PrintWriter(socket.getOutputStream(),
+                                               true);
+             BufferedReader in = new BufferedReader(
+                 new InputStreamReader(socket.getInputStream()))) {
+            out.println(line);
+            StringBuilder reply = new StringBuilder();
+            String text;
+            while ((text = in.readLine()) != null
+                   && !text.equals(TripServer.END)) {
+                reply.append(text).append(System.lineSeparator());
+            }
+            return reply.toString();
+        }
+    }
+
+    @Test
+    public void testServer() throws Exception {
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 3 0", "L D 9 9",
+                            "L E 3 1",
+                            "R A Main_St 1.0 WE B",
+                            "R B Main_St 2.0 WE C",
+                            "R A Long_Way 5.0 WE C",
+                            "R C Oak 1.0 SN E");
+        String[] requests = { "A, C", "C,A,E", "B,E", "E, A, B", "A,E" };
+        String[] expected = new String[requests.length];
+        for (int i = 0; i < requests.length; i += 1) {
+            ByteArrayOutputStream report = new ByteArrayOutputStream();
+            trip.makeTrip(Arrays.asList(Main.LISTSEP.split(requests[i])),
+                          new PrintStream(report, true));
+            expected[i] = report.toString();
+        }
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (TripServer server = new TripServer(trip, 0, pool)) {
+            server.start();
+            int port = server.port();
+            List<Callable<String>> calls = new ArrayList<>();
+            for (int k = 0; k < 5 * requests.length; k += 1) {
+                String request = requests[k % requests.length];
+                calls.add(() -> ask(port, request));
+            }
+            ExecutorService clients = Executors.newFixedThreadPool(8);
+            try {
+                List<Future<String>> replies = clients.invokeAll(calls);
+                for (int k = 0; k < replies.size(); k += 1) {
+                    assertEquals(expected[k % requests.length],
+                                 replies.get(k).get());
+                }
+            } finally {
+                clients.shutdown();
+            }
+            assertEquals("trip: No route from A to D"
+                         + System.lineSeparator(), ask(port, "A,D"));
+            assertEquals("trip: No location named Z"
+                         + System.lineSeparator(), ask(port, "A,Z"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testServerSurvivesError() throws Exception {
+        int[] broken = new int[1];
+        Trip trip = new Trip() {
+            @Override
+            List<List<Integer>> routes(String profile, int from,
+                                       int... tos) {
+                if (from == broken[0]) {
+                    throw new AssertionError("search failed");
+                }
+                return super.routes(profile, from, tos);
+            }
+        };
+        readInto(trip, "L A 0 0", "L B 1 0", "L C 3 0",
+                 "R A Main_St 1.0 WE B",
+                 "R B Main_St 2.0 WE C");
+        broken[0] = trip.stops(Arrays.asList("B", "C"))[0];
+        String expected = report(trip, "A,B");
+        ForkJoinPool pool = new ForkJoinPool(2);
+        PrintStream stderr = System.err;
+        System.setErr(new PrintStream(new ByteArrayOutputStream(), true));
+        try (TripServer server = new TripServer(trip, 0, pool)) {
+            server.start();
+            int port = server.port();
+            assertTrue(ask(port, "B,C").startsWith("trip: "));
+            assertEquals(expected, ask(port, "A,B"));
+        } finally {
+            System.setErr(stderr);
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    public void testServerBatchFailure() throws Exception {
+        Trip trip = tripFor("L A 0 0", "L B 1 0", "L C 3 0", "L E 3 1",
+                            "R A Main_St 1.0 WE B",
+                            "R B Main_St 2.0 WE C",
+                            "R C Oak 1.0 SN E");
+        trip.addProfile("truck", road -> road.toString().equals("Oak")
+                        ? Double.POSITIVE_INFINITY : road.length());
+        trip.setProfile("truck");
+        String[] requests = { "A,C", "A,E", "B,C", "C,B,A" };
+        ForkJoinPool pool = new ForkJoinPool(2);
+        try (TripServer server = new TripServer(trip, 0, pool)) {
+            List<TripServer.Request> batch = new ArrayList<>();
+            for (String request : requests) {
+                batch.add(new TripServer.Request(
+                    trip.stops(Arrays.asList(Main.LISTSEP.split(request)))));
+            }
+            server.runBatch(batch);
+            for (int i = 0; i < requests.length; i += 1) {
+                List<String> dests =
+                    Arrays.asList(Main.LISTSEP.split(requests[i]));
+                if (requests[i].endsWith("E")) {
+                    try {
+                        batch.get(i).segments();
+                        fail("route to E found");
+                    } catch (IllegalArgumentException excp) {
+                        assertEquals("No route from A to E",
+                                     excp.getMessage());
+                    }
+                    continue;
+                }
+                ByteArrayOutputStream report = new ByteArrayOutputStream();
+                trip.report(dests, batch.get(i).segments(),
+                            new PrintStream(report, true));
+                assertEquals(report(trip, requests[i]), report.toString());
+            }
+        } finally {
+            pool.shutdown();
+        }
+    }
 }
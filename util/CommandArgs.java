@@ -0,0 +1,170 @@
+package util;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/** A parser for command-line arguments, described by a specification
+ *  string.  The specification is a whitespace-separated list of items of
+ *  the following forms:
+ *      KEY={MIN,MAX}  An option KEY (e.g., -f) that takes an argument,
+ *                     and must appear between MIN and MAX times.  MAX
+ *                     may be omitted ({MIN,}) to mean any number of times.
+ *      KEY            An option that takes no argument and may appear at
+ *                     most once (e.g., --stats).
+ *      --={MIN,MAX}   The number of positional (non-option) arguments.
+ *                     By default, none are allowed.
+ *  An option's argument may either follow it as the next argument or be
+ *  attached with '=' (as in --format=json).  The argument "--" ends the
+ *  options: all arguments after it are positional.  Other arguments
+ *  beginning with '-' are errors unless they look like negative numbers,
+ *  which are positional.
+ *  @author Warner Tsang
+ */
+public class CommandArgs {
+
+    /** The arguments ARGS, parsed according to SPEC. */
+    public CommandArgs(String spec, String[] args) {
+        _ok = true;
+        for (String item : spec.trim().split("\\s+")) {
+            if (item.isEmpty()) {
+                continue;
+            }
+            Matcher m = ITEM.matcher(item);
+            if (!m.matches()) {
+                throw new IllegalArgumentException("bad option spec: "
+                                                   + item);
+            }
+            Option opt = new Option();
+            opt.takesArg = m.group(2) != null || m.group(1).equals(ARGS);
+            if (m.group(2) != null) {
+                opt.min = Integer.parseInt(m.group(3));
+                opt.max = m.group(4).isEmpty() ? Integer.MAX_VALUE
+                    : Integer.parseInt(m.group(4));
+            } else {
+                opt.min = 0;
+                opt.max = opt.takesArg ? Integer.MAX_VALUE : 1;
+            }
+            _options.put(m.group(1), opt);
+        }
+        if (!_options.containsKey(ARGS)) {
+            Option positional = new Option();
+            positional.takesArg = true;
+            _options.put(ARGS, positional);
+        }
+        parse(args);
+        for (Option opt : _options.values()) {
+            if (opt.values.size() < opt.min || opt.values.size() > opt.max) {
+                _ok = false;
+            }
+        }
+    }
+
+    /** Returns true iff the arguments conformed to the specification. */
+    public boolean ok() {
+        return _ok;
+    }
+
+    /** Returns true iff option KEY appeared at least once. */
+    public boolean contains(String key) {
+        return !get(key).isEmpty();
+    }
+
+    /** Returns the arguments given to all occurrences of KEY, in order
+     *  (empty strings for options that take no argument).  KEY "--"
+     *  denotes the positional arguments. */
+    public List<String> get(String key) {
+        Option opt = _options.get(key);
+        if (opt == null) {
+            return Collections.emptyList();
+        }
+        return Collections.unmodifiableList(opt.values);
+    }
+
+    /** Returns the argument of the first occurrence of KEY, or null if
+     *  there is none. */
+    public String getFirst(String key) {
+        return getFirst(key, null);
+    }
+
+    /** Returns the argument of the first occurrence of KEY, or DFLT if
+     *  there is none. */
+    public String getFirst(String key, String dflt) {
+        List<String> values = get(key);
+        return values.isEmpty() ? dflt : values.get(0);
+    }
+
+    /** Returns the argument of the last occurrence of KEY, or DFLT if
+     *  there is none. */
+    public String getLast(String key, String dflt) {
+        List<String> values = get(key);
+        return values.isEmpty() ? dflt : values.get(values.size() - 1);
+    }
+
+    /** Record the options and positional arguments in ARGS. */
+    private void parse(String[] args) {
+        List<String> positional = _options.get(ARGS).values;
+        for (int i = 0; i < args.length; i += 1) {
+            String arg = args[i];
+            if (arg.equals(ARGS)) {
+                for (i += 1; i < args.length; i += 1) {
+                    positional.add(args[i]);
+                }
+                break;
+            }
+            String key = arg, value = null;
+            int eq = arg.indexOf('=');
+            if (eq > 0 && !_options.containsKey(arg)) {
+                key = arg.substring(0, eq);
+                value = arg.substring(eq + 1);
+            }
+            Option opt = _options.get(key);
+            if (opt == null || key.equals(ARGS)) {
+                if (OPTION.matcher(arg).matches()) {
+                    _ok = false;
+                } else {
+                    positional.add(arg);
+                }
+            } else if (!opt.takesArg) {
+                if (value != null) {
+                    _ok = false;
+                }
+                opt.values.add("");
+            } else if (value != null) {
+                opt.values.add(value);
+            } else if (i + 1 < args.length) {
+                i += 1;
+                opt.values.add(args[i]);
+            } else {
+                _ok = false;
+            }
+        }
+    }
+
+    /** Describes one option in the specification. */
+    private static class Option {
+        /** True iff the option takes an argument. */
+        private boolean takesArg;
+        /** Minimum and maximum number of occurrences. */
+        private int min, max;
+        /** Arguments of the occurrences seen. */
+        private final List<String> values = new ArrayList<>();
+    }
+
+    /** The key denoting positional arguments. */
+    private static final String ARGS = "--";
+    /** Describes arguments that are taken to be (unknown) options. */
+    private static final Pattern OPTION = Pattern.compile("-[^\\d.].*");
+    /** Describes an item in a specification. */
+    private static final Pattern ITEM =
+        Pattern.compile("([^=\\s]+)(=\\{(\\d+),(\\d*)\\})?");
+
+    /** Mapping of option keys to their descriptions and values. */
+    private final Map<String, Option> _options = new LinkedHashMap<>();
+    /** True iff the arguments conformed to the specification. */
+    private boolean _ok;
+}
@@ -0,0 +1,62 @@
+package util;
+
+import java.util.Arrays;
+
+import org.junit.Test;
+import org.junit.internal.TextListener;
+import org.junit.runner.JUnitCore;
+import static org.junit.Assert.*;
+
+/** Unit tests for the util package. */
+public class UnitTest {
+
+    /** Run all JUnit tests in the util package. */
+    public static void main(String[] ignored) {
+        JUnitCore junit = new JUnitCore();
+        junit.addListener(new TextListener(System.out));
+        System.exit(junit.run(util.UnitTest.class).wasSuccessful() ? 0 : 1);
+    }
+
+    @Test
+    public void testOptions() {
+        CommandArgs args =
+            new CommandArgs("-f={0,1} -D={0,2} --stats --={1,}",
+                            new String[] { "-D", "a", "-f", "mk", "x",
+                                           "-D=b", "--stats", "y" });
+        assertTrue(args.ok());
+        assertEquals("mk", args.getFirst("-f"));
+        assertEquals("a", args.getFirst("-D", "none"));
+        assertEquals("b", args.getLast("-D", "none"));
+        assertTrue(args.contains("--stats"));
+        assertEquals(Arrays.asList("x", "y"), args.get("--"));
+    }
+
+    @Test
+    public void testDefaults() {
+        CommandArgs args = new CommandArgs("-m={0,1} -o={0,1} --={2,}",
+                                           new String[] { "--", "-a", "b" });
+        assertTrue(args.ok());
+        assertNull(args.getFirst("-o"));
+        assertEquals("Map", args.getFirst("-m", "Map"));
+        assertFalse(args.contains("-m"));
+        assertEquals(Arrays.asList("-a", "b"), args.get("--"));
+    }
+
+    @Test
+    public void testErrors() {
+        String spec = "-f={1,1} --verbose --={0,1}";
+        assertFalse(new CommandArgs(spec, new String[] {}).ok());
+        assertFalse(new CommandArgs(spec, new String[] { "-f" }).ok());
+        assertFalse(new CommandArgs(spec,
+                                    new String[] { "-f", "a", "-q" }).ok());
+        assertFalse(new CommandArgs(spec,
+                                    new String[] { "-f", "a", "b", "c" })
+                    .ok());
+        assertFalse(new CommandArgs(spec, new String[] { "-f", "a",
+                                                         "--verbose=1" })
+                    .ok());
+        assertTrue(new CommandArgs(spec,
+                                   new String[] { "-f", "a", "-1.5,2" }).ok());
+    }
+
+}